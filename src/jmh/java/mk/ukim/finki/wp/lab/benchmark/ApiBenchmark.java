@@ -0,0 +1,154 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletContext;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.web.api.ApiFields;
+import mk.ukim.finki.wp.lab.web.api.ApiPage;
+import mk.ukim.finki.wp.lab.web.api.JsonFields;
+import mk.ukim.finki.wp.lab.web.render.FlushingIterator;
+import mk.ukim.finki.wp.lab.web.render.RenderBuffer;
+import mk.ukim.finki.wp.lab.web.render.RenderBufferPool;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Slice;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+// The same dish data as an HTML page (what clients scraped) and through the JSON API: one page of `rows`
+// dishes, and the whole catalogue from the database cursor as /dishes/all and as NDJSON. Each operation
+// includes the service call and produces the encoded bytes; the setup prints the size of each response.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiBenchmark {
+    private static final JsonFields<DishSummary> ID_AND_NAME = ApiFields.DISH.select("id,name");
+
+    @Param({"50", "500"})
+    public int rows;
+
+    private DishService dishService;
+    private CatalogStatisticsService statisticsService;
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication webApplication;
+    private ServletContext servletContext;
+    private ObjectMapper objectMapper;
+    private final RenderBufferPool bufferPool = new RenderBufferPool(1, 32768, 64 * 1024 * 1024);
+    private final ByteArrayOutputStream json = new ByteArrayOutputStream(32768);
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) throws IOException {
+        this.dishService = catalog.bean(DishService.class);
+        this.statisticsService = catalog.bean(CatalogStatisticsService.class);
+        this.templateEngine = catalog.bean(SpringTemplateEngine.class);
+        this.webApplication = catalog.bean(JakartaServletWebApplication.class);
+        this.servletContext = catalog.bean(ServletContext.class);
+        this.objectMapper = catalog.bean(ObjectMapper.class);
+        System.out.printf("%nResponse bytes for %d rows: html page %d, json page %d, json page id,name %d;"
+                        + " whole catalogue of %d dishes: html %d, ndjson %d%n",
+                this.rows, htmlPage(), jsonPage(), jsonPageIdAndName(), catalog.dishes, htmlAll(), ndjsonAll());
+    }
+
+    @Benchmark
+    public int htmlPage() {
+        Slice<DishSummary> page = this.dishService.listDishSummaries(null, this.rows);
+        WebContext context = newContext("/dishes");
+        context.setVariable("dishes", page.getContent());
+        context.setVariable("after", null);
+        context.setVariable("nextAfter", nextAfter(page));
+        context.setVariable("size", this.rows);
+        context.setVariable("error", null);
+        context.setVariable("selectedRating", null);
+        context.setVariable("streaming", false);
+        context.setVariable("ratingCounts", this.statisticsService.ratingCounts());
+        return render("listDishes", context);
+    }
+
+    @Benchmark
+    public int jsonPage() throws IOException {
+        return writeJson(ApiFields.DISH);
+    }
+
+    @Benchmark
+    public int jsonPageIdAndName() throws IOException {
+        return writeJson(ID_AND_NAME);
+    }
+
+    @Benchmark
+    public int htmlAll() {
+        RenderBuffer buffer = this.bufferPool.acquire();
+        try {
+            this.dishService.streamDishes(null, dishes -> {
+                WebContext context = newContext("/dishes/all");
+                // As in DishController; flushing the buffer is a no-op
+                context.setVariable("dishes", new FlushingIterator<>(dishes.iterator(), buffer, 200));
+                context.setVariable("streaming", true);
+                context.setVariable("selectedRating", null);
+                context.setVariable("ratingCounts", this.statisticsService.ratingCounts());
+                this.templateEngine.process("listDishes", context, buffer);
+            });
+            return buffer.length();
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    @Benchmark
+    public int ndjsonAll() throws IOException {
+        this.json.reset();
+        try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(this.json)) {
+            generator.setRootValueSeparator(null);
+            this.dishService.streamDishes(null, dishes -> dishes.forEach(dish -> writeLine(generator, dish)));
+        }
+        return this.json.size();
+    }
+
+    private int writeJson(JsonFields<DishSummary> fields) throws IOException {
+        Slice<DishSummary> page = this.dishService.listDishSummaries(null, this.rows);
+        this.json.reset();
+        this.objectMapper.writeValue(this.json, new ApiPage<>(page.getContent(), fields, nextAfter(page)));
+        return this.json.size();
+    }
+
+    private static Long nextAfter(Slice<DishSummary> page) {
+        return page.hasNext() ? page.getContent().get(page.getContent().size() - 1).getId() : null;
+    }
+
+    private static void writeLine(JsonGenerator generator, DishSnapshot dish) {
+        try {
+            ApiFields.DISH_ROW.write(generator, dish);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int render(String template, WebContext context) {
+        RenderBuffer buffer = this.bufferPool.acquire();
+        try {
+            this.templateEngine.process(template, context, buffer);
+            return buffer.length();
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    private WebContext newContext(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(this.servletContext, "GET", path);
+        return new WebContext(this.webApplication.buildExchange(request, new MockHttpServletResponse()));
+    }
+}
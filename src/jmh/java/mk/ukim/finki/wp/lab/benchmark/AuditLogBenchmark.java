@@ -0,0 +1,105 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.service.audit.AuditLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The audit log on its own, in a temporary directory. The log is filled with `changes` updates spread over
+// `dishes` dishes and a simulated month, in 1 MB segments with the sealed ones compacted. appendBatch is the
+// writer thread's cost for one batch. dishHistory reads the changes/dishes records of one dish and
+// catalogueAsOf one record per dish, so with -p changes=100000,1000000 the history grows with the records it
+// returns while the catalogue only pays for a longer binary search per dish.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditLogBenchmark {
+    private static final int BATCH = 100;
+    private static final long MONTH_MILLIS = 30L * 24 * 3600 * 1000;
+
+    @Param({"1000"})
+    public int dishes;
+
+    @Param({"100000"})
+    public int changes;
+
+    private Path directory;
+    private AuditLog auditLog;
+    private Instant start;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("audit-log-benchmark");
+        this.auditLog = new AuditLog(this.directory, 1 << 20, false, new ObjectMapper().findAndRegisterModules());
+        this.start = Instant.now().minusMillis(MONTH_MILLIS);
+        List<AuditRecord> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < this.changes; i++) {
+            Instant at = this.start.plusMillis(MONTH_MILLIS * i / this.changes);
+            batch.add(change(i % this.dishes + 1, at));
+            if (batch.size() == BATCH) {
+                this.auditLog.append(batch);
+                batch.clear();
+            }
+        }
+        this.auditLog.append(batch);
+        this.auditLog.compact(this.start);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.auditLog.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int appendBatch() {
+        List<AuditRecord> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(change(randomDish(), Instant.now()));
+        }
+        this.auditLog.append(batch);
+        return batch.size();
+    }
+
+    @Benchmark
+    public List<AuditRecord> dishHistory() {
+        return this.auditLog.history(AuditRecord.DISH, (long) randomDish());
+    }
+
+    @Benchmark
+    public List<AuditRecord> catalogueAsOf() {
+        long offset = ThreadLocalRandom.current().nextLong(MONTH_MILLIS);
+        return this.auditLog.asOf(this.start.plusMillis(offset));
+    }
+
+    private int randomDish() {
+        return 1 + ThreadLocalRandom.current().nextInt(this.dishes);
+    }
+
+    private static AuditRecord change(long id, Instant at) {
+        int preparationTime = 5 + ThreadLocalRandom.current().nextInt(120);
+        DishSnapshot before = new DishSnapshot(id, "B" + id, "Dish " + id, "Test", 30, 3, 1L);
+        DishSnapshot after = new DishSnapshot(id, "B" + id, "Dish " + id, "Test", preparationTime, 3, 1L);
+        return AuditRecord.of(new DishChangedEvent(before, after), at);
+    }
+}
@@ -0,0 +1,142 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.LabApplication;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load test comparing platform and virtual request threads on the same data.
+// Options: --concurrency=200 --duration=PT30S --warmup=PT10S --dishes=10000 --paths=/dishes,/listChefs
+// --result=target/loadtest-result.json; any other --key=value is passed to the application.
+public class CatalogLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (option != null && Set.of("concurrency", "duration", "warmup", "dishes", "paths", "result").contains(option)) {
+                options.put(option, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        int dishes = Integer.parseInt(options.getOrDefault("dishes", "10000"));
+        List<String> paths = List.of(options.getOrDefault("paths", "/dishes,/listChefs").split(","));
+        Path result = Path.of(options.getOrDefault("result", "target/loadtest-result.json"));
+
+        List<String> rows = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.println(mode + ": skipped, needs Java 21+ (running " + Runtime.version() + ")");
+                rows.add("{\"mode\":\"" + mode + "\",\"skipped\":true}");
+                continue;
+            }
+            try (ConfigurableApplicationContext context = start(virtual, dishes, applicationArgs)) {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                run(baseUrl, paths, concurrency, warmup);
+                Stats stats = run(baseUrl, paths, concurrency, duration);
+                System.out.printf("%-8s requests=%d errors=%d throughput=%.1f req/s p50=%.2f ms p99=%.2f ms%n",
+                        mode, stats.requests, stats.errors, stats.throughput, stats.p50, stats.p99);
+                rows.add(String.format(Locale.ROOT, "{\"mode\":\"%s\",\"concurrency\":%d,\"requests\":%d,\"errors\":%d,"
+                                + "\"throughput\":%.1f,\"p50Millis\":%.3f,\"p99Millis\":%.3f}",
+                        mode, concurrency, stats.requests, stats.errors, stats.throughput, stats.p50, stats.p99));
+            }
+        }
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, "[" + String.join(",", rows) + "]\n");
+        System.out.println("Load test result is saved to " + result.toAbsolutePath());
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual, int dishes, List<String> applicationArgs)
+            throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.mk.ukim.finki.wp.lab=WARN",
+                // Every request should reach the database, which is what the two modes differ on
+                "--spring.cache.type=none",
+                "--app.rendering.page-cache.enabled=false",
+                "--app.rendering.production=true",
+                "--app.datasource.connection-budget.enabled=true",
+                "--app.threads.virtual=" + virtual));
+        args.addAll(applicationArgs);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LabApplication.class)
+                .run(args.toArray(String[]::new));
+        new SyntheticCatalog(context.getBean(JpaChefRepository.class), context.getBean(CatalogTransferService.class))
+                .seed(dishes, Math.max(10, dishes / 100), 1.1);
+        return context;
+    }
+
+    private static Stats run(String baseUrl, List<String> paths, int concurrency, Duration duration)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < concurrency; i++) {
+            int offset = i;
+            clients.execute(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                for (int n = offset; System.nanoTime() < deadline; n++) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + paths.get(n % paths.size())))
+                            .timeout(Duration.ofSeconds(30)).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                latencies.add(Arrays.copyOf(samples, count));
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Stats(all.length, errors.get(), all.length / (duration.toMillis() / 1000.0),
+                percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    private record Stats(long requests, long errors, double throughput, double p50, double p99) {
+    }
+}
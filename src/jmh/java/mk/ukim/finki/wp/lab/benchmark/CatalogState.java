@@ -0,0 +1,97 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.LabApplication;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// One application context per fork and parameter combination, seeded before the warmup starts
+@State(Scope.Benchmark)
+public class CatalogState {
+    @Param({"1000", "100000"})
+    public int dishes;
+
+    @Param({"1.1"})
+    public double skew;
+
+    // "none" measures the database path, "caffeine" the cached path the application runs with
+    @Param({"none"})
+    public String cache;
+
+    // "h2" runs with the base settings, "perf" layers the perf profile's pool and JDBC tuning on top
+    @Param({"h2"})
+    public String profile;
+
+    // "true" appends every committed change to an audit log in a temporary directory
+    @Param({"false"})
+    public String audit;
+
+    public ConfigurableApplicationContext context;
+    public List<Long> chefIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Passed as arguments because builder properties rank below application.properties
+        this.context = new SpringApplicationBuilder(LabApplication.class)
+                .run("--server.port=0",
+                        "--spring.profiles.active=" + (this.profile.equals("perf") ? "h2,perf" : "h2"),
+                        // PostgreSQL mode, so the SQL Hibernate generates is close to the production one
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                                + "DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.cache.type=" + this.cache,
+                        "--app.rendering.production=true",
+                        "--app.ranking.reconciliation-interval=PT24H",
+                        "--app.audit.enabled=" + this.audit,
+                        "--app.audit.directory=" + Files.createTempDirectory("audit-benchmark"),
+                        "--logging.level.root=WARN",
+                        "--logging.level.mk.ukim.finki.wp.lab=WARN");
+        int chefs = Math.max(10, this.dishes / 100);
+        this.chefIds = new SyntheticCatalog(bean(JpaChefRepository.class), bean(CatalogTransferService.class))
+                .seed(this.dishes, chefs, this.skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+
+    // The first chef is the most popular one under the Zipf distribution
+    public Long hotChefId() {
+        return this.chefIds.get(0);
+    }
+
+    public Long randomChefId() {
+        return this.chefIds.get(ThreadLocalRandom.current().nextInt(this.chefIds.size()));
+    }
+
+    public String randomDishId() {
+        return "B" + ThreadLocalRandom.current().nextInt(this.dishes);
+    }
+
+    // Sequence ids are close to insertion order, so this lands on a seeded dish almost always
+    public Long randomDishKey() {
+        return 1L + ThreadLocalRandom.current().nextInt(this.dishes);
+    }
+
+    public int randomRating() {
+        return 1 + ThreadLocalRandom.current().nextInt(5);
+    }
+}
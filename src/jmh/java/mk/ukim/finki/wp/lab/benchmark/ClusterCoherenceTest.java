@@ -0,0 +1,170 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.LabApplication;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.DishSearchService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+// Two instances of the application in one JVM against one database, each with its own caches and read models.
+// Every round edits a dish on one node (alternating) and then reads it on the other until the cached entity,
+// the catalogue snapshot and the search index all show the edit, or the timeout passes (a stale read). The
+// run with the change feed reports the lag; the run without it shows what the other node would keep serving.
+// Without --spring.profiles.active the nodes share a fresh in-memory H2 database; pass
+// --spring.profiles.active=prod to use the PostgreSQL from docker-compose.yml.
+// Options: --rounds=40 --timeout=PT5S --poll=PT1S --result=target/cluster-coherence-result.json
+public class ClusterCoherenceTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (option != null && Set.of("rounds", "timeout", "poll", "result").contains(option)) {
+                options.put(option, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "40"));
+        Duration timeout = Duration.parse(options.getOrDefault("timeout", "PT5S"));
+        String poll = options.getOrDefault("poll", "PT1S");
+        Path result = Path.of(options.getOrDefault("result", "target/cluster-coherence-result.json"));
+
+        List<String> rows = new ArrayList<>();
+        for (boolean feed : new boolean[]{true, false}) {
+            // Without the feed every round waits out the timeout, so a few rounds make the point
+            int runRounds = feed ? rounds : Math.min(rounds, 4);
+            Stats stats = run(applicationArgs, feed, poll, runRounds, timeout);
+            String mode = feed ? "feed" : "no-feed";
+            System.out.printf("%-7s rounds=%d stale=%d lag p50=%d ms p99=%d ms max=%d ms%n",
+                    mode, runRounds, stats.stale, stats.p50, stats.p99, stats.max);
+            rows.add(String.format(Locale.ROOT, "{\"mode\":\"%s\",\"rounds\":%d,\"stale\":%d,\"pollInterval\":\"%s\","
+                            + "\"lagP50Ms\":%d,\"lagP99Ms\":%d,\"lagMaxMs\":%d}",
+                    mode, runRounds, stats.stale, poll, stats.p50, stats.p99, stats.max));
+        }
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, "[" + String.join(",", rows) + "]\n");
+        System.out.println("Cluster coherence result is saved to " + result.toAbsolutePath());
+    }
+
+    private static Stats run(List<String> applicationArgs, boolean feed, String poll, int rounds, Duration timeout)
+            throws InterruptedException {
+        boolean sharedH2 = applicationArgs.stream().noneMatch(arg -> arg.startsWith("--spring.profiles.active"));
+        String url = "jdbc:h2:mem:cluster-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        // The first node creates the schema and seeds the sample data; the second finds both in place
+        try (ConfigurableApplicationContext first = start("node-a", feed, poll, sharedH2, url, true, applicationArgs);
+             ConfigurableApplicationContext second = start("node-b", feed, poll, sharedH2, url, false,
+                     applicationArgs)) {
+            Node[] nodes = {new Node(first), new Node(second)};
+            List<Long> dishIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                dishIds.add(nodes[0].dishService.create("coherence-" + UUID.randomUUID(), "Coherence dish " + i,
+                        "Test", 10 + i, null, 3).getId());
+            }
+            // Let both nodes take in the new dishes before measuring
+            Thread.sleep(Duration.parse(poll).toMillis() * 2 + 500);
+
+            List<Long> lags = new ArrayList<>();
+            int stale = 0;
+            String run = Long.toString(System.nanoTime() % 100_000, 36);
+            for (int round = 0; round < rounds; round++) {
+                Node writer = nodes[round % 2];
+                Node reader = nodes[(round + 1) % 2];
+                Long id = dishIds.get(round % dishIds.size());
+                // Make sure the reader holds the current state in its cache before the edit
+                reader.matches(id, reader.dishService.findById(id).getName());
+
+                Dish dish = writer.dishService.findById(id);
+                String name = "coh" + run + "x" + round;
+                writer.dishService.update(id, dish.getDishId(), name, dish.getCuisine(), dish.getPreparationTime(),
+                        null, round % 5 + 1, null);
+                long written = System.nanoTime();
+                long deadline = written + timeout.toNanos();
+                boolean seen = false;
+                while (System.nanoTime() < deadline) {
+                    if (reader.matches(id, name)) {
+                        seen = true;
+                        break;
+                    }
+                    Thread.sleep(5);
+                }
+                if (seen) {
+                    lags.add((System.nanoTime() - written) / 1_000_000);
+                } else {
+                    stale++;
+                }
+            }
+            Collections.sort(lags);
+            return new Stats(stale, percentile(lags, 0.5), percentile(lags, 0.99),
+                    lags.isEmpty() ? 0 : lags.get(lags.size() - 1));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String nodeId, boolean feed, String poll, boolean sharedH2,
+                                                        String url, boolean createSchema,
+                                                        List<String> applicationArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.mk.ukim.finki.wp.lab=WARN",
+                // Each node's Tomcat reports the other's pool threads as leaks when it stops
+                "--logging.level.org.apache.catalina.loader=ERROR",
+                "--spring.jmx.enabled=false",
+                "--app.cluster.node-id=" + nodeId,
+                "--app.cluster.invalidation.enabled=" + feed,
+                "--app.cluster.invalidation.poll-interval=" + poll));
+        if (sharedH2) {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--app.h2.ddl-auto=" + (createSchema ? "create-drop" : "none"));
+        }
+        args.addAll(applicationArgs);
+        return new SpringApplicationBuilder(LabApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(quantile * sorted.size()) - 1));
+    }
+
+    private static final class Node {
+        final DishService dishService;
+        final CatalogSnapshotService snapshotService;
+        final DishSearchService searchService;
+
+        Node(ConfigurableApplicationContext context) {
+            this.dishService = context.getBean(DishService.class);
+            this.snapshotService = context.getBean(CatalogSnapshotService.class);
+            this.searchService = context.getBean(DishSearchService.class);
+        }
+
+        // The cached entity, the public list page and the search box all show the name
+        boolean matches(Long id, String name) {
+            if (!name.equals(this.dishService.findById(id).getName())) {
+                return false;
+            }
+            List<DishSummary> page = this.snapshotService.listDishSummaries(id - 1, 1).getContent();
+            if (page.isEmpty() || !page.get(0).getId().equals(id) || !name.equals(page.get(0).getName())) {
+                return false;
+            }
+            return this.searchService.search(new SearchQuery(name, null, null, null, 5)).hits().stream()
+                    .anyMatch(hit -> hit.id().equals(id));
+        }
+    }
+
+    private record Stats(int stale, long p50, long p99, long max) {
+    }
+}
@@ -0,0 +1,121 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.LabApplication;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrent read-modify-write stress test for dish edits. Every worker reads a dish, increments its
+// preparation time and saves it, like two admins submitting edit forms. "blind" saves without the version
+// (the old behaviour), "versioned" sends it and re-reads on a conflict. Lost updates are the successful
+// saves that are missing from the final values. Contended runs share a few dishes; disjoint runs give each
+// worker its own dish, which measures the cost of the version check itself.
+// Options: --threads=8 --hot=2 --duration=PT10S --result=target/edit-stress-result.json
+public class ConcurrentEditStressTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (option != null && Set.of("threads", "hot", "duration", "result").contains(option)) {
+                options.put(option, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int hot = Integer.parseInt(options.getOrDefault("hot", "2"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT10S"));
+        Path result = Path.of(options.getOrDefault("result", "target/edit-stress-result.json"));
+
+        List<String> rows = new ArrayList<>();
+        try (ConfigurableApplicationContext context = start(applicationArgs)) {
+            DishService dishService = context.getBean(DishService.class);
+            List<Long> dishIds = new ArrayList<>();
+            for (int i = 0; i < Math.max(threads, hot); i++) {
+                dishIds.add(dishService.create("stress-" + i, "Stress dish " + i, "Test", 0, null, null).getId());
+            }
+            for (String scenario : List.of("contended", "disjoint")) {
+                for (boolean versioned : new boolean[]{false, true}) {
+                    List<Long> targets = scenario.equals("contended") ? dishIds.subList(0, hot) : dishIds.subList(0, threads);
+                    run(dishService, targets, threads, versioned, !scenario.equals("contended"), Duration.ofSeconds(2));
+                    Stats stats = run(dishService, targets, threads, versioned, !scenario.equals("contended"), duration);
+                    String mode = versioned ? "versioned" : "blind";
+                    System.out.printf("%-9s %-9s saves=%d conflicts=%d lost=%d throughput=%.1f saves/s%n",
+                            scenario, mode, stats.saves, stats.conflicts, stats.lost, stats.throughput);
+                    rows.add(String.format(Locale.ROOT, "{\"scenario\":\"%s\",\"mode\":\"%s\",\"threads\":%d,"
+                                    + "\"saves\":%d,\"conflicts\":%d,\"lost\":%d,\"throughput\":%.1f}",
+                            scenario, mode, threads, stats.saves, stats.conflicts, stats.lost, stats.throughput));
+                }
+            }
+        }
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, "[" + String.join(",", rows) + "]\n");
+        System.out.println("Edit stress result is saved to " + result.toAbsolutePath());
+    }
+
+    private static ConfigurableApplicationContext start(List<String> applicationArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.mk.ukim.finki.wp.lab=WARN",
+                // Reads must see the committed row, as a freshly rendered edit form would
+                "--spring.cache.type=none"));
+        args.addAll(applicationArgs);
+        return new SpringApplicationBuilder(LabApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static Stats run(DishService dishService, List<Long> targets, int threads, boolean versioned,
+                             boolean disjoint, Duration duration) throws InterruptedException {
+        for (Long id : targets) {
+            Dish dish = dishService.findByIdWithChef(id);
+            dishService.update(id, dish.getDishId(), dish.getName(), dish.getCuisine(), 0, null, null, null);
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong saves = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            workers.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Long id = disjoint ? targets.get(worker) : targets.get(random.nextInt(targets.size()));
+                    Dish dish = dishService.findByIdWithChef(id);
+                    try {
+                        dishService.update(id, dish.getDishId(), dish.getName(), dish.getCuisine(),
+                                dish.getPreparationTime() + 1, null, null, versioned ? dish.getVersion() : null);
+                        saves.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        // Nothing was written; the next iteration re-reads, like reloading the form
+                        conflicts.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+
+        long applied = 0;
+        for (Long id : targets) {
+            applied += dishService.findByIdWithChef(id).getPreparationTime();
+        }
+        return new Stats(saves.get(), conflicts.get(), saves.get() - applied,
+                saves.get() / (duration.toMillis() / 1000.0));
+    }
+
+    private record Stats(long saves, long conflicts, long lost, double throughput) {
+    }
+}
@@ -0,0 +1,77 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.batch.DishDraft;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// DishService write and streaming paths, where batching, statement caching and fetch sizes matter.
+// Compare the base settings with the perf profile: -p profile=h2,perf DishWriteBenchmark
+// and the cost of the audit log on the write path: -p audit=false,true DishWriteBenchmark.updateOne
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DishWriteBenchmark {
+    private static final int BATCH = 100;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private DishService dishService;
+    private CatalogState catalog;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.catalog = catalog;
+        this.dishService = catalog.bean(DishService.class);
+    }
+
+    // Inserts a batch and removes it again, so the catalogue keeps its size
+    @Benchmark
+    public BatchResult createAndDeleteBatch() {
+        List<DishDraft> drafts = new ArrayList<>(BATCH);
+        List<String> dishIds = new ArrayList<>(BATCH);
+        long start = this.sequence.getAndAdd(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            String dishId = "W" + (start + i);
+            dishIds.add(dishId);
+            drafts.add(new DishDraft(dishId, "Write dish " + dishId, "Thai", 20, 3, this.catalog.randomChefId()));
+        }
+        this.dishService.createDishes(drafts);
+        return this.dishService.deleteDishes(dishIds);
+    }
+
+    @Benchmark
+    public BatchResult updateBatch() {
+        List<DishDraft> drafts = new ArrayList<>(BATCH);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH; i++) {
+            drafts.add(new DishDraft(this.catalog.randomDishId(), null, null, 5 + random.nextInt(120), null, null));
+        }
+        return this.dishService.updateDishes(drafts);
+    }
+
+    @Benchmark
+    public Dish updateOne() {
+        Dish dish = this.dishService.findById(this.catalog.randomDishKey());
+        return this.dishService.update(dish.getId(), dish.getDishId(), dish.getName(), dish.getCuisine(),
+                5 + ThreadLocalRandom.current().nextInt(120), null, dish.getRating(), dish.getVersion());
+    }
+
+    @Benchmark
+    public long streamByRating() {
+        long[] total = new long[1];
+        this.dishService.streamDishes(this.catalog.randomRating(),
+                dishes -> total[0] = dishes.mapToLong(DishSnapshot::preparationTime).sum());
+        return total[0];
+    }
+}
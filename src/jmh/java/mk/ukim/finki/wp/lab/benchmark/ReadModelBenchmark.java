@@ -0,0 +1,129 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.snapshot.CatalogSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Public read pages served from the catalogue snapshot against the projection queries and the entity path.
+// The gc profiler reports the allocation rates; the setup prints the retained heap of the whole catalogue
+// held as managed entities and as a snapshot, e.g. -p dishes=1000000 ReadModelBenchmark
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReadModelBenchmark {
+    private CatalogSnapshotService snapshotService;
+    private DishService dishService;
+    private JpaDishRepository dishRepository;
+    private CatalogState catalog;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.catalog = catalog;
+        this.snapshotService = catalog.bean(CatalogSnapshotService.class);
+        this.dishService = catalog.bean(DishService.class);
+        this.dishRepository = catalog.bean(JpaDishRepository.class);
+        this.snapshotService.rebuild();
+        printFootprint(catalog);
+    }
+
+    @Benchmark
+    public Slice<DishSummary> snapshotDishPage() {
+        return this.snapshotService.listDishSummaries(this.catalog.randomDishKey(), 50);
+    }
+
+    @Benchmark
+    public Slice<DishSummary> projectionDishPage() {
+        return this.dishService.listDishSummaries(this.catalog.randomDishKey(), 50);
+    }
+
+    @Benchmark
+    public List<Dish> entityDishPage() {
+        int page = ThreadLocalRandom.current().nextInt(Math.max(1, this.catalog.dishes / 50));
+        return this.dishRepository.findAll(PageRequest.of(page, 50, Sort.by("id"))).getContent();
+    }
+
+    @Benchmark
+    public Slice<DishSummary> snapshotRatingPage() {
+        return this.snapshotService.findSummariesByRating(this.catalog.randomRating(), null, 50);
+    }
+
+    @Benchmark
+    public Slice<DishSummary> projectionRatingPage() {
+        return this.dishService.findSummariesByRating(this.catalog.randomRating(), null, 50);
+    }
+
+    @Benchmark
+    public Slice<ChefSummary> snapshotChefPage() {
+        return this.snapshotService.listChefsByPopularity(null, null, 50);
+    }
+
+    private static void printFootprint(CatalogState catalog) {
+        JpaDishRepository dishRepository = catalog.bean(JpaDishRepository.class);
+        JpaChefRepository chefRepository = catalog.bean(JpaChefRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(catalog.bean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+
+        // Measured as the drop in used heap once the structure is released, because the in-memory database
+        // itself grows and shrinks its caches while being read. H2 hands out the strings it stores, so with it
+        // the figure covers the columns and references only; the estimate also counts the strings
+        for (boolean offHeap : new boolean[]{false, true}) {
+            CatalogSnapshot snapshot = transaction.execute(status -> {
+                CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(offHeap, (int) dishRepository.count());
+                for (ChefSummary chef : chefRepository.findAllProjectedByOrderByIdAsc()) {
+                    builder.addChef(new ChefSnapshot(chef.getId(), chef.getFirstName(), chef.getLastName(), chef.getBio()));
+                }
+                try (Stream<DishSnapshot> dishes = dishRepository.streamAllSnapshots()) {
+                    dishes.forEach(builder::addDish);
+                }
+                return builder.build();
+            });
+            int dishCount = snapshot.dishCount();
+            long estimated = snapshot.estimatedBytes();
+            long held = usedHeap();
+            Reference.reachabilityFence(snapshot);
+            snapshot = null;
+            System.out.printf("%n%d dishes: %s snapshot retains %d KiB of heap (estimated %d KiB in total)%n",
+                    dishCount, offHeap ? "off-heap" : "on-heap", (held - usedHeap()) / 1024, estimated / 1024);
+        }
+
+        long[] held = new long[2];
+        transaction.executeWithoutResult(status -> {
+            // Held inside the transaction, so the persistence context keeps its own copies as well
+            List<Dish> dishes = dishRepository.findAll();
+            held[0] = dishes.size();
+            held[1] = usedHeap();
+            Reference.reachabilityFence(dishes);
+        });
+        System.out.printf("%d dishes: managed entities retain %d KiB of heap%n", held[0], (held[1] - usedHeap()) / 1024);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
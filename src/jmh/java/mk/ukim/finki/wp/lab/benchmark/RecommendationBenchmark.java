@@ -0,0 +1,97 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.service.recommendation.RecommendationIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The recommendation index: a full fork-join build from the loaded snapshots with `threads` workers (0 = one
+// per CPU), the incremental refresh after one dish edit, and the lookups the pages make through the service.
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+    private static final int NEIGHBOURS = 10;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private RecommendationService recommendationService;
+    private final List<DishSnapshot> dishes = new ArrayList<>();
+    private final List<ChefSnapshot> chefs = new ArrayList<>();
+    private ForkJoinPool pool;
+    private RecommendationIndex index;
+    private CatalogState catalog;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.catalog = catalog;
+        this.recommendationService = catalog.bean(RecommendationService.class);
+        this.recommendationService.rebuild();
+        catalog.bean(DishService.class).streamDishes(null, rows -> rows.forEach(this.dishes::add));
+        for (ChefSummary chef : catalog.bean(ChefService.class).listChefSummaries()) {
+            this.chefs.add(new ChefSnapshot(chef.getId(), chef.getFirstName(), chef.getLastName(), chef.getBio()));
+        }
+        this.pool = new ForkJoinPool(this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors());
+        this.index = RecommendationIndex.build(this.dishes, this.chefs, NEIGHBOURS, this.pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdownNow();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RecommendationIndex build() {
+        return RecommendationIndex.build(this.dishes, this.chefs, NEIGHBOURS, this.pool);
+    }
+
+    // One edit that moves a dish to another rating: its cuisine group and the chef lists are recomputed
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RecommendationIndex refreshOneDish() {
+        DishSnapshot dish = this.dishes.get(ThreadLocalRandom.current().nextInt(this.dishes.size()));
+        DishSnapshot edited = new DishSnapshot(dish.id(), dish.dishId(), dish.name(), dish.cuisine(),
+                dish.preparationTime(), dish.rating() == null || dish.rating() < 5 ? 5 : 1, dish.chefId());
+        return this.index.apply(Map.of(edited.id(), edited), Map.of(), this.pool);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<DishRecommendation> similarDishes() {
+        return this.recommendationService.similarDishes(this.catalog.randomDishKey(), 5);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<ChefRecommendation> similarChefs() {
+        return this.recommendationService.similarChefs(this.catalog.randomChefId(), 5);
+    }
+
+    // The hot chef has the most dishes, so this is the widest merge of neighbour lists
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<DishRecommendation> recommendDishesForHotChef() {
+        return this.recommendationService.recommendDishesForChef(this.catalog.hotChefId(), 5);
+    }
+}
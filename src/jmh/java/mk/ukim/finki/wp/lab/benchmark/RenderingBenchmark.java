@@ -0,0 +1,72 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import jakarta.servlet.ServletContext;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Renders to a null writer with the data loaded up front, so only template processing is measured
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderingBenchmark {
+    @Param({"50", "500"})
+    public int rows;
+
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication webApplication;
+    private ServletContext servletContext;
+    private List<DishSummary> dishes;
+    private List<ChefSummary> chefs;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.templateEngine = catalog.bean(SpringTemplateEngine.class);
+        this.webApplication = catalog.bean(JakartaServletWebApplication.class);
+        // The application's servlet context carries the root web application context Thymeleaf looks up
+        this.servletContext = catalog.bean(ServletContext.class);
+        this.dishes = catalog.bean(DishService.class).listDishSummaries(null, this.rows).getContent();
+        this.chefs = catalog.bean(ChefService.class).listChefsByPopularity(null, null, this.rows).getContent();
+    }
+
+    @Benchmark
+    public void renderListDishes() {
+        WebContext context = newContext("/dishes");
+        context.setVariable("dishes", this.dishes);
+        context.setVariable("after", null);
+        context.setVariable("nextAfter", this.dishes.isEmpty() ? null : this.dishes.get(this.dishes.size() - 1).getId());
+        context.setVariable("size", this.rows);
+        context.setVariable("error", null);
+        context.setVariable("selectedRating", null);
+        this.templateEngine.process("listDishes", context, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void renderListChefs() {
+        WebContext context = newContext("/listChefs");
+        context.setVariable("chefs", this.chefs);
+        context.setVariable("mostPopularChef", this.chefs.isEmpty() ? null : this.chefs.get(0));
+        context.setVariable("after", null);
+        context.setVariable("nextAfter", null);
+        this.templateEngine.process("listChefs", context, Writer.nullWriter());
+    }
+
+    private WebContext newContext(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(this.servletContext, "GET", path);
+        return new WebContext(this.webApplication.buildExchange(request, new MockHttpServletResponse()));
+    }
+}
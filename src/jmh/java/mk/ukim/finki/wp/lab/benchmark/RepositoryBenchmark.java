@@ -0,0 +1,72 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Repository finders without the service layer, so cache settings do not apply
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+    private JpaChefRepository chefRepository;
+    private JpaDishRepository dishRepository;
+    private CatalogState catalog;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.catalog = catalog;
+        this.chefRepository = catalog.bean(JpaChefRepository.class);
+        this.dishRepository = catalog.bean(JpaDishRepository.class);
+    }
+
+    @Benchmark
+    public Optional<Chef> findFirstByOrderByDishCountDesc() {
+        return this.chefRepository.findFirstByOrderByDishCountDescIdAsc();
+    }
+
+    @Benchmark
+    public Slice<ChefSummary> findRankedAfter() {
+        return this.chefRepository.findRankedAfter(1, this.catalog.randomChefId(), PageRequest.of(0, 50));
+    }
+
+    @Benchmark
+    public Dish findByDishId() {
+        return this.dishRepository.findByDishId(this.catalog.randomDishId());
+    }
+
+    @Benchmark
+    public Optional<Dish> findWithChefById() {
+        return this.dishRepository.findWithChefById(this.catalog.randomDishKey());
+    }
+
+    // The hot chef owns the largest share of dishes under the skewed distribution
+    @Benchmark
+    public List<Dish> findAllByHotChef() {
+        return this.dishRepository.findAllByChef_Id(this.catalog.hotChefId());
+    }
+
+    @Benchmark
+    public List<Dish> findAllByRandomChef() {
+        return this.dishRepository.findAllByChef_Id(this.catalog.randomChefId());
+    }
+
+    @Benchmark
+    public Slice<DishSummary> findByRatingAfter() {
+        return this.dishRepository.findAllProjectedByRatingAndIdGreaterThanOrderByIdAsc(
+                this.catalog.randomRating(), 0L, PageRequest.of(0, 50));
+    }
+}
@@ -0,0 +1,167 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.config.SecurityConfig;
+import mk.ukim.finki.wp.lab.web.security.BoundedPasswordEncoder;
+import mk.ukim.finki.wp.lab.web.security.CompiledPathAuthorizationManager;
+import mk.ukim.finki.wp.lab.web.security.PathRule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// The two costs of the authentication path. authorize* decides the application's rules for a mix of
+// anonymous requests (an early public page, an API read, an admin form, the last rule and a path no rule
+// names) with the ordered matcher chain and with the compiled lookup. The burst groups run four threads
+// logging in next to one thread doing a fixed amount of page work: with the checks on the request threads
+// and with them on a one-thread verification pool; compare the page method's throughput between the two.
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityBenchmark {
+    private static final String PASSWORD = "admin";
+
+    @State(Scope.Benchmark)
+    public static class Rules {
+        RequestMatcherDelegatingAuthorizationManager chain;
+        CompiledPathAuthorizationManager compiled;
+        MockHttpServletRequest[] requests;
+        final Supplier<Authentication> anonymous = () -> new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Built as authorizeHttpRequests builds it from the same rules
+            RequestMatcherDelegatingAuthorizationManager.Builder builder =
+                    RequestMatcherDelegatingAuthorizationManager.builder();
+            AuthorizationManager<RequestAuthorizationContext> permitAll =
+                    (authentication, context) -> new AuthorizationDecision(true);
+            for (PathRule rule : SecurityConfig.PATH_RULES) {
+                builder.add(rule.matcher(), rule.access() == PathRule.Access.ADMIN
+                        ? AuthorityAuthorizationManager.hasRole("ADMIN") : permitAll);
+            }
+            builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+            this.chain = builder.build();
+            this.compiled = new CompiledPathAuthorizationManager(SecurityConfig.PATH_RULES);
+            this.requests = new MockHttpServletRequest[]{
+                    request("GET", "/dishes"),
+                    request("GET", "/api/dishes"),
+                    request("GET", "/dishes/dish-form/42"),
+                    request("GET", "/h2-console/login.do"),
+                    request("GET", "/chefs/42/unknown")
+            };
+            for (MockHttpServletRequest request : this.requests) {
+                boolean chainGranted = this.chain.check(this.anonymous, request).isGranted();
+                boolean compiledGranted = this.compiled.check(this.anonymous,
+                        new RequestAuthorizationContext(request)).isGranted();
+                if (chainGranted != compiledGranted) {
+                    throw new IllegalStateException("Chain and compiled lookup disagree on "
+                            + request.getServletPath());
+                }
+            }
+        }
+
+        private static MockHttpServletRequest request(String method, String path) {
+            MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+            request.setServletPath(path);
+            return request;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Passwords {
+        @Param({"10", "12"})
+        public int strength;
+
+        PasswordEncoder direct;
+        BoundedPasswordEncoder bounded;
+        String hash;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.direct = new BCryptPasswordEncoder(this.strength);
+            this.bounded = new BoundedPasswordEncoder(this.direct, 1, 64, Duration.ofMinutes(1));
+            this.hash = this.direct.encode(PASSWORD);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.bounded.destroy();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void authorizeChain(Rules rules, Blackhole blackhole) {
+        for (MockHttpServletRequest request : rules.requests) {
+            blackhole.consume(rules.chain.check(rules.anonymous, request));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void authorizeCompiled(Rules rules, Blackhole blackhole) {
+        for (MockHttpServletRequest request : rules.requests) {
+            blackhole.consume(rules.compiled.check(rules.anonymous, new RequestAuthorizationContext(request)));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean passwordCheck(Passwords passwords) {
+        return passwords.direct.matches(PASSWORD, passwords.hash);
+    }
+
+    @Benchmark
+    @Group("directBurst")
+    @GroupThreads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean directLogin(Passwords passwords) {
+        return passwords.direct.matches(PASSWORD, passwords.hash);
+    }
+
+    @Benchmark
+    @Group("directBurst")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void directPage() {
+        Blackhole.consumeCPU(1_000_000);
+    }
+
+    @Benchmark
+    @Group("boundedBurst")
+    @GroupThreads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean boundedLogin(Passwords passwords) {
+        return passwords.bounded.matches(PASSWORD, passwords.hash);
+    }
+
+    @Benchmark
+    @Group("boundedBurst")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void boundedPage() {
+        Blackhole.consumeCPU(1_000_000);
+    }
+}
@@ -0,0 +1,63 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+    private ChefService chefService;
+    private DishService dishService;
+    private CatalogState catalog;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.catalog = catalog;
+        this.chefService = catalog.bean(ChefService.class);
+        this.dishService = catalog.bean(DishService.class);
+    }
+
+    @Benchmark
+    public Optional<Chef> findMostPopularChef() {
+        return this.chefService.findMostPopularChef();
+    }
+
+    @Benchmark
+    public List<Dish> listDishes() {
+        return this.dishService.listDishes();
+    }
+
+    @Benchmark
+    public Slice<DishSummary> listDishSummariesPage() {
+        return this.dishService.listDishSummaries(this.catalog.randomDishKey(), 50);
+    }
+
+    @Benchmark
+    public Slice<DishSummary> findSummariesByRatingPage() {
+        return this.dishService.findSummariesByRating(this.catalog.randomRating(), null, 50);
+    }
+
+    @Benchmark
+    public Slice<ChefSummary> listChefsByPopularityPage() {
+        return this.chefService.listChefsByPopularity(null, null, 50);
+    }
+
+    @Benchmark
+    public Dish findByDishId() {
+        return this.dishService.findByDishId(this.catalog.randomDishId());
+    }
+}
@@ -0,0 +1,160 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
+import mk.ukim.finki.wp.lab.web.render.RenderBufferPool;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Legacy servlet pages rendered the way the servlets did before the shared renderer (straight into the
+// response writer) and through it, with and without gzip. The response discards its output and its writer
+// is reused, as the container's is, so gc.alloc.rate.norm shows what each path allocates per request.
+// streamGzip is the naive alternative to the pooled deflater: a GZIPOutputStream per request.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServletRenderingBenchmark {
+    @Param({"listChefs", "dishesList"})
+    public String page;
+
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication webApplication;
+    private ServletPageRenderer renderer;
+    private ServletPageRenderer gzipRenderer;
+    private MockHttpServletRequest request;
+    private DiscardingResponse response;
+    private Map<String, Object> variables;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        this.templateEngine = catalog.bean(SpringTemplateEngine.class);
+        this.webApplication = catalog.bean(JakartaServletWebApplication.class);
+        MeterRegistry registry = catalog.bean(MeterRegistry.class);
+        this.renderer = new ServletPageRenderer(this.templateEngine, this.webApplication,
+                new RenderBufferPool(4, 32768, 1048576), registry, -1, 6);
+        this.gzipRenderer = new ServletPageRenderer(this.templateEngine, this.webApplication,
+                new RenderBufferPool(4, 32768, 1048576), registry, 2048, 6);
+        // The application's servlet context carries the root web application context Thymeleaf looks up
+        this.request = new MockHttpServletRequest(catalog.bean(ServletContext.class), "GET", "/" + this.page);
+        this.request.addHeader("Accept-Encoding", "gzip, deflate");
+        this.response = new DiscardingResponse();
+
+        CatalogSnapshotService snapshot = catalog.bean(CatalogSnapshotService.class);
+        this.variables = new HashMap<>();
+        if (this.page.equals("listChefs")) {
+            List<ChefSummary> chefs = snapshot.listChefsByPopularity(null, null, 50).getContent();
+            CatalogStatisticsService statistics = catalog.bean(CatalogStatisticsService.class);
+            Map<Long, ChefStats> chefStats = new HashMap<>();
+            for (ChefSummary chef : chefs) {
+                chefStats.put(chef.getId(), statistics.chefStats(chef.getId()));
+            }
+            this.variables.put("chefs", chefs);
+            this.variables.put("chefStats", chefStats);
+            this.variables.put("mostPopularChef", chefs.isEmpty() ? null : chefs.get(0));
+        } else {
+            List<DishSummary> dishes = snapshot.listDishSummaries(null, 50).getContent();
+            this.variables.put("selectedChef", snapshot.findChefSummary(catalog.hotChefId()));
+            this.variables.put("dishes", dishes);
+            this.variables.put("nextAfter", dishes.isEmpty() ? null : dishes.get(dishes.size() - 1).getId());
+        }
+        this.variables.put("after", null);
+        this.variables.putIfAbsent("nextAfter", null);
+    }
+
+    @Benchmark
+    public void writer() throws IOException {
+        this.response.reset();
+        this.response.setContentType("text/html; charset=UTF-8");
+        WebContext context = new WebContext(this.webApplication.buildExchange(this.request, this.response));
+        context.setVariables(this.variables);
+        this.templateEngine.process(this.page, context, this.response.getWriter());
+    }
+
+    @Benchmark
+    public void pooled() throws IOException {
+        this.response.reset();
+        WebContext context = this.renderer.context(this.request, this.response);
+        context.setVariables(this.variables);
+        this.renderer.render(this.request, this.response, this.page, context);
+    }
+
+    @Benchmark
+    public void pooledGzip() throws IOException {
+        this.response.reset();
+        WebContext context = this.gzipRenderer.context(this.request, this.response);
+        context.setVariables(this.variables);
+        this.gzipRenderer.render(this.request, this.response, this.page, context);
+    }
+
+    @Benchmark
+    public void streamGzip() throws IOException {
+        this.response.reset();
+        this.response.setContentType("text/html; charset=UTF-8");
+        this.response.setHeader("Content-Encoding", "gzip");
+        WebContext context = new WebContext(this.webApplication.buildExchange(this.request, this.response));
+        context.setVariables(this.variables);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(this.response.getOutputStream()),
+                StandardCharsets.UTF_8)) {
+            this.templateEngine.process(this.page, context, writer);
+        }
+    }
+
+    // Stands in for the container's recycled response streams
+    private static final class DiscardingResponse extends MockHttpServletResponse {
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        private final PrintWriter writer = new PrintWriter(Writer.nullWriter());
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return this.outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return this.writer;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+// Cold-start test: launches the packaged application in a fresh JVM per run and measures the time from
+// process start to the first successful page. Modes:
+//   default     executable jar, h2 profile
+//   fast-start  executable jar, h2,fast-start (deferred JPA bootstrap, seeding after ready, lazy admin beans)
+//   aot         as fast-start with the AOT-generated bean definitions (-Dspring.aot.enabled=true)
+//   aot-cds     as aot from target/fast-start with the recorded class data sharing archive
+// The aot modes need `mvn -Pfast-start package`; modes whose artifacts are missing are skipped.
+// Options: --runs=5 --path=/dishes --modes=default,fast-start,aot,aot-cds --result=target/startup-result.json
+// --artifact=lab-0.0.1-SNAPSHOT (the build passes its final name)
+public class StartupTimeTest {
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        String path = options.getOrDefault("path", "/dishes");
+        List<String> modes = List.of(options.getOrDefault("modes", "default,fast-start,aot,aot-cds").split(","));
+        Path result = Path.of(options.getOrDefault("result", "target/startup-result.json"));
+        String artifact = options.getOrDefault("artifact", "lab-0.0.1-SNAPSHOT");
+
+        Path target = Path.of("target").toAbsolutePath();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> rows = new ArrayList<>();
+        for (String mode : modes) {
+            List<String> command = command(mode, java, target, artifact);
+            if (command == null) {
+                System.out.println(mode + ": skipped, build with -Pfast-start first");
+                rows.add("{\"mode\":\"" + mode + "\",\"skipped\":true}");
+                continue;
+            }
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = timeToFirstRequest(command, path);
+            }
+            Arrays.sort(millis);
+            long median = millis[runs / 2];
+            System.out.printf("%-10s time to first request: median=%d ms min=%d ms max=%d ms (%d runs)%n",
+                    mode, median, millis[0], millis[runs - 1], runs);
+            rows.add(String.format(Locale.ROOT, "{\"mode\":\"%s\",\"runs\":%d,\"medianMillis\":%d,\"minMillis\":%d,"
+                    + "\"maxMillis\":%d}", mode, runs, median, millis[0], millis[runs - 1]));
+        }
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, "[" + String.join(",", rows) + "]\n");
+        System.out.println("Startup result is saved to " + result.toAbsolutePath());
+    }
+
+    private static List<String> command(String mode, String java, Path target, String artifact) {
+        Path fatJar = target.resolve(artifact + ".jar");
+        Path fastStart = target.resolve("fast-start");
+        Path thinJar = fastStart.resolve(artifact + "-fast-start.jar");
+        Path archive = fastStart.resolve("lab.jsa");
+        boolean aotBuilt = Files.exists(thinJar);
+        return switch (mode) {
+            case "default" -> Files.exists(fatJar)
+                    ? List.of(java, "-jar", fatJar.toString(), "--spring.profiles.active=h2") : null;
+            case "fast-start" -> Files.exists(fatJar)
+                    ? List.of(java, "-jar", fatJar.toString(), "--spring.profiles.active=h2,fast-start") : null;
+            case "aot" -> aotBuilt
+                    ? List.of(java, "-Dspring.aot.enabled=true", "-jar", fatJar.toString(),
+                    "--spring.profiles.active=h2,fast-start") : null;
+            case "aot-cds" -> aotBuilt && Files.exists(archive)
+                    ? List.of(java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=error", "-Dspring.aot.enabled=true",
+                    "-jar", thinJar.toString(), "--spring.profiles.active=h2,fast-start") : null;
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    private static long timeToFirstRequest(List<String> command, String path) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> withPort = new ArrayList<>(command);
+        withPort.add("--server.port=" + port);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(withPort)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue()
+                            + ": " + String.join(" ", withPort));
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No response from " + path + " within " + TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package mk.ukim.finki.wp.lab.benchmark;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Seeds chefs directly and dishes through the CSV import, with chefs picked from a Zipf
+// distribution so a few chefs own most of the dishes
+public class SyntheticCatalog {
+    private static final String[] CUISINES = {"Italian", "French", "Thai", "Indian", "Japanese", "Mexican",
+            "British", "Greek", "Chinese", "Spanish"};
+    private static final String[] WORDS = {"Pasta", "Curry", "Soup", "Salad", "Roast", "Stew", "Tart", "Noodles",
+            "Risotto", "Grilled", "Spicy", "Crispy", "Braised", "Lemon", "Garlic", "Chicken", "Beef", "Tofu"};
+    private static final int IMPORT_CHUNK = 100_000;
+
+    private final JpaChefRepository chefRepository;
+    private final CatalogTransferService transferService;
+    private final Random random = new Random(42);
+
+    public SyntheticCatalog(JpaChefRepository chefRepository, CatalogTransferService transferService) {
+        this.chefRepository = chefRepository;
+        this.transferService = transferService;
+    }
+
+    public List<Long> seed(int dishes, int chefs, double skew) throws IOException {
+        List<Chef> created = new ArrayList<>(chefs);
+        for (int i = 0; i < chefs; i++) {
+            created.add(new Chef("Chef" + i, "Bench" + i, "Synthetic chef " + i));
+        }
+        List<Long> chefIds = this.chefRepository.saveAll(created).stream().map(Chef::getId).toList();
+
+        double[] cumulative = new double[chefs];
+        double sum = 0;
+        for (int rank = 0; rank < chefs; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+
+        for (int start = 0; start < dishes; start += IMPORT_CHUNK) {
+            int end = Math.min(dishes, start + IMPORT_CHUNK);
+            StringBuilder csv = new StringBuilder((end - start) * 48).append("dishId,name,cuisine,preparationTime,rating,chefId\n");
+            for (int i = start; i < end; i++) {
+                int rank = Arrays.binarySearch(cumulative, this.random.nextDouble() * sum);
+                Long chefId = chefIds.get(Math.min(chefs - 1, rank < 0 ? -rank - 1 : rank));
+                csv.append("B").append(i).append(',')
+                        .append(WORDS[this.random.nextInt(WORDS.length)]).append(' ')
+                        .append(WORDS[this.random.nextInt(WORDS.length)]).append(' ').append(i).append(',')
+                        .append(CUISINES[this.random.nextInt(CUISINES.length)]).append(',')
+                        .append(5 + this.random.nextInt(120)).append(',')
+                        .append(1 + this.random.nextInt(5)).append(',')
+                        .append(chefId).append('\n');
+            }
+            ImportReport report = this.transferService.importDishes(
+                    new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), TransferFormat.CSV);
+            if (report.rejected() > 0) {
+                throw new IllegalStateException("Synthetic import rejected rows: " + report.errors());
+            }
+        }
+        return chefIds;
+    }
+}
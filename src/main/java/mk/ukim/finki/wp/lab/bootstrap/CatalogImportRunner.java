@@ -0,0 +1,46 @@
+package mk.ukim.finki.wp.lab.bootstrap;
+
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Usage: java -jar lab.jar --app.import.file=dishes.csv (or .json)
+@Component
+@ConditionalOnProperty(name = "app.import.file")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class CatalogImportRunner implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(CatalogImportRunner.class);
+
+    private final CatalogTransferService catalogTransferService;
+    private final String file;
+
+    public CatalogImportRunner(CatalogTransferService catalogTransferService,
+                               @Value("${app.import.file}") String file) {
+        this.catalogTransferService = catalogTransferService;
+        this.file = file;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path path = Path.of(this.file);
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            ImportReport report = this.catalogTransferService.importDishes(input, TransferFormat.fromFileName(this.file));
+            log.info("Imported {} dishes from {} ({} rejected) in {} ms, {} rows/s",
+                    report.imported(), path, report.rejected(), report.elapsedMillis(), report.rowsPerSecond());
+            report.errors().forEach(log::warn);
+        }
+    }
+}
@@ -2,24 +2,66 @@ package mk.ukim.finki.wp.lab.bootstrap;
 
 import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class DataInitializer implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
 
     private final JpaChefRepository chefRepository;
     private final JpaDishRepository dishRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean asyncSeed;
 
-    public DataInitializer(JpaChefRepository chefRepository, JpaDishRepository dishRepository) {
+    public DataInitializer(JpaChefRepository chefRepository, JpaDishRepository dishRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${app.startup.async-seed:false}") boolean asyncSeed) {
         this.chefRepository = chefRepository;
         this.dishRepository = dishRepository;
+        this.eventPublisher = eventPublisher;
+        this.asyncSeed = asyncSeed;
     }
 
     @Override
     public void run(String... args) throws Exception {
+        if (!this.asyncSeed) {
+            seed();
+        }
+    }
+
+    // With app.startup.async-seed the sample data is written after the application is ready, off the main
+    // thread; the bulk change event then refreshes the read models that were built from the empty tables
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!this.asyncSeed) {
+            return;
+        }
+        Thread seeder = new Thread(() -> {
+            try {
+                if (seed()) {
+                    this.eventPublisher.publishEvent(new CatalogBulkChangeEvent("seed"));
+                }
+            } catch (RuntimeException e) {
+                log.error("Seeding the sample data failed", e);
+            }
+        }, "data-initializer");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    private boolean seed() {
         // Only initialize data if the database is empty
         if (chefRepository.count() == 0) {
             // Create chefs
@@ -29,11 +71,7 @@ public class DataInitializer implements CommandLineRunner {
             Chef chef4 = new Chef("Heston", "Blumenthal", "Pioneer of multi-sensory cooking and molecular gastronomy");
             Chef chef5 = new Chef("Massimo", "Bottura", "Italian chef with three Michelin stars, owner of Osteria Francescana");
 
-            chefRepository.save(chef1);
-            chefRepository.save(chef2);
-            chefRepository.save(chef3);
-            chefRepository.save(chef4);
-            chefRepository.save(chef5);
+            chefRepository.saveAll(List.of(chef1, chef2, chef3, chef4, chef5));
 
             // Create dishes with ratings (1-5 stars)
             Dish dish1 = new Dish("1", "Pasta Carbonara", "Italian", 30, 5);
@@ -47,11 +85,11 @@ public class DataInitializer implements CommandLineRunner {
             dish2.setChef(chef1); // Gordon Ramsay - British dish
             dish5.setChef(chef1); // Gordon Ramsay - French cuisine
 
-            dishRepository.save(dish1);
-            dishRepository.save(dish2);
-            dishRepository.save(dish3);
-            dishRepository.save(dish4);
-            dishRepository.save(dish5);
+            dishRepository.saveAll(List.of(dish1, dish2, dish3, dish4, dish5));
+
+            chefRepository.reconcileDishCounts();
+            return true;
         }
+        return false;
     }
 }
@@ -0,0 +1,58 @@
+package mk.ukim.finki.wp.lab.bootstrap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+// The fast-start build runs the application once with app.startup.training-run=true to record the class
+// data sharing archive: once ready it requests the public pages, so the classes behind a first request are
+// archived as well, and exits. Checked at runtime rather than with a condition, which AOT would fix at build time.
+@Component
+public class StartupTrainingRun {
+    private static final Logger log = LoggerFactory.getLogger(StartupTrainingRun.class);
+    private static final List<String> PATHS = List.of("/dishes", "/listChefs", "/chefs", "/login");
+
+    private final boolean enabled;
+
+    public StartupTrainingRun(@Value("${app.startup.training-run:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+        int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        for (String path : PATHS) {
+            try {
+                HttpResponse<Void> response = client.send(
+                        HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                log.info("Training request {} returned {}", path, response.statusCode());
+            } catch (IOException e) {
+                log.warn("Training request {} failed: {}", path, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
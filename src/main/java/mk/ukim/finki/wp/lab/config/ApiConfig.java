@@ -0,0 +1,34 @@
+package mk.ukim.finki.wp.lab.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mk.ukim.finki.wp.lab.web.api.ApiExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ApiConfig {
+
+    @Bean
+    public ApiExecutor apiExecutor(MeterRegistry registry,
+                                   @Value("${app.api.async.enabled:false}") boolean async,
+                                   @Value("${app.api.async.threads:8}") int threads,
+                                   @Value("${app.api.async.queue-capacity:256}") int queueCapacity,
+                                   @Value("${app.api.async.timeout:PT30S}") Duration timeout,
+                                   @Value("${app.api.stream.max-concurrent:4}") int maxStreams) {
+        ApiExecutor executor = new ApiExecutor(async, threads, queueCapacity, timeout, maxStreams);
+        Gauge.builder("app.api.executor.active", executor, ApiExecutor::getActiveCount)
+                .description("API calls running on the async executor")
+                .register(registry);
+        Gauge.builder("app.api.executor.queued", executor, ApiExecutor::getQueueSize)
+                .description("API calls waiting for an async executor thread")
+                .register(registry);
+        Gauge.builder("app.api.streams.active", executor, ApiExecutor::getActiveStreams)
+                .description("NDJSON streams holding a database cursor")
+                .register(registry);
+        return executor;
+    }
+}
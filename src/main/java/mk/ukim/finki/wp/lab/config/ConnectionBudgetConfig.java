@@ -0,0 +1,54 @@
+package mk.ukim.finki.wp.lab.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import mk.ukim.finki.wp.lab.datasource.ConnectionBudgetDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.connection-budget.enabled", havingValue = "true")
+public class ConnectionBudgetConfig {
+
+    // Static so wrapping the pool does not force this configuration to initialize early
+    @Bean
+    public static BeanPostProcessor connectionBudgetPostProcessor(Environment environment) {
+        int permits = environment.getProperty("app.datasource.connection-budget.permits", Integer.class, 10);
+        Duration acquireTimeout = environment.getProperty("app.datasource.connection-budget.acquire-timeout",
+                Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionBudgetDataSource)) {
+                    return new ConnectionBudgetDataSource(dataSource, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionBudgetMetrics(DataSource dataSource) {
+        return registry -> {
+            ConnectionBudgetDataSource budget;
+            try {
+                budget = dataSource.unwrap(ConnectionBudgetDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            Gauge.builder("app.datasource.budget.available", budget, ConnectionBudgetDataSource::getAvailablePermits)
+                    .description("Connection permits not currently in use")
+                    .register(registry);
+            Gauge.builder("app.datasource.budget.waiting", budget, ConnectionBudgetDataSource::getWaitingThreads)
+                    .description("Threads waiting for a connection permit")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package mk.ukim.finki.wp.lab.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import mk.ukim.finki.wp.lab.datasource.RowCountingDataSource;
+import mk.ukim.finki.wp.lab.observability.RenderMetricsDialect;
+import mk.ukim.finki.wp.lab.observability.RequestMetricsFilter;
+import mk.ukim.finki.wp.lab.observability.SqlStatementInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+@Configuration
+public class ObservabilityConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlMetricsCustomizer(MeterRegistry registry) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementInspector(registry));
+    }
+
+    // Rows are counted at the JDBC level, so projections and streamed reads are seen as well as entity loads.
+    // Static so wrapping the pool does not force this configuration to initialize early
+    @Bean
+    public static BeanPostProcessor rowCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof RowCountingDataSource)) {
+                    return new RowCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder rowCountingMetrics(DataSource dataSource) {
+        return registry -> {
+            RowCountingDataSource rows;
+            try {
+                rows = dataSource.unwrap(RowCountingDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            FunctionCounter.builder("app.sql.rows.read", rows, RowCountingDataSource::getRowsRead)
+                    .description("Rows read from query result sets")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public RenderMetricsDialect renderMetricsDialect(MeterRegistry registry) {
+        return new RenderMetricsDialect(registry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(
+            MeterRegistry registry,
+            @Value("${app.observability.slow-request-threshold:PT0.5S}") Duration slowRequestThreshold) {
+        FilterRegistrationBean<RequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestMetricsFilter(registry, slowRequestThreshold));
+        // Outermost, so the security chain and the page cache are inside the measured span
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,25 @@
+package mk.ukim.finki.wp.lab.config;
+
+import mk.ukim.finki.wp.lab.service.cache.CatalogVersion;
+import mk.ukim.finki.wp.lab.web.filter.CatalogPageCacheFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.rendering.page-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class PageCacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<CatalogPageCacheFilter> catalogPageCacheFilter(
+            CatalogVersion catalogVersion,
+            @Value("${app.rendering.page-cache.max-bytes:33554432}") long maxBytes) {
+        FilterRegistrationBean<CatalogPageCacheFilter> registration =
+                new FilterRegistrationBean<>(new CatalogPageCacheFilter(catalogVersion, maxBytes));
+        // Default (lowest) order keeps it behind Spring Security, so the principal is already resolved
+        registration.addUrlPatterns("/dishes", "/listChefs", "/chefDetails");
+        return registration;
+    }
+}
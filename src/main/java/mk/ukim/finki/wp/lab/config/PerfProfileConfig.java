@@ -0,0 +1,97 @@
+package mk.ukim.finki.wp.lab.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+// Checks the effective pool and JDBC settings of the perf profile once every bean exists, before the
+// web server starts, so an override that contradicts the profile fails the startup instead of a load test
+@Configuration
+@Profile("perf")
+public class PerfProfileConfig {
+    private static final Logger log = LoggerFactory.getLogger(PerfProfileConfig.class);
+
+    @Bean
+    public SmartInitializingSingleton perfProfileValidator(DataSource dataSource, JpaProperties jpaProperties,
+                                                           Environment environment) {
+        return () -> {
+            HikariDataSource pool;
+            try {
+                pool = dataSource.unwrap(HikariDataSource.class);
+            } catch (SQLException e) {
+                throw new IllegalStateException("The perf profile requires the Hikari connection pool", e);
+            }
+            Map<String, String> hibernate = jpaProperties.getProperties();
+            List<String> problems = new ArrayList<>();
+
+            if (jpaProperties.isShowSql() || Boolean.parseBoolean(hibernate.get("hibernate.format_sql"))) {
+                problems.add("spring.jpa.show-sql and hibernate.format_sql must be off");
+            }
+            if (pool.getMinimumIdle() > pool.getMaximumPoolSize()) {
+                problems.add("hikari.minimum-idle (" + pool.getMinimumIdle() + ") is above maximum-pool-size ("
+                        + pool.getMaximumPoolSize() + ")");
+            }
+            if (pool.getLeakDetectionThreshold() > 0 && pool.getLeakDetectionThreshold() >= pool.getMaxLifetime()) {
+                problems.add("hikari.leak-detection-threshold must be below max-lifetime");
+            }
+            // Hibernate would skip starting transactions on connections that still auto-commit every statement
+            boolean providerDisablesAutocommit =
+                    Boolean.parseBoolean(hibernate.get("hibernate.connection.provider_disables_autocommit"));
+            if (providerDisablesAutocommit && pool.isAutoCommit()) {
+                problems.add("hibernate.connection.provider_disables_autocommit needs hikari.auto-commit=false");
+            }
+            if (environment.getProperty("app.datasource.connection-budget.enabled", Boolean.class, false)) {
+                int permits = environment.getProperty("app.datasource.connection-budget.permits", Integer.class, 10);
+                if (permits > pool.getMaximumPoolSize()) {
+                    problems.add("app.datasource.connection-budget.permits (" + permits
+                            + ") is above hikari.maximum-pool-size (" + pool.getMaximumPoolSize() + ")");
+                }
+            }
+            for (String setting : List.of("hibernate.jdbc.batch_size", "hibernate.jdbc.fetch_size",
+                    "hibernate.query.plan_cache_max_size")) {
+                if (positive(hibernate.get(setting)) == null) {
+                    problems.add(setting + " must be a positive number");
+                }
+            }
+            if (pool.getJdbcUrl() != null && pool.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+                Properties driver = pool.getDataSourceProperties();
+                if (!Boolean.parseBoolean(driver.getProperty("reWriteBatchedInserts"))) {
+                    problems.add("hikari.data-source-properties.reWriteBatchedInserts must be true");
+                }
+                if (positive(driver.getProperty("prepareThreshold")) == null) {
+                    problems.add("hikari.data-source-properties.prepareThreshold must be a positive number");
+                }
+            }
+
+            if (!problems.isEmpty()) {
+                throw new IllegalStateException("Invalid perf profile settings: " + String.join("; ", problems));
+            }
+            log.info("Perf profile: pool {} of {}-{} connections, batch size {}, fetch size {}, plan cache {}",
+                    pool.getPoolName(), pool.getMinimumIdle(), pool.getMaximumPoolSize(),
+                    hibernate.get("hibernate.jdbc.batch_size"), hibernate.get("hibernate.jdbc.fetch_size"),
+                    hibernate.get("hibernate.query.plan_cache_max_size"));
+        };
+    }
+
+    private static Integer positive(String value) {
+        try {
+            int parsed = Integer.parseInt(value == null ? "" : value.trim());
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
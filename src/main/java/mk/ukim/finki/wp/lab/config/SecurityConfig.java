@@ -1,77 +1,166 @@
 package mk.ukim.finki.wp.lab.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mk.ukim.finki.wp.lab.web.security.BoundedPasswordEncoder;
+import mk.ukim.finki.wp.lab.web.security.CompiledPathAuthorizationManager;
+import mk.ukim.finki.wp.lab.web.security.LoginFailureHandler;
+import mk.ukim.finki.wp.lab.web.security.PathRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    // Tried in order; the first rule matching the path (and method, where one is given) decides, and any
+    // other request requires authentication
+    public static final List<PathRule> PATH_RULES = List.of(
+            // Public access - read-only pages
+            PathRule.permitAll("/"),
+            PathRule.permitAll("/dishes"),
+            PathRule.permitAll("/dishes/all"),
+            PathRule.permitAll("/dishes/search"),
+            PathRule.permitAll("/dishes/suggest"),
+            PathRule.permitAll("/chefs"),
+            PathRule.permitAll("/listChefs"),
+            PathRule.permitAll("/dish"),
+            PathRule.permitAll("/chefDetails"),
+            PathRule.permitAll("/stats"),
+            PathRule.permitAll("/api/**", "GET"),
+            // Admin only - forms and modification endpoints
+            PathRule.admin("/dishes/dish-form/**"),
+            PathRule.admin("/dishes/add"),
+            PathRule.admin("/dishes/edit/**"),
+            PathRule.admin("/dishes/delete/**"),
+            PathRule.admin("/chefs/chef-form/**"),
+            PathRule.admin("/chefs/add"),
+            PathRule.admin("/chefs/edit/**"),
+            PathRule.admin("/chefs/delete/**"),
+            PathRule.admin("/admin/**"),
+            // Static resources
+            PathRule.permitAll("/css/**"),
+            PathRule.permitAll("/js/**"),
+            PathRule.permitAll("/images/**"),
+            // Actuator - health is public, metrics and caches are admin only
+            PathRule.permitAll("/actuator/health"),
+            PathRule.admin("/actuator/**"),
+            // H2 Console
+            PathRule.permitAll("/h2-console/**"));
 
+    // New hashes are bcrypt at the configured strength. Hashes in another format, at a lower strength or
+    // without an {id} prefix (bcrypt from before the prefix) still match, and DaoAuthenticationProvider
+    // rehashes them after the next successful login. Performance mode checks passwords on a bounded pool.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @SuppressWarnings("deprecation")
+    public PasswordEncoder passwordEncoder(MeterRegistry registry,
+                                           @Value("${app.security.password.bcrypt-strength:10}") int strength,
+                                           @Value("${app.security.performance.enabled:false}") boolean performance,
+                                           @Value("${app.security.performance.verify-threads:2}") int threads,
+                                           @Value("${app.security.performance.verify-queue-capacity:16}")
+                                           int queueCapacity,
+                                           @Value("${app.security.performance.verify-timeout:PT5S}") Duration timeout) {
+        if (strength < 4 || strength > 31) {
+            throw new IllegalStateException("app.security.password.bcrypt-strength must be between 4 and 31, was "
+                    + strength);
+        }
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(strength));
+        encoders.put("pbkdf2@SpringSecurity_v5_8", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("noop", NoOpPasswordEncoder.getInstance());
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", encoders);
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        if (!performance) {
+            return delegating;
+        }
+        BoundedPasswordEncoder bounded = new BoundedPasswordEncoder(delegating, threads, queueCapacity, timeout);
+        Gauge.builder("app.security.password-checks.active", bounded, BoundedPasswordEncoder::getActiveCount)
+                .description("Password checks running on the verification pool")
+                .register(registry);
+        Gauge.builder("app.security.password-checks.queued", bounded, BoundedPasswordEncoder::getQueueSize)
+                .description("Password checks waiting for a verification thread")
+                .register(registry);
+        return bounded;
     }
 
+    // A configured admin hash is kept as given and upgraded on the next login like any stored hash
     @Bean
-    public UserDetailsService userDetailsService() {
+    public UserDetailsService userDetailsService(PasswordEncoder passwordEncoder,
+                                                 @Value("${app.security.admin.password-hash:}") String passwordHash) {
         UserDetails admin = User.builder()
                 .username("admin")
-                .password(passwordEncoder().encode("admin"))
+                .password(passwordHash.isBlank() ? passwordEncoder.encode("admin") : passwordHash)
                 .roles("ADMIN")
                 .build();
 
-        return new InMemoryUserDetailsManager(admin);
+        return new InMemoryUserDetailsManager(admin) {
+            @Override
+            public UserDetails updatePassword(UserDetails user, String newPassword) {
+                log.info("Upgraded the password hash of {}", user.getUsername());
+                return super.updatePassword(user, newPassword);
+            }
+        };
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http, @Value("${app.security.performance.enabled:false}") boolean performance)
+            throws Exception {
         http
-                .authorizeHttpRequests(authorize -> authorize
-                        // Public access - read-only pages
-                        .requestMatchers(new AntPathRequestMatcher("/")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/dishes")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/chefs")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/listChefs")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/dish")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/chefDetails")).permitAll()
-                        // Admin only - forms and modification endpoints
-                        .requestMatchers(new AntPathRequestMatcher("/dishes/dish-form/**")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/dishes/add")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/dishes/edit/**")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/dishes/delete/**")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/chefs/chef-form/**")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/chefs/add")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/chefs/edit/**")).hasRole("ADMIN")
-                        .requestMatchers(new AntPathRequestMatcher("/chefs/delete/**")).hasRole("ADMIN")
-                        // Static resources
-                        .requestMatchers(new AntPathRequestMatcher("/css/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/js/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/images/**")).permitAll()
-                        // H2 Console
-                        .requestMatchers(new AntPathRequestMatcher("/h2-console/**")).permitAll()
-                        // All other requests require authentication
-                        .anyRequest().authenticated()
-                )
+                .authorizeHttpRequests(authorize -> {
+                    if (performance) {
+                        // One walk of the path segments instead of trying every matcher in turn
+                        authorize.anyRequest().access(new CompiledPathAuthorizationManager(PATH_RULES));
+                        return;
+                    }
+                    for (PathRule rule : PATH_RULES) {
+                        if (rule.access() == PathRule.Access.ADMIN) {
+                            authorize.requestMatchers(rule.matcher()).hasRole("ADMIN");
+                        } else {
+                            authorize.requestMatchers(rule.matcher()).permitAll();
+                        }
+                    }
+                    // All other requests require authentication
+                    authorize.anyRequest().authenticated();
+                })
                 .formLogin(form -> form
                         .defaultSuccessUrl("/dishes", true)
+                        .failureHandler(new LoginFailureHandler("/login?error"))
                         .permitAll()
                 )
+                // Machine clients of /admin/api use basic auth
+                .httpBasic(Customizer.withDefaults())
                 .logout(logout -> logout
                         .logoutSuccessUrl("/dishes")
                         .permitAll()
                 )
                 .csrf(csrf -> csrf
                         .ignoringRequestMatchers(new AntPathRequestMatcher("/h2-console/**"))
+                        // Only non-form content types are accepted there, which browsers cannot send cross-site
+                        .ignoringRequestMatchers(new AntPathRequestMatcher("/admin/api/**"))
                 )
                 .headers(headers -> headers
                         .frameOptions().sameOrigin()
@@ -1,18 +1,30 @@
 package mk.ukim.finki.wp.lab.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletContext;
+import mk.ukim.finki.wp.lab.web.render.RenderBufferPool;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
 @Configuration
 public class ThymeleafConfig {
     private final ApplicationContext applicationContext;
+    private final boolean productionMode;
 
-    public ThymeleafConfig(ApplicationContext applicationContext) {
+    public ThymeleafConfig(ApplicationContext applicationContext,
+                           @Value("${app.rendering.production:false}") boolean productionMode) {
         this.applicationContext = applicationContext;
+        this.productionMode = productionMode;
     }
 
     @Bean
@@ -23,15 +35,39 @@ public class ThymeleafConfig {
         templateResolver.setSuffix(".html");
         templateResolver.setTemplateMode(TemplateMode.HTML);
         templateResolver.setCharacterEncoding("UTF-8");
-        templateResolver.setCacheable(false);
+        // Production mode keeps parsed templates; development re-reads them so edits show up live
+        templateResolver.setCacheable(this.productionMode);
         return templateResolver;
     }
 
     @Bean
-    public SpringTemplateEngine templateEngine() {
+    public SpringTemplateEngine templateEngine(ObjectProvider<IDialect> dialects) {
         SpringTemplateEngine templateEngine = new SpringTemplateEngine();
         templateEngine.setTemplateResolver(templateResolver());
-        templateEngine.setEnableSpringELCompiler(false);
+        templateEngine.setEnableSpringELCompiler(this.productionMode);
+        // Picks up the Spring Security dialect so sec:authorize is evaluated
+        dialects.orderedStream().forEach(templateEngine::addDialect);
         return templateEngine;
     }
+
+    // One application instance for the legacy servlets instead of one per request
+    @Bean
+    public JakartaServletWebApplication thymeleafWebApplication(ServletContext servletContext) {
+        return JakartaServletWebApplication.buildApplication(servletContext);
+    }
+
+    @Bean
+    public ServletPageRenderer servletPageRenderer(
+            SpringTemplateEngine templateEngine, JakartaServletWebApplication webApplication, MeterRegistry registry,
+            @Value("${app.rendering.servlet.pool-size:64}") int poolSize,
+            @Value("${app.rendering.servlet.buffer-size:32768}") int bufferSize,
+            @Value("${app.rendering.servlet.max-retained-buffer-size:1048576}") int maxRetainedBufferSize,
+            @Value("${app.rendering.servlet.gzip-min-bytes:2048}") int gzipMinBytes,
+            @Value("${app.rendering.servlet.gzip-level:6}") int gzipLevel) {
+        RenderBufferPool bufferPool = new RenderBufferPool(poolSize, bufferSize, maxRetainedBufferSize);
+        Gauge.builder("app.render.buffers.idle", bufferPool, RenderBufferPool::idleCount)
+                .description("Page buffers waiting in the legacy servlet pool")
+                .register(registry);
+        return new ServletPageRenderer(templateEngine, webApplication, bufferPool, registry, gzipMinBytes, gzipLevel);
+    }
 }
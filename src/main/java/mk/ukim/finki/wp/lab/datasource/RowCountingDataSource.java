@@ -0,0 +1,88 @@
+package mk.ukim.finki.wp.lab.datasource;
+
+import mk.ukim.finki.wp.lab.observability.RequestStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the rows read from query result sets, whether they become entities, projections, streamed records or
+// scalars. A result set adds its rows to the total, and to the current request's tally, when it is closed.
+public class RowCountingDataSource extends DelegatingDataSource {
+    private final LongAdder rowsRead = new LongAdder();
+
+    public RowCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countRows(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countRows(super.getConnection(username, password));
+    }
+
+    public long getRowsRead() {
+        return this.rowsRead.sum();
+    }
+
+    // Statements come back wrapped, as the interface the method declares (Statement, PreparedStatement, ...)
+    private Connection countRows(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) -> result instanceof Statement statement
+                && Statement.class.isAssignableFrom(method.getReturnType())
+                ? countRows(method.getReturnType(), statement) : result);
+    }
+
+    private Object countRows(Class<?> type, Statement statement) {
+        return proxy(type, statement, (method, result) -> result instanceof ResultSet resultSet
+                && (method.getName().equals("executeQuery") || method.getName().equals("getResultSet"))
+                ? proxy(ResultSet.class, resultSet, new RowCounter()) : result);
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Wrapper wrapper) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return wrapper.wrap(method, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    @FunctionalInterface
+    private interface Wrapper {
+        Object wrap(Method method, Object result);
+    }
+
+    private final class RowCounter implements Wrapper {
+        private int rows;
+        private boolean reported;
+
+        @Override
+        public Object wrap(Method method, Object result) {
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                this.rows++;
+            } else if (method.getName().equals("close") && !this.reported) {
+                this.reported = true;
+                rowsRead.add(this.rows);
+                RequestStats stats = RequestStats.current();
+                if (stats != null) {
+                    stats.rowsRead(this.rows);
+                }
+            }
+            return result;
+        }
+    }
+}
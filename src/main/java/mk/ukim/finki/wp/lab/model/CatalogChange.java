@@ -0,0 +1,38 @@
+package mk.ukim.finki.wp.lab.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One committed transaction's catalogue changes, written by the node that made them and read by the others.
+// IDENTITY ids are handed out in insert order, which is close to commit order; the follower allows for the rest.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "catalog_changes", indexes = {
+        @Index(name = "idx_catalog_changes_created_at", columnList = "created_at")
+})
+public class CatalogChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    // JSON of a CatalogChangeBatch
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public CatalogChange(String nodeId, String payload, Instant createdAt) {
+        this.nodeId = nodeId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
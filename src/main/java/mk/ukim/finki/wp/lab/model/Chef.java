@@ -2,7 +2,9 @@ package mk.ukim.finki.wp.lab.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,11 +12,15 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "chefs")
+@Table(name = "chefs", indexes = {
+        @Index(name = "idx_chefs_dish_count_id", columnList = "dish_count DESC, id")
+})
 public class Chef {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids (pooled by 50) let Hibernate batch inserts, which IDENTITY disables
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chefs_seq")
+    @SequenceGenerator(name = "chefs_seq", sequenceName = "chefs_seq", allocationSize = 50)
     private Long id;
 
     private String firstName;
@@ -23,7 +29,18 @@ public class Chef {
     @Column(length = 1000)
     private String bio;
 
-    @OneToMany(mappedBy = "chef", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Denormalized size of dishes, maintained by the services and reconciled periodically.
+    // Only those bulk updates write it, so saving an edited chef never puts back a stale count.
+    @Column(name = "dish_count", nullable = false, updatable = false)
+    private int dishCount = 0;
+
+    // Optimistic lock: edit forms send back the version they were rendered from
+    @Version
+    private Long version;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "chef", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Dish> dishes = new ArrayList<>();
 
     public Chef(String firstName, String lastName, String bio) {
@@ -3,26 +3,41 @@ package mk.ukim.finki.wp.lab.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "dishes")
+@Table(name = "dishes", indexes = {
+        @Index(name = "ux_dishes_dish_id", columnList = "dish_id", unique = true),
+        @Index(name = "idx_dishes_rating_id", columnList = "rating, id"),
+        @Index(name = "idx_dishes_chef_id", columnList = "chef_id")
+})
 public class Dish {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids (pooled by 50) let Hibernate batch inserts, which IDENTITY disables
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dishes_seq")
+    @SequenceGenerator(name = "dishes_seq", sequenceName = "dishes_seq", allocationSize = 50)
     private Long id;
 
+    @Column(name = "dish_id")
     private String dishId;
     private String name;
     private String cuisine;
     private int preparationTime;
     private Integer rating; // Rating 1-5 stars
 
-    @ManyToOne
+    // Optimistic lock: edit forms send back the version they were rendered from
+    @Version
+    private Long version;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chef_id")
     private Chef chef;
 
@@ -0,0 +1,58 @@
+package mk.ukim.finki.wp.lab.model.audit;
+
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+
+import java.time.Instant;
+import java.util.Objects;
+
+// One committed change as the audit log keeps it: the state after the change (none for a delete).
+// A snapshot records the state found in the database rather than a change, after an import or on first start.
+// sequence is assigned when the record is appended.
+public record AuditRecord(long sequence, Instant at, String entity, Long id, String operation,
+                          DishSnapshot dish, ChefSnapshot chef) {
+    public static final String DISH = "dish";
+    public static final String CHEF = "chef";
+    public static final String DELETE = "delete";
+    public static final String SNAPSHOT = "snapshot";
+
+    public static AuditRecord of(DishChangedEvent event, Instant at) {
+        return new AuditRecord(0, at, DISH, event.id(), operation(event.before(), event.after()), event.after(), null);
+    }
+
+    public static AuditRecord of(ChefChangedEvent event, Instant at) {
+        return new AuditRecord(0, at, CHEF, event.id(), operation(event.before(), event.after()), null, event.after());
+    }
+
+    public static AuditRecord snapshot(DishSnapshot dish, Instant at) {
+        return new AuditRecord(0, at, DISH, dish.id(), SNAPSHOT, dish, null);
+    }
+
+    public static AuditRecord snapshot(ChefSnapshot chef, Instant at) {
+        return new AuditRecord(0, at, CHEF, chef.id(), SNAPSHOT, null, chef);
+    }
+
+    public static AuditRecord deleted(String entity, Long id, Instant at) {
+        return new AuditRecord(0, at, entity, id, DELETE, null, null);
+    }
+
+    public AuditRecord appended(long sequence, Instant at) {
+        return new AuditRecord(sequence, at, this.entity, this.id, this.operation, this.dish, this.chef);
+    }
+
+    public boolean deleted() {
+        return DELETE.equals(this.operation);
+    }
+
+    // Same entity state, so the record only repeats the one before it
+    public boolean sameState(AuditRecord other) {
+        return other != null && !deleted() && !other.deleted()
+                && Objects.equals(this.dish, other.dish) && Objects.equals(this.chef, other.chef);
+    }
+
+    private static String operation(Object before, Object after) {
+        return before == null ? "create" : after == null ? DELETE : "update";
+    }
+}
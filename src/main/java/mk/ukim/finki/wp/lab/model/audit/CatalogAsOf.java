@@ -0,0 +1,11 @@
+package mk.ukim.finki.wp.lab.model.audit;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+
+import java.time.Instant;
+import java.util.List;
+
+// The catalogue as the audit log saw it at a point in time, ordered by id
+public record CatalogAsOf(Instant at, List<DishSnapshot> dishes, List<ChefSnapshot> chefs) {
+}
@@ -0,0 +1,4 @@
+package mk.ukim.finki.wp.lab.model.batch;
+
+public record BatchItemError(int index, String dishId, String message) {
+}
@@ -0,0 +1,10 @@
+package mk.ukim.finki.wp.lab.model.batch;
+
+import java.util.List;
+
+public record BatchResult(int requested, int succeeded, List<BatchItemError> errors, long elapsedMillis) {
+
+    public static BatchResult of(int requested, List<BatchItemError> errors, long startMillis) {
+        return new BatchResult(requested, requested - errors.size(), errors, System.currentTimeMillis() - startMillis);
+    }
+}
@@ -0,0 +1,6 @@
+package mk.ukim.finki.wp.lab.model.batch;
+
+// Create uses every field; update treats null fields as "leave unchanged" and ignores chefId
+public record DishDraft(String dishId, String name, String cuisine, Integer preparationTime, Integer rating,
+                        Long chefId) {
+}
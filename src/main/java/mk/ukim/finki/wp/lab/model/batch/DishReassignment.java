@@ -0,0 +1,6 @@
+package mk.ukim.finki.wp.lab.model.batch;
+
+import java.util.List;
+
+public record DishReassignment(Long chefId, List<String> dishIds) {
+}
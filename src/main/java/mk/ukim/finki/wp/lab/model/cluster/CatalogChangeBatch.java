@@ -0,0 +1,15 @@
+package mk.ukim.finki.wp.lab.model.cluster;
+
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+
+import java.util.List;
+
+// The change events of one transaction in publishing order, as other nodes replay them; bulk is set instead
+// when the transaction rewrote too much of the catalogue to list
+public record CatalogChangeBatch(List<Change> changes, String bulk) {
+
+    // Exactly one of the two is set
+    public record Change(DishChangedEvent dish, ChefChangedEvent chef) {
+    }
+}
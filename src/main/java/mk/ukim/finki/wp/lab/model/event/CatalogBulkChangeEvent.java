@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.event;
+
+// Published instead of per-row events when a bulk operation rewrites a large part of the catalogue
+public record CatalogBulkChangeEvent(String source) {
+}
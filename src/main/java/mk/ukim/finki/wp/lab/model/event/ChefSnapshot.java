@@ -0,0 +1,10 @@
+package mk.ukim.finki.wp.lab.model.event;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+
+public record ChefSnapshot(Long id, String firstName, String lastName, String bio) {
+
+    public static ChefSnapshot of(Chef chef) {
+        return new ChefSnapshot(chef.getId(), chef.getFirstName(), chef.getLastName(), chef.getBio());
+    }
+}
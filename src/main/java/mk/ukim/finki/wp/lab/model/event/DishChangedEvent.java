@@ -0,0 +1,9 @@
+package mk.ukim.finki.wp.lab.model.event;
+
+// before is null for a create, after is null for a delete
+public record DishChangedEvent(DishSnapshot before, DishSnapshot after) {
+
+    public Long id() {
+        return after != null ? after.id() : before.id();
+    }
+}
@@ -0,0 +1,13 @@
+package mk.ukim.finki.wp.lab.model.event;
+
+import mk.ukim.finki.wp.lab.model.Dish;
+
+public record DishSnapshot(Long id, String dishId, String name, String cuisine,
+                           int preparationTime, Integer rating, Long chefId) {
+
+    public static DishSnapshot of(Dish dish) {
+        return new DishSnapshot(dish.getId(), dish.getDishId(), dish.getName(), dish.getCuisine(),
+                dish.getPreparationTime(), dish.getRating(),
+                dish.getChef() != null ? dish.getChef().getId() : null);
+    }
+}
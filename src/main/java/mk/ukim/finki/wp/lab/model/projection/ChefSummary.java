@@ -0,0 +1,9 @@
+package mk.ukim.finki.wp.lab.model.projection;
+
+public interface ChefSummary {
+    Long getId();
+    String getFirstName();
+    String getLastName();
+    String getBio();
+    int getDishCount();
+}
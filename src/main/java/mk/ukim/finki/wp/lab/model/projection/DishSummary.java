@@ -0,0 +1,10 @@
+package mk.ukim.finki.wp.lab.model.projection;
+
+public interface DishSummary {
+    Long getId();
+    String getDishId();
+    String getName();
+    String getCuisine();
+    int getPreparationTime();
+    Integer getRating();
+}
@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.recommendation;
+
+// score is the cosine similarity of the two chefs' cuisine mixes
+public record ChefRecommendation(Long id, String firstName, String lastName, int dishCount, double score) {
+}
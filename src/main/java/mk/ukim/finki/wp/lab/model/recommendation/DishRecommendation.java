@@ -0,0 +1,6 @@
+package mk.ukim.finki.wp.lab.model.recommendation;
+
+// score is in [0, 1]; 1 means the same cuisine, rating, preparation time and chef
+public record DishRecommendation(Long id, String dishId, String name, String cuisine, int preparationTime,
+                                 Integer rating, double score) {
+}
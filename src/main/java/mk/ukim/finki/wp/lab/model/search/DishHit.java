@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.search;
+
+public record DishHit(Long id, String dishId, String name, String cuisine, int preparationTime,
+                      Integer rating, String chefName) {
+}
@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.search;
+
+// Every term in text is matched as a prefix, so "ita pas" finds "Italian" dishes named "Pasta ..."
+public record SearchQuery(String text, String cuisine, Integer rating, String preparationTime, int limit) {
+}
@@ -0,0 +1,8 @@
+package mk.ukim.finki.wp.lab.model.search;
+
+import java.util.List;
+import java.util.Map;
+
+public record SearchResult(List<DishHit> hits, int total, Map<String, Integer> cuisineFacets,
+                           Map<Integer, Integer> ratingFacets, Map<String, Integer> preparationTimeFacets) {
+}
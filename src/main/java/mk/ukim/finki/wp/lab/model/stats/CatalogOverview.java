@@ -0,0 +1,8 @@
+package mk.ukim.finki.wp.lab.model.stats;
+
+import java.util.List;
+import java.util.Map;
+
+public record CatalogOverview(long dishes, double averagePreparationTime, long unrated,
+                              Map<Integer, Long> ratingCounts, List<CuisineStats> cuisines) {
+}
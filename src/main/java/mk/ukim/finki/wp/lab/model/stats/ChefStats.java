@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.stats;
+
+// ratingHistogram[0] counts unrated dishes, [1]..[5] the star ratings
+public record ChefStats(Long chefId, long dishes, double averagePreparationTime, long[] ratingHistogram) {
+}
@@ -0,0 +1,4 @@
+package mk.ukim.finki.wp.lab.model.stats;
+
+public record CuisineStats(String cuisine, long dishes, double averagePreparationTime) {
+}
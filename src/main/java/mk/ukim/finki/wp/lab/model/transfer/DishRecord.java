@@ -0,0 +1,5 @@
+package mk.ukim.finki.wp.lab.model.transfer;
+
+public record DishRecord(String dishId, String name, String cuisine, int preparationTime,
+                         Integer rating, Long chefId) {
+}
@@ -0,0 +1,12 @@
+package mk.ukim.finki.wp.lab.model.transfer;
+
+import java.util.List;
+
+public record ImportReport(long imported, long rejected, long elapsedMillis, long rowsPerSecond, List<String> errors) {
+
+    public static ImportReport of(long imported, long rejected, long elapsedMillis, List<String> errors) {
+        long rows = imported + rejected;
+        return new ImportReport(imported, rejected, elapsedMillis,
+                elapsedMillis > 0 ? rows * 1000 / elapsedMillis : rows, errors);
+    }
+}
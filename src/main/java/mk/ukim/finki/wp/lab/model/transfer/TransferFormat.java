@@ -0,0 +1,33 @@
+package mk.ukim.finki.wp.lab.model.transfer;
+
+public enum TransferFormat {
+    CSV("text/csv", "csv"),
+    JSON("application/json", "json");
+
+    private final String contentType;
+    private final String extension;
+
+    TransferFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static TransferFormat fromContentType(String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith(JSON.contentType)) {
+            return JSON;
+        }
+        return CSV;
+    }
+
+    public static TransferFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith("." + JSON.extension) ? JSON : CSV;
+    }
+}
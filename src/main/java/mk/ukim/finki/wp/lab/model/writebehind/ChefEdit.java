@@ -0,0 +1,19 @@
+package mk.ukim.finki.wp.lab.model.writebehind;
+
+public record ChefEdit(Long id, String firstName, String lastName, String bio, Long version, Long revision)
+        implements PendingWrite {
+
+    public static String keyOf(Long id) {
+        return "chef:" + id;
+    }
+
+    @Override
+    public String key() {
+        return keyOf(this.id);
+    }
+
+    @Override
+    public ChefEdit withVersions(Long version, Long revision) {
+        return new ChefEdit(this.id, this.firstName, this.lastName, this.bio, version, revision);
+    }
+}
@@ -0,0 +1,20 @@
+package mk.ukim.finki.wp.lab.model.writebehind;
+
+public record DishEdit(Long id, String dishId, String name, String cuisine, int preparationTime,
+                       Long chefId, Integer rating, Long version, Long revision) implements PendingWrite {
+
+    public static String keyOf(Long id) {
+        return "dish:" + id;
+    }
+
+    @Override
+    public String key() {
+        return keyOf(this.id);
+    }
+
+    @Override
+    public DishEdit withVersions(Long version, Long revision) {
+        return new DishEdit(this.id, this.dishId, this.name, this.cuisine, this.preparationTime, this.chefId,
+                this.rating, version, revision);
+    }
+}
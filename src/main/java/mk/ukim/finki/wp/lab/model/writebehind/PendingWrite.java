@@ -0,0 +1,26 @@
+package mk.ukim.finki.wp.lab.model.writebehind;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+// A queued admin edit. Edits carry the full new state, so a later edit to the same key replaces an earlier one.
+// version is the stored version the edit applies to; revision is the version the row has once it is written,
+// which is also the version forms rendered from the queued edit submit.
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = DishEdit.class, name = "dish"),
+        @JsonSubTypes.Type(value = ChefEdit.class, name = "chef")
+})
+public sealed interface PendingWrite permits DishEdit, ChefEdit {
+    Long id();
+
+    Long version();
+
+    Long revision();
+
+    PendingWrite withVersions(Long version, Long revision);
+
+    @JsonIgnore
+    String key();
+}
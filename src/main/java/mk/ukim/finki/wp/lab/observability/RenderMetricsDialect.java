@@ -0,0 +1,46 @@
+package mk.ukim.finki.wp.lab.observability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IPostProcessorDialect;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.thymeleaf.postprocessor.PostProcessor;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// TemplateEngine.process is final, so render time is taken from the template start and end events
+// seen by a post-processor
+public class RenderMetricsDialect extends AbstractDialect implements IPostProcessorDialect {
+    private final MeterRegistry registry;
+
+    public RenderMetricsDialect(MeterRegistry registry) {
+        super("RenderMetrics");
+        this.registry = registry;
+    }
+
+    @Override
+    public int getDialectPostProcessorPrecedence() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Set<IPostProcessor> getPostProcessors() {
+        return Set.of(new PostProcessor(TemplateMode.HTML, RenderTimingHandler.class, Integer.MAX_VALUE));
+    }
+
+    void record(String template, long nanos) {
+        Timer.builder("app.template.render")
+                .description("Thymeleaf template processing time")
+                .tag("template", template)
+                .publishPercentileHistogram()
+                .register(this.registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        RequestStats stats = RequestStats.current();
+        if (stats != null) {
+            stats.rendered(nanos);
+        }
+    }
+}
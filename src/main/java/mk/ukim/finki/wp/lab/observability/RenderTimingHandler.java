@@ -0,0 +1,43 @@
+package mk.ukim.finki.wp.lab.observability;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.dialect.IDialect;
+import org.thymeleaf.engine.AbstractTemplateHandler;
+import org.thymeleaf.model.ITemplateEnd;
+import org.thymeleaf.model.ITemplateStart;
+
+// Created by Thymeleaf for each template run, so it finds its dialect through the engine configuration
+public class RenderTimingHandler extends AbstractTemplateHandler {
+    private RenderMetricsDialect dialect;
+    private String template;
+    private int depth;
+    private long start;
+
+    @Override
+    public void setContext(ITemplateContext context) {
+        super.setContext(context);
+        // Template events carry no name, the template data of the processing context does
+        this.template = context.getTemplateData().getTemplate();
+        for (IDialect dialect : context.getConfiguration().getDialects()) {
+            if (dialect instanceof RenderMetricsDialect renderMetricsDialect) {
+                this.dialect = renderMetricsDialect;
+            }
+        }
+    }
+
+    @Override
+    public void handleTemplateStart(ITemplateStart templateStart) {
+        if (this.depth++ == 0) {
+            this.start = System.nanoTime();
+        }
+        super.handleTemplateStart(templateStart);
+    }
+
+    @Override
+    public void handleTemplateEnd(ITemplateEnd templateEnd) {
+        super.handleTemplateEnd(templateEnd);
+        if (--this.depth == 0 && this.dialect != null) {
+            this.dialect.record(this.template, System.nanoTime() - this.start);
+        }
+    }
+}
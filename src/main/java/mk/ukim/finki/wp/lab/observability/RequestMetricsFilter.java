@@ -0,0 +1,91 @@
+package mk.ukim.finki.wp.lab.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.MappingMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Records statements and result set rows per request, and logs the breakdown of requests slower than the threshold
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final MeterRegistry registry;
+    private final long slowRequestNanos;
+
+    public RequestMetricsFilter(MeterRegistry registry, Duration slowRequestThreshold) {
+        this.registry = registry;
+        this.slowRequestNanos = slowRequestThreshold.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStats stats = RequestStats.begin();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RequestStats.end();
+            String uri = uriOf(request, response);
+            summary("app.request.statements", "SQL statements prepared per request", uri).record(stats.getStatements());
+            summary("app.request.rows", "Result set rows read per request", uri).record(stats.getRowsRead());
+            if (elapsed >= this.slowRequestNanos) {
+                logSlowRequest(request, response, elapsed, stats);
+            }
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(this.registry);
+    }
+
+    private void logSlowRequest(HttpServletRequest request, HttpServletResponse response, long elapsed, RequestStats stats) {
+        StringBuilder message = new StringBuilder()
+                .append("Slow request ").append(request.getMethod()).append(' ').append(request.getRequestURI())
+                .append(" -> ").append(response.getStatus())
+                .append(" took ").append(TimeUnit.NANOSECONDS.toMillis(elapsed)).append(" ms: ")
+                .append(stats.getStatements()).append(" statements ").append(stats.getStatementsByKind())
+                .append(", ").append(stats.getRowsRead()).append(" rows read, render ")
+                .append(TimeUnit.NANOSECONDS.toMillis(stats.getRenderNanos())).append(" ms");
+        for (Map.Entry<String, Integer> repeated : stats.repeatedStatements(3)) {
+            message.append("\n  ").append(repeated.getValue()).append("x ").append(repeated.getKey());
+        }
+        log.warn(message.toString());
+    }
+
+    // Route patterns keep the tag bounded. Requests that never reach a handler (rejected by security, or not
+    // found) carry the raw path under the dispatcher's "/" mapping, so only the servlets' own mappings are kept
+    private static String uriOf(HttpServletRequest request, HttpServletResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+            return "NOT_FOUND";
+        }
+        HttpServletMapping mapping = request.getHttpServletMapping();
+        return switch (mapping.getMappingMatch() != null ? mapping.getMappingMatch() : MappingMatch.DEFAULT) {
+            case CONTEXT_ROOT -> "root";
+            case EXACT, PATH, EXTENSION -> mapping.getPattern();
+            case DEFAULT -> "UNMAPPED";
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package mk.ukim.finki.wp.lab.observability;
+
+import java.util.*;
+
+// Per-request tally of SQL and rendering work, bound to the request thread by RequestMetricsFilter
+public class RequestStats {
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+    private static final int MAX_DISTINCT_STATEMENTS = 100;
+
+    private final Map<String, Integer> statementsByKind = new TreeMap<>();
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+    private int statements;
+    private long rowsRead;
+    private long renderNanos;
+
+    public static RequestStats begin() {
+        RequestStats stats = new RequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public void statementPrepared(String kind, String sql) {
+        this.statements++;
+        this.statementsByKind.merge(kind, 1, Integer::sum);
+        if (this.statementCounts.size() < MAX_DISTINCT_STATEMENTS || this.statementCounts.containsKey(sql)) {
+            this.statementCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public void rowsRead(int rows) {
+        this.rowsRead += rows;
+    }
+
+    public void rendered(long nanos) {
+        this.renderNanos += nanos;
+    }
+
+    public int getStatements() {
+        return this.statements;
+    }
+
+    public Map<String, Integer> getStatementsByKind() {
+        return this.statementsByKind;
+    }
+
+    public long getRowsRead() {
+        return this.rowsRead;
+    }
+
+    public long getRenderNanos() {
+        return this.renderNanos;
+    }
+
+    // The same SQL prepared many times in one request is the usual sign of an N+1 load
+    public List<Map.Entry<String, Integer>> repeatedStatements(int limit) {
+        return this.statementCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,50 @@
+package mk.ukim.finki.wp.lab.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Sees every SQL string Hibernate prepares; counts it globally and against the current request
+public class SqlStatementInspector implements StatementInspector {
+    private static final String[] KINDS = {"select", "insert", "update", "delete", "other"};
+
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    public SqlStatementInspector(MeterRegistry registry) {
+        for (String kind : KINDS) {
+            this.counters.put(kind, Counter.builder("app.sql.statements")
+                    .description("SQL statements prepared by Hibernate")
+                    .tag("kind", kind)
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String kind = kindOf(sql);
+        this.counters.get(kind).increment();
+        RequestStats stats = RequestStats.current();
+        if (stats != null) {
+            stats.statementPrepared(kind, sql);
+        }
+        return sql;
+    }
+
+    private static String kindOf(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        String keyword = trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+        return switch (keyword) {
+            case "select", "with" -> "select";
+            case "insert", "update", "delete" -> keyword;
+            default -> "other";
+        };
+    }
+}
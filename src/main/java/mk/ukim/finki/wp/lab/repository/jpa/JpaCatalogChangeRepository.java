@@ -0,0 +1,29 @@
+package mk.ukim.finki.wp.lab.repository.jpa;
+
+import mk.ukim.finki.wp.lab.model.CatalogChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JpaCatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+    List<CatalogChange> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    List<CatalogChange> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("select coalesce(max(c.id), 0) from CatalogChange c")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("delete from CatalogChange c where c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
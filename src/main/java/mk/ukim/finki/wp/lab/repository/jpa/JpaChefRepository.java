@@ -1,9 +1,55 @@
 package mk.ukim.finki.wp.lab.repository.jpa;
 
 import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface JpaChefRepository extends JpaRepository<Chef, Long> {
+    Optional<Chef> findFirstByOrderByDishCountDescIdAsc();
+
+    List<ChefSummary> findAllProjectedByOrderByIdAsc();
+    Optional<ChefSummary> findProjectedById(Long id);
+    List<ChefSummary> findAllProjectedByOrderByDishCountDescIdAsc();
+    List<ChefSummary> findAllProjectedByOrderByDishCountDescIdAsc(Pageable pageable);
+    Slice<ChefSummary> findAllProjectedByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    @Query("select c.id as id, c.firstName as firstName, c.lastName as lastName, c.bio as bio, c.dishCount as dishCount " +
+            "from Chef c where c.dishCount < :dishCount or (c.dishCount = :dishCount and c.id > :id) " +
+            "order by c.dishCount desc, c.id asc")
+    Slice<ChefSummary> findRankedAfter(@Param("dishCount") int dishCount, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "dishes")
+    Optional<Chef> findWithDishesById(Long id);
+
+    @Query("select c.version from Chef c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Write-behind flushes move the row to the revision its queued edit was accepted at
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Chef c set c.version = :version where c.id = :id and c.version < :version")
+    int advanceVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Chef c set c.dishCount = c.dishCount + :delta where c.id = :chefId")
+    int adjustDishCount(@Param("chefId") Long chefId, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update chefs c set dish_count = (select count(*) from dishes d where d.chef_id = c.id) " +
+            "where c.dish_count <> (select count(*) from dishes d where d.chef_id = c.id)", nativeQuery = true)
+    int reconcileDishCounts();
 }
@@ -1,14 +1,82 @@
 package mk.ukim.finki.wp.lab.repository.jpa;
 
+import jakarta.persistence.QueryHint;
+import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface JpaDishRepository extends JpaRepository<Dish, Long> {
     List<Dish> findAllByChef_Id(Long chefId);
     Dish findByDishId(String dishId);
     List<Dish> findAllByRating(Integer rating);
+
+    List<DishSummary> findAllProjectedByOrderByIdAsc();
+    List<DishSummary> findAllProjectedByRatingOrderByIdAsc(Integer rating);
+    Slice<DishSummary> findAllProjectedByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+    Slice<DishSummary> findAllProjectedByRatingAndIdGreaterThanOrderByIdAsc(Integer rating, Long after, Pageable pageable);
+
+    @EntityGraph(attributePaths = "chef")
+    Optional<Dish> findWithChefById(Long id);
+
+    @Query("select d.version from Dish d where d.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Write-behind flushes move the row to the revision its queued edit was accepted at
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Dish d set d.version = :version where d.id = :id and d.version < :version")
+    int advanceVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Query("select d.dishId from Dish d where d.dishId in :dishIds")
+    Set<String> findExistingDishIds(@Param("dishIds") Collection<String> dishIds);
+
+    List<Dish> findAllByDishIdIn(Collection<String> dishIds);
+
+    @Query("select new mk.ukim.finki.wp.lab.model.event.DishSnapshot(d.id, d.dishId, d.name, d.cuisine, " +
+            "d.preparationTime, d.rating, c.id) from Dish d left join d.chef c where d.dishId in :dishIds")
+    List<DishSnapshot> findSnapshotsByDishIdIn(@Param("dishIds") Collection<String> dishIds);
+
+    @Query("select new mk.ukim.finki.wp.lab.model.event.DishSnapshot(d.id, d.dishId, d.name, d.cuisine, " +
+            "d.preparationTime, d.rating, c.id) from Dish d left join d.chef c where d.id in :ids")
+    List<DishSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    // Versioned, so an edit form opened before the reassignment is rejected instead of moving the dish back
+    @Query("update versioned Dish d set d.chef = :chef where d.dishId in :dishIds")
+    int reassignChef(@Param("chef") Chef chef, @Param("dishIds") Collection<String> dishIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Dish d where d.dishId in :dishIds")
+    int deleteAllByDishIdIn(@Param("dishIds") Collection<String> dishIds);
+
+    // Constructor results are not managed, so streaming the whole table keeps the persistence context empty
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select new mk.ukim.finki.wp.lab.model.event.DishSnapshot(d.id, d.dishId, d.name, d.cuisine, " +
+            "d.preparationTime, d.rating, c.id) from Dish d left join d.chef c order by d.id")
+    Stream<DishSnapshot> streamAllSnapshots();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select new mk.ukim.finki.wp.lab.model.event.DishSnapshot(d.id, d.dishId, d.name, d.cuisine, " +
+            "d.preparationTime, d.rating, c.id) from Dish d left join d.chef c where d.rating = :rating order by d.id")
+    Stream<DishSnapshot> streamSnapshotsByRating(@Param("rating") Integer rating);
 }
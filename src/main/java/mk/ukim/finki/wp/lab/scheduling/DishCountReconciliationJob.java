@@ -0,0 +1,31 @@
+package mk.ukim.finki.wp.lab.scheduling;
+
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.cache.CatalogVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DishCountReconciliationJob {
+    private static final Logger log = LoggerFactory.getLogger(DishCountReconciliationJob.class);
+
+    private final ChefService chefService;
+    private final CatalogVersion catalogVersion;
+
+    public DishCountReconciliationJob(ChefService chefService, CatalogVersion catalogVersion) {
+        this.chefService = chefService;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Scheduled(initialDelayString = "${app.ranking.reconciliation-interval:PT5M}",
+            fixedDelayString = "${app.ranking.reconciliation-interval:PT5M}")
+    public void reconcile() {
+        int fixed = this.chefService.reconcileDishCounts();
+        if (fixed > 0) {
+            log.warn("Corrected dish_count drift on {} chef(s)", fixed);
+            this.catalogVersion.bump();
+        }
+    }
+}
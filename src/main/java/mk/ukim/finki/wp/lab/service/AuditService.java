@@ -0,0 +1,15 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+import mk.ukim.finki.wp.lab.model.audit.CatalogAsOf;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AuditService {
+    boolean isEnabled();
+    List<AuditRecord> dishHistory(Long id);
+    List<AuditRecord> chefHistory(Long id);
+    CatalogAsOf catalogueAsOf(Instant at);
+    long compact();
+}
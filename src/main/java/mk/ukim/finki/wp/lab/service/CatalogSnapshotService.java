@@ -0,0 +1,16 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+public interface CatalogSnapshotService {
+    Slice<DishSummary> listDishSummaries(Long after, int size);
+    Slice<DishSummary> findSummariesByRating(Integer rating, Long after, int size);
+    Slice<ChefSummary> listChefsByPopularity(Integer afterDishCount, Long afterId, int size);
+    List<ChefSummary> findTopChefs(int limit);
+    ChefSummary findChefSummary(Long id);
+    void rebuild();
+}
@@ -0,0 +1,13 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.stats.CatalogOverview;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+
+import java.util.Map;
+
+public interface CatalogStatisticsService {
+    CatalogOverview overview();
+    Map<Integer, Long> ratingCounts();
+    ChefStats chefStats(Long chefId);
+    void rebuild();
+}
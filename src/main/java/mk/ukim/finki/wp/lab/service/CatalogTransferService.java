@@ -0,0 +1,13 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface CatalogTransferService {
+    ImportReport importDishes(InputStream input, TransferFormat format) throws IOException;
+    long exportDishes(OutputStream output, TransferFormat format) throws IOException;
+}
@@ -1,16 +1,28 @@
 package mk.ukim.finki.wp.lab.service;
 
 import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface ChefService {
     List<Chef> listChefs();
+    List<ChefSummary> listChefSummaries();
+    Slice<ChefSummary> listChefSummaries(Long after, int size);
     Chef findById(Long id);
+    Chef findByIdUncached(Long id);
+    Chef findByIdWithDishes(Long id);
     Chef addDishToChef(Long chefId, String dishId);
+    BatchResult assignDishesToChef(Long chefId, List<String> dishIds);
     Optional<Chef> findMostPopularChef();
+    List<ChefSummary> listChefsByPopularity();
+    Slice<ChefSummary> listChefsByPopularity(Integer afterDishCount, Long afterId, int size);
+    List<ChefSummary> findTopChefs(int limit);
+    int reconcileDishCounts();
     Chef create(String firstName, String lastName, String bio);
-    Chef update(Long id, String firstName, String lastName, String bio);
+    Chef update(Long id, String firstName, String lastName, String bio, Long version);
     void delete(Long id);
 }
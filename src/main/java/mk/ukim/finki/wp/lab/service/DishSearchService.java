@@ -0,0 +1,12 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.model.search.SearchResult;
+
+import java.util.List;
+
+public interface DishSearchService {
+    SearchResult search(SearchQuery query);
+    List<String> suggest(String prefix, int limit);
+    void rebuild();
+}
@@ -1,16 +1,33 @@
 package mk.ukim.finki.wp.lab.service;
 
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.batch.DishDraft;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface DishService {
     List<Dish> listDishes();
+    List<DishSummary> listDishSummaries();
+    Slice<DishSummary> listDishSummaries(Long after, int size);
     Dish findByDishId(String dishId);
     Dish findById(Long id);
+    Dish findByIdWithChef(Long id);
     Dish create(String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating);
-    Dish update(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating);
+    Dish update(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating,
+                Long version);
     void delete(Long id);
+    BatchResult createDishes(List<DishDraft> drafts);
+    BatchResult updateDishes(List<DishDraft> drafts);
+    BatchResult deleteDishes(List<String> dishIds);
     List<Dish> findAllByChefId(Long chefId);
     List<Dish> findAllByRating(Integer rating);
+    List<DishSummary> findSummariesByRating(Integer rating);
+    Slice<DishSummary> findSummariesByRating(Integer rating, Long after, int size);
+    void streamDishes(Integer rating, Consumer<Stream<DishSnapshot>> consumer);
 }
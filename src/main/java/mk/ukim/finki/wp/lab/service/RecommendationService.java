@@ -0,0 +1,13 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+
+import java.util.List;
+
+public interface RecommendationService {
+    List<DishRecommendation> similarDishes(Long dishId, int limit);
+    List<DishRecommendation> recommendDishesForChef(Long chefId, int limit);
+    List<ChefRecommendation> similarChefs(Long chefId, int limit);
+    void rebuild();
+}
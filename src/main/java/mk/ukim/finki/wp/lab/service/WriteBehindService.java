@@ -0,0 +1,27 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.writebehind.ChefEdit;
+import mk.ukim.finki.wp.lab.model.writebehind.DishEdit;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WriteBehindService {
+    boolean isEnabled();
+    void updateDish(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating,
+                    Long version);
+    void updateChef(Long id, String firstName, String lastName, String bio, Long version);
+    void discardDish(Long id);
+    void discardChef(Long id);
+    Optional<DishEdit> failedDishEdit(Long id);
+    Optional<ChefEdit> failedChefEdit(Long id);
+    Dish overlay(Dish dish);
+    Chef overlay(Chef chef);
+    List<DishSummary> overlayDishes(List<DishSummary> dishes);
+    List<ChefSummary> overlayChefs(List<ChefSummary> chefs);
+    int pending();
+}
@@ -0,0 +1,637 @@
+package mk.ukim.finki.wp.lab.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Append-only audit log in segment files of JSON lines. Records are only ever appended to the last (active)
+// segment, which is sealed once it passes segmentBytes; the manifest lists the live segments and is replaced
+// atomically, so a crash mid-compaction leaves either the old or the new set. An in-memory index keeps, per
+// entity, where each of its records is and when it happened: a history reads just that entity's records and
+// "as of T" reads one record per entity, found by binary search. Sealed segments keep that index in a sidecar
+// file, so opening the log only scans the active segment. Appends come from one thread at a time.
+public class AuditLog implements Closeable {
+    private static final String MANIFEST = "segments.manifest";
+    private static final int INDEX_MAGIC = 0x41554458;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Oldest first; the last one is the active segment
+    private List<Segment> segments = new ArrayList<>();
+    private Map<Long, History> index = new HashMap<>();
+    private Instant horizon = Instant.EPOCH;
+    private long nextSequence = 1;
+    private int nextSegmentNumber = 1;
+
+    public AuditLog(Path directory, long segmentBytes, boolean fsync, ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    // History before the horizon has been folded into one record per entity by compaction
+    public Instant horizon() {
+        this.lock.readLock().lock();
+        try {
+            return this.horizon;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public void append(List<AuditRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Segment active = this.segments.get(this.segments.size() - 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 256);
+        List<AuditRecord> appended = new ArrayList<>(records.size());
+        long[] offsets = new long[records.size()];
+        int[] lengths = new int[records.size()];
+        this.lock.readLock().lock();
+        try {
+            Map<Long, Instant> latest = new HashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                AuditRecord record = records.get(i);
+                long key = key(record.entity(), record.id());
+                // Per entity the log stays in time order, so a record never lands before an earlier change
+                Instant previous = latest.computeIfAbsent(key, this::latestTime);
+                Instant at = previous != null && previous.isAfter(record.at()) ? previous : record.at();
+                latest.put(key, at);
+                AuditRecord sequenced = record.appended(this.nextSequence + i, at);
+                byte[] json = this.objectMapper.writeValueAsBytes(sequenced);
+                offsets[i] = active.size + out.size();
+                lengths[i] = json.length;
+                out.write(json);
+                out.write('\n');
+                appended.add(sequenced);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize audit records", e);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        // Readers only follow offsets already in the index, so the file is written outside the lock
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                active.channel.write(buffer, active.size + buffer.position());
+            }
+            if (this.fsync) {
+                active.channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the audit log " + active.path, e);
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            for (int i = 0; i < appended.size(); i++) {
+                AuditRecord record = appended.get(i);
+                long key = key(record.entity(), record.id());
+                int position = active.entries.add(key, record.at().toEpochMilli(), offsets[i], lengths[i]);
+                this.index.computeIfAbsent(key, k -> new History()).add(active, position);
+            }
+            active.size += out.size();
+            active.lastSequence = appended.get(appended.size() - 1).sequence();
+            this.nextSequence = active.lastSequence + 1;
+            if (active.size >= this.segmentBytes) {
+                roll(active);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new audit log segment", e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // Oldest first
+    public List<AuditRecord> history(String entity, Long id) {
+        this.lock.readLock().lock();
+        try {
+            History history = this.index.get(key(entity, id));
+            if (history == null) {
+                return List.of();
+            }
+            List<AuditRecord> records = new ArrayList<>(history.size);
+            for (int i = 0; i < history.size; i++) {
+                records.add(read(history.segments[i], history.positions[i]));
+            }
+            return records;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // The latest record of every entity at or before the given time, deletes left out, in file order
+    public List<AuditRecord> asOf(Instant at) {
+        long millis = at.toEpochMilli();
+        this.lock.readLock().lock();
+        try {
+            if (at.isBefore(this.horizon)) {
+                throw new IllegalArgumentException("History before " + this.horizon + " has been compacted");
+            }
+            List<long[]> locations = new ArrayList<>();
+            for (History history : this.index.values()) {
+                int found = history.latestAtOrBefore(millis);
+                if (found >= 0) {
+                    Segment segment = history.segments[found];
+                    locations.add(new long[]{segment.number, history.positions[found]});
+                }
+            }
+            // Grouped by segment and in file order, so the reads move forward through each file
+            locations.sort(Comparator.<long[]>comparingLong(location -> location[0])
+                    .thenComparingLong(location -> location[1]));
+            Map<Long, Segment> byNumber = new HashMap<>();
+            this.segments.forEach(segment -> byNumber.put((long) segment.number, segment));
+            List<AuditRecord> records = new ArrayList<>(locations.size());
+            for (long[] location : locations) {
+                AuditRecord record = read(byNumber.get(location[0]), (int) location[1]);
+                if (!record.deleted()) {
+                    records.add(record);
+                }
+            }
+            return records;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.isEmpty();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.segments.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // Rewrites the sealed segments into fewer, larger ones. Records older than the cutoff are folded into the
+    // last state of each entity (dropped if that was a delete), and records that repeat the previous state of
+    // their entity are left out. Skipped when every sealed segment already came from a compaction. Returns the
+    // number of records removed. Runs alongside appends and reads; only the final swap takes the lock.
+    public long compact(Instant cutoff) throws IOException {
+        List<Segment> sealed;
+        this.lock.readLock().lock();
+        try {
+            sealed = new ArrayList<>(this.segments.subList(0, this.segments.size() - 1));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (sealed.isEmpty() || sealed.stream().allMatch(segment -> segment.compacted)) {
+            return 0;
+        }
+
+        long cutoffMillis = cutoff.toEpochMilli();
+        Map<Long, AuditRecord> base = new HashMap<>();
+        long total = 0;
+        long before = 0;
+        for (Segment segment : sealed) {
+            for (int i = 0; i < segment.entries.size; i++) {
+                total++;
+                if (segment.entries.times[i] < cutoffMillis) {
+                    base.put(segment.entries.keys[i], read(segment, i));
+                    before++;
+                }
+            }
+        }
+        base.values().removeIf(AuditRecord::deleted);
+        List<AuditRecord> folded = new ArrayList<>(base.values());
+        folded.sort(Comparator.comparingLong(AuditRecord::sequence));
+
+        List<Segment> written = new ArrayList<>();
+        long kept = 0;
+        SegmentWriter writer = new SegmentWriter(written);
+        try {
+            Map<Long, AuditRecord> previous = new HashMap<>();
+            for (AuditRecord record : folded) {
+                writer.write(record);
+                previous.put(key(record.entity(), record.id()), record);
+                kept++;
+            }
+            for (Segment segment : sealed) {
+                for (int i = 0; i < segment.entries.size; i++) {
+                    if (segment.entries.times[i] < cutoffMillis) {
+                        continue;
+                    }
+                    AuditRecord record = read(segment, i);
+                    long key = segment.entries.keys[i];
+                    if (record.sameState(previous.get(key))) {
+                        continue;
+                    }
+                    writer.write(record);
+                    previous.put(key, record);
+                    kept++;
+                }
+            }
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : written) {
+                segment.delete();
+            }
+            throw e;
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            List<Segment> live = new ArrayList<>(written);
+            live.addAll(this.segments.subList(sealed.size(), this.segments.size()));
+            if (before > base.size() && cutoff.isAfter(this.horizon)) {
+                this.horizon = cutoff;
+            }
+            writeManifest(live);
+            this.segments = live;
+            rebuildIndex();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        for (Segment segment : sealed) {
+            segment.delete();
+        }
+        return total - kept;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            for (Segment segment : this.segments) {
+                segment.channel.close();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Instant latestTime(long key) {
+        History history = this.index.get(key);
+        if (history == null || history.size == 0) {
+            return null;
+        }
+        int last = history.size - 1;
+        return Instant.ofEpochMilli(history.segments[last].entries.times[history.positions[last]]);
+    }
+
+    private AuditRecord read(Segment segment, int position) {
+        ByteBuffer buffer = ByteBuffer.allocate(segment.entries.lengths[position]);
+        long offset = segment.entries.offsets[position];
+        try {
+            while (buffer.hasRemaining()) {
+                if (segment.channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Audit record past the end of " + segment.path);
+                }
+            }
+            return this.objectMapper.readValue(buffer.array(), AuditRecord.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the audit log " + segment.path, e);
+        }
+    }
+
+    private void roll(Segment active) throws IOException {
+        active.writeIndex();
+        active.channel.close();
+        active.channel = FileChannel.open(active.path, StandardOpenOption.READ);
+        List<Segment> live = new ArrayList<>(this.segments);
+        live.add(Segment.create(this.directory, nextSegmentNumber()));
+        writeManifest(live);
+        this.segments = live;
+    }
+
+    private void rebuildIndex() {
+        Map<Long, History> rebuilt = new HashMap<>();
+        for (Segment segment : this.segments) {
+            for (int i = 0; i < segment.entries.size; i++) {
+                rebuilt.computeIfAbsent(segment.entries.keys[i], k -> new History()).add(segment, i);
+            }
+        }
+        this.index = rebuilt;
+    }
+
+    private void open() throws IOException {
+        Path manifest = this.directory.resolve(MANIFEST);
+        List<String> lines = Files.exists(manifest) ? Files.readAllLines(manifest) : List.of();
+        Set<String> listed = new HashSet<>();
+        List<Segment> live = new ArrayList<>();
+        for (String line : lines) {
+            String[] parts = line.trim().split(" ");
+            if (parts[0].equals("horizon")) {
+                this.horizon = Instant.ofEpochMilli(Long.parseLong(parts[1]));
+            } else if (!parts[0].isEmpty()) {
+                Segment segment = Segment.open(this.directory.resolve(parts[0]), parts.length > 1, this.objectMapper);
+                listed.add(parts[0]);
+                listed.add(Segment.indexName(parts[0]));
+                live.add(segment);
+                this.nextSegmentNumber = Math.max(this.nextSegmentNumber, segment.number + 1);
+            }
+        }
+        // Leftovers of a compaction or roll that did not reach the manifest
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("segment-") && !listed.contains(name)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        for (int i = 0; i < live.size() - 1; i++) {
+            live.get(i).seal();
+        }
+        if (live.isEmpty()) {
+            live.add(Segment.create(this.directory, this.nextSegmentNumber++));
+            writeManifest(live);
+        } else {
+            live.get(live.size() - 1).openForAppend();
+        }
+        for (Segment segment : live) {
+            this.nextSequence = Math.max(this.nextSequence, segment.lastSequence + 1);
+        }
+        this.segments = live;
+        rebuildIndex();
+    }
+
+    private void writeManifest(List<Segment> live) throws IOException {
+        StringBuilder manifest = new StringBuilder("horizon ").append(this.horizon.toEpochMilli()).append('\n');
+        for (Segment segment : live) {
+            manifest.append(segment.path.getFileName()).append(segment.compacted ? " compacted" : "").append('\n');
+        }
+        Path temp = this.directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(manifest.toString().getBytes(StandardCharsets.UTF_8)));
+            out.force(false);
+        }
+        Files.move(temp, this.directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private synchronized int nextSegmentNumber() {
+        return this.nextSegmentNumber++;
+    }
+
+    private static long key(String entity, Long id) {
+        return id << 1 | (AuditRecord.CHEF.equals(entity) ? 1 : 0);
+    }
+
+    // Writes compacted records into new sealed segments of up to segmentBytes each
+    private final class SegmentWriter {
+        private final List<Segment> written;
+        private Segment current;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+
+        SegmentWriter(List<Segment> written) {
+            this.written = written;
+        }
+
+        void write(AuditRecord record) throws IOException {
+            if (this.current == null) {
+                this.current = Segment.create(AuditLog.this.directory, nextSegmentNumber());
+                this.current.compacted = true;
+                this.written.add(this.current);
+            }
+            byte[] json = AuditLog.this.objectMapper.writeValueAsBytes(record);
+            long offset = this.current.size + this.buffer.size();
+            this.buffer.write(json);
+            this.buffer.write('\n');
+            this.current.entries.add(key(record.entity(), record.id()), record.at().toEpochMilli(), offset,
+                    json.length);
+            this.current.lastSequence = record.sequence();
+            if (this.buffer.size() >= 1 << 16) {
+                flush();
+            }
+            if (this.current.size + this.buffer.size() >= AuditLog.this.segmentBytes) {
+                seal();
+            }
+        }
+
+        void finish() throws IOException {
+            if (this.current != null) {
+                seal();
+            }
+        }
+
+        private void flush() throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(this.buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                this.current.channel.write(bytes, this.current.size + bytes.position());
+            }
+            this.current.size += this.buffer.size();
+            this.buffer.reset();
+        }
+
+        private void seal() throws IOException {
+            flush();
+            this.current.channel.force(false);
+            this.current.writeIndex();
+            this.current.channel.close();
+            this.current.channel = FileChannel.open(this.current.path, StandardOpenOption.READ);
+            this.current = null;
+        }
+    }
+
+    private static final class Segment {
+        final int number;
+        final Path path;
+        final Entries entries = new Entries();
+        FileChannel channel;
+        long size;
+        long lastSequence;
+        boolean compacted;
+
+        private Segment(int number, Path path) {
+            this.number = number;
+            this.path = path;
+        }
+
+        static Segment create(Path directory, int number) throws IOException {
+            Segment segment = new Segment(number, directory.resolve(String.format("segment-%06d.log", number)));
+            segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return segment;
+        }
+
+        static String indexName(String logName) {
+            return logName.replace(".log", ".idx");
+        }
+
+        // Loads the sidecar index when it matches the file, otherwise scans the records
+        static Segment open(Path path, boolean compacted, ObjectMapper objectMapper) throws IOException {
+            String name = path.getFileName().toString();
+            Segment segment = new Segment(Integer.parseInt(name.substring(8, name.indexOf('.'))), path);
+            segment.compacted = compacted;
+            segment.size = Files.size(path);
+            if (!segment.readIndex()) {
+                segment.scan(objectMapper);
+            }
+            segment.channel = FileChannel.open(path, StandardOpenOption.READ);
+            return segment;
+        }
+
+        void seal() throws IOException {
+            if (!Files.exists(this.path.resolveSibling(indexName(this.path.getFileName().toString())))) {
+                writeIndex();
+            }
+        }
+
+        void openForAppend() throws IOException {
+            this.channel.close();
+            // Drops a torn last line from a crash mid-append
+            try (FileChannel truncate = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+                truncate.truncate(this.size);
+            }
+            Files.deleteIfExists(this.path.resolveSibling(indexName(this.path.getFileName().toString())));
+            this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        void delete() throws IOException {
+            this.channel.close();
+            Files.deleteIfExists(this.path);
+            Files.deleteIfExists(this.path.resolveSibling(indexName(this.path.getFileName().toString())));
+        }
+
+        private void scan(ObjectMapper objectMapper) throws IOException {
+            long offset = 0;
+            try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(this.path), 1 << 16)) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+                int b;
+                while ((b = in.read()) >= 0) {
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    AuditRecord record;
+                    try {
+                        record = objectMapper.readValue(line.toByteArray(), AuditRecord.class);
+                    } catch (IOException e) {
+                        break;
+                    }
+                    this.entries.add(key(record.entity(), record.id()), record.at().toEpochMilli(), offset,
+                            line.size());
+                    this.lastSequence = record.sequence();
+                    offset += line.size() + 1;
+                    line.reset();
+                }
+            }
+            // Anything after the last complete line is cut off when the segment is opened for appends
+            this.size = offset;
+        }
+
+        private void writeIndex() throws IOException {
+            Path index = this.path.resolveSibling(indexName(this.path.getFileName().toString()));
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeLong(this.size);
+                out.writeLong(this.lastSequence);
+                out.writeInt(this.entries.size);
+                for (int i = 0; i < this.entries.size; i++) {
+                    out.writeLong(this.entries.keys[i]);
+                    out.writeLong(this.entries.times[i]);
+                    out.writeLong(this.entries.offsets[i]);
+                    out.writeInt(this.entries.lengths[i]);
+                }
+            }
+        }
+
+        private boolean readIndex() throws IOException {
+            Path index = this.path.resolveSibling(indexName(this.path.getFileName().toString()));
+            if (!Files.exists(index)) {
+                return false;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+                if (in.readInt() != INDEX_MAGIC || in.readLong() != this.size) {
+                    return false;
+                }
+                this.lastSequence = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    this.entries.add(in.readLong(), in.readLong(), in.readLong(), in.readInt());
+                }
+                return true;
+            } catch (EOFException e) {
+                this.entries.size = 0;
+                return false;
+            }
+        }
+    }
+
+    // Per-record key, time, offset and length of a segment, in file order
+    private static final class Entries {
+        long[] keys = new long[64];
+        long[] times = new long[64];
+        long[] offsets = new long[64];
+        int[] lengths = new int[64];
+        int size;
+
+        int add(long key, long time, long offset, int length) {
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.times = Arrays.copyOf(this.times, capacity);
+                this.offsets = Arrays.copyOf(this.offsets, capacity);
+                this.lengths = Arrays.copyOf(this.lengths, capacity);
+            }
+            this.keys[this.size] = key;
+            this.times[this.size] = time;
+            this.offsets[this.size] = offset;
+            this.lengths[this.size] = length;
+            return this.size++;
+        }
+    }
+
+    // The records of one entity in time order
+    private static final class History {
+        Segment[] segments = new Segment[2];
+        int[] positions = new int[2];
+        int size;
+
+        void add(Segment segment, int position) {
+            if (this.size == this.segments.length) {
+                this.segments = Arrays.copyOf(this.segments, this.size * 2);
+                this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            }
+            this.segments[this.size] = segment;
+            this.positions[this.size] = position;
+            this.size++;
+        }
+
+        int latestAtOrBefore(long millis) {
+            int low = 0;
+            int high = this.size - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (this.segments[middle].entries.times[this.positions[middle]] <= millis) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package mk.ukim.finki.wp.lab.service.cache;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+
+@Component
+public class CatalogCacheInvalidator {
+    private final CacheManager cacheManager;
+
+    public CatalogCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Runs after commit so a concurrent read cannot repopulate an entry with pre-commit state
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        DishSnapshot before = event.before();
+        DishSnapshot after = event.after();
+
+        evict(CatalogCaches.DISH_BY_ID, event.id());
+        for (DishSnapshot snapshot : new DishSnapshot[]{before, after}) {
+            if (snapshot != null) {
+                evict(CatalogCaches.DISH_BY_DISH_ID, snapshot.dishId());
+                evict(CatalogCaches.DISHES_BY_RATING, snapshot.rating());
+                evict(CatalogCaches.DISHES_BY_CHEF, snapshot.chefId());
+            }
+        }
+        clear(CatalogCaches.DISH_LISTS);
+
+        Long previousChefId = before != null ? before.chefId() : null;
+        Long newChefId = after != null ? after.chefId() : null;
+        if (!Objects.equals(previousChefId, newChefId)) {
+            // dish_count moved between chefs, which changes chef rows and the ranking
+            evict(CatalogCaches.CHEF_BY_ID, previousChefId);
+            evict(CatalogCaches.CHEF_BY_ID, newChefId);
+            clear(CatalogCaches.CHEF_LISTS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        evict(CatalogCaches.CHEF_BY_ID, event.id());
+        clear(CatalogCaches.CHEF_LISTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        this.cacheManager.getCacheNames().forEach(this::clear);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
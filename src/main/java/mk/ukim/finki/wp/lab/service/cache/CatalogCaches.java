@@ -0,0 +1,14 @@
+package mk.ukim.finki.wp.lab.service.cache;
+
+public final class CatalogCaches {
+    public static final String DISH_BY_ID = "dishById";
+    public static final String DISH_BY_DISH_ID = "dishByDishId";
+    public static final String DISHES_BY_RATING = "dishesByRating";
+    public static final String DISHES_BY_CHEF = "dishesByChef";
+    public static final String DISH_LISTS = "dishLists";
+    public static final String CHEF_BY_ID = "chefById";
+    public static final String CHEF_LISTS = "chefLists";
+
+    private CatalogCaches() {
+    }
+}
@@ -0,0 +1,38 @@
+package mk.ukim.finki.wp.lab.service.cache;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class CatalogVersion {
+    // Seeded from the clock so validators issued before a restart never match again
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return this.version.get();
+    }
+
+    public long bump() {
+        return this.version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        bump();
+    }
+}
@@ -0,0 +1,198 @@
+package mk.ukim.finki.wp.lab.service.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mk.ukim.finki.wp.lab.model.CatalogChange;
+import mk.ukim.finki.wp.lab.model.cluster.CatalogChangeBatch;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaCatalogChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Polls catalog_changes for rows written by other nodes and publishes their events here, so the caches,
+// the snapshot, the search and recommendation indexes and the statistics follow another node's edit within
+// about one poll interval. New rows are read past the highest id seen; an id skipped over is usually a
+// transaction that took its id first and committed later, so each one is looked up again on every poll for up
+// to gap-timeout from when it was first missed before it is treated as rolled back.
+@Component
+@ConditionalOnProperty(name = "app.cluster.invalidation.enabled", havingValue = "true")
+public class CatalogChangeFollower implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(CatalogChangeFollower.class);
+
+    private final JpaCatalogChangeRepository changeRepository;
+    private final CatalogChangeRecorder recorder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration retention;
+    private final Timer lag;
+    private final Counter applied;
+    private final Counter resyncs;
+    // Every id up to the cursor has been applied or given up; seen holds the applied ids above it and missing
+    // the ids between them not read yet, with when each was first missed
+    private long cursor = -1;
+    private final TreeSet<Long> seen = new TreeSet<>();
+    private final Map<Long, Instant> missing = new HashMap<>();
+    private Instant lastPoll;
+
+    public CatalogChangeFollower(JpaCatalogChangeRepository changeRepository, CatalogChangeRecorder recorder,
+                                 ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                                 MeterRegistry registry,
+                                 @Value("${app.cluster.invalidation.batch-size:200}") int batchSize,
+                                 @Value("${app.cluster.invalidation.gap-timeout:PT10S}") Duration gapTimeout,
+                                 @Value("${app.cluster.invalidation.retention:PT1H}") Duration retention) {
+        this.changeRepository = changeRepository;
+        this.recorder = recorder;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+        if (retention.compareTo(gapTimeout.multipliedBy(2)) < 0) {
+            throw new IllegalStateException("app.cluster.invalidation.retention must be at least twice the "
+                    + "gap-timeout, was " + retention);
+        }
+        this.lag = Timer.builder("app.cluster.invalidation.lag")
+                .description("Time from another node's commit to its changes being applied here")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.applied = Counter.builder("app.cluster.invalidation.applied")
+                .description("Change rows from other nodes applied here")
+                .register(registry);
+        this.resyncs = Counter.builder("app.cluster.invalidation.resyncs")
+                .description("Full refreshes after falling further behind than the retention")
+                .register(registry);
+    }
+
+    // Before the read models are built on ApplicationReadyEvent, so nothing committed after the build is missed
+    @Override
+    public void afterSingletonsInstantiated() {
+        this.cursor = this.changeRepository.findMaxId();
+        this.lastPoll = Instant.now();
+    }
+
+    @Scheduled(initialDelayString = "${app.cluster.invalidation.poll-interval:PT1S}",
+            fixedDelayString = "${app.cluster.invalidation.poll-interval:PT1S}")
+    public void poll() {
+        poll(Instant.now());
+    }
+
+    // Takes the time from the caller so the gap and retention handling can be tested
+    synchronized void poll(Instant now) {
+        try {
+            if (Duration.between(this.lastPoll, now).compareTo(this.retention) > 0) {
+                // Rows this node never read may have been purged; rebuild everything from the database
+                resync();
+            } else {
+                follow(now);
+            }
+            this.lastPoll = now;
+        } catch (DataAccessException e) {
+            log.warn("Polling catalog_changes failed, retrying: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.cluster.invalidation.retention:PT1H}",
+            fixedDelayString = "${app.cluster.invalidation.retention:PT1H}")
+    public void purge() {
+        int deleted = this.changeRepository.deleteCreatedBefore(Instant.now().minus(this.retention));
+        if (deleted > 0) {
+            log.debug("Purged {} catalog_changes row(s)", deleted);
+        }
+    }
+
+    private void follow(Instant now) {
+        if (!this.missing.isEmpty()) {
+            for (CatalogChange change : this.changeRepository.findByIdInOrderByIdAsc(this.missing.keySet())) {
+                this.missing.remove(change.getId());
+                accept(change, now);
+            }
+        }
+        List<CatalogChange> changes;
+        do {
+            changes = this.changeRepository.findByIdGreaterThanOrderByIdAsc(highest(),
+                    PageRequest.of(0, this.batchSize));
+            for (CatalogChange change : changes) {
+                for (long id = highest() + 1; id < change.getId(); id++) {
+                    this.missing.putIfAbsent(id, now);
+                }
+                accept(change, now);
+            }
+        } while (changes.size() == this.batchSize);
+
+        this.missing.entrySet().removeIf(gap -> {
+            boolean expired = Duration.between(gap.getValue(), now).compareTo(this.gapTimeout) > 0;
+            if (expired) {
+                log.debug("Gave up waiting for catalog_changes id {}", gap.getKey());
+            }
+            return expired;
+        });
+        // Ids below the highest seen one that are neither applied nor missing were given up
+        long highest = highest();
+        while (this.cursor < highest && !this.missing.containsKey(this.cursor + 1)) {
+            this.seen.remove(++this.cursor);
+        }
+    }
+
+    private long highest() {
+        return this.seen.isEmpty() ? this.cursor : this.seen.last();
+    }
+
+    private void accept(CatalogChange change, Instant now) {
+        if (this.seen.add(change.getId()) && !change.getNodeId().equals(this.recorder.nodeId())) {
+            apply(change, now);
+        }
+    }
+
+    private void apply(CatalogChange change, Instant now) {
+        CatalogChangeBatch batch;
+        try {
+            batch = this.objectMapper.readValue(change.getPayload(), CatalogChangeBatch.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable catalog_changes row {}, refreshing everything instead", change.getId(), e);
+            batch = new CatalogChangeBatch(List.of(), "unreadable");
+        }
+        CatalogChangeBatch changes = batch;
+        this.recorder.replay(() -> {
+            if (changes.bulk() != null) {
+                this.eventPublisher.publishEvent(new CatalogBulkChangeEvent("remote " + changes.bulk()));
+                return;
+            }
+            for (CatalogChangeBatch.Change event : changes.changes()) {
+                this.eventPublisher.publishEvent(event.dish() != null ? event.dish() : event.chef());
+            }
+        });
+        this.applied.increment();
+        // Measured against the writer's clock
+        Duration lag = Duration.between(change.getCreatedAt(), now);
+        this.lag.record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    private void resync() {
+        log.warn("Fell behind catalog_changes by more than {}, refreshing everything", this.retention);
+        this.cursor = this.changeRepository.findMaxId();
+        this.seen.clear();
+        this.missing.clear();
+        this.recorder.replay(() -> this.eventPublisher.publishEvent(new CatalogBulkChangeEvent("resync")));
+        this.resyncs.increment();
+    }
+}
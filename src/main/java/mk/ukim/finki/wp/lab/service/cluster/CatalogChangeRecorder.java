@@ -0,0 +1,143 @@
+package mk.ukim.finki.wp.lab.service.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.wp.lab.model.CatalogChange;
+import mk.ukim.finki.wp.lab.model.cluster.CatalogChangeBatch;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaCatalogChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Writes the change events of each transaction to catalog_changes as one row, inside that transaction, so
+// other nodes see exactly the committed changes. The services already publish an event for every write;
+// events published outside a transaction (the import's bulk event) get a row of their own.
+@Component
+@ConditionalOnProperty(name = "app.cluster.invalidation.enabled", havingValue = "true")
+public class CatalogChangeRecorder {
+    private final ThreadLocal<Boolean> replaying = ThreadLocal.withInitial(() -> false);
+
+    private final JpaCatalogChangeRepository changeRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final int maxEvents;
+
+    public CatalogChangeRecorder(JpaCatalogChangeRepository changeRepository, ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.cluster.node-id:}") String nodeId,
+                                 @Value("${app.cluster.invalidation.max-events:1000}") int maxEvents) {
+        this.changeRepository = changeRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.maxEvents = maxEvents;
+        if (this.nodeId.length() > 64) {
+            throw new IllegalStateException("app.cluster.node-id must be at most 64 characters: " + this.nodeId);
+        }
+    }
+
+    public String nodeId() {
+        return this.nodeId;
+    }
+
+    // Events published by the action are applied locally only; they came from another node's row
+    public void replay(Runnable action) {
+        this.replaying.set(true);
+        try {
+            action.run();
+        } finally {
+            this.replaying.set(false);
+        }
+    }
+
+    @EventListener
+    public void onDishChanged(DishChangedEvent event) {
+        record(pending -> pending.changes.add(new CatalogChangeBatch.Change(event, null)));
+    }
+
+    @EventListener
+    public void onChefChanged(ChefChangedEvent event) {
+        record(pending -> pending.changes.add(new CatalogChangeBatch.Change(null, event)));
+    }
+
+    @EventListener
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        record(pending -> pending.bulk = event.source());
+    }
+
+    private void record(Consumer<Pending> change) {
+        if (this.replaying.get()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            Pending pending = new Pending();
+            change.accept(pending);
+            this.transactionTemplate.executeWithoutResult(status -> write(pending));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        change.accept(pending);
+    }
+
+    private void write(Pending pending) {
+        CatalogChangeBatch batch = pending.bulk != null || pending.changes.size() > this.maxEvents
+                ? new CatalogChangeBatch(List.of(), pending.bulk != null ? pending.bulk : "batch")
+                : new CatalogChangeBatch(pending.changes, null);
+        try {
+            this.changeRepository.save(new CatalogChange(this.nodeId, this.objectMapper.writeValueAsString(batch),
+                    Instant.now()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the catalogue changes", e);
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return (host.length() > 55 ? host.substring(0, 55) : host) + "-" + suffix;
+    }
+
+    private class Pending implements TransactionSynchronization {
+        final List<CatalogChangeBatch.Change> changes = new ArrayList<>();
+        String bulk;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!this.changes.isEmpty() || this.bulk != null) {
+                write(this);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CatalogChangeRecorder.this);
+        }
+    }
+}
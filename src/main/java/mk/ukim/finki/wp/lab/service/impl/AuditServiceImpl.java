@@ -0,0 +1,307 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+import mk.ukim.finki.wp.lab.model.audit.CatalogAsOf;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.service.AuditService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.audit.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps the history of dish and chef changes off the write path: committed change events are queued and one
+// writer thread appends them to the audit log in batches, so a save only pays for an offer to the queue. If
+// the queue stays full for offer-timeout the change is left out of the history (counted as dropped) rather
+// than holding up the request. Changes applied from other nodes arrive as the same events and are kept too.
+// Bulk changes (the import, a refresh from another node) come without per-item events, so after one, and on
+// the first start, the writer records a snapshot of the catalogue instead: the dishes and chefs that differ
+// from the log, and deletes for the ones that are gone.
+@Service
+public class AuditServiceImpl implements AuditService {
+    private static final Logger log = LoggerFactory.getLogger(AuditServiceImpl.class);
+
+    private final DishService dishService;
+    private final JpaChefRepository chefRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Duration historyRetention;
+    private final AuditLog auditLog;
+    private final BlockingQueue<AuditRecord> queue;
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Timer appendTimer;
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditServiceImpl(DishService dishService, JpaChefRepository chefRepository, ObjectMapper objectMapper,
+                            MeterRegistry registry,
+                            @Value("${app.audit.enabled:false}") boolean enabled,
+                            @Value("${app.audit.directory:data/audit}") Path directory,
+                            @Value("${app.audit.segment-bytes:8388608}") long segmentBytes,
+                            @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+                            @Value("${app.audit.batch-size:500}") int batchSize,
+                            @Value("${app.audit.flush-interval:PT0.2S}") Duration flushInterval,
+                            @Value("${app.audit.offer-timeout:PT0.01S}") Duration offerTimeout,
+                            @Value("${app.audit.fsync:false}") boolean fsync,
+                            @Value("${app.audit.history-retention:P90D}") Duration historyRetention) {
+        this.dishService = dishService;
+        this.chefRepository = chefRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.historyRetention = historyRetention;
+        AuditLog auditLog = null;
+        if (enabled) {
+            try {
+                auditLog = new AuditLog(directory, segmentBytes, fsync, objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the audit log in " + directory, e);
+            }
+        }
+        this.auditLog = auditLog;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.recorded = registry.counter("app.audit.records", "outcome", "recorded");
+        this.dropped = registry.counter("app.audit.records", "outcome", "dropped");
+        this.appendTimer = registry.timer("app.audit.append");
+        Gauge.builder("app.audit.pending", this.queue, BlockingQueue::size)
+                .description("Changes waiting to be appended to the audit log")
+                .register(registry);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public List<AuditRecord> dishHistory(Long id) {
+        return requireLog().history(AuditRecord.DISH, id);
+    }
+
+    @Override
+    public List<AuditRecord> chefHistory(Long id) {
+        return requireLog().history(AuditRecord.CHEF, id);
+    }
+
+    @Override
+    public CatalogAsOf catalogueAsOf(Instant at) {
+        List<DishSnapshot> dishes = new ArrayList<>();
+        List<ChefSnapshot> chefs = new ArrayList<>();
+        for (AuditRecord record : requireLog().asOf(at)) {
+            if (record.dish() != null) {
+                dishes.add(record.dish());
+            } else if (record.chef() != null) {
+                chefs.add(record.chef());
+            }
+        }
+        dishes.sort(Comparator.comparing(DishSnapshot::id));
+        chefs.sort(Comparator.comparing(ChefSnapshot::id));
+        return new CatalogAsOf(at, dishes, chefs);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.audit.compaction-interval:PT1H}",
+            fixedDelayString = "${app.audit.compaction-interval:PT1H}")
+    public long compact() {
+        if (!this.enabled) {
+            return 0;
+        }
+        try {
+            long removed = this.auditLog.compact(Instant.now().minus(this.historyRetention));
+            if (removed > 0) {
+                log.info("Compacted the audit log, {} record(s) folded or dropped", removed);
+            }
+            return removed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Audit log compaction failed", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        if (this.enabled) {
+            offer(AuditRecord.of(event, Instant.now()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        if (this.enabled) {
+            offer(AuditRecord.of(event, Instant.now()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        if (this.enabled) {
+            this.snapshotRequested.set(true);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!this.enabled) {
+            return;
+        }
+        if (this.auditLog.isEmpty()) {
+            this.snapshotRequested.set(true);
+        }
+        this.running = true;
+        this.writer = new Thread(this::runWriter, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Appends whatever is still queued before the log is closed. The writer is not interrupted: an interrupt
+    // during a write closes the segment's channel
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (!this.enabled) {
+            return;
+        }
+        this.running = false;
+        if (this.writer != null) {
+            this.writer.join(this.flushInterval.toMillis() + 5000);
+        }
+        appendQueued();
+        this.auditLog.close();
+    }
+
+    private AuditLog requireLog() {
+        if (!this.enabled) {
+            throw new IllegalStateException("The audit log is disabled (app.audit.enabled)");
+        }
+        return this.auditLog;
+    }
+
+    private void offer(AuditRecord record) {
+        try {
+            if (this.queue.offer(record, this.offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                this.recorded.increment();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.dropped.increment();
+        log.debug("Audit queue is full, {} {} change left out of the history", record.entity(), record.id());
+    }
+
+    private void runWriter() {
+        List<AuditRecord> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            try {
+                if (this.snapshotRequested.getAndSet(false)) {
+                    appendQueued();
+                    appendSnapshot();
+                }
+                AuditRecord first = this.queue.poll(this.flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, this.batchSize - 1);
+                append(batch);
+                // A partial batch means the queue is caught up, so let the next one fill up
+                if (batch.size() < this.batchSize) {
+                    Thread.sleep(this.flushInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Appending to the audit log failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void appendQueued() {
+        List<AuditRecord> batch = new ArrayList<>(this.batchSize);
+        while (this.queue.drainTo(batch, this.batchSize) > 0) {
+            append(batch);
+            batch.clear();
+        }
+    }
+
+    // Compares the database with the latest state in the log and appends the differences
+    private void appendSnapshot() {
+        Instant at = Instant.now();
+        Map<Long, AuditRecord> loggedDishes = new HashMap<>();
+        Map<Long, AuditRecord> loggedChefs = new HashMap<>();
+        for (AuditRecord record : this.auditLog.asOf(at)) {
+            (record.dish() != null ? loggedDishes : loggedChefs).put(record.id(), record);
+        }
+        List<AuditRecord> batch = new ArrayList<>(this.batchSize);
+        long[] appended = new long[1];
+        Runnable flush = () -> {
+            append(batch);
+            appended[0] += batch.size();
+            batch.clear();
+        };
+        for (ChefSnapshot chef : this.chefRepository.findAll().stream().map(ChefSnapshot::of).toList()) {
+            AuditRecord record = AuditRecord.snapshot(chef, at);
+            if (!record.sameState(loggedChefs.remove(chef.id()))) {
+                batch.add(record);
+            }
+            if (batch.size() == this.batchSize) {
+                flush.run();
+            }
+        }
+        this.dishService.streamDishes(null, dishes -> dishes.forEach(dish -> {
+            AuditRecord record = AuditRecord.snapshot(dish, at);
+            if (!record.sameState(loggedDishes.remove(dish.id()))) {
+                batch.add(record);
+            }
+            if (batch.size() == this.batchSize) {
+                flush.run();
+            }
+        }));
+        loggedDishes.keySet().forEach(id -> batch.add(AuditRecord.deleted(AuditRecord.DISH, id, at)));
+        loggedChefs.keySet().forEach(id -> batch.add(AuditRecord.deleted(AuditRecord.CHEF, id, at)));
+        flush.run();
+        log.info("Recorded a catalogue snapshot in the audit log, {} record(s)", appended[0]);
+    }
+
+    private void append(List<AuditRecord> batch) {
+        this.appendTimer.record(() -> this.auditLog.append(batch));
+    }
+}
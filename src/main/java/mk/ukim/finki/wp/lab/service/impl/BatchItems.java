@@ -0,0 +1,36 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.batch.BatchItemError;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shared checks for batch writes: items that fail are reported by position and skipped,
+// the rest of the batch still goes through in the same transaction
+final class BatchItems {
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private BatchItems() {
+    }
+
+    static void checkSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new RuntimeException("Batch exceeds the limit of " + MAX_BATCH_SIZE + " items: " + size);
+        }
+    }
+
+    // Maps each usable dish id to its position, reporting blanks and repeats
+    static Map<String, Integer> indexDishIds(List<String> dishIds, List<BatchItemError> errors) {
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < dishIds.size(); i++) {
+            String dishId = dishIds.get(i);
+            if (dishId == null || dishId.isBlank()) {
+                errors.add(new BatchItemError(i, dishId, "Dish ID cannot be empty"));
+            } else if (positions.putIfAbsent(dishId, i) != null) {
+                errors.add(new BatchItemError(i, dishId, "Duplicate dish id in batch: " + dishId));
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,247 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.snapshot.CatalogSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Serves the public read pages from an immutable CatalogSnapshot. Committed changes are collected and merged
+// into a new snapshot by the first read after them, so a burst of writes costs one copy. Until the first build,
+// or with app.catalog-snapshot.enabled=false, reads go to the regular services.
+@Service
+public class CatalogSnapshotServiceImpl implements CatalogSnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final JpaDishRepository dishRepository;
+    private final JpaChefRepository chefRepository;
+    private final DishService dishService;
+    private final ChefService chefService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final boolean offHeap;
+    private final Object pendingLock = new Object();
+    private final Object rebuildLock = new Object();
+    private Map<Long, DishSnapshot> pendingDishes = new HashMap<>();
+    private Map<Long, ChefSnapshot> pendingChefs = new HashMap<>();
+    // Changes merged into the old snapshot while a rebuild loads, merged into the new one before it is published
+    private Map<Long, DishSnapshot> missedDishes;
+    private Map<Long, ChefSnapshot> missedChefs;
+    private volatile boolean dirty;
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshotServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                                      DishService dishService, ChefService chefService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.catalog-snapshot.enabled:true}") boolean enabled,
+                                      @Value("${app.catalog-snapshot.off-heap:false}") boolean offHeap) {
+        this.dishRepository = dishRepository;
+        this.chefRepository = chefRepository;
+        this.dishService = dishService;
+        this.chefService = chefService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public Slice<DishSummary> listDishSummaries(Long after, int size) {
+        CatalogSnapshot current = current();
+        if (current == null) {
+            return this.dishService.listDishSummaries(after, size);
+        }
+        int limit = pageSize(size);
+        return slice(current.dishesAfter(null, after != null ? after : 0L, limit + 1), limit);
+    }
+
+    @Override
+    public Slice<DishSummary> findSummariesByRating(Integer rating, Long after, int size) {
+        CatalogSnapshot current = current();
+        if (current == null) {
+            return this.dishService.findSummariesByRating(rating, after, size);
+        }
+        int limit = pageSize(size);
+        return slice(current.dishesAfter(rating, after != null ? after : 0L, limit + 1), limit);
+    }
+
+    @Override
+    public Slice<ChefSummary> listChefsByPopularity(Integer afterDishCount, Long afterId, int size) {
+        CatalogSnapshot current = current();
+        if (current == null) {
+            return this.chefService.listChefsByPopularity(afterDishCount, afterId, size);
+        }
+        int limit = pageSize(size);
+        List<ChefSummary> chefs = afterDishCount == null || afterId == null
+                ? current.chefsRankedAfter(Integer.MAX_VALUE, 0L, limit + 1)
+                : current.chefsRankedAfter(afterDishCount, afterId, limit + 1);
+        return slice(chefs, limit);
+    }
+
+    @Override
+    public List<ChefSummary> findTopChefs(int limit) {
+        CatalogSnapshot current = current();
+        if (current == null) {
+            return this.chefService.findTopChefs(limit);
+        }
+        return current.chefsRankedAfter(Integer.MAX_VALUE, 0L, pageSize(limit));
+    }
+
+    @Override
+    public ChefSummary findChefSummary(Long id) {
+        CatalogSnapshot current = current();
+        return (current != null ? current.findChef(id) : this.chefRepository.findProjectedById(id))
+                .orElseThrow(() -> new RuntimeException("Chef not found with id: " + id));
+    }
+
+    // The load runs without the monitor, so reads keep merging changes into the current snapshot meanwhile.
+    // Those changes are merged again into the new snapshot when it is published, and the ones still queued
+    // then are merged by the next read; a change the load already saw is applied twice, which is harmless.
+    @Override
+    public void rebuild() {
+        if (!this.enabled) {
+            return;
+        }
+        synchronized (this.rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                this.missedDishes = new HashMap<>();
+                this.missedChefs = new HashMap<>();
+            }
+            CatalogSnapshot rebuilt;
+            try {
+                rebuilt = load();
+                synchronized (this) {
+                    if (!this.missedDishes.isEmpty() || !this.missedChefs.isEmpty()) {
+                        rebuilt = rebuilt.apply(this.missedDishes, this.missedChefs);
+                    }
+                    this.snapshot = rebuilt;
+                }
+            } finally {
+                synchronized (this) {
+                    this.missedDishes = null;
+                    this.missedChefs = null;
+                }
+            }
+            log.info("Catalogue snapshot built with {} dishes and {} chefs ({} KiB{}) in {} ms",
+                    rebuilt.dishCount(), rebuilt.chefCount(), rebuilt.estimatedBytes() / 1024,
+                    rebuilt.isOffHeap() ? ", numeric columns off-heap" : "", System.currentTimeMillis() - start);
+        }
+    }
+
+    private CatalogSnapshot load() {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(this.offHeap, (int) this.dishRepository.count());
+        this.readOnlyTransaction.executeWithoutResult(status -> {
+            for (ChefSummary chef : this.chefRepository.findAllProjectedByOrderByIdAsc()) {
+                builder.addChef(new ChefSnapshot(chef.getId(), chef.getFirstName(), chef.getLastName(), chef.getBio()));
+            }
+            try (Stream<DishSnapshot> dishes = this.dishRepository.streamAllSnapshots()) {
+                dishes.forEach(builder::addDish);
+            }
+        });
+        return builder.build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Ordered ahead of CatalogVersion, so a page rendered under the new version always sees the change
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+        synchronized (this.pendingLock) {
+            this.pendingDishes.put(event.id(), event.after());
+            this.dirty = true;
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+        synchronized (this.pendingLock) {
+            this.pendingChefs.put(event.id(), event.after());
+            this.dirty = true;
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        rebuild();
+    }
+
+    private CatalogSnapshot current() {
+        if (this.dirty) {
+            applyPending();
+        }
+        return this.snapshot;
+    }
+
+    // Holds the monitor only for the merge itself, never for a rebuild's load
+    private synchronized void applyPending() {
+        Map<Long, DishSnapshot> dishes;
+        Map<Long, ChefSnapshot> chefs;
+        synchronized (this.pendingLock) {
+            if (!this.dirty) {
+                return;
+            }
+            dishes = this.pendingDishes;
+            chefs = this.pendingChefs;
+            this.pendingDishes = new HashMap<>();
+            this.pendingChefs = new HashMap<>();
+            this.dirty = false;
+        }
+        if (this.missedDishes != null) {
+            this.missedDishes.putAll(dishes);
+            this.missedChefs.putAll(chefs);
+        }
+        if (this.snapshot != null) {
+            this.snapshot = this.snapshot.apply(dishes, chefs);
+        }
+    }
+
+    private static <T> Slice<T> slice(List<T> rows, int limit) {
+        boolean hasNext = rows.size() > limit;
+        return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, PageRequest.of(0, limit), hasNext);
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+}
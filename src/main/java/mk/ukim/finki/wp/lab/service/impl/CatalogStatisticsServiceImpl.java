@@ -0,0 +1,105 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.stats.CatalogOverview;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
+import mk.ukim.finki.wp.lab.service.stats.CatalogStatistics;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+public class CatalogStatisticsServiceImpl implements CatalogStatisticsService {
+    private final JpaDishRepository dishRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Object rebuildLock = new Object();
+    private volatile CatalogStatistics statistics = new CatalogStatistics();
+    // The latest state of each dish changed while a rebuild was reading the table, guarded by this
+    private Map<Long, DishSnapshot> duringRebuild;
+
+    public CatalogStatisticsServiceImpl(JpaDishRepository dishRepository, PlatformTransactionManager transactionManager) {
+        this.dishRepository = dishRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // The rows a rebuild counted can be read again as they were, to correct them for changes during the read
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public CatalogOverview overview() {
+        return this.statistics.overview();
+    }
+
+    @Override
+    public Map<Integer, Long> ratingCounts() {
+        return this.statistics.ratingCounts();
+    }
+
+    @Override
+    public ChefStats chefStats(Long chefId) {
+        return this.statistics.chefStats(chefId);
+    }
+
+    // One pass over the table seeds the statistics; after that only change events touch them. A change that
+    // commits during the read may or may not be in it, so the dishes changed meanwhile are read again in the
+    // same snapshot and moved from what the read counted to their latest state before the swap
+    @Override
+    public void rebuild() {
+        synchronized (this.rebuildLock) {
+            synchronized (this) {
+                this.duringRebuild = new HashMap<>();
+            }
+            CatalogStatistics rebuilt = new CatalogStatistics();
+            try {
+                this.readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<DishSnapshot> dishes = this.dishRepository.streamAllSnapshots()) {
+                        dishes.forEach(dish -> rebuilt.apply(null, dish));
+                    }
+                    synchronized (this) {
+                        if (!this.duringRebuild.isEmpty()) {
+                            Map<Long, DishSnapshot> counted = new HashMap<>();
+                            this.dishRepository.findSnapshotsByIdIn(this.duringRebuild.keySet())
+                                    .forEach(dish -> counted.put(dish.id(), dish));
+                            this.duringRebuild.forEach((id, latest) -> rebuilt.apply(counted.get(id), latest));
+                        }
+                        this.statistics = rebuilt;
+                    }
+                });
+            } finally {
+                synchronized (this) {
+                    this.duringRebuild = null;
+                }
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDishChanged(DishChangedEvent event) {
+        if (this.duringRebuild != null) {
+            this.duringRebuild.put(event.id(), event.after());
+        }
+        this.statistics.apply(event.before(), event.after());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        rebuild();
+    }
+}
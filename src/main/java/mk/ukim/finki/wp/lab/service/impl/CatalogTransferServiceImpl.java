@@ -0,0 +1,400 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.transfer.DishRecord;
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Lazy
+@Service
+public class CatalogTransferServiceImpl implements CatalogTransferService {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String[] COLUMNS = {"dishId", "name", "cuisine", "preparationTime", "rating", "chefId"};
+
+    private final JpaDishRepository dishRepository;
+    private final JpaChefRepository chefRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CatalogTransferServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                                      EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                      ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.dishRepository = dishRepository;
+        this.chefRepository = chefRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public ImportReport importDishes(InputStream input, TransferFormat format) throws IOException {
+        long started = System.nanoTime();
+        ImportProgress progress = new ImportProgress();
+
+        try (RowReader reader = format == TransferFormat.JSON ? new JsonRowReader(input) : new CsvRowReader(input)) {
+            List<NumberedRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            Map<String, String> row;
+            while ((row = reader.next()) != null) {
+                try {
+                    chunk.add(new NumberedRecord(reader.rowNumber(), toRecord(row)));
+                } catch (RuntimeException e) {
+                    progress.reject(reader.rowNumber(), e.getMessage());
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    writeChunk(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, progress);
+            }
+        } finally {
+            if (progress.imported > 0) {
+                this.eventPublisher.publishEvent(new CatalogBulkChangeEvent("import"));
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return ImportReport.of(progress.imported, progress.rejected, elapsedMillis, progress.errors);
+    }
+
+    // Each chunk is one transaction: chefs and existing dish ids are resolved with one query each,
+    // inserts go out as JDBC batches, and the persistence context is cleared so memory stays flat
+    private void writeChunk(List<NumberedRecord> chunk, ImportProgress progress) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> chefIds = chunk.stream()
+                    .map(r -> r.record().chefId())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<Long, Chef> chefs = this.chefRepository.findAllById(chefIds).stream()
+                    .collect(Collectors.toMap(Chef::getId, Function.identity()));
+            Set<String> takenDishIds = new HashSet<>(this.dishRepository.findExistingDishIds(
+                    chunk.stream().map(r -> r.record().dishId()).toList()));
+
+            List<Dish> dishes = new ArrayList<>(chunk.size());
+            Map<Long, Integer> dishCountDeltas = new HashMap<>();
+            for (NumberedRecord numbered : chunk) {
+                DishRecord record = numbered.record();
+                Chef chef = null;
+                if (record.chefId() != null) {
+                    chef = chefs.get(record.chefId());
+                    if (chef == null) {
+                        progress.reject(numbered.rowNumber(), "Chef not found with id: " + record.chefId());
+                        continue;
+                    }
+                }
+                if (!takenDishIds.add(record.dishId())) {
+                    progress.reject(numbered.rowNumber(), "Dish already exists with dish id: " + record.dishId());
+                    continue;
+                }
+                Dish dish = new Dish(record.dishId(), record.name(), record.cuisine(),
+                        record.preparationTime(), record.rating());
+                dish.setChef(chef);
+                dishes.add(dish);
+                if (chef != null) {
+                    dishCountDeltas.merge(chef.getId(), 1, Integer::sum);
+                }
+            }
+
+            this.dishRepository.saveAll(dishes);
+            dishCountDeltas.forEach(this.chefRepository::adjustDishCount);
+            this.entityManager.flush();
+            this.entityManager.clear();
+            progress.imported += dishes.size();
+        });
+    }
+
+    private static DishRecord toRecord(Map<String, String> row) {
+        String dishId = required(row, "dishId");
+        String name = required(row, "name");
+        String cuisine = required(row, "cuisine");
+        int preparationTime = Integer.parseInt(required(row, "preparationTime"));
+        String rating = row.get("rating");
+        String chefId = row.get("chefId");
+        Integer parsedRating = rating == null || rating.isBlank() ? null : Integer.valueOf(rating.trim());
+        if (parsedRating != null && (parsedRating < 1 || parsedRating > 5)) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5: " + parsedRating);
+        }
+        return new DishRecord(dishId, name, cuisine, preparationTime, parsedRating,
+                chefId == null || chefId.isBlank() ? null : Long.valueOf(chefId.trim()));
+    }
+
+    private static String required(Map<String, String> row, String column) {
+        String value = row.get(column);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing value for " + column);
+        }
+        return value.trim();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportDishes(OutputStream output, TransferFormat format) throws IOException {
+        long written = 0;
+        try (Stream<DishSnapshot> dishes = this.dishRepository.streamAllSnapshots()) {
+            Iterator<DishSnapshot> iterator = dishes.iterator();
+            if (format == TransferFormat.JSON) {
+                JsonGenerator generator = this.objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+                generator.writeStartArray();
+                while (iterator.hasNext()) {
+                    DishSnapshot dish = iterator.next();
+                    generator.writeStartObject();
+                    generator.writeStringField("dishId", dish.dishId());
+                    generator.writeStringField("name", dish.name());
+                    generator.writeStringField("cuisine", dish.cuisine());
+                    generator.writeNumberField("preparationTime", dish.preparationTime());
+                    generator.writeObjectField("rating", dish.rating());
+                    generator.writeObjectField("chefId", dish.chefId());
+                    generator.writeEndObject();
+                    written++;
+                }
+                generator.writeEndArray();
+                generator.flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+                writer.write(String.join(",", COLUMNS));
+                writer.write('\n');
+                while (iterator.hasNext()) {
+                    DishSnapshot dish = iterator.next();
+                    writer.write(csv(dish.dishId()) + ',' + csv(dish.name()) + ',' + csv(dish.cuisine()) + ','
+                            + dish.preparationTime() + ',' + (dish.rating() != null ? dish.rating() : "") + ','
+                            + (dish.chefId() != null ? dish.chefId() : ""));
+                    writer.write('\n');
+                    written++;
+                }
+                writer.flush();
+            }
+        }
+        return written;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private record NumberedRecord(long rowNumber, DishRecord record) {
+    }
+
+    private static class ImportProgress {
+        private long imported;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void reject(long rowNumber, String message) {
+            this.rejected++;
+            if (this.errors.size() < MAX_REPORTED_ERRORS) {
+                this.errors.add("Row " + rowNumber + ": " + message);
+            }
+        }
+    }
+
+    private interface RowReader extends Closeable {
+        // Returns the next row keyed by column name, or null at the end of the input
+        Map<String, String> next() throws IOException;
+
+        long rowNumber();
+    }
+
+    // Minimal RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks. Rows end at
+    // \n, \r\n or \r, and a row's number is the line it starts on
+    private static class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final String[] header;
+        private long line = 1;
+        private long rowNumber;
+        private boolean rowQuoted;
+        private int peeked = -2;
+
+        CsvRowReader(InputStream input) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+            List<String> headerValues = readRow();
+            this.header = headerValues != null ? headerValues.toArray(String[]::new) : COLUMNS;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRow();
+            } while (values != null && values.size() == 1 && values.get(0).isBlank() && !this.rowQuoted);
+            if (values == null) {
+                return null;
+            }
+            Map<String, String> row = new LinkedHashMap<>();
+            for (int i = 0; i < this.header.length && i < values.size(); i++) {
+                row.put(this.header[i].trim(), values.get(i));
+            }
+            return row;
+        }
+
+        @Override
+        public long rowNumber() {
+            return this.rowNumber;
+        }
+
+        // The fields of the next row, or null at the end of the input
+        private List<String> readRow() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            this.rowNumber = this.line;
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            this.rowQuoted = false;
+            while (true) {
+                if (c < 0) {
+                    if (quoted) {
+                        throw new IOException("Unterminated quoted field in the row starting on line " + this.rowNumber);
+                    }
+                    break;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            current.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n' || c == '\r' && peek() != '\n') {
+                            this.line++;
+                        }
+                        current.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    this.rowQuoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    this.line++;
+                    break;
+                } else {
+                    current.append((char) c);
+                }
+                c = read();
+            }
+            values.add(current.toString());
+            return values;
+        }
+
+        private int read() throws IOException {
+            if (this.peeked != -2) {
+                int c = this.peeked;
+                this.peeked = -2;
+                return c;
+            }
+            return this.reader.read();
+        }
+
+        private int peek() throws IOException {
+            if (this.peeked == -2) {
+                this.peeked = this.reader.read();
+            }
+            return this.peeked;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
+
+    // Reads a top-level JSON array one element at a time
+    private class JsonRowReader implements RowReader {
+        private final JsonParser parser;
+        private long rowNumber;
+
+        JsonRowReader(InputStream input) throws IOException {
+            this.parser = objectMapper.getFactory().createParser(input);
+            if (this.parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of dishes");
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (this.parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            this.rowNumber++;
+            JsonNode node = this.parser.readValueAsTree();
+            Map<String, String> row = new LinkedHashMap<>();
+            node.fields().forEachRemaining(field ->
+                    row.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText()));
+            return row;
+        }
+
+        @Override
+        public long rowNumber() {
+            return this.rowNumber;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.parser.close();
+        }
+    }
+}
@@ -2,37 +2,84 @@ package mk.ukim.finki.wp.lab.service.impl;
 
 import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.batch.BatchItemError;
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
 import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.cache.CatalogCaches;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 public class ChefServiceImpl implements ChefService {
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final JpaChefRepository chefRepository;
     private final JpaDishRepository dishRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ChefServiceImpl(JpaChefRepository chefRepository, JpaDishRepository dishRepository) {
+    public ChefServiceImpl(JpaChefRepository chefRepository, JpaDishRepository dishRepository,
+                           ApplicationEventPublisher eventPublisher) {
         this.chefRepository = chefRepository;
         this.dishRepository = dishRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'all'")
     public List<Chef> listChefs() {
         return this.chefRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'summaries'")
+    public List<ChefSummary> listChefSummaries() {
+        return this.chefRepository.findAllProjectedByOrderByIdAsc();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'summaries:' + #after + ':' + #size")
+    public Slice<ChefSummary> listChefSummaries(Long after, int size) {
+        return this.chefRepository.findAllProjectedByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, pageOf(size));
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_BY_ID, key = "#id")
     public Chef findById(Long id) {
         return this.chefRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Chef not found with id: " + id));
     }
 
+    // Edit forms need the stored @Version, which the cached entity may not have caught up with
     @Override
+    public Chef findByIdUncached(Long id) {
+        return this.chefRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Chef not found with id: " + id));
+    }
+
+    @Override
+    public Chef findByIdWithDishes(Long id) {
+        return this.chefRepository.findWithDishesById(id)
+                .orElseThrow(() -> new RuntimeException("Chef not found with id: " + id));
+    }
+
+    @Override
+    @Transactional
     public Chef addDishToChef(Long chefId, String dishId) {
         if (dishId == null || dishId.trim().isEmpty()) {
             throw new RuntimeException("Dish ID cannot be empty");
@@ -42,35 +89,138 @@ public class ChefServiceImpl implements ChefService {
         if (dish == null) {
             throw new RuntimeException("Dish not found with id: " + dishId);
         }
+        DishSnapshot before = DishSnapshot.of(dish);
+        Long previousChefId = before.chefId();
         // Update the owning side of the relationship
         dish.setChef(chef);
         this.dishRepository.save(dish);
+        this.eventPublisher.publishEvent(new DishChangedEvent(before, DishSnapshot.of(dish)));
+        if (!Objects.equals(previousChefId, chefId)) {
+            if (previousChefId != null) {
+                this.chefRepository.adjustDishCount(previousChefId, -1);
+            }
+            this.chefRepository.adjustDishCount(chefId, 1);
+        }
         return chef;
     }
 
+    // One snapshot query plus a single UPDATE ... WHERE dish_id IN, instead of a load and save per dish
     @Override
+    @Transactional
+    public BatchResult assignDishesToChef(Long chefId, List<String> dishIds) {
+        long start = System.currentTimeMillis();
+        BatchItems.checkSize(dishIds.size());
+        Chef chef = this.findById(chefId);
+        List<BatchItemError> errors = new ArrayList<>();
+        Map<String, Integer> positions = BatchItems.indexDishIds(dishIds, errors);
+        Map<String, DishSnapshot> found = new HashMap<>();
+        if (!positions.isEmpty()) {
+            this.dishRepository.findSnapshotsByDishIdIn(positions.keySet()).forEach(dish -> found.put(dish.dishId(), dish));
+        }
+
+        List<DishSnapshot> moved = new ArrayList<>();
+        positions.forEach((dishId, index) -> {
+            DishSnapshot dish = found.get(dishId);
+            if (dish == null) {
+                errors.add(new BatchItemError(index, dishId, "Dish not found with id: " + dishId));
+            } else if (!chefId.equals(dish.chefId())) {
+                moved.add(dish);
+            }
+        });
+
+        if (!moved.isEmpty()) {
+            this.dishRepository.reassignChef(chef, moved.stream().map(DishSnapshot::dishId).toList());
+            Map<Long, Integer> removedPerChef = new HashMap<>();
+            for (DishSnapshot before : moved) {
+                if (before.chefId() != null) {
+                    removedPerChef.merge(before.chefId(), -1, Integer::sum);
+                }
+                DishSnapshot after = new DishSnapshot(before.id(), before.dishId(), before.name(), before.cuisine(),
+                        before.preparationTime(), before.rating(), chefId);
+                this.eventPublisher.publishEvent(new DishChangedEvent(before, after));
+            }
+            removedPerChef.forEach(this.chefRepository::adjustDishCount);
+            this.chefRepository.adjustDishCount(chefId, moved.size());
+        }
+        errors.sort(Comparator.comparingInt(BatchItemError::index));
+        return BatchResult.of(dishIds.size(), errors, start);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'mostPopular'")
     public Optional<Chef> findMostPopularChef() {
-        return this.chefRepository.findAll().stream()
-                .max(Comparator.comparingInt(chef -> chef.getDishes().size()));
+        return this.chefRepository.findFirstByOrderByDishCountDescIdAsc();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'ranked'")
+    public List<ChefSummary> listChefsByPopularity() {
+        return this.chefRepository.findAllProjectedByOrderByDishCountDescIdAsc();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS,
+            key = "'ranked:' + #afterDishCount + ':' + #afterId + ':' + #size")
+    public Slice<ChefSummary> listChefsByPopularity(Integer afterDishCount, Long afterId, int size) {
+        if (afterDishCount == null || afterId == null) {
+            // Every real count sorts after MAX_VALUE, so this seeks to the first page
+            return this.chefRepository.findRankedAfter(Integer.MAX_VALUE, 0L, pageOf(size));
+        }
+        return this.chefRepository.findRankedAfter(afterDishCount, afterId, pageOf(size));
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.CHEF_LISTS, key = "'top:' + #limit")
+    public List<ChefSummary> findTopChefs(int limit) {
+        return this.chefRepository.findAllProjectedByOrderByDishCountDescIdAsc(PageRequest.of(0, limit));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = {CatalogCaches.CHEF_BY_ID, CatalogCaches.CHEF_LISTS}, allEntries = true)
+    public int reconcileDishCounts() {
+        return this.chefRepository.reconcileDishCounts();
     }
 
     @Override
+    @Transactional
     public Chef create(String firstName, String lastName, String bio) {
         Chef chef = new Chef(firstName, lastName, bio);
-        return this.chefRepository.save(chef);
+        Chef saved = this.chefRepository.save(chef);
+        this.eventPublisher.publishEvent(new ChefChangedEvent(null, ChefSnapshot.of(saved)));
+        return saved;
     }
 
     @Override
-    public Chef update(Long id, String firstName, String lastName, String bio) {
+    @Transactional
+    public Chef update(Long id, String firstName, String lastName, String bio, Long version) {
         Chef chef = this.findById(id);
+        if (version != null && !version.equals(chef.getVersion())) {
+            throw new OptimisticLockingFailureException("Chef was changed by someone else while you were editing it: " + id);
+        }
+        ChefSnapshot before = ChefSnapshot.of(chef);
         chef.setFirstName(firstName);
         chef.setLastName(lastName);
         chef.setBio(bio);
-        return this.chefRepository.save(chef);
+        Chef saved = this.chefRepository.saveAndFlush(chef);
+        this.eventPublisher.publishEvent(new ChefChangedEvent(before, ChefSnapshot.of(saved)));
+        return saved;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        this.chefRepository.deleteById(id);
+        this.chefRepository.findById(id).ifPresent(chef -> {
+            // Dishes go with the chef through orphanRemoval, so announce them as deleted too
+            List<DishSnapshot> dishes = this.dishRepository.findAllByChef_Id(id).stream()
+                    .map(DishSnapshot::of)
+                    .toList();
+            this.chefRepository.delete(chef);
+            dishes.forEach(dish -> this.eventPublisher.publishEvent(new DishChangedEvent(dish, null)));
+            this.eventPublisher.publishEvent(new ChefChangedEvent(ChefSnapshot.of(chef), null));
+        });
+    }
+
+    private static PageRequest pageOf(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
     }
 }
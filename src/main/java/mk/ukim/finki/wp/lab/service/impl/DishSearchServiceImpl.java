@@ -0,0 +1,132 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.model.search.SearchResult;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.DishSearchService;
+import mk.ukim.finki.wp.lab.service.search.DishSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class DishSearchServiceImpl implements DishSearchService {
+    private static final Logger log = LoggerFactory.getLogger(DishSearchServiceImpl.class);
+    private static final int MAX_LIMIT = 100;
+
+    private final JpaDishRepository dishRepository;
+    private final JpaChefRepository chefRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Object rebuildLock = new Object();
+    private volatile DishSearchIndex index = new DishSearchIndex();
+    // Changes committed while a rebuild loads, replayed onto the new index before it is published
+    private List<Consumer<DishSearchIndex>> missed;
+
+    public DishSearchServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.dishRepository = dishRepository;
+        this.chefRepository = chefRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public SearchResult search(SearchQuery query) {
+        int limit = Math.max(1, Math.min(query.limit(), MAX_LIMIT));
+        return this.index.search(new SearchQuery(query.text(), query.cuisine(), query.rating(),
+                query.preparationTime(), limit));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        return this.index.suggest(prefix, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    // The load runs without the monitor, so writers keep updating the live index meanwhile. What they apply is
+    // also recorded and replayed onto the new index under the monitor just before the swap; a change the load
+    // already saw is applied twice, which is harmless. Rebuilds themselves run one at a time.
+    @Override
+    public void rebuild() {
+        synchronized (this.rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                this.missed = new ArrayList<>();
+            }
+            DishSearchIndex rebuilt = new DishSearchIndex();
+            try {
+                this.readOnlyTransaction.executeWithoutResult(status -> {
+                    for (ChefSummary chef : this.chefRepository.findAllProjectedByOrderByIdAsc()) {
+                        rebuilt.putChef(chef.getId(), fullName(chef.getFirstName(), chef.getLastName()));
+                    }
+                    try (Stream<DishSnapshot> dishes = this.dishRepository.streamAllSnapshots()) {
+                        dishes.forEach(rebuilt::put);
+                    }
+                });
+                synchronized (this) {
+                    this.missed.forEach(change -> change.accept(rebuilt));
+                    this.index = rebuilt;
+                }
+            } finally {
+                synchronized (this) {
+                    this.missed = null;
+                }
+            }
+            log.info("Dish search index built with {} dishes in {} ms", rebuilt.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        DishSnapshot after = event.after();
+        Long id = event.id();
+        apply(after != null ? index -> index.put(after) : index -> index.remove(id));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        ChefSnapshot after = event.after();
+        Long id = event.id();
+        apply(after != null
+                ? index -> index.putChef(after.id(), fullName(after.firstName(), after.lastName()))
+                : index -> index.removeChef(id));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        rebuild();
+    }
+
+    private synchronized void apply(Consumer<DishSearchIndex> change) {
+        change.accept(this.index);
+        if (this.missed != null) {
+            this.missed.add(change);
+        }
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "");
+    }
+}
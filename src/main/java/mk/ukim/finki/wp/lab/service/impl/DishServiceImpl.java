@@ -2,53 +2,114 @@ package mk.ukim.finki.wp.lab.service.impl;
 
 import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.batch.BatchItemError;
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.batch.DishDraft;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
 import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
 import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.cache.CatalogCaches;
+import org.hibernate.Hibernate;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class DishServiceImpl implements DishService {
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final JpaDishRepository dishRepository;
     private final JpaChefRepository chefRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public DishServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository) {
+    public DishServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                           ApplicationEventPublisher eventPublisher) {
         this.dishRepository = dishRepository;
         this.chefRepository = chefRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_LISTS, key = "'all'")
     public List<Dish> listDishes() {
         return this.dishRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_LISTS, key = "'summaries'")
+    public List<DishSummary> listDishSummaries() {
+        return this.dishRepository.findAllProjectedByOrderByIdAsc();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_LISTS, key = "'summaries:' + #after + ':' + #size")
+    public Slice<DishSummary> listDishSummaries(Long after, int size) {
+        return this.dishRepository.findAllProjectedByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, pageOf(size));
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_BY_DISH_ID, key = "#dishId", condition = "#dishId != null")
     public Dish findByDishId(String dishId) {
         return this.dishRepository.findByDishId(dishId);
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_BY_ID, key = "#id")
     public Dish findById(Long id) {
         return this.dishRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Dish not found with id: " + id));
     }
 
     @Override
+    public Dish findByIdWithChef(Long id) {
+        return this.dishRepository.findWithChefById(id)
+                .orElseThrow(() -> new RuntimeException("Dish not found with id: " + id));
+    }
+
+    @Override
+    @Transactional
     public Dish create(String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating) {
+        ensureRatingInRange(rating);
+        ensureDishIdAvailable(dishId, null);
         Chef chef = null;
         if (chefId != null) {
             chef = chefRepository.findById(chefId).orElse(null);
         }
         Dish dish = new Dish(dishId, name, cuisine, preparationTime, rating);
         dish.setChef(chef);
-        return this.dishRepository.save(dish);
+        Dish saved = this.dishRepository.save(dish);
+        if (chef != null) {
+            this.chefRepository.adjustDishCount(chef.getId(), 1);
+        }
+        this.eventPublisher.publishEvent(new DishChangedEvent(null, DishSnapshot.of(saved)));
+        return saved;
     }
 
     @Override
-    public Dish update(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating) {
+    @Transactional
+    public Dish update(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId, Integer rating,
+                       Long version) {
         Dish dish = this.findById(id);
+        // A null version skips the check (last write wins); the flush below still guards the read-to-write window
+        if (version != null && !version.equals(dish.getVersion())) {
+            throw new OptimisticLockingFailureException("Dish was changed by someone else while you were editing it: " + id);
+        }
+        ensureRatingInRange(rating);
+        ensureDishIdAvailable(dishId, id);
+        DishSnapshot before = DishSnapshot.of(dish);
+        Long previousChefId = before.chefId();
         dish.setDishId(dishId);
         dish.setName(name);
         dish.setCuisine(cuisine);
@@ -62,21 +123,230 @@ public class DishServiceImpl implements DishService {
             dish.setChef(null);
         }
 
-        return this.dishRepository.save(dish);
+        Dish saved = this.dishRepository.saveAndFlush(dish);
+        Long newChefId = saved.getChef() != null ? saved.getChef().getId() : null;
+        if (!Objects.equals(previousChefId, newChefId)) {
+            if (previousChefId != null) {
+                this.chefRepository.adjustDishCount(previousChefId, -1);
+            }
+            if (newChefId != null) {
+                this.chefRepository.adjustDishCount(newChefId, 1);
+            }
+        }
+        this.eventPublisher.publishEvent(new DishChangedEvent(before, DishSnapshot.of(saved)));
+        return saved;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        this.dishRepository.deleteById(id);
+        this.dishRepository.findById(id).ifPresent(dish -> {
+            DishSnapshot before = DishSnapshot.of(dish);
+            Chef chef = dish.getChef();
+            if (chef != null) {
+                if (Hibernate.isInitialized(chef) && Hibernate.isInitialized(chef.getDishes())) {
+                    chef.getDishes().remove(dish);
+                }
+                this.chefRepository.adjustDishCount(chef.getId(), -1);
+            }
+            this.dishRepository.delete(dish);
+            this.eventPublisher.publishEvent(new DishChangedEvent(before, null));
+        });
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.DISHES_BY_CHEF, key = "#chefId", condition = "#chefId != null")
     public List<Dish> findAllByChefId(Long chefId) {
         return this.dishRepository.findAllByChef_Id(chefId);
     }
 
     @Override
+    @Cacheable(cacheNames = CatalogCaches.DISHES_BY_RATING, key = "#rating", condition = "#rating != null")
     public List<Dish> findAllByRating(Integer rating) {
         return this.dishRepository.findAllByRating(rating);
     }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_LISTS, key = "'rating:' + #rating")
+    public List<DishSummary> findSummariesByRating(Integer rating) {
+        return this.dishRepository.findAllProjectedByRatingOrderByIdAsc(rating);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CatalogCaches.DISH_LISTS, key = "'rating:' + #rating + ':' + #after + ':' + #size")
+    public Slice<DishSummary> findSummariesByRating(Integer rating, Long after, int size) {
+        return this.dishRepository.findAllProjectedByRatingAndIdGreaterThanOrderByIdAsc(
+                rating, after != null ? after : 0L, pageOf(size));
+    }
+
+    // Validated items are inserted with saveAll, which the JDBC batch settings turn into batched inserts
+    @Override
+    @Transactional
+    public BatchResult createDishes(List<DishDraft> drafts) {
+        long start = System.currentTimeMillis();
+        BatchItems.checkSize(drafts.size());
+        List<BatchItemError> errors = new ArrayList<>();
+        Map<String, Integer> positions = BatchItems.indexDishIds(
+                drafts.stream().map(draft -> draft != null ? draft.dishId() : null).toList(), errors);
+        Set<String> existing = positions.isEmpty() ? Set.of() : this.dishRepository.findExistingDishIds(positions.keySet());
+        Set<Long> chefIds = new HashSet<>();
+        positions.values().forEach(index -> {
+            if (drafts.get(index).chefId() != null) {
+                chefIds.add(drafts.get(index).chefId());
+            }
+        });
+        Map<Long, Chef> chefs = new HashMap<>();
+        this.chefRepository.findAllById(chefIds).forEach(chef -> chefs.put(chef.getId(), chef));
+
+        List<Dish> dishes = new ArrayList<>();
+        for (Map.Entry<String, Integer> position : positions.entrySet()) {
+            DishDraft draft = drafts.get(position.getValue());
+            String problem = null;
+            if (existing.contains(position.getKey())) {
+                problem = "Dish already exists with dish id: " + position.getKey();
+            } else if (draft.name() == null || draft.name().isBlank()) {
+                problem = "Dish name cannot be empty";
+            } else if (draft.preparationTime() == null) {
+                problem = "Preparation time is required";
+            } else if (!isRatingInRange(draft.rating())) {
+                problem = "Rating must be between 1 and 5: " + draft.rating();
+            } else if (draft.chefId() != null && !chefs.containsKey(draft.chefId())) {
+                problem = "Chef not found with id: " + draft.chefId();
+            }
+            if (problem != null) {
+                errors.add(new BatchItemError(position.getValue(), position.getKey(), problem));
+                continue;
+            }
+            Dish dish = new Dish(draft.dishId(), draft.name(), draft.cuisine(), draft.preparationTime(), draft.rating());
+            dish.setChef(draft.chefId() != null ? chefs.get(draft.chefId()) : null);
+            dishes.add(dish);
+        }
+
+        Map<Long, Integer> addedPerChef = new HashMap<>();
+        for (Dish dish : this.dishRepository.saveAll(dishes)) {
+            if (dish.getChef() != null) {
+                addedPerChef.merge(dish.getChef().getId(), 1, Integer::sum);
+            }
+            this.eventPublisher.publishEvent(new DishChangedEvent(null, DishSnapshot.of(dish)));
+        }
+        addedPerChef.forEach(this.chefRepository::adjustDishCount);
+        errors.sort(Comparator.comparingInt(BatchItemError::index));
+        return BatchResult.of(drafts.size(), errors, start);
+    }
+
+    // One select loads every dish; dirty checking then flushes the changes as batched updates on commit
+    @Override
+    @Transactional
+    public BatchResult updateDishes(List<DishDraft> drafts) {
+        long start = System.currentTimeMillis();
+        BatchItems.checkSize(drafts.size());
+        List<BatchItemError> errors = new ArrayList<>();
+        Map<String, Integer> positions = BatchItems.indexDishIds(
+                drafts.stream().map(draft -> draft != null ? draft.dishId() : null).toList(), errors);
+        Map<String, Dish> dishes = new HashMap<>();
+        if (!positions.isEmpty()) {
+            this.dishRepository.findAllByDishIdIn(positions.keySet()).forEach(dish -> dishes.put(dish.getDishId(), dish));
+        }
+
+        for (Map.Entry<String, Integer> position : positions.entrySet()) {
+            Dish dish = dishes.get(position.getKey());
+            DishDraft draft = drafts.get(position.getValue());
+            if (dish == null) {
+                errors.add(new BatchItemError(position.getValue(), position.getKey(),
+                        "Dish not found with id: " + position.getKey()));
+                continue;
+            }
+            if (draft.name() != null && draft.name().isBlank()) {
+                errors.add(new BatchItemError(position.getValue(), position.getKey(), "Dish name cannot be empty"));
+                continue;
+            }
+            if (!isRatingInRange(draft.rating())) {
+                errors.add(new BatchItemError(position.getValue(), position.getKey(),
+                        "Rating must be between 1 and 5: " + draft.rating()));
+                continue;
+            }
+            DishSnapshot before = DishSnapshot.of(dish);
+            if (draft.name() != null) {
+                dish.setName(draft.name());
+            }
+            if (draft.cuisine() != null) {
+                dish.setCuisine(draft.cuisine());
+            }
+            if (draft.preparationTime() != null) {
+                dish.setPreparationTime(draft.preparationTime());
+            }
+            if (draft.rating() != null) {
+                dish.setRating(draft.rating());
+            }
+            this.eventPublisher.publishEvent(new DishChangedEvent(before, DishSnapshot.of(dish)));
+        }
+        errors.sort(Comparator.comparingInt(BatchItemError::index));
+        return BatchResult.of(drafts.size(), errors, start);
+    }
+
+    // Snapshots are read for the events and counters, then the rows go in one DELETE ... WHERE dish_id IN
+    @Override
+    @Transactional
+    public BatchResult deleteDishes(List<String> dishIds) {
+        long start = System.currentTimeMillis();
+        BatchItems.checkSize(dishIds.size());
+        List<BatchItemError> errors = new ArrayList<>();
+        Map<String, Integer> positions = BatchItems.indexDishIds(dishIds, errors);
+        Map<String, DishSnapshot> found = new HashMap<>();
+        if (!positions.isEmpty()) {
+            this.dishRepository.findSnapshotsByDishIdIn(positions.keySet()).forEach(dish -> found.put(dish.dishId(), dish));
+        }
+        positions.forEach((dishId, index) -> {
+            if (!found.containsKey(dishId)) {
+                errors.add(new BatchItemError(index, dishId, "Dish not found with id: " + dishId));
+            }
+        });
+
+        if (!found.isEmpty()) {
+            this.dishRepository.deleteAllByDishIdIn(found.keySet());
+            Map<Long, Integer> removedPerChef = new HashMap<>();
+            for (DishSnapshot dish : found.values()) {
+                if (dish.chefId() != null) {
+                    removedPerChef.merge(dish.chefId(), -1, Integer::sum);
+                }
+                this.eventPublisher.publishEvent(new DishChangedEvent(dish, null));
+            }
+            removedPerChef.forEach(this.chefRepository::adjustDishCount);
+        }
+        errors.sort(Comparator.comparingInt(BatchItemError::index));
+        return BatchResult.of(dishIds.size(), errors, start);
+    }
+
+    // The stream is only open for the duration of the callback
+    @Override
+    @Transactional(readOnly = true)
+    public void streamDishes(Integer rating, Consumer<Stream<DishSnapshot>> consumer) {
+        try (Stream<DishSnapshot> dishes = rating != null
+                ? this.dishRepository.streamSnapshotsByRating(rating)
+                : this.dishRepository.streamAllSnapshots()) {
+            consumer.accept(dishes);
+        }
+    }
+
+    private void ensureDishIdAvailable(String dishId, Long ownerId) {
+        Dish existing = this.dishRepository.findByDishId(dishId);
+        if (existing != null && !existing.getId().equals(ownerId)) {
+            throw new RuntimeException("Dish already exists with dish id: " + dishId);
+        }
+    }
+
+    // Ratings are stars, as on the form and in imports; anything else would also skew the statistics
+    private static void ensureRatingInRange(Integer rating) {
+        if (!isRatingInRange(rating)) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5: " + rating);
+        }
+    }
+
+    private static boolean isRatingInRange(Integer rating) {
+        return rating == null || (rating >= 1 && rating <= 5);
+    }
+
+    private static PageRequest pageOf(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
 }
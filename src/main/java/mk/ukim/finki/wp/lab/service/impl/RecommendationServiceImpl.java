@@ -0,0 +1,188 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.service.recommendation.RecommendationIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Stream;
+
+// Serves recommendations from a RecommendationIndex. Committed dish and chef changes are queued and merged
+// into a new index by one refresh on the refresh thread, so a burst of writes recomputes each cuisine once and
+// the writing request never waits for it; lookups see the previous lists until the refresh is published.
+// Refreshes and rebuilds hold the monitor while they fork on the build pool, so they never run on that pool:
+// a pool worker blocked on the monitor would leave the holder's build waiting for that worker.
+@Service
+public class RecommendationServiceImpl implements RecommendationService, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(RecommendationServiceImpl.class);
+    private static final int MAX_LIMIT = 50;
+
+    private final JpaDishRepository dishRepository;
+    private final JpaChefRepository chefRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int neighbours;
+    private final ForkJoinPool pool;
+    private final ExecutorService refresher;
+    private final Object pendingLock = new Object();
+    private Map<Long, DishSnapshot> pendingDishes = new HashMap<>();
+    private Map<Long, ChefSnapshot> pendingChefs = new HashMap<>();
+    private boolean refreshScheduled;
+    private volatile RecommendationIndex index;
+
+    public RecommendationServiceImpl(JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.recommendations.neighbours:10}") int neighbours,
+                                     @Value("${app.recommendations.parallelism:0}") int parallelism) {
+        if (neighbours < 1 || neighbours > MAX_LIMIT) {
+            throw new IllegalStateException("app.recommendations.neighbours must be between 1 and " + MAX_LIMIT
+                    + ", was " + neighbours);
+        }
+        this.dishRepository = dishRepository;
+        this.chefRepository = chefRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.neighbours = neighbours;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("recommendations-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+        this.refresher = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "recommendations-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.index = RecommendationIndex.empty(neighbours);
+    }
+
+    @Override
+    public List<DishRecommendation> similarDishes(Long dishId, int limit) {
+        return this.index.similarDishes(dishId, boundedLimit(limit));
+    }
+
+    @Override
+    public List<DishRecommendation> recommendDishesForChef(Long chefId, int limit) {
+        return this.index.recommendDishesForChef(chefId, boundedLimit(limit));
+    }
+
+    @Override
+    public List<ChefRecommendation> similarChefs(Long chefId, int limit) {
+        return this.index.similarChefs(chefId, boundedLimit(limit));
+    }
+
+    // Changes that commit during the load are queued and applied again on top, which is harmless
+    @Override
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        List<ChefSnapshot> chefs = new ArrayList<>();
+        List<DishSnapshot> dishes = new ArrayList<>();
+        this.readOnlyTransaction.executeWithoutResult(status -> {
+            for (ChefSummary chef : this.chefRepository.findAllProjectedByOrderByIdAsc()) {
+                chefs.add(new ChefSnapshot(chef.getId(), chef.getFirstName(), chef.getLastName(), chef.getBio()));
+            }
+            try (Stream<DishSnapshot> rows = this.dishRepository.streamAllSnapshots()) {
+                rows.forEach(dishes::add);
+            }
+        });
+        long loaded = System.currentTimeMillis();
+        RecommendationIndex rebuilt = RecommendationIndex.build(dishes, chefs, this.neighbours, this.pool);
+        this.index = rebuilt;
+        log.info("Recommendations built for {} dishes in {} cuisines and {} chefs in {} ms"
+                        + " ({} ms computing on {} threads)", rebuilt.dishCount(), rebuilt.cuisineCount(),
+                rebuilt.chefCount(), System.currentTimeMillis() - start, System.currentTimeMillis() - loaded,
+                this.pool.getParallelism());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        synchronized (this.pendingLock) {
+            this.pendingDishes.put(event.id(), event.after());
+            scheduleRefresh();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChefChanged(ChefChangedEvent event) {
+        synchronized (this.pendingLock) {
+            this.pendingChefs.put(event.id(), event.after());
+            scheduleRefresh();
+        }
+    }
+
+    // An import or bulk delete reloads everything, after the request has returned
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChange(CatalogBulkChangeEvent event) {
+        this.refresher.execute(this::rebuild);
+    }
+
+    @Override
+    public void destroy() {
+        this.refresher.shutdownNow();
+        this.pool.shutdownNow();
+    }
+
+    // Called with pendingLock held; changes arriving before the refresh starts join the same batch
+    private void scheduleRefresh() {
+        if (!this.refreshScheduled) {
+            this.refreshScheduled = true;
+            this.refresher.execute(this::applyPending);
+        }
+    }
+
+    private synchronized void applyPending() {
+        Map<Long, DishSnapshot> dishes;
+        Map<Long, ChefSnapshot> chefs;
+        synchronized (this.pendingLock) {
+            dishes = this.pendingDishes;
+            chefs = this.pendingChefs;
+            this.pendingDishes = new HashMap<>();
+            this.pendingChefs = new HashMap<>();
+            this.refreshScheduled = false;
+        }
+        long start = System.nanoTime();
+        try {
+            this.index = this.index.apply(dishes, chefs, this.pool);
+            log.debug("Recommendations refreshed for {} dishes and {} chefs in {} us", dishes.size(), chefs.size(),
+                    (System.nanoTime() - start) / 1000);
+        } catch (RuntimeException e) {
+            log.warn("Recommendation refresh failed, rebuilding", e);
+            rebuild();
+        }
+    }
+
+    private static int boundedLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,437 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.writebehind.ChefEdit;
+import mk.ukim.finki.wp.lab.model.writebehind.DishEdit;
+import mk.ukim.finki.wp.lab.model.writebehind.PendingWrite;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.WriteBehindService;
+import mk.ukim.finki.wp.lab.service.writebehind.CoalescingWriteQueue;
+import mk.ukim.finki.wp.lab.service.writebehind.WriteBehindJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Optional write-behind mode for admin edits. Edits are queued and coalesced per entity, and a single writer
+// thread applies them in batches, one transaction per batch. When disabled every call writes straight through.
+@Service
+public class WriteBehindServiceImpl implements WriteBehindService {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindServiceImpl.class);
+
+    private final DishService dishService;
+    private final ChefService chefService;
+    private final JpaDishRepository dishRepository;
+    private final JpaChefRepository chefRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final WriteBehindJournal journal;
+    private final CoalescingWriteQueue queue;
+    private final Counter queued;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter flushed;
+    private final Counter failed;
+    private final Timer flushTimer;
+    private volatile boolean running;
+    private Thread writer;
+
+    public WriteBehindServiceImpl(DishService dishService, ChefService chefService,
+                                  JpaDishRepository dishRepository, JpaChefRepository chefRepository,
+                                  PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                  MeterRegistry registry,
+                                  @Value("${app.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${app.write-behind.capacity:10000}") int capacity,
+                                  @Value("${app.write-behind.batch-size:200}") int batchSize,
+                                  @Value("${app.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+                                  @Value("${app.write-behind.offer-timeout:PT0.1S}") Duration offerTimeout,
+                                  @Value("${app.write-behind.journal.enabled:false}") boolean journalEnabled,
+                                  @Value("${app.write-behind.journal.path:data/write-behind.journal}") Path journalPath,
+                                  @Value("${app.write-behind.journal.fsync:false}") boolean journalFsync) {
+        this.dishService = dishService;
+        this.chefService = chefService;
+        this.dishRepository = dishRepository;
+        this.chefRepository = chefRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+
+        WriteBehindJournal journal = null;
+        if (enabled && journalEnabled) {
+            try {
+                journal = new WriteBehindJournal(journalPath, journalFsync, objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the write-behind journal " + journalPath, e);
+            }
+        }
+        this.journal = journal;
+        this.queue = new CoalescingWriteQueue(capacity, journal != null ? journal::append : write -> {
+        });
+
+        this.queued = registry.counter("app.write-behind.edits", "outcome", "queued");
+        this.coalesced = registry.counter("app.write-behind.edits", "outcome", "coalesced");
+        this.rejected = registry.counter("app.write-behind.edits", "outcome", "rejected");
+        this.flushed = registry.counter("app.write-behind.edits", "outcome", "flushed");
+        this.failed = registry.counter("app.write-behind.edits", "outcome", "failed");
+        this.flushTimer = registry.timer("app.write-behind.flush");
+        Gauge.builder("app.write-behind.pending", this.queue, CoalescingWriteQueue::size)
+                .description("Entities with an edit waiting to be written")
+                .register(registry);
+        Gauge.builder("app.write-behind.utilization", this.queue, queue -> (double) queue.size() / queue.capacity())
+                .description("Fraction of the queue capacity in use")
+                .register(registry);
+        Gauge.builder("app.write-behind.held-failures", this.queue, CoalescingWriteQueue::failedCount)
+                .description("Edits the writer could not apply, held until an admin resolves them")
+                .register(registry);
+        Gauge.builder("app.write-behind.lag", this.queue, CoalescingWriteQueue::oldestAgeSeconds)
+                .description("Age in seconds of the oldest unwritten edit")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public void updateDish(Long id, String dishId, String name, String cuisine, int preparationTime, Long chefId,
+                           Integer rating, Long version) {
+        if (!this.enabled) {
+            this.dishService.update(id, dishId, name, cuisine, preparationTime, chefId, rating, version);
+            return;
+        }
+        // The cheap checks still fail the request; anything else is held as a failed edit when the flush rejects it.
+        // The stored version is read past the entity cache, which can lag behind a flush or another instance.
+        if (rating != null && (rating < 1 || rating > 5)) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5: " + rating);
+        }
+        Long stored = this.dishRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Dish not found with id: " + id));
+        Dish existing = this.dishService.findByDishId(dishId);
+        if (existing != null && !existing.getId().equals(id)) {
+            throw new RuntimeException("Dish already exists with dish id: " + dishId);
+        }
+        submit("Dish", new DishEdit(id, dishId, name, cuisine, preparationTime, chefId, rating, null, null),
+                version, stored);
+    }
+
+    @Override
+    public void updateChef(Long id, String firstName, String lastName, String bio, Long version) {
+        if (!this.enabled) {
+            this.chefService.update(id, firstName, lastName, bio, version);
+            return;
+        }
+        Long stored = this.chefRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Chef not found with id: " + id));
+        submit("Chef", new ChefEdit(id, firstName, lastName, bio, null, null), version, stored);
+    }
+
+    @Override
+    public void discardDish(Long id) {
+        if (this.enabled) {
+            this.queue.remove(DishEdit.keyOf(id));
+        }
+    }
+
+    @Override
+    public void discardChef(Long id) {
+        if (this.enabled) {
+            this.queue.remove(ChefEdit.keyOf(id));
+        }
+    }
+
+    @Override
+    public Optional<DishEdit> failedDishEdit(Long id) {
+        return this.enabled ? this.queue.failed(DishEdit.keyOf(id)).map(DishEdit.class::cast) : Optional.empty();
+    }
+
+    @Override
+    public Optional<ChefEdit> failedChefEdit(Long id) {
+        return this.enabled ? this.queue.failed(ChefEdit.keyOf(id)).map(ChefEdit.class::cast) : Optional.empty();
+    }
+
+    // Overlays return detached copies; the loaded entity may still be attached to the request's session
+    @Override
+    public Dish overlay(Dish dish) {
+        if (!this.enabled || dish == null) {
+            return dish;
+        }
+        return this.queue.get(DishEdit.keyOf(dish.getId()))
+                .map(write -> {
+                    DishEdit edit = (DishEdit) write;
+                    Dish copy = new Dish(edit.dishId(), edit.name(), edit.cuisine(), edit.preparationTime(), edit.rating());
+                    copy.setId(edit.id());
+                    copy.setVersion(edit.revision() != null ? edit.revision() : dish.getVersion());
+                    copy.setChef(edit.chefId() != null ? this.chefService.findById(edit.chefId()) : null);
+                    return copy;
+                })
+                .orElse(dish);
+    }
+
+    @Override
+    public Chef overlay(Chef chef) {
+        if (!this.enabled || chef == null) {
+            return chef;
+        }
+        return this.queue.get(ChefEdit.keyOf(chef.getId()))
+                .map(write -> {
+                    ChefEdit edit = (ChefEdit) write;
+                    Chef copy = new Chef(edit.id(), edit.firstName(), edit.lastName(), edit.bio());
+                    copy.setDishCount(chef.getDishCount());
+                    copy.setVersion(edit.revision() != null ? edit.revision() : chef.getVersion());
+                    return copy;
+                })
+                .orElse(chef);
+    }
+
+    @Override
+    public List<DishSummary> overlayDishes(List<DishSummary> dishes) {
+        if (!this.enabled || this.queue.size() == 0) {
+            return dishes;
+        }
+        return dishes.stream()
+                .map(dish -> this.queue.get(DishEdit.keyOf(dish.getId()))
+                        .<DishSummary>map(write -> new PendingDishSummary((DishEdit) write))
+                        .orElse(dish))
+                .toList();
+    }
+
+    @Override
+    public List<ChefSummary> overlayChefs(List<ChefSummary> chefs) {
+        if (!this.enabled || this.queue.size() == 0) {
+            return chefs;
+        }
+        return chefs.stream()
+                .map(chef -> this.queue.get(ChefEdit.keyOf(chef.getId()))
+                        .<ChefSummary>map(write -> new PendingChefSummary((ChefEdit) write, chef.getDishCount()))
+                        .orElse(chef))
+                .toList();
+    }
+
+    @Override
+    public int pending() {
+        return this.queue.size();
+    }
+
+    // Edits left over from a previous run are queued again before the writer starts
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() throws IOException {
+        if (!this.enabled) {
+            return;
+        }
+        if (this.journal != null) {
+            List<PendingWrite> replayed = this.journal.replay();
+            for (PendingWrite write : replayed) {
+                requeue(write);
+            }
+            this.queue.withUnflushed(this.journal::rewrite);
+            if (!replayed.isEmpty()) {
+                log.info("Replayed {} journaled edits into the write-behind queue", replayed.size());
+            }
+        }
+        this.running = true;
+        this.writer = new Thread(this::runWriter, "write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Stops the writer and writes out whatever is still queued before the data source goes away
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (!this.enabled) {
+            return;
+        }
+        this.running = false;
+        if (this.writer != null) {
+            this.writer.join(this.flushInterval.toMillis() + 5000);
+        }
+        List<PendingWrite> batch;
+        while (!(batch = this.queue.drain(this.batchSize, 0, TimeUnit.NANOSECONDS)).isEmpty()) {
+            flush(batch);
+        }
+        if (this.journal != null) {
+            this.journal.close();
+        }
+    }
+
+    private void submit(String entity, PendingWrite write, Long expected, long stored) {
+        CoalescingWriteQueue.Offer offer;
+        try {
+            offer = this.queue.offer(write, expected, stored, this.offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing the edit for " + write.key());
+        }
+        switch (offer) {
+            case QUEUED, CHAINED -> this.queued.increment();
+            case COALESCED -> this.coalesced.increment();
+            case CONFLICT -> throw new OptimisticLockingFailureException(
+                    entity + " was changed by someone else while you were editing it: " + write.id());
+            case FULL -> {
+                this.rejected.increment();
+                throw new RuntimeException("Too many unsaved edits, please try again in a moment");
+            }
+        }
+    }
+
+    private void requeue(PendingWrite write) throws IOException {
+        // Journals written before edits carried a revision hold the form's version, which the edit applies to
+        if (write.revision() == null && write.version() != null) {
+            write = write.withVersions(write.version(), write.version() + 1);
+        }
+        try {
+            if (this.queue.requeue(write, this.offerTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                    == CoalescingWriteQueue.Offer.FULL) {
+                throw new IOException("The write-behind journal holds more edits than the queue capacity");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying the write-behind journal", e);
+        }
+    }
+
+    private void runWriter() {
+        while (this.running) {
+            try {
+                List<PendingWrite> batch = this.queue.drain(this.batchSize, this.flushInterval.toNanos(),
+                        TimeUnit.NANOSECONDS);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                // A partial batch means the queue is caught up, so give further edits time to coalesce
+                if (batch.size() < this.batchSize) {
+                    Thread.sleep(this.flushInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write-behind flush failed", e);
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        Timer.Sample sample = Timer.start();
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+            this.flushed.increment(batch.size());
+        } catch (RuntimeException batchFailure) {
+            // One bad edit rolls back the whole batch, so retry them one by one. A failure is kept for the edit
+            // form, which shows it as a conflict next to the stored row; an edit queued behind it fails the same way.
+            for (PendingWrite write : batch) {
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> apply(write));
+                    this.flushed.increment();
+                } catch (RuntimeException e) {
+                    this.failed.increment();
+                    this.queue.fail(write);
+                    log.warn("Queued edit for {} could not be written and is held as a conflict: {}",
+                            write.key(), e.getMessage());
+                }
+            }
+        } finally {
+            this.queue.complete(batch);
+            if (this.journal != null) {
+                this.queue.withUnflushed(this.journal::rewrite);
+            }
+            sample.stop(this.flushTimer);
+        }
+    }
+
+    // A coalesced edit stands for several accepted ones, and an unchanged row is not bumped at all, so the row is
+    // moved to the edit's revision: forms rendered from the queue then match the stored version exactly.
+    private void apply(PendingWrite write) {
+        if (write instanceof DishEdit edit) {
+            this.dishService.update(edit.id(), edit.dishId(), edit.name(), edit.cuisine(), edit.preparationTime(),
+                    edit.chefId(), edit.rating(), edit.version());
+            if (edit.revision() != null) {
+                this.dishRepository.advanceVersion(edit.id(), edit.revision());
+            }
+        } else if (write instanceof ChefEdit edit) {
+            this.chefService.update(edit.id(), edit.firstName(), edit.lastName(), edit.bio(), edit.version());
+            if (edit.revision() != null) {
+                this.chefRepository.advanceVersion(edit.id(), edit.revision());
+            }
+        }
+    }
+
+    private record PendingDishSummary(DishEdit edit) implements DishSummary {
+        public Long getId() {
+            return this.edit.id();
+        }
+
+        public String getDishId() {
+            return this.edit.dishId();
+        }
+
+        public String getName() {
+            return this.edit.name();
+        }
+
+        public String getCuisine() {
+            return this.edit.cuisine();
+        }
+
+        public int getPreparationTime() {
+            return this.edit.preparationTime();
+        }
+
+        public Integer getRating() {
+            return this.edit.rating();
+        }
+    }
+
+    private record PendingChefSummary(ChefEdit edit, int dishCount) implements ChefSummary {
+        public Long getId() {
+            return this.edit.id();
+        }
+
+        public String getFirstName() {
+            return this.edit.firstName();
+        }
+
+        public String getLastName() {
+            return this.edit.lastName();
+        }
+
+        public String getBio() {
+            return this.edit.bio();
+        }
+
+        public int getDishCount() {
+            return this.dishCount;
+        }
+    }
+}
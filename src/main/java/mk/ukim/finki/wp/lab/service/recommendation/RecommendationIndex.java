@@ -0,0 +1,688 @@
+package mk.ukim.finki.wp.lab.service.recommendation;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+// Precomputed "similar dishes" and "similar chefs" lists. Dishes are grouped by cuisine and each group keeps
+// its features as columns sorted by rating and log preparation time, so the top-k search for a dish walks
+// outwards from its own position and stops once nothing further out can beat the k-th best. A group with
+// more than k dishes only draws neighbours from its own cuisine, which always outscores any other, so a
+// change recomputes its cuisine's group and the small groups and shares the rest with the previous index.
+// Chefs are compared by the cosine of their cuisine mixes. Instances are immutable; builds fork on the pool.
+public final class RecommendationIndex {
+    static final float CUISINE_WEIGHT = 0.5f;
+    static final float RATING_WEIGHT = 0.2f;
+    static final float PREPARATION_WEIGHT = 0.2f;
+    static final float CHEF_WEIGHT = 0.1f;
+    // Preparation times four times apart no longer count as similar
+    private static final float PREPARATION_SCALE = (float) Math.log(4);
+    // Bucket 0 holds unrated dishes, 1..5 the star ratings
+    private static final int RATING_BUCKETS = 6;
+    private static final int[][] BUCKET_ORDER = bucketOrder();
+    private static final int SPLIT_THRESHOLD = 256;
+    // A chef's dish recommendations start from this many of the chef's best-rated dishes
+    private static final int SIGNATURE_DISHES = 8;
+
+    private final int neighbours;
+    private final Map<Long, DishSnapshot> dishes;
+    private final Map<Long, ChefSnapshot> chefs;
+    private final Map<String, CuisineGroup> groups;
+    private final ChefProfiles chefProfiles;
+
+    private RecommendationIndex(int neighbours, Map<Long, DishSnapshot> dishes, Map<Long, ChefSnapshot> chefs,
+                                Map<String, CuisineGroup> groups, ChefProfiles chefProfiles) {
+        this.neighbours = neighbours;
+        this.dishes = dishes;
+        this.chefs = chefs;
+        this.groups = groups;
+        this.chefProfiles = chefProfiles;
+    }
+
+    public static RecommendationIndex empty(int neighbours) {
+        return new RecommendationIndex(neighbours, Map.of(), Map.of(), Map.of(),
+                new ChefProfiles(List.of(), neighbours));
+    }
+
+    public static RecommendationIndex build(Collection<DishSnapshot> dishes, Collection<ChefSnapshot> chefs,
+                                            int neighbours, ForkJoinPool pool) {
+        Map<Long, DishSnapshot> dishMap = new HashMap<>(capacity(dishes.size()));
+        Map<String, List<DishSnapshot>> members = new HashMap<>();
+        for (DishSnapshot dish : dishes) {
+            dishMap.put(dish.id(), dish);
+            members.computeIfAbsent(cuisineKey(dish.cuisine()), key -> new ArrayList<>()).add(dish);
+        }
+        Map<Long, ChefSnapshot> chefMap = new HashMap<>(capacity(chefs.size()));
+        for (ChefSnapshot chef : chefs) {
+            chefMap.put(chef.id(), chef);
+        }
+        Map<String, CuisineGroup> groups = new HashMap<>();
+        members.forEach((key, groupDishes) -> groups.put(key, new CuisineGroup(groupDishes, neighbours)));
+        ChefProfiles profiles = new ChefProfiles(dishMap.values(), neighbours);
+        compute(groups.values(), groups.values(), profiles, neighbours, pool);
+        return new RecommendationIndex(neighbours, dishMap, chefMap, groups, profiles);
+    }
+
+    // A null value in either map is a delete. Only the cuisine groups the changes touch, the small groups and,
+    // when a chef's cuisine mix moved, the chef lists are recomputed
+    public RecommendationIndex apply(Map<Long, DishSnapshot> dishChanges, Map<Long, ChefSnapshot> chefChanges,
+                                     ForkJoinPool pool) {
+        Map<Long, DishSnapshot> dishes = this.dishes;
+        Map<String, CuisineGroup> groups = this.groups;
+        ChefProfiles profiles = this.chefProfiles;
+        List<CuisineGroup> stale = new ArrayList<>();
+        if (!dishChanges.isEmpty()) {
+            dishes = new HashMap<>(this.dishes);
+            Set<String> touched = new HashSet<>();
+            boolean profilesChanged = false;
+            for (Map.Entry<Long, DishSnapshot> change : dishChanges.entrySet()) {
+                DishSnapshot after = change.getValue();
+                DishSnapshot before = after != null
+                        ? dishes.put(change.getKey(), after)
+                        : dishes.remove(change.getKey());
+                if (before != null) {
+                    touched.add(cuisineKey(before.cuisine()));
+                }
+                if (after != null) {
+                    touched.add(cuisineKey(after.cuisine()));
+                }
+                profilesChanged |= before == null || after == null || !Objects.equals(before.chefId(), after.chefId())
+                        || !cuisineKey(before.cuisine()).equals(cuisineKey(after.cuisine()));
+            }
+
+            Map<String, List<DishSnapshot>> members = new HashMap<>();
+            for (String key : touched) {
+                List<DishSnapshot> groupDishes = new ArrayList<>();
+                CuisineGroup previous = this.groups.get(key);
+                if (previous != null) {
+                    for (long id : previous.ids) {
+                        if (!dishChanges.containsKey(id)) {
+                            groupDishes.add(dishes.get(id));
+                        }
+                    }
+                }
+                members.put(key, groupDishes);
+            }
+            for (DishSnapshot after : dishChanges.values()) {
+                if (after != null) {
+                    members.get(cuisineKey(after.cuisine())).add(after);
+                }
+            }
+
+            groups = new HashMap<>(this.groups);
+            for (Map.Entry<String, List<DishSnapshot>> entry : members.entrySet()) {
+                groups.remove(entry.getKey());
+                if (!entry.getValue().isEmpty()) {
+                    CuisineGroup group = new CuisineGroup(entry.getValue(), this.neighbours);
+                    groups.put(entry.getKey(), group);
+                    stale.add(group);
+                }
+            }
+            // Small groups borrow neighbours from other cuisines, so any change can reach them
+            for (Map.Entry<String, CuisineGroup> entry : groups.entrySet()) {
+                CuisineGroup group = entry.getValue();
+                if (!members.containsKey(entry.getKey()) && group.isSmall(this.neighbours)) {
+                    CuisineGroup copy = new CuisineGroup(group, this.neighbours);
+                    entry.setValue(copy);
+                    stale.add(copy);
+                }
+            }
+            if (profilesChanged) {
+                profiles = new ChefProfiles(dishes.values(), this.neighbours);
+            }
+        }
+
+        Map<Long, ChefSnapshot> chefs = this.chefs;
+        if (!chefChanges.isEmpty()) {
+            chefs = new HashMap<>(this.chefs);
+            for (Map.Entry<Long, ChefSnapshot> change : chefChanges.entrySet()) {
+                if (change.getValue() != null) {
+                    chefs.put(change.getKey(), change.getValue());
+                } else {
+                    chefs.remove(change.getKey());
+                }
+            }
+        }
+        compute(stale, groups.values(), profiles != this.chefProfiles ? profiles : null, this.neighbours, pool);
+        return new RecommendationIndex(this.neighbours, dishes, chefs, groups, profiles);
+    }
+
+    public List<DishRecommendation> similarDishes(Long dishId, int limit) {
+        DishSnapshot dish = this.dishes.get(dishId);
+        if (dish == null) {
+            return List.of();
+        }
+        CuisineGroup group = this.groups.get(cuisineKey(dish.cuisine()));
+        int offset = group.positions.get(dishId) * this.neighbours;
+        int count = Math.min(limit, this.neighbours);
+        List<DishRecommendation> result = new ArrayList<>(count);
+        for (int i = offset; i < offset + count && group.neighbourIds[i] != 0; i++) {
+            DishSnapshot neighbour = this.dishes.get(group.neighbourIds[i]);
+            if (neighbour != null) {
+                result.add(recommendation(neighbour, group.neighbourScores[i]));
+            }
+        }
+        return result;
+    }
+
+    // Other chefs' dishes closest to this chef's best-rated dishes. The precomputed lists favour the chef's own
+    // dishes, so this searches the cuisine groups directly, skipping the chef; a few walks of the sorted columns
+    public List<DishRecommendation> recommendDishesForChef(Long chefId, int limit) {
+        Integer position = this.chefProfiles.positions.get(chefId);
+        if (position == null) {
+            return List.of();
+        }
+        int count = Math.max(1, limit);
+        Map<Long, Float> best = new HashMap<>();
+        TopK candidates = new TopK(count);
+        for (long ownId : this.chefProfiles.signatureDishes[position]) {
+            DishSnapshot own = this.dishes.get(ownId);
+            CuisineGroup ownGroup = this.groups.get(cuisineKey(own.cuisine()));
+            int rating = ratingBucket(own.rating());
+            float preparation = preparationFeature(own.preparationTime());
+            candidates.reset();
+            walk(ownGroup, null, CUISINE_WEIGHT, rating, preparation, chefId, ownId, candidates);
+            // Nobody else cooks enough of this cuisine; fill up from the others, as the small groups do
+            if (candidates.size < count) {
+                for (CuisineGroup other : this.groups.values()) {
+                    if (other != ownGroup) {
+                        walk(other, null, 0f, rating, preparation, chefId, ownId, candidates);
+                    }
+                }
+            }
+            for (int i = 0; i < candidates.size; i++) {
+                best.merge(candidates.ids[i], candidates.scores[i], Math::max);
+            }
+        }
+        TopK top = new TopK(count);
+        best.forEach(top::offer);
+        List<DishRecommendation> result = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            result.add(recommendation(this.dishes.get(top.ids[i]), top.scores[i]));
+        }
+        return result;
+    }
+
+    public List<ChefRecommendation> similarChefs(Long chefId, int limit) {
+        ChefProfiles profiles = this.chefProfiles;
+        Integer position = profiles.positions.get(chefId);
+        if (position == null) {
+            return List.of();
+        }
+        int offset = position * this.neighbours;
+        int count = Math.min(limit, this.neighbours);
+        List<ChefRecommendation> result = new ArrayList<>(count);
+        for (int i = offset; i < offset + count && profiles.neighbourIds[i] != 0; i++) {
+            long id = profiles.neighbourIds[i];
+            ChefSnapshot chef = this.chefs.get(id);
+            if (chef != null) {
+                result.add(new ChefRecommendation(chef.id(), chef.firstName(), chef.lastName(),
+                        profiles.dishCounts[profiles.positions.get(id)], profiles.neighbourScores[i]));
+            }
+        }
+        return result;
+    }
+
+    public int dishCount() {
+        return this.dishes.size();
+    }
+
+    public int chefCount() {
+        return this.chefProfiles.chefIds.length;
+    }
+
+    public int cuisineCount() {
+        return this.groups.size();
+    }
+
+    private static void compute(Collection<CuisineGroup> stale, Collection<CuisineGroup> all, ChefProfiles profiles,
+                                int neighbours, ForkJoinPool pool) {
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (CuisineGroup group : stale) {
+            tasks.add(new DishNeighbourTask(group, all, neighbours, 0, group.ids.length));
+        }
+        if (profiles != null) {
+            tasks.add(new ChefNeighbourTask(profiles, neighbours, 0, profiles.chefIds.length));
+        }
+        if (!tasks.isEmpty()) {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
+
+    // Collects the best candidates from one group: the dish's chef's own dishes first, as they carry the chef
+    // bonus and set a high bar early, then everyone else's
+    private static void collect(CuisineGroup group, float cuisineScore, int rating, float preparation, long chefId,
+                                long self, TopK top) {
+        if (chefId != 0) {
+            int[] own = group.chefPositions.get(chefId);
+            if (own != null) {
+                walk(group, own, cuisineScore + CHEF_WEIGHT, rating, preparation, 0, self, top);
+            }
+        }
+        walk(group, null, cuisineScore, rating, preparation, chefId, self, top);
+    }
+
+    // Walks the group (or the given ascending positions in it) one rating bucket at a time, outwards from the
+    // closest preparation time. Scores only fall along a walk, so it stops at the first candidate that cannot
+    // enter. Dishes of skipChef are left out
+    private static void walk(CuisineGroup group, int[] positions, float bonus, int rating, float preparation,
+                             long skipChef, long self, TopK top) {
+        for (int bucket : BUCKET_ORDER[rating]) {
+            float base = bonus + RATING_WEIGHT * ratingSimilarity(rating, bucket);
+            if (!top.accepts(base + PREPARATION_WEIGHT)) {
+                continue;
+            }
+            int start = bucketStart(group, positions, bucket);
+            int end = bucketStart(group, positions, bucket + 1);
+            int above = lowerBound(group, positions, start, end, preparation);
+            int below = above - 1;
+            while (below >= start || above < end) {
+                float belowDistance = below >= start
+                        ? preparation - group.preparation[at(positions, below)] : Float.MAX_VALUE;
+                float aboveDistance = above < end
+                        ? group.preparation[at(positions, above)] - preparation : Float.MAX_VALUE;
+                int i;
+                float distance;
+                if (belowDistance <= aboveDistance) {
+                    i = at(positions, below--);
+                    distance = belowDistance;
+                } else {
+                    i = at(positions, above++);
+                    distance = aboveDistance;
+                }
+                float score = base + PREPARATION_WEIGHT * Math.max(0f, 1f - distance / PREPARATION_SCALE);
+                if (!top.accepts(score)) {
+                    break;
+                }
+                if (group.ids[i] != self && (skipChef == 0 || group.chefIds[i] != skipChef)) {
+                    top.offer(group.ids[i], score);
+                }
+            }
+        }
+    }
+
+    private static int at(int[] positions, int index) {
+        return positions == null ? index : positions[index];
+    }
+
+    private static int bucketStart(CuisineGroup group, int[] positions, int bucket) {
+        if (positions == null) {
+            return group.bucketStart[bucket];
+        }
+        int from = 0;
+        int to = positions.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (group.ratings[positions[mid]] < bucket) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static int lowerBound(CuisineGroup group, int[] positions, int from, int to, float key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (group.preparation[at(positions, mid)] < key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static float ratingSimilarity(int a, int b) {
+        if (a == 0 || b == 0) {
+            return a == b ? 1f : 0.5f;
+        }
+        return 1f - Math.abs(a - b) / 4f;
+    }
+
+    // Rating buckets from the most to the least similar, so the early buckets raise the bar for the rest
+    private static int[][] bucketOrder() {
+        int[][] order = new int[RATING_BUCKETS][];
+        for (int rating = 0; rating < RATING_BUCKETS; rating++) {
+            int current = rating;
+            order[rating] = IntStream.range(0, RATING_BUCKETS).boxed()
+                    .sorted(Comparator.comparingDouble(bucket -> -ratingSimilarity(current, bucket)))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        return order;
+    }
+
+    private static int ratingBucket(Integer rating) {
+        return rating == null ? 0 : Math.max(1, Math.min(5, rating));
+    }
+
+    private static float preparationFeature(int preparationTime) {
+        return (float) Math.log1p(Math.max(0, preparationTime));
+    }
+
+    private static String cuisineKey(String cuisine) {
+        return cuisine == null ? "" : cuisine.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static DishRecommendation recommendation(DishSnapshot dish, float score) {
+        return new DishRecommendation(dish.id(), dish.dishId(), dish.name(), dish.cuisine(), dish.preparationTime(),
+                dish.rating(), Math.round(score * 1000) / 1000.0);
+    }
+
+    private static int capacity(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+
+    // One cuisine's dishes as feature columns, ordered by rating bucket, then preparation time, then id.
+    // neighbourIds holds k dish ids per dish (0 past the end of a short list), best first
+    private static final class CuisineGroup {
+        final long[] ids;
+        final byte[] ratings;
+        final float[] preparation;
+        final long[] chefIds;
+        final int[] bucketStart;
+        final Map<Long, Integer> positions;
+        // Each chef's positions in ascending order, so they keep the rating and preparation time order
+        final Map<Long, int[]> chefPositions;
+        final long[] neighbourIds;
+        final float[] neighbourScores;
+
+        CuisineGroup(List<DishSnapshot> dishes, int neighbours) {
+            dishes.sort(Comparator.comparingInt((DishSnapshot dish) -> ratingBucket(dish.rating()))
+                    .thenComparingDouble(dish -> preparationFeature(dish.preparationTime()))
+                    .thenComparing(DishSnapshot::id));
+            int size = dishes.size();
+            this.ids = new long[size];
+            this.ratings = new byte[size];
+            this.preparation = new float[size];
+            this.chefIds = new long[size];
+            this.bucketStart = new int[RATING_BUCKETS + 1];
+            this.positions = new HashMap<>(capacity(size));
+            for (int i = 0; i < size; i++) {
+                DishSnapshot dish = dishes.get(i);
+                this.ids[i] = dish.id();
+                this.ratings[i] = (byte) ratingBucket(dish.rating());
+                this.preparation[i] = preparationFeature(dish.preparationTime());
+                this.chefIds[i] = dish.chefId() != null ? dish.chefId() : 0L;
+                this.positions.put(dish.id(), i);
+                this.bucketStart[this.ratings[i] + 1]++;
+            }
+            for (int bucket = 1; bucket <= RATING_BUCKETS; bucket++) {
+                this.bucketStart[bucket] += this.bucketStart[bucket - 1];
+            }
+            Map<Long, List<Integer>> byChef = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (this.chefIds[i] != 0) {
+                    byChef.computeIfAbsent(this.chefIds[i], id -> new ArrayList<>()).add(i);
+                }
+            }
+            this.chefPositions = new HashMap<>(capacity(byChef.size()));
+            byChef.forEach((chef, chefPositions) ->
+                    this.chefPositions.put(chef, chefPositions.stream().mapToInt(Integer::intValue).toArray()));
+            this.neighbourIds = new long[size * neighbours];
+            this.neighbourScores = new float[size * neighbours];
+        }
+
+        // Same dishes, neighbour lists to be recomputed
+        CuisineGroup(CuisineGroup source, int neighbours) {
+            this.ids = source.ids;
+            this.ratings = source.ratings;
+            this.preparation = source.preparation;
+            this.chefIds = source.chefIds;
+            this.bucketStart = source.bucketStart;
+            this.positions = source.positions;
+            this.chefPositions = source.chefPositions;
+            this.neighbourIds = new long[this.ids.length * neighbours];
+            this.neighbourScores = new float[this.ids.length * neighbours];
+        }
+
+        boolean isSmall(int neighbours) {
+            return this.ids.length <= neighbours;
+        }
+    }
+
+    // Per chef: the dish count, the best-rated dishes and the L2-normalised cuisine counts (sparse rows), plus the same weights by cuisine
+    // so that a chef is only compared with the chefs sharing a cuisine
+    private static final class ChefProfiles {
+        final long[] chefIds;
+        final Map<Long, Integer> positions;
+        final int[] dishCounts;
+        final long[][] signatureDishes;
+        final int[] vectorStart;
+        final int[] vectorCuisine;
+        final float[] vectorWeight;
+        final int[] postingStart;
+        final int[] postingChef;
+        final float[] postingWeight;
+        final long[] neighbourIds;
+        final float[] neighbourScores;
+
+        ChefProfiles(Collection<DishSnapshot> dishes, int neighbours) {
+            Map<String, Integer> cuisines = new HashMap<>();
+            Map<Long, List<DishSnapshot>> byChef = new HashMap<>();
+            for (DishSnapshot dish : dishes) {
+                if (dish.chefId() != null) {
+                    byChef.computeIfAbsent(dish.chefId(), id -> new ArrayList<>()).add(dish);
+                    cuisines.putIfAbsent(cuisineKey(dish.cuisine()), cuisines.size());
+                }
+            }
+            this.chefIds = byChef.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int chefCount = this.chefIds.length;
+            this.positions = new HashMap<>(capacity(chefCount));
+            this.dishCounts = new int[chefCount];
+            this.signatureDishes = new long[chefCount][];
+            this.vectorStart = new int[chefCount + 1];
+            List<int[]> rows = new ArrayList<>(chefCount);
+            int entries = 0;
+            for (int chef = 0; chef < chefCount; chef++) {
+                List<DishSnapshot> chefDishes = byChef.get(this.chefIds[chef]);
+                this.positions.put(this.chefIds[chef], chef);
+                this.dishCounts[chef] = chefDishes.size();
+                this.signatureDishes[chef] = chefDishes.stream()
+                        .sorted(Comparator.comparingInt((DishSnapshot dish) -> -ratingBucket(dish.rating()))
+                                .thenComparing(DishSnapshot::id))
+                        .limit(SIGNATURE_DISHES)
+                        .mapToLong(DishSnapshot::id)
+                        .toArray();
+                int[] counts = new int[cuisines.size()];
+                for (DishSnapshot dish : chefDishes) {
+                    counts[cuisines.get(cuisineKey(dish.cuisine()))]++;
+                }
+                rows.add(counts);
+                for (int count : counts) {
+                    entries += count > 0 ? 1 : 0;
+                }
+                this.vectorStart[chef + 1] = entries;
+            }
+
+            this.vectorCuisine = new int[entries];
+            this.vectorWeight = new float[entries];
+            this.postingStart = new int[cuisines.size() + 1];
+            for (int chef = 0; chef < chefCount; chef++) {
+                int[] counts = rows.get(chef);
+                double norm = 0;
+                for (int count : counts) {
+                    norm += (double) count * count;
+                }
+                norm = Math.sqrt(norm);
+                int entry = this.vectorStart[chef];
+                for (int cuisine = 0; cuisine < counts.length; cuisine++) {
+                    if (counts[cuisine] > 0) {
+                        this.vectorCuisine[entry] = cuisine;
+                        this.vectorWeight[entry++] = (float) (counts[cuisine] / norm);
+                        this.postingStart[cuisine + 1]++;
+                    }
+                }
+            }
+            for (int cuisine = 1; cuisine < this.postingStart.length; cuisine++) {
+                this.postingStart[cuisine] += this.postingStart[cuisine - 1];
+            }
+            this.postingChef = new int[entries];
+            this.postingWeight = new float[entries];
+            int[] next = Arrays.copyOf(this.postingStart, this.postingStart.length);
+            for (int chef = 0; chef < chefCount; chef++) {
+                for (int entry = this.vectorStart[chef]; entry < this.vectorStart[chef + 1]; entry++) {
+                    int posting = next[this.vectorCuisine[entry]]++;
+                    this.postingChef[posting] = chef;
+                    this.postingWeight[posting] = this.vectorWeight[entry];
+                }
+            }
+            this.neighbourIds = new long[chefCount * neighbours];
+            this.neighbourScores = new float[chefCount * neighbours];
+        }
+    }
+
+    private static final class DishNeighbourTask extends RecursiveAction {
+        private final CuisineGroup group;
+        private final Collection<CuisineGroup> all;
+        private final int neighbours;
+        private final int from;
+        private final int to;
+
+        DishNeighbourTask(CuisineGroup group, Collection<CuisineGroup> all, int neighbours, int from, int to) {
+            this.group = group;
+            this.all = all;
+            this.neighbours = neighbours;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SPLIT_THRESHOLD) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new DishNeighbourTask(this.group, this.all, this.neighbours, this.from, mid),
+                        new DishNeighbourTask(this.group, this.all, this.neighbours, mid, this.to));
+                return;
+            }
+            CuisineGroup group = this.group;
+            boolean small = group.isSmall(this.neighbours);
+            TopK top = new TopK(this.neighbours);
+            for (int i = this.from; i < this.to; i++) {
+                top.reset();
+                collect(group, CUISINE_WEIGHT, group.ratings[i], group.preparation[i], group.chefIds[i],
+                        group.ids[i], top);
+                if (small) {
+                    for (CuisineGroup other : this.all) {
+                        if (other != group) {
+                            collect(other, 0f, group.ratings[i], group.preparation[i], group.chefIds[i],
+                                    group.ids[i], top);
+                        }
+                    }
+                }
+                top.copyTo(group.neighbourIds, group.neighbourScores, i * this.neighbours);
+            }
+        }
+    }
+
+    private static final class ChefNeighbourTask extends RecursiveAction {
+        private final ChefProfiles profiles;
+        private final int neighbours;
+        private final int from;
+        private final int to;
+
+        ChefNeighbourTask(ChefProfiles profiles, int neighbours, int from, int to) {
+            this.profiles = profiles;
+            this.neighbours = neighbours;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SPLIT_THRESHOLD) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new ChefNeighbourTask(this.profiles, this.neighbours, this.from, mid),
+                        new ChefNeighbourTask(this.profiles, this.neighbours, mid, this.to));
+                return;
+            }
+            ChefProfiles profiles = this.profiles;
+            float[] dot = new float[profiles.chefIds.length];
+            int[] touched = new int[profiles.chefIds.length];
+            TopK top = new TopK(this.neighbours);
+            for (int chef = this.from; chef < this.to; chef++) {
+                int touchedCount = 0;
+                for (int entry = profiles.vectorStart[chef]; entry < profiles.vectorStart[chef + 1]; entry++) {
+                    int cuisine = profiles.vectorCuisine[entry];
+                    float weight = profiles.vectorWeight[entry];
+                    int end = profiles.postingStart[cuisine + 1];
+                    for (int posting = profiles.postingStart[cuisine]; posting < end; posting++) {
+                        int other = profiles.postingChef[posting];
+                        if (other != chef) {
+                            if (dot[other] == 0f) {
+                                touched[touchedCount++] = other;
+                            }
+                            dot[other] += weight * profiles.postingWeight[posting];
+                        }
+                    }
+                }
+                top.reset();
+                for (int i = 0; i < touchedCount; i++) {
+                    int other = touched[i];
+                    top.offer(profiles.chefIds[other], Math.min(1f, dot[other]));
+                    dot[other] = 0f;
+                }
+                top.copyTo(profiles.neighbourIds, profiles.neighbourScores, chef * this.neighbours);
+            }
+        }
+    }
+
+    // Bounded best-first list; ties keep the candidate seen first
+    private static final class TopK {
+        final long[] ids;
+        final float[] scores;
+        int size;
+
+        TopK(int capacity) {
+            this.ids = new long[capacity];
+            this.scores = new float[capacity];
+        }
+
+        boolean accepts(float score) {
+            return this.size < this.ids.length || score > this.scores[this.size - 1];
+        }
+
+        void offer(long id, float score) {
+            if (!accepts(score)) {
+                return;
+            }
+            int i = this.size < this.ids.length ? this.size++ : this.size - 1;
+            while (i > 0 && this.scores[i - 1] < score) {
+                this.ids[i] = this.ids[i - 1];
+                this.scores[i] = this.scores[i - 1];
+                i--;
+            }
+            this.ids[i] = id;
+            this.scores[i] = score;
+        }
+
+        void reset() {
+            this.size = 0;
+        }
+
+        void copyTo(long[] ids, float[] scores, int offset) {
+            System.arraycopy(this.ids, 0, ids, offset, this.size);
+            System.arraycopy(this.scores, 0, scores, offset, this.size);
+            Arrays.fill(ids, offset + this.size, offset + this.ids.length, 0L);
+            Arrays.fill(scores, offset + this.size, offset + this.ids.length, 0f);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package mk.ukim.finki.wp.lab.service.search;
+
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.search.DishHit;
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.model.search.SearchResult;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Inverted index over dish name, cuisine and chef name. Documents are append-only: an update
+// tombstones the old slot and appends a new one, so postings stay sorted without re-sorting.
+public class DishSearchIndex {
+    public static final List<String> PREPARATION_TIME_BUCKETS = List.of("0-14", "15-29", "30-59", "60+");
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_DEAD_DOCS_FOR_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Postings> docsByChef = new HashMap<>();
+    private final Map<Long, Integer> docByDishId = new HashMap<>();
+    private final Map<Long, String> chefNames = new HashMap<>();
+    private final BitSet live = new BitSet();
+    // Live dishes per cuisine, rating and preparation time bucket, kept as documents come and go, plus postings
+    // per facet value (tombstones included, like the term postings) for browsing without a text query
+    private final Map<FacetKey, Integer> facetCounts = new HashMap<>();
+    private final Map<String, Postings> docsByCuisine = new HashMap<>();
+    private final Map<String, String> cuisineNames = new HashMap<>();
+    private final Postings[] docsByRatingSlot = newPostings(6);
+    private final Postings[] docsByBucket = newPostings(PREPARATION_TIME_BUCKETS.size());
+    private DishSnapshot[] docs = new DishSnapshot[1024];
+    private int maxDoc = 0;
+
+    public void putChef(Long chefId, String fullName) {
+        this.lock.writeLock().lock();
+        try {
+            String previous = this.chefNames.put(chefId, fullName);
+            if (previous == null || previous.equals(fullName)) {
+                return;
+            }
+            // The chef name is part of every dish document, so the chef's dishes are re-indexed
+            Postings chefDocs = this.docsByChef.remove(chefId);
+            if (chefDocs != null) {
+                for (int i = 0; i < chefDocs.size; i++) {
+                    int doc = chefDocs.docs[i];
+                    if (this.live.get(doc) && chefId.equals(this.docs[doc].chefId())) {
+                        DishSnapshot dish = this.docs[doc];
+                        removeDoc(doc);
+                        addDoc(dish);
+                    }
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeChef(Long chefId) {
+        this.lock.writeLock().lock();
+        try {
+            this.chefNames.remove(chefId);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void put(DishSnapshot dish) {
+        this.lock.writeLock().lock();
+        try {
+            Integer existing = this.docByDishId.get(dish.id());
+            if (existing != null) {
+                removeDoc(existing);
+            }
+            addDoc(dish);
+            compactIfNeeded();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        this.lock.writeLock().lock();
+        try {
+            Integer existing = this.docByDishId.get(id);
+            if (existing != null) {
+                removeDoc(existing);
+                compactIfNeeded();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.docByDishId.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String token = tokens.get(tokens.size() - 1);
+        this.lock.readLock().lock();
+        try {
+            List<String> suggestions = new ArrayList<>(limit);
+            for (Map.Entry<String, Postings> entry : prefixRange(token).entrySet()) {
+                if (suggestions.size() >= limit) {
+                    break;
+                }
+                if (entry.getValue().hasLive(this.live)) {
+                    suggestions.add(entry.getKey());
+                }
+            }
+            return suggestions;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(SearchQuery query) {
+        String cuisine = query.cuisine() != null && !query.cuisine().isBlank() ? query.cuisine() : null;
+        int bucket = query.preparationTime() != null ? PREPARATION_TIME_BUCKETS.indexOf(query.preparationTime()) : -1;
+        Filter filter = new Filter(cuisine != null ? cuisineKey(cuisine) : null, query.rating(), bucket);
+        List<String> tokens = tokenize(query.text());
+        this.lock.readLock().lock();
+        try {
+            if (tokens.isEmpty()) {
+                return browse(filter, query.limit());
+            }
+            int[] matches = null;
+            for (String token : tokens) {
+                int[] docs = prefixDocs(token);
+                matches = matches == null ? docs : intersect(matches, docs);
+                if (matches.length == 0) {
+                    break;
+                }
+            }
+
+            Map<String, Integer> cuisineFacets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Map<Integer, Integer> ratingFacets = new TreeMap<>(Comparator.reverseOrder());
+            int[] bucketCounts = new int[PREPARATION_TIME_BUCKETS.size()];
+            Hits hits = new Hits(query.limit());
+            int total = 0;
+
+            for (int doc : matches) {
+                DishSnapshot dish = this.docs[doc];
+                int dishBucket = bucketOf(dish.preparationTime());
+                boolean cuisineOk = filter.cuisineOk(cuisineKey(dish.cuisine()));
+                boolean ratingOk = filter.ratingOk(dish.rating());
+                boolean bucketOk = filter.bucketOk(dishBucket);
+
+                // Each facet is counted with every filter except its own, so selecting a value
+                // still shows the alternatives for that dimension
+                if (ratingOk && bucketOk && dish.cuisine() != null) {
+                    cuisineFacets.merge(dish.cuisine(), 1, Integer::sum);
+                }
+                if (cuisineOk && bucketOk && dish.rating() != null) {
+                    ratingFacets.merge(dish.rating(), 1, Integer::sum);
+                }
+                if (cuisineOk && ratingOk) {
+                    bucketCounts[dishBucket]++;
+                }
+                if (cuisineOk && ratingOk && bucketOk) {
+                    total++;
+                    hits.offer(dish);
+                }
+            }
+            return new SearchResult(hits.ranked().stream().map(this::toHit).toList(), total, cuisineFacets,
+                    ratingFacets, preparationTimeFacets(bucketCounts));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // A query without text matches every live dish, so the facets come from the maintained counts and the hits
+    // from the shortest postings list among the selected filters, without visiting the rest of the index
+    private SearchResult browse(Filter filter, int limit) {
+        Map<String, Integer> cuisineFacets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<Integer, Integer> ratingFacets = new TreeMap<>(Comparator.reverseOrder());
+        int[] bucketCounts = new int[PREPARATION_TIME_BUCKETS.size()];
+        int total = 0;
+        for (Map.Entry<FacetKey, Integer> entry : this.facetCounts.entrySet()) {
+            FacetKey key = entry.getKey();
+            int count = entry.getValue();
+            boolean cuisineOk = filter.cuisineOk(key.cuisine());
+            boolean ratingOk = filter.ratingOk(key.rating());
+            boolean bucketOk = filter.bucketOk(key.bucket());
+            if (ratingOk && bucketOk && key.cuisine() != null) {
+                cuisineFacets.merge(this.cuisineNames.get(key.cuisine()), count, Integer::sum);
+            }
+            if (cuisineOk && bucketOk && key.rating() != null) {
+                ratingFacets.merge(key.rating(), count, Integer::sum);
+            }
+            if (cuisineOk && ratingOk) {
+                bucketCounts[key.bucket()] += count;
+            }
+            if (cuisineOk && ratingOk && bucketOk) {
+                total += count;
+            }
+        }
+
+        Hits hits = new Hits(limit);
+        Postings driver = null;
+        if (filter.cuisine() != null) {
+            driver = this.docsByCuisine.getOrDefault(filter.cuisine(), Postings.EMPTY);
+        }
+        if (filter.rating() != null) {
+            driver = shorter(driver, this.docsByRatingSlot[ratingSlot(filter.rating())]);
+        }
+        if (filter.bucket() >= 0) {
+            driver = shorter(driver, this.docsByBucket[filter.bucket()]);
+        }
+        if (driver != null) {
+            for (int i = 0; i < driver.size && total > 0; i++) {
+                offerIfMatching(hits, driver.docs[i], filter);
+            }
+        } else {
+            // Best-rated first, so the walk stops as soon as the list is full
+            for (int slot = 5; slot >= 0 && !hits.isFull(); slot--) {
+                Postings postings = this.docsByRatingSlot[slot];
+                for (int i = 0; i < postings.size && !hits.isFull(); i++) {
+                    offerIfMatching(hits, postings.docs[i], filter);
+                }
+            }
+        }
+        return new SearchResult(hits.ranked().stream().map(this::toHit).toList(), total, cuisineFacets,
+                ratingFacets, preparationTimeFacets(bucketCounts));
+    }
+
+    private void offerIfMatching(Hits hits, int doc, Filter filter) {
+        if (!this.live.get(doc)) {
+            return;
+        }
+        DishSnapshot dish = this.docs[doc];
+        if (filter.cuisineOk(cuisineKey(dish.cuisine())) && filter.ratingOk(dish.rating())
+                && filter.bucketOk(bucketOf(dish.preparationTime()))) {
+            hits.offer(dish);
+        }
+    }
+
+    private static Map<String, Integer> preparationTimeFacets(int[] bucketCounts) {
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        for (int i = 0; i < bucketCounts.length; i++) {
+            facets.put(PREPARATION_TIME_BUCKETS.get(i), bucketCounts[i]);
+        }
+        return facets;
+    }
+
+    private DishHit toHit(DishSnapshot dish) {
+        String chefName = dish.chefId() != null ? this.chefNames.get(dish.chefId()) : null;
+        return new DishHit(dish.id(), dish.dishId(), dish.name(), dish.cuisine(), dish.preparationTime(),
+                dish.rating(), chefName);
+    }
+
+    // Live documents containing a term that starts with the token, ascending
+    private int[] prefixDocs(String token) {
+        Collection<Postings> postings = prefixRange(token).values();
+        int size = 0;
+        for (Postings termDocs : postings) {
+            size += termDocs.size;
+        }
+        int[] docs = new int[size];
+        int count = 0;
+        for (Postings termDocs : postings) {
+            for (int i = 0; i < termDocs.size; i++) {
+                if (this.live.get(termDocs.docs[i])) {
+                    docs[count++] = termDocs.docs[i];
+                }
+            }
+        }
+        // A document holds each term once, but may hold several terms sharing the prefix
+        if (postings.size() > 1) {
+            Arrays.sort(docs, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || docs[unique - 1] != docs[i]) {
+                    docs[unique++] = docs[i];
+                }
+            }
+            count = unique;
+        }
+        return count == docs.length ? docs : Arrays.copyOf(docs, count);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private SortedMap<String, Postings> prefixRange(String token) {
+        return this.terms.subMap(token, token + Character.MAX_VALUE);
+    }
+
+    private void addDoc(DishSnapshot dish) {
+        int doc = this.maxDoc++;
+        if (doc == this.docs.length) {
+            this.docs = Arrays.copyOf(this.docs, this.docs.length * 2);
+        }
+        this.docs[doc] = dish;
+        this.live.set(doc);
+        this.docByDishId.put(dish.id(), doc);
+
+        Set<String> tokens = new HashSet<>(tokenize(dish.name()));
+        tokens.addAll(tokenize(dish.cuisine()));
+        if (dish.chefId() != null) {
+            tokens.addAll(tokenize(this.chefNames.get(dish.chefId())));
+            this.docsByChef.computeIfAbsent(dish.chefId(), id -> new Postings()).add(doc);
+        }
+        for (String token : tokens) {
+            this.terms.computeIfAbsent(token, t -> new Postings()).add(doc);
+        }
+
+        String cuisine = cuisineKey(dish.cuisine());
+        if (cuisine != null) {
+            this.docsByCuisine.computeIfAbsent(cuisine, key -> new Postings()).add(doc);
+            this.cuisineNames.putIfAbsent(cuisine, dish.cuisine());
+        }
+        this.docsByRatingSlot[ratingSlot(dish.rating())].add(doc);
+        this.docsByBucket[bucketOf(dish.preparationTime())].add(doc);
+        this.facetCounts.merge(FacetKey.of(dish), 1, Integer::sum);
+    }
+
+    private void removeDoc(int doc) {
+        DishSnapshot dish = this.docs[doc];
+        this.live.clear(doc);
+        this.docByDishId.remove(dish.id());
+        this.facetCounts.computeIfPresent(FacetKey.of(dish), (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Tombstoned slots stay in the postings until enough of them pile up to be worth a rewrite
+    private void compactIfNeeded() {
+        int dead = this.maxDoc - this.docByDishId.size();
+        if (dead < MIN_DEAD_DOCS_FOR_COMPACTION || dead < this.docByDishId.size()) {
+            return;
+        }
+        DishSnapshot[] previous = this.docs;
+        int previousMaxDoc = this.maxDoc;
+        BitSet previousLive = (BitSet) this.live.clone();
+
+        this.terms.clear();
+        this.docsByChef.clear();
+        this.docsByCuisine.clear();
+        this.cuisineNames.clear();
+        this.facetCounts.clear();
+        for (int i = 0; i < this.docsByRatingSlot.length; i++) {
+            this.docsByRatingSlot[i] = new Postings();
+        }
+        for (int i = 0; i < this.docsByBucket.length; i++) {
+            this.docsByBucket[i] = new Postings();
+        }
+        this.docByDishId.clear();
+        this.live.clear();
+        this.docs = new DishSnapshot[Math.max(1024, previousLive.cardinality())];
+        this.maxDoc = 0;
+        for (int doc = previousLive.nextSetBit(0); doc >= 0 && doc < previousMaxDoc; doc = previousLive.nextSetBit(doc + 1)) {
+            addDoc(previous[doc]);
+        }
+    }
+
+    static int bucketOf(int preparationTime) {
+        if (preparationTime < 15) {
+            return 0;
+        } else if (preparationTime < 30) {
+            return 1;
+        } else if (preparationTime < 60) {
+            return 2;
+        }
+        return 3;
+    }
+
+    // Hits are ranked by rating, best first; slot 0 holds unrated dishes
+    static int ratingSlot(Integer rating) {
+        return rating != null ? Math.max(0, Math.min(5, rating)) : 0;
+    }
+
+    static String cuisineKey(String cuisine) {
+        return cuisine != null ? cuisine.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static Postings[] newPostings(int count) {
+        Postings[] postings = new Postings[count];
+        for (int i = 0; i < count; i++) {
+            postings[i] = new Postings();
+        }
+        return postings;
+    }
+
+    private static Postings shorter(Postings a, Postings b) {
+        return a == null || b.size < a.size ? b : a;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Filter(String cuisine, Integer rating, int bucket) {
+        boolean cuisineOk(String cuisineKey) {
+            return this.cuisine == null || this.cuisine.equals(cuisineKey);
+        }
+
+        boolean ratingOk(Integer rating) {
+            return this.rating == null || this.rating.equals(rating);
+        }
+
+        boolean bucketOk(int bucket) {
+            return this.bucket < 0 || this.bucket == bucket;
+        }
+    }
+
+    private record FacetKey(String cuisine, Integer rating, int bucket) {
+        static FacetKey of(DishSnapshot dish) {
+            return new FacetKey(cuisineKey(dish.cuisine()), dish.rating(), bucketOf(dish.preparationTime()));
+        }
+    }
+
+    // Up to limit hits per rating slot in index order, read out best slot first
+    private static final class Hits {
+        private final int limit;
+        private final List<List<DishSnapshot>> bySlot = new ArrayList<>(6);
+        private int size;
+
+        Hits(int limit) {
+            this.limit = limit;
+            for (int i = 0; i <= 5; i++) {
+                this.bySlot.add(new ArrayList<>());
+            }
+        }
+
+        void offer(DishSnapshot dish) {
+            List<DishSnapshot> slot = this.bySlot.get(ratingSlot(dish.rating()));
+            if (slot.size() < this.limit) {
+                slot.add(dish);
+                this.size++;
+            }
+        }
+
+        // Only meaningful while slots are filled best first
+        boolean isFull() {
+            return this.size >= this.limit;
+        }
+
+        List<DishSnapshot> ranked() {
+            List<DishSnapshot> ranked = new ArrayList<>(this.limit);
+            for (int slot = 5; slot >= 0 && ranked.size() < this.limit; slot--) {
+                List<DishSnapshot> slotHits = this.bySlot.get(slot);
+                ranked.addAll(slotHits.subList(0, Math.min(slotHits.size(), this.limit - ranked.size())));
+            }
+            return ranked;
+        }
+    }
+
+    // Sorted int list; a BitSet per term would cost maxDoc bits even for the rarest term
+    private static final class Postings {
+        private static final Postings EMPTY = new Postings();
+
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (this.size == this.docs.length) {
+                this.docs = Arrays.copyOf(this.docs, this.size * 2);
+            }
+            this.docs[this.size++] = doc;
+        }
+
+        boolean hasLive(BitSet live) {
+            for (int i = 0; i < this.size; i++) {
+                if (live.get(this.docs[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
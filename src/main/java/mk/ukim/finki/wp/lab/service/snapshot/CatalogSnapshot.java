@@ -0,0 +1,416 @@
+package mk.ukim.finki.wp.lab.service.snapshot;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+// Immutable, column-oriented copy of the catalogue for the public read pages. Dishes are stored sorted by id
+// in parallel columns: the numeric ones in (optionally direct) buffers, cuisines as codes into a shared
+// dictionary. Chef rows are few and stay in plain arrays. A change produces a new snapshot; readers never lock.
+public final class CatalogSnapshot {
+    private static final long NO_CHEF = 0L;
+    // The rating column holds 0 for unrated and 1..5; anything else is marked and kept exactly on the side
+    private static final byte OUT_OF_RANGE = -1;
+
+    private final int dishCount;
+    private final LongBuffer dishIds;
+    private final IntBuffer preparationTimes;
+    private final ByteBuffer ratings;
+    private final IntBuffer cuisineCodes;
+    private final LongBuffer dishChefIds;
+    private final String[] dishKeys;
+    private final String[] names;
+    private final String[] cuisines;
+    private final int[][] positionsByRating;
+    private final Map<Integer, Integer> outOfRangeRatings;
+    private final boolean offHeap;
+
+    private final long[] chefIds;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final String[] bios;
+    private final int[] chefDishCounts;
+    private final int[] chefRanking;
+
+    private CatalogSnapshot(Builder builder) {
+        int n = builder.dishCount;
+        this.dishCount = n;
+        this.offHeap = builder.offHeap;
+        this.dishIds = allocate(n * Long.BYTES).asLongBuffer().put(builder.dishIds, 0, n).flip();
+        this.preparationTimes = allocate(n * Integer.BYTES).asIntBuffer().put(builder.preparationTimes, 0, n).flip();
+        this.ratings = allocate(n).put(builder.ratings, 0, n).flip();
+        this.cuisineCodes = allocate(n * Integer.BYTES).asIntBuffer().put(builder.cuisineCodes, 0, n).flip();
+        this.dishChefIds = allocate(n * Long.BYTES).asLongBuffer().put(builder.dishChefIds, 0, n).flip();
+        this.dishKeys = Arrays.copyOf(builder.dishKeys, n);
+        this.names = Arrays.copyOf(builder.names, n);
+        this.cuisines = builder.cuisines.toArray(String[]::new);
+        this.outOfRangeRatings = Map.copyOf(builder.outOfRangeRatings);
+
+        int[] ratingSizes = new int[6];
+        for (int i = 0; i < n; i++) {
+            if (builder.ratings[i] != OUT_OF_RANGE) {
+                ratingSizes[builder.ratings[i]]++;
+            }
+        }
+        this.positionsByRating = new int[6][];
+        for (int rating = 0; rating <= 5; rating++) {
+            this.positionsByRating[rating] = new int[ratingSizes[rating]];
+        }
+        int[] filled = new int[6];
+        for (int i = 0; i < n; i++) {
+            int rating = builder.ratings[i];
+            if (rating != OUT_OF_RANGE) {
+                this.positionsByRating[rating][filled[rating]++] = i;
+            }
+        }
+
+        List<ChefSnapshot> chefs = new ArrayList<>(builder.chefs.values());
+        int c = chefs.size();
+        this.chefIds = new long[c];
+        this.firstNames = new String[c];
+        this.lastNames = new String[c];
+        this.bios = new String[c];
+        for (int i = 0; i < c; i++) {
+            ChefSnapshot chef = chefs.get(i);
+            this.chefIds[i] = chef.id();
+            this.firstNames[i] = chef.firstName();
+            this.lastNames[i] = chef.lastName();
+            this.bios[i] = chef.bio();
+        }
+        // Counted from the dish column, so the snapshot is consistent with itself even before reconciliation
+        this.chefDishCounts = new int[c];
+        for (int i = 0; i < n; i++) {
+            int chef = chefPosition(builder.dishChefIds[i]);
+            if (chef >= 0) {
+                this.chefDishCounts[chef]++;
+            }
+        }
+        this.chefRanking = rank(this.chefIds, this.chefDishCounts);
+    }
+
+    public static CatalogSnapshot empty(boolean offHeap) {
+        return new Builder(offHeap, 0).build();
+    }
+
+    public int dishCount() {
+        return this.dishCount;
+    }
+
+    public int chefCount() {
+        return this.chefIds.length;
+    }
+
+    public boolean isOffHeap() {
+        return this.offHeap;
+    }
+
+    // Keyset page of dishes with id > after, optionally restricted to one rating
+    public List<DishSummary> dishesAfter(Integer rating, long after, int limit) {
+        List<DishSummary> page = new ArrayList<>(limit);
+        if (rating == null) {
+            for (int i = firstDishAfter(after); i < this.dishCount && page.size() < limit; i++) {
+                page.add(new DishView(i));
+            }
+            return page;
+        }
+        if (rating < 1 || rating > 5) {
+            int first = firstDishAfter(after);
+            this.outOfRangeRatings.entrySet().stream()
+                    .filter(entry -> entry.getValue().equals(rating) && entry.getKey() >= first)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .limit(limit)
+                    .forEach(position -> page.add(new DishView(position)));
+            return page;
+        }
+        int[] positions = this.positionsByRating[rating];
+        // Positions are ascending, and so are the ids they point at
+        int from = Arrays.binarySearch(positions, firstDishAfter(after));
+        for (int i = from >= 0 ? from : -from - 1; i < positions.length && page.size() < limit; i++) {
+            page.add(new DishView(positions[i]));
+        }
+        return page;
+    }
+
+    // Chefs ordered by dish count descending, then id, strictly after the given cursor
+    public List<ChefSummary> chefsRankedAfter(int afterDishCount, long afterId, int limit) {
+        List<ChefSummary> page = new ArrayList<>(limit);
+        int low = 0;
+        int high = this.chefRanking.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int chef = this.chefRanking[mid];
+            int count = this.chefDishCounts[chef];
+            boolean beforeCursor = count > afterDishCount || (count == afterDishCount && this.chefIds[chef] <= afterId);
+            if (beforeCursor) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < this.chefRanking.length && page.size() < limit; i++) {
+            page.add(new ChefView(this.chefRanking[i]));
+        }
+        return page;
+    }
+
+    public Optional<ChefSummary> findChef(long id) {
+        int chef = chefPosition(id);
+        return chef >= 0 ? Optional.of(new ChefView(chef)) : Optional.empty();
+    }
+
+    // Approximate retained size: buffers, reference arrays and the distinct strings they point at
+    public long estimatedBytes() {
+        long bytes = (long) this.dishCount * (Long.BYTES * 2 + Integer.BYTES * 2 + 1);
+        bytes += 8L * this.dishCount * 2 + 4L * this.dishCount;
+        for (int i = 0; i < this.dishCount; i++) {
+            bytes += stringBytes(this.dishKeys[i]) + stringBytes(this.names[i]);
+        }
+        for (String cuisine : this.cuisines) {
+            bytes += stringBytes(cuisine);
+        }
+        for (int i = 0; i < this.chefIds.length; i++) {
+            bytes += 8 + 4 + 4 + 3 * 8 + stringBytes(this.firstNames[i]) + stringBytes(this.lastNames[i])
+                    + stringBytes(this.bios[i]);
+        }
+        return bytes;
+    }
+
+    // Copy-on-write: merges the changed rows (null value = deleted) into a new snapshot in one pass
+    public CatalogSnapshot apply(Map<Long, DishSnapshot> dishChanges, Map<Long, ChefSnapshot> chefChanges) {
+        Builder builder = new Builder(this.offHeap, this.dishCount + dishChanges.size());
+        for (int i = 0; i < this.chefIds.length; i++) {
+            builder.addChef(new ChefSnapshot(this.chefIds[i], this.firstNames[i], this.lastNames[i], this.bios[i]));
+        }
+        chefChanges.forEach((id, chef) -> {
+            if (chef != null) {
+                builder.addChef(chef);
+            } else {
+                builder.removeChef(id);
+            }
+        });
+
+        long[] changedIds = dishChanges.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int changed = 0;
+        for (int i = 0; i < this.dishCount; i++) {
+            long id = this.dishIds.get(i);
+            while (changed < changedIds.length && changedIds[changed] < id) {
+                builder.addDish(dishChanges.get(changedIds[changed++]));
+            }
+            if (changed < changedIds.length && changedIds[changed] == id) {
+                builder.addDish(dishChanges.get(changedIds[changed++]));
+                continue;
+            }
+            builder.addDish(id, this.dishKeys[i], this.names[i], cuisineAt(i), this.preparationTimes.get(i),
+                    ratingAt(i), this.dishChefIds.get(i));
+        }
+        while (changed < changedIds.length) {
+            builder.addDish(dishChanges.get(changedIds[changed++]));
+        }
+        return builder.build();
+    }
+
+    private String cuisineAt(int position) {
+        int code = this.cuisineCodes.get(position);
+        return code >= 0 ? this.cuisines[code] : null;
+    }
+
+    private Integer ratingAt(int position) {
+        byte rating = this.ratings.get(position);
+        if (rating == OUT_OF_RANGE) {
+            return this.outOfRangeRatings.get(position);
+        }
+        return rating == 0 ? null : (int) rating;
+    }
+
+    private int firstDishAfter(long after) {
+        int low = 0;
+        int high = this.dishCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.dishIds.get(mid) <= after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int chefPosition(long id) {
+        return id == NO_CHEF ? -1 : Math.max(-1, Arrays.binarySearch(this.chefIds, id));
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        return (this.offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    private static int[] rank(long[] chefIds, int[] dishCounts) {
+        Integer[] order = new Integer[chefIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> dishCounts[a] != dishCounts[b]
+                ? Integer.compare(dishCounts[b], dishCounts[a])
+                : Long.compare(chefIds[a], chefIds[b]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    // Views read straight from the columns; a page allocates one small object per row and nothing else
+    private final class DishView implements DishSummary {
+        private final int position;
+
+        private DishView(int position) {
+            this.position = position;
+        }
+
+        public Long getId() {
+            return dishIds.get(this.position);
+        }
+
+        public String getDishId() {
+            return dishKeys[this.position];
+        }
+
+        public String getName() {
+            return names[this.position];
+        }
+
+        public String getCuisine() {
+            return cuisineAt(this.position);
+        }
+
+        public int getPreparationTime() {
+            return preparationTimes.get(this.position);
+        }
+
+        public Integer getRating() {
+            return ratingAt(this.position);
+        }
+    }
+
+    private final class ChefView implements ChefSummary {
+        private final int position;
+
+        private ChefView(int position) {
+            this.position = position;
+        }
+
+        public Long getId() {
+            return chefIds[this.position];
+        }
+
+        public String getFirstName() {
+            return firstNames[this.position];
+        }
+
+        public String getLastName() {
+            return lastNames[this.position];
+        }
+
+        public String getBio() {
+            return bios[this.position];
+        }
+
+        public int getDishCount() {
+            return chefDishCounts[this.position];
+        }
+    }
+
+    // Dishes must be added in ascending id order; the columns grow like an ArrayList until build()
+    public static final class Builder {
+        private final boolean offHeap;
+        private final Map<String, Integer> cuisineCodesByName = new HashMap<>();
+        private final List<String> cuisines = new ArrayList<>();
+        private final TreeMap<Long, ChefSnapshot> chefs = new TreeMap<>();
+        private final Map<Integer, Integer> outOfRangeRatings = new HashMap<>();
+        private int dishCount;
+        private long[] dishIds;
+        private int[] preparationTimes;
+        private byte[] ratings;
+        private int[] cuisineCodes;
+        private long[] dishChefIds;
+        private String[] dishKeys;
+        private String[] names;
+
+        public Builder(boolean offHeap, int expectedDishes) {
+            int capacity = Math.max(16, expectedDishes);
+            this.offHeap = offHeap;
+            this.dishIds = new long[capacity];
+            this.preparationTimes = new int[capacity];
+            this.ratings = new byte[capacity];
+            this.cuisineCodes = new int[capacity];
+            this.dishChefIds = new long[capacity];
+            this.dishKeys = new String[capacity];
+            this.names = new String[capacity];
+        }
+
+        public Builder addChef(ChefSnapshot chef) {
+            this.chefs.put(chef.id(), chef);
+            return this;
+        }
+
+        public Builder removeChef(Long id) {
+            this.chefs.remove(id);
+            return this;
+        }
+
+        public Builder addDish(DishSnapshot dish) {
+            if (dish != null) {
+                addDish(dish.id(), dish.dishId(), dish.name(), dish.cuisine(), dish.preparationTime(), dish.rating(),
+                        dish.chefId() != null ? dish.chefId() : NO_CHEF);
+            }
+            return this;
+        }
+
+        private void addDish(long id, String dishKey, String name, String cuisine, int preparationTime, Integer rating,
+                             long chefId) {
+            if (this.dishCount == this.dishIds.length) {
+                int capacity = this.dishCount * 2;
+                this.dishIds = Arrays.copyOf(this.dishIds, capacity);
+                this.preparationTimes = Arrays.copyOf(this.preparationTimes, capacity);
+                this.ratings = Arrays.copyOf(this.ratings, capacity);
+                this.cuisineCodes = Arrays.copyOf(this.cuisineCodes, capacity);
+                this.dishChefIds = Arrays.copyOf(this.dishChefIds, capacity);
+                this.dishKeys = Arrays.copyOf(this.dishKeys, capacity);
+                this.names = Arrays.copyOf(this.names, capacity);
+            }
+            int i = this.dishCount++;
+            this.dishIds[i] = id;
+            this.dishKeys[i] = dishKey;
+            this.names[i] = name;
+            this.cuisineCodes[i] = cuisine != null
+                    ? this.cuisineCodesByName.computeIfAbsent(cuisine, key -> {
+                        this.cuisines.add(key);
+                        return this.cuisines.size() - 1;
+                    })
+                    : -1;
+            this.preparationTimes[i] = preparationTime;
+            // The services only accept 1..5, but rows written past them keep their value instead of wrapping
+            if (rating == null) {
+                this.ratings[i] = 0;
+            } else if (rating >= 1 && rating <= 5) {
+                this.ratings[i] = rating.byteValue();
+            } else {
+                this.ratings[i] = OUT_OF_RANGE;
+                this.outOfRangeRatings.put(i, rating);
+            }
+            this.dishChefIds[i] = chefId;
+        }
+
+        public CatalogSnapshot build() {
+            return new CatalogSnapshot(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package mk.ukim.finki.wp.lab.service.stats;
+
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.stats.CatalogOverview;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.model.stats.CuisineStats;
+
+import java.util.*;
+
+// Running counts and preparation-time sums, so reads never touch the dishes table. A change takes its before
+// state out of the groups and adds its after state, so nothing is kept per dish.
+public class CatalogStatistics {
+    private final Aggregate total = new Aggregate();
+    private final Map<String, Aggregate> cuisines = new HashMap<>();
+    private final Map<Long, Aggregate> chefs = new HashMap<>();
+
+    // before is null for a new dish, after is null once the dish is deleted
+    public synchronized void apply(DishSnapshot before, DishSnapshot after) {
+        if (before != null) {
+            apply(before, -1);
+        }
+        if (after != null) {
+            apply(after, 1);
+        }
+    }
+
+    public synchronized Map<Integer, Long> ratingCounts() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int rating = 1; rating <= 5; rating++) {
+            counts.put(rating, this.total.ratings[rating]);
+        }
+        return counts;
+    }
+
+    public synchronized ChefStats chefStats(Long chefId) {
+        Aggregate chef = this.chefs.get(chefId);
+        if (chef == null) {
+            return new ChefStats(chefId, 0, 0, new long[6]);
+        }
+        return new ChefStats(chefId, chef.dishes, chef.averagePreparationTime(), chef.ratings.clone());
+    }
+
+    public synchronized CatalogOverview overview() {
+        List<CuisineStats> cuisineStats = new ArrayList<>(this.cuisines.size());
+        this.cuisines.forEach((cuisine, aggregate) ->
+                cuisineStats.add(new CuisineStats(cuisine, aggregate.dishes, aggregate.averagePreparationTime())));
+        cuisineStats.sort(Comparator.comparingLong(CuisineStats::dishes).reversed().thenComparing(CuisineStats::cuisine));
+        return new CatalogOverview(this.total.dishes, this.total.averagePreparationTime(), this.total.ratings[0],
+                ratingCounts(), cuisineStats);
+    }
+
+    private void apply(DishSnapshot dish, long dishes) {
+        int slot = dish.rating() != null && dish.rating() >= 1 && dish.rating() <= 5 ? dish.rating() : 0;
+        long preparationTime = dishes * dish.preparationTime();
+        String cuisine = dish.cuisine() != null ? dish.cuisine() : "";
+        this.total.apply(slot, dishes, preparationTime);
+        if (this.cuisines.computeIfAbsent(cuisine, key -> new Aggregate()).apply(slot, dishes, preparationTime)) {
+            this.cuisines.remove(cuisine);
+        }
+        if (dish.chefId() != null
+                && this.chefs.computeIfAbsent(dish.chefId(), key -> new Aggregate()).apply(slot, dishes, preparationTime)) {
+            this.chefs.remove(dish.chefId());
+        }
+    }
+
+    private static final class Aggregate {
+        private long dishes;
+        private long preparationTimeSum;
+        private final long[] ratings = new long[6];
+
+        // Returns true once the group is empty so it can be dropped
+        boolean apply(int slot, long dishes, long preparationTime) {
+            this.dishes += dishes;
+            this.preparationTimeSum += preparationTime;
+            this.ratings[slot] += dishes;
+            return this.dishes <= 0;
+        }
+
+        double averagePreparationTime() {
+            return this.dishes > 0 ? (double) this.preparationTimeSum / this.dishes : 0;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package mk.ukim.finki.wp.lab.service.writebehind;
+
+import mk.ukim.finki.wp.lab.model.writebehind.PendingWrite;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Bounded queue of pending edits keyed by entity. A second edit to a queued entity replaces the first in place,
+// keeping its position and age, so capacity counts entities rather than submissions. Drained edits stay visible
+// as in-flight until the writer completes them, so overlay reads never fall back to the old row mid-flush.
+// An edit that could not be written is held as failed until someone resolves it, instead of being dropped.
+public class CoalescingWriteQueue {
+    public enum Offer { QUEUED, COALESCED, CHAINED, CONFLICT, FULL }
+
+    private final int capacity;
+    private final Consumer<PendingWrite> onAccept;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, PendingWrite> inFlight = new HashMap<>();
+    private final Map<String, PendingWrite> failed = new HashMap<>();
+
+    // onAccept runs under the queue lock, so anything it records (the journal) sees edits in queue order
+    public CoalescingWriteQueue(int capacity, Consumer<PendingWrite> onAccept) {
+        this.capacity = capacity;
+        this.onAccept = onAccept;
+    }
+
+    // Accepts an edit made against the expected version (null skips the check). The edit lands on top of whatever
+    // is queued or being written for the entity, so expected must be that edit's revision, or the stored version
+    // when there is none. A replacing edit keeps the base version of the one it replaces and moves the revision
+    // on by one, so forms rendered before and after the replacement are told apart. An edit made against an
+    // in-flight one is queued behind it, based on the revision the in-flight edit writes.
+    public Offer offer(PendingWrite write, Long expected, long stored, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (true) {
+                Entry existing = this.pending.get(write.key());
+                if (existing != null) {
+                    if (expected != null && !expected.equals(existing.write.revision())) {
+                        return Offer.CONFLICT;
+                    }
+                    replace(existing, write.withVersions(existing.write.version(), existing.write.revision() + 1));
+                    return Offer.COALESCED;
+                }
+                PendingWrite writing = this.inFlight.get(write.key());
+                long base = writing != null ? writing.revision() : stored;
+                if (expected != null && expected != base) {
+                    return Offer.CONFLICT;
+                }
+                if (this.pending.size() < this.capacity) {
+                    enqueue(write.withVersions(base, base + 1));
+                    return writing != null ? Offer.CHAINED : Offer.QUEUED;
+                }
+                if (remaining <= 0) {
+                    return Offer.FULL;
+                }
+                remaining = this.notFull.awaitNanos(remaining);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Puts back edits read from the journal, which already carry their versions. A later edit to the same entity
+    // keeps the base version of the first, as it did when it was accepted.
+    public Offer requeue(PendingWrite write, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            Entry existing = this.pending.get(write.key());
+            if (existing != null) {
+                replace(existing, write.withVersions(existing.write.version(), write.revision()));
+                return Offer.COALESCED;
+            }
+            while (this.pending.size() >= this.capacity) {
+                if (remaining <= 0) {
+                    return Offer.FULL;
+                }
+                remaining = this.notFull.awaitNanos(remaining);
+            }
+            enqueue(write);
+            return Offer.QUEUED;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Waits up to the timeout for a first edit, then hands over up to max of the oldest ones
+    public List<PendingWrite> drain(int max, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.pending.isEmpty()) {
+                if (remaining <= 0) {
+                    return List.of();
+                }
+                remaining = this.notEmpty.awaitNanos(remaining);
+            }
+            List<PendingWrite> batch = new ArrayList<>(Math.min(max, this.pending.size()));
+            Iterator<Entry> entries = this.pending.values().iterator();
+            while (entries.hasNext() && batch.size() < max) {
+                PendingWrite write = entries.next().write;
+                // An edit chained behind one that is still being written waits for the next drain
+                if (this.inFlight.containsKey(write.key())) {
+                    continue;
+                }
+                entries.remove();
+                this.inFlight.put(write.key(), write);
+                batch.add(write);
+            }
+            this.notFull.signalAll();
+            return batch;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void complete(List<PendingWrite> batch) {
+        this.lock.lock();
+        try {
+            batch.forEach(write -> this.inFlight.remove(write.key(), write));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Keeps an edit the writer could not apply; call before complete so it is never missing from both
+    public void fail(PendingWrite write) {
+        this.lock.lock();
+        try {
+            this.failed.put(write.key(), write);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Optional<PendingWrite> failed(String key) {
+        this.lock.lock();
+        try {
+            return Optional.ofNullable(this.failed.get(key));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int failedCount() {
+        this.lock.lock();
+        try {
+            return this.failed.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Optional<PendingWrite> get(String key) {
+        this.lock.lock();
+        try {
+            Entry entry = this.pending.get(key);
+            return Optional.ofNullable(entry != null ? entry.write : this.inFlight.get(key));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Drops a queued or failed edit, e.g. when the entity is deleted; an edit already being flushed cannot be recalled
+    public boolean remove(String key) {
+        this.lock.lock();
+        try {
+            this.failed.remove(key);
+            boolean removed = this.pending.remove(key) != null;
+            if (removed) {
+                this.notFull.signalAll();
+            }
+            return removed;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Runs the action on every unflushed edit (in-flight first) while holding the lock, so nothing can be accepted meanwhile
+    public void withUnflushed(Consumer<Collection<PendingWrite>> action) {
+        this.lock.lock();
+        try {
+            List<PendingWrite> writes = new ArrayList<>(this.inFlight.values());
+            this.pending.values().forEach(entry -> writes.add(entry.write));
+            action.accept(writes);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.pending.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    public double oldestAgeSeconds() {
+        this.lock.lock();
+        try {
+            if (this.pending.isEmpty()) {
+                return 0;
+            }
+            long queuedAt = this.pending.values().iterator().next().queuedAt;
+            return (System.nanoTime() - queuedAt) / 1e9;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // An accepted edit supersedes a failed one for the same entity, which its editor was shown as a conflict
+    private void replace(Entry entry, PendingWrite write) {
+        this.onAccept.accept(write);
+        entry.write = write;
+        this.failed.remove(write.key());
+    }
+
+    private void enqueue(PendingWrite write) {
+        this.onAccept.accept(write);
+        this.pending.put(write.key(), new Entry(write, System.nanoTime()));
+        this.failed.remove(write.key());
+        this.notEmpty.signal();
+    }
+
+    private static final class Entry {
+        private PendingWrite write;
+        private final long queuedAt;
+
+        private Entry(PendingWrite write, long queuedAt) {
+            this.write = write;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
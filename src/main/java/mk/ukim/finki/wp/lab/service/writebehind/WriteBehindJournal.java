@@ -0,0 +1,103 @@
+package mk.ukim.finki.wp.lab.service.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.wp.lab.model.writebehind.PendingWrite;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Append-only log of accepted edits, one JSON object per line. Replaying it in order and letting later
+// edits win restores the queue after a crash; it is rewritten with just the unflushed edits after each flush.
+public class WriteBehindJournal implements Closeable {
+    private final Path path;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+
+    public WriteBehindJournal(Path path, boolean fsync, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = open(path);
+    }
+
+    public List<PendingWrite> replay() throws IOException {
+        List<PendingWrite> writes = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    writes.add(this.objectMapper.readValue(line, PendingWrite.class));
+                } catch (IOException e) {
+                    // A torn last line from a crash mid-append; everything before it is intact
+                    break;
+                }
+            }
+        }
+        return writes;
+    }
+
+    public synchronized void append(PendingWrite write) {
+        try {
+            writeLine(this.channel, write);
+            if (this.fsync) {
+                this.channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the write-behind journal " + this.path, e);
+        }
+    }
+
+    public synchronized void rewrite(Collection<PendingWrite> writes) {
+        try {
+            Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (PendingWrite write : writes) {
+                    writeLine(out, write);
+                }
+                out.force(false);
+            }
+            this.channel.close();
+            Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = open(this.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite the write-behind journal " + this.path, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    private void writeLine(FileChannel target, PendingWrite write) throws IOException {
+        byte[] json = this.objectMapper.writeValueAsBytes(write);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -8,22 +8,26 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
 
 import org.thymeleaf.context.WebContext;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-import org.thymeleaf.web.IWebExchange;
-import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
 import java.io.IOException;
 
 @WebServlet(name = "ChefDetailsServlet", urlPatterns = "/chefDetails")
 public class ChefDetailsServlet extends HttpServlet {
+    private static final int RECOMMENDATIONS = 5;
+
     private final ChefService chefService;
-    private final SpringTemplateEngine templateEngine;
+    private final RecommendationService recommendationService;
+    private final ServletPageRenderer renderer;
 
-    public ChefDetailsServlet(ChefService chefService, SpringTemplateEngine templateEngine) {
+    public ChefDetailsServlet(ChefService chefService, RecommendationService recommendationService,
+                              ServletPageRenderer renderer) {
         this.chefService = chefService;
-        this.templateEngine = templateEngine;
+        this.recommendationService = recommendationService;
+        this.renderer = renderer;
     }
 
     @Override
@@ -34,35 +38,22 @@ public class ChefDetailsServlet extends HttpServlet {
 
         String dishId = req.getParameter("dishId");
 
-        Chef chef = this.chefService.addDishToChef(chefId, dishId);
-
-        resp.setContentType("text/html; charset=UTF-8");
+        this.chefService.addDishToChef(chefId, dishId);
+        Chef chef = this.chefService.findByIdWithDishes(chefId);
 
-        IWebExchange webExchange = JakartaServletWebApplication
-                .buildApplication(getServletContext())
-                .buildExchange(req, resp);
-        WebContext context = new WebContext(webExchange);
+        WebContext context = this.renderer.context(req, resp);
 
         context.setVariable("chef", chef);
+        context.setVariable("similarChefs", this.recommendationService.similarChefs(chefId, RECOMMENDATIONS));
+        context.setVariable("recommendedDishes",
+                this.recommendationService.recommendDishesForChef(chefId, RECOMMENDATIONS));
 
-        templateEngine.process("chefDetails", context, resp.getWriter());
+        this.renderer.render(req, resp, "chefDetails", context);
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        resp.setContentType("text/html; charset=UTF-8");
-        resp.getWriter().println("<!DOCTYPE html>");
-        resp.getWriter().println("<html>");
-        resp.getWriter().println("<head>");
-        resp.getWriter().println("    <meta charset=\"utf-8\">");
-        resp.getWriter().println("    <title>Chef Details</title>");
-        resp.getWriter().println("</head>");
-        resp.getWriter().println("<body>");
-        resp.getWriter().println("    <h1>Chef Details</h1>");
-        resp.getWriter().println("    <p>Please select a chef and dish from the main page.</p>");
-        resp.getWriter().println("    <a href=\"/listChefs\">Go to Chef List</a>");
-        resp.getWriter().println("</body>");
-        resp.getWriter().println("</html>");
+        this.renderer.render(req, resp, "chefDetailsPrompt", this.renderer.context(req, resp));
     }
 }
@@ -6,45 +6,77 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import mk.ukim.finki.wp.lab.model.Chef;
-import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
 
+import org.springframework.data.domain.Slice;
 import org.thymeleaf.context.WebContext;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-import org.thymeleaf.web.IWebExchange;
-import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @WebServlet(name = "ChefListServlet", urlPatterns = "/listChefs")
 public class ChefListServlet extends HttpServlet {
-    private final ChefService chefService;
-    private final SpringTemplateEngine templateEngine;
+    private static final int PAGE_SIZE = 50;
 
-    public ChefListServlet(ChefService chefService, SpringTemplateEngine templateEngine) {
-        this.chefService = chefService;
-        this.templateEngine = templateEngine;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogStatisticsService statisticsService;
+    private final ServletPageRenderer renderer;
+
+    public ChefListServlet(CatalogSnapshotService catalogSnapshotService, CatalogStatisticsService statisticsService,
+                           ServletPageRenderer renderer) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.statisticsService = statisticsService;
+        this.renderer = renderer;
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        List<Chef> chefs = this.chefService.listChefs().stream()
-                .sorted(Comparator.comparingInt((Chef chef) -> chef.getDishes().size()).reversed())
-                .collect(Collectors.toList());
-        Chef mostPopularChef = this.chefService.findMostPopularChef().orElse(null);
-        resp.setContentType("text/html; charset=UTF-8");
-
-        IWebExchange webExchange = JakartaServletWebApplication
-                .buildApplication(getServletContext())
-                .buildExchange(req, resp);
-        WebContext context = new WebContext(webExchange);
+        // Cursor is "<dishCount>:<id>" of the last chef on the previous page; anything else starts from the top
+        String after = req.getParameter("after");
+        Integer afterDishCount = null;
+        Long afterId = null;
+        int separator = after != null ? after.indexOf(':') : -1;
+        if (separator >= 0) {
+            try {
+                afterDishCount = Integer.parseInt(after.substring(0, separator));
+                afterId = Long.parseLong(after.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                afterDishCount = null;
+                afterId = null;
+            }
+        }
+        if (afterId == null) {
+            after = null;
+        }
+
+        Slice<ChefSummary> page = this.catalogSnapshotService.listChefsByPopularity(afterDishCount, afterId, PAGE_SIZE);
+        List<ChefSummary> chefs = page.getContent();
+        ChefSummary mostPopularChef = afterId == null
+                ? (chefs.isEmpty() ? null : chefs.get(0))
+                : this.catalogSnapshotService.findTopChefs(1).stream().findFirst().orElse(null);
+        String nextAfter = null;
+        if (page.hasNext()) {
+            ChefSummary last = chefs.get(chefs.size() - 1);
+            nextAfter = last.getDishCount() + ":" + last.getId();
+        }
+        Map<Long, ChefStats> chefStats = new HashMap<>();
+        for (ChefSummary chef : chefs) {
+            chefStats.put(chef.getId(), this.statisticsService.chefStats(chef.getId()));
+        }
+        WebContext context = this.renderer.context(req, resp);
         context.setVariable("chefs", chefs);
+        context.setVariable("chefStats", chefStats);
         context.setVariable("mostPopularChef", mostPopularChef);
+        context.setVariable("after", after);
+        context.setVariable("nextAfter", nextAfter);
 
-        templateEngine.process("listChefs", context, resp.getWriter());
+        this.renderer.render(req, resp, "listChefs", context);
     }
 }
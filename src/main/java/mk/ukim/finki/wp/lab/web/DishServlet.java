@@ -6,29 +6,32 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import mk.ukim.finki.wp.lab.model.Chef;
-import mk.ukim.finki.wp.lab.model.Dish;
-import mk.ukim.finki.wp.lab.service.ChefService;
-import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
 
+import org.springframework.data.domain.Slice;
 import org.thymeleaf.context.WebContext;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-import org.thymeleaf.web.IWebExchange;
-import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
 import java.io.IOException;
 import java.util.List;
 
 @WebServlet(name = "DishServlet", urlPatterns = "/dish")
 public class DishServlet extends HttpServlet {
-    private final ChefService chefService;
-    private final DishService dishService;
-    private final SpringTemplateEngine templateEngine;
-
-    public DishServlet(ChefService chefService, DishService dishService, SpringTemplateEngine templateEngine) {
-        this.chefService = chefService;
-        this.dishService = dishService;
-        this.templateEngine = templateEngine;
+    private static final int PAGE_SIZE = 50;
+    private static final int RECOMMENDATIONS = 5;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final RecommendationService recommendationService;
+    private final ServletPageRenderer renderer;
+
+    public DishServlet(CatalogSnapshotService catalogSnapshotService, RecommendationService recommendationService,
+                       ServletPageRenderer renderer) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.recommendationService = recommendationService;
+        this.renderer = renderer;
     }
 
     @Override
@@ -37,19 +40,34 @@ public class DishServlet extends HttpServlet {
         String chefIdParam = req.getParameter("chefId");
         Long chefId = Long.parseLong(chefIdParam);
 
-        Chef selectedChef = this.chefService.findById(chefId);
-        List<Dish> dishes = this.dishService.listDishes();
+        Long after = parseCursor(req.getParameter("after"));
 
-        resp.setContentType("text/html; charset=UTF-8");
+        ChefSummary selectedChef = this.catalogSnapshotService.findChefSummary(chefId);
+        Slice<DishSummary> page = this.catalogSnapshotService.listDishSummaries(after, PAGE_SIZE);
+        List<DishSummary> dishes = page.getContent();
 
-        IWebExchange webExchange = JakartaServletWebApplication
-                .buildApplication(getServletContext())
-                .buildExchange(req, resp);
-        WebContext context = new WebContext(webExchange);
+        WebContext context = this.renderer.context(req, resp);
 
         context.setVariable("selectedChef", selectedChef);
         context.setVariable("dishes", dishes);
+        context.setVariable("after", after);
+        context.setVariable("nextAfter", page.hasNext() ? dishes.get(dishes.size() - 1).getId() : null);
+        // Suggestions close to the chef's own dishes lead the first page
+        context.setVariable("recommendedDishes", after == null
+                ? this.recommendationService.recommendDishesForChef(chefId, RECOMMENDATIONS) : List.of());
+
+        this.renderer.render(req, resp, "dishesList", context);
+    }
 
-        templateEngine.process("dishesList", context, resp.getWriter());
+    // A cursor that is not a dish id starts from the first page
+    private static Long parseCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(after.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
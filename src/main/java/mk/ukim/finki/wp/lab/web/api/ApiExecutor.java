@@ -0,0 +1,106 @@
+package mk.ukim.finki.wp.lab.web.api;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+// Runs API handler work on the request thread, or with async enabled on a bounded pool that frees the
+// request thread while the work waits on the database. Threads start on demand up to the cap and retire
+// after a minute idle; at most queueCapacity calls wait, and the pool rejects the rest.
+public class ApiExecutor implements DisposableBean {
+    // Servlet containers read a timeout of zero or less as none
+    private static final long NO_TIMEOUT = -1;
+
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+    private final int maxStreams;
+    private final Semaphore streams;
+
+    public ApiExecutor(boolean async, int threads, int queueCapacity, Duration timeout, int maxStreams) {
+        this.timeoutMillis = timeout.toMillis();
+        this.maxStreams = maxStreams;
+        this.streams = new Semaphore(maxStreams);
+        if (async) {
+            // Not a bean, so Boot still sets up its own applicationTaskExecutor for the rest of the application
+            this.executor = new ThreadPoolTaskExecutor();
+            this.executor.setThreadNamePrefix("catalog-api-");
+            this.executor.setCorePoolSize(threads);
+            this.executor.setMaxPoolSize(threads);
+            this.executor.setQueueCapacity(queueCapacity);
+            this.executor.setKeepAliveSeconds(60);
+            this.executor.setAllowCoreThreadTimeOut(true);
+            this.executor.initialize();
+        } else {
+            this.executor = null;
+        }
+    }
+
+    // Returns the result itself, or a WebAsyncTask that Spring MVC submits once the request has gone async
+    public <V> Object execute(Callable<V> work) throws Exception {
+        if (this.executor == null) {
+            return work.call();
+        }
+        return new WebAsyncTask<>(this.timeoutMillis, this.executor, work);
+    }
+
+    // Whole-table streams hold a database cursor for as long as the client takes to read, so they are capped
+    // separately and run without the async timeout, which would complete the request under a writing worker.
+    // If the request errors or completes first (the client went away) the work sees cancelled() and stops.
+    public Object stream(StreamWork work) throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Callable<Object> call = () -> {
+            if (!this.streams.tryAcquire()) {
+                throw new RejectedExecutionException("Too many concurrent streams");
+            }
+            try {
+                work.run(cancelled::get);
+                return null;
+            } finally {
+                this.streams.release();
+            }
+        };
+        if (this.executor == null) {
+            return call.call();
+        }
+        WebAsyncTask<Object> task = new WebAsyncTask<>(NO_TIMEOUT, this.executor, call);
+        task.onError(() -> {
+            cancelled.set(true);
+            return CallableProcessingInterceptor.RESULT_NONE;
+        });
+        task.onCompletion(() -> cancelled.set(true));
+        return task;
+    }
+
+    public int getActiveStreams() {
+        return this.maxStreams - this.streams.availablePermits();
+    }
+
+    public int getActiveCount() {
+        return this.executor != null ? this.executor.getActiveCount() : 0;
+    }
+
+    public int getQueueSize() {
+        return this.executor != null ? this.executor.getThreadPoolExecutor().getQueue().size() : 0;
+    }
+
+    @Override
+    public void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    public interface StreamWork {
+        // Checked between rows; once it returns true the work throws CancellationException, closing its cursor
+        void run(BooleanSupplier cancelled) throws Exception;
+    }
+}
@@ -0,0 +1,70 @@
+package mk.ukim.finki.wp.lab.web.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+
+import java.io.IOException;
+
+// Fields the JSON API exposes. Pages are served from the summary projections and the full-list
+// streams from the cursor snapshots, which carry the same dish fields plus the chef id.
+public final class ApiFields {
+    public static final JsonFields<DishSummary> DISH = JsonFields.<DishSummary>builder()
+            .field("id", (g, d) -> g.writeNumber(d.getId()))
+            .field("dishId", (g, d) -> g.writeString(d.getDishId()))
+            .field("name", (g, d) -> g.writeString(d.getName()))
+            .field("cuisine", (g, d) -> g.writeString(d.getCuisine()))
+            .field("preparationTime", (g, d) -> g.writeNumber(d.getPreparationTime()))
+            .field("rating", (g, d) -> writeNullable(g, d.getRating()))
+            .build();
+
+    public static final JsonFields<DishSnapshot> DISH_ROW = JsonFields.<DishSnapshot>builder()
+            .field("id", (g, d) -> g.writeNumber(d.id()))
+            .field("dishId", (g, d) -> g.writeString(d.dishId()))
+            .field("name", (g, d) -> g.writeString(d.name()))
+            .field("cuisine", (g, d) -> g.writeString(d.cuisine()))
+            .field("preparationTime", (g, d) -> g.writeNumber(d.preparationTime()))
+            .field("rating", (g, d) -> writeNullable(g, d.rating()))
+            .field("chefId", (g, d) -> writeNullable(g, d.chefId()))
+            .build();
+
+    public static final JsonFields<ChefSummary> CHEF = JsonFields.<ChefSummary>builder()
+            .field("id", (g, c) -> g.writeNumber(c.getId()))
+            .field("firstName", (g, c) -> g.writeString(c.getFirstName()))
+            .field("lastName", (g, c) -> g.writeString(c.getLastName()))
+            .field("bio", (g, c) -> g.writeString(c.getBio()))
+            .field("dishCount", (g, c) -> g.writeNumber(c.getDishCount()))
+            .build();
+
+    public static final JsonFields<DishRecommendation> SIMILAR_DISH = JsonFields.<DishRecommendation>builder()
+            .field("id", (g, d) -> g.writeNumber(d.id()))
+            .field("dishId", (g, d) -> g.writeString(d.dishId()))
+            .field("name", (g, d) -> g.writeString(d.name()))
+            .field("cuisine", (g, d) -> g.writeString(d.cuisine()))
+            .field("preparationTime", (g, d) -> g.writeNumber(d.preparationTime()))
+            .field("rating", (g, d) -> writeNullable(g, d.rating()))
+            .field("score", (g, d) -> g.writeNumber(d.score()))
+            .build();
+
+    public static final JsonFields<ChefRecommendation> SIMILAR_CHEF = JsonFields.<ChefRecommendation>builder()
+            .field("id", (g, c) -> g.writeNumber(c.id()))
+            .field("firstName", (g, c) -> g.writeString(c.firstName()))
+            .field("lastName", (g, c) -> g.writeString(c.lastName()))
+            .field("dishCount", (g, c) -> g.writeNumber(c.dishCount()))
+            .field("score", (g, c) -> g.writeNumber(c.score()))
+            .build();
+
+    private ApiFields() {
+    }
+
+    private static void writeNullable(JsonGenerator generator, Number value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+}
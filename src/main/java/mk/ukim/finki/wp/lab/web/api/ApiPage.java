@@ -0,0 +1,36 @@
+package mk.ukim.finki.wp.lab.web.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+// One keyset page of an API list, {"items": [...], "nextAfter": <last id or null>}, with only the selected fields
+public record ApiPage<T>(List<T> items, JsonFields<T> fields, Long nextAfter) implements JsonSerializable {
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("items");
+        for (T item : this.items) {
+            this.fields.write(generator, item);
+        }
+        generator.writeEndArray();
+        generator.writeFieldName("nextAfter");
+        if (this.nextAfter == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(this.nextAfter);
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(generator, serializers);
+    }
+}
@@ -0,0 +1,77 @@
+package mk.ukim.finki.wp.lab.web.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Field table of an API resource. select() resolves the client's ?fields= list once per request, and
+// write() emits only those fields straight to the generator, so rows are never copied into maps.
+public final class JsonFields<T> {
+    private final Map<String, Field<T>> available;
+    private final List<Field<T>> selected;
+
+    private JsonFields(Map<String, Field<T>> available, List<Field<T>> selected) {
+        this.available = available;
+        this.selected = selected;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    // A null or blank list selects every field; unknown names are rejected
+    public JsonFields<T> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return this;
+        }
+        List<Field<T>> selection = new ArrayList<>();
+        for (String name : fields.split(",")) {
+            Field<T> field = this.available.get(name.trim());
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + name.trim() + ", expected one of "
+                        + this.available.keySet());
+            }
+            if (!selection.contains(field)) {
+                selection.add(field);
+            }
+        }
+        return new JsonFields<>(this.available, selection);
+    }
+
+    public void write(JsonGenerator generator, T item) throws IOException {
+        generator.writeStartObject();
+        for (Field<T> field : this.selected) {
+            generator.writeFieldName(field.name());
+            field.writer().write(generator, item);
+        }
+        generator.writeEndObject();
+    }
+
+    @FunctionalInterface
+    public interface ValueWriter<T> {
+        void write(JsonGenerator generator, T item) throws IOException;
+    }
+
+    private record Field<T>(SerializedString name, ValueWriter<T> writer) {
+    }
+
+    public static final class Builder<T> {
+        private final Map<String, Field<T>> fields = new LinkedHashMap<>();
+
+        public Builder<T> field(String name, ValueWriter<T> writer) {
+            this.fields.put(name, new Field<>(new SerializedString(name), writer));
+            return this;
+        }
+
+        public JsonFields<T> build() {
+            return new JsonFields<>(Collections.unmodifiableMap(new LinkedHashMap<>(this.fields)),
+                    List.copyOf(this.fields.values()));
+        }
+    }
+}
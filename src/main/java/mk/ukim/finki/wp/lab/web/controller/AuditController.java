@@ -0,0 +1,54 @@
+package mk.ukim.finki.wp.lab.web.controller;
+
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+import mk.ukim.finki.wp.lab.model.audit.CatalogAsOf;
+import mk.ukim.finki.wp.lab.service.AuditService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// Change history of the catalogue from the audit log. Admin-only, so it is created on the first call.
+// Changes show up here once the audit writer has appended them, within about one flush interval.
+@Lazy
+@RestController
+@RequestMapping("/admin/api/audit")
+public class AuditController {
+    private final AuditService auditService;
+
+    public AuditController(AuditService auditService) {
+        this.auditService = auditService;
+    }
+
+    @GetMapping("/dishes/{id}/history")
+    public List<AuditRecord> dishHistory(@PathVariable Long id) {
+        return this.auditService.dishHistory(id);
+    }
+
+    @GetMapping("/chefs/{id}/history")
+    public List<AuditRecord> chefHistory(@PathVariable Long id) {
+        return this.auditService.chefHistory(id);
+    }
+
+    // ?at=2024-05-01T12:00:00Z
+    @GetMapping("/catalogue")
+    public CatalogAsOf catalogueAsOf(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        return this.auditService.catalogueAsOf(at);
+    }
+
+    // A time before the compaction horizon
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleDisabled(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,55 @@
+package mk.ukim.finki.wp.lab.web.controller;
+
+import mk.ukim.finki.wp.lab.model.batch.BatchResult;
+import mk.ukim.finki.wp.lab.model.batch.DishDraft;
+import mk.ukim.finki.wp.lab.model.batch.DishReassignment;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Each call is one transaction; invalid items are listed in the result and the rest are applied.
+// Admin-only, so it is created on the first call rather than at startup.
+@Lazy
+@RestController
+@RequestMapping(value = "/admin/api/dishes/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+public class BatchController {
+    private final DishService dishService;
+    private final ChefService chefService;
+
+    public BatchController(DishService dishService, ChefService chefService) {
+        this.dishService = dishService;
+        this.chefService = chefService;
+    }
+
+    @PostMapping("/create")
+    public BatchResult createDishes(@RequestBody List<DishDraft> drafts) {
+        return this.dishService.createDishes(drafts);
+    }
+
+    @PostMapping("/update")
+    public BatchResult updateDishes(@RequestBody List<DishDraft> drafts) {
+        return this.dishService.updateDishes(drafts);
+    }
+
+    @PostMapping("/delete")
+    public BatchResult deleteDishes(@RequestBody List<String> dishIds) {
+        return this.dishService.deleteDishes(dishIds);
+    }
+
+    @PostMapping("/reassign")
+    public BatchResult reassignDishes(@RequestBody DishReassignment reassignment) {
+        return this.chefService.assignDishesToChef(reassignment.chefId(), reassignment.dishIds());
+    }
+
+    // Whole-batch failures (unknown chef, oversized batch) reject the request without applying anything
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<Map<String, String>> handleBatchFailure(RuntimeException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
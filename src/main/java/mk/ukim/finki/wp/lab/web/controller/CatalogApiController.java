@@ -0,0 +1,186 @@
+package mk.ukim.finki.wp.lab.web.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.web.api.ApiExecutor;
+import mk.ukim.finki.wp.lab.web.api.ApiFields;
+import mk.ukim.finki.wp.lab.web.api.ApiPage;
+import mk.ukim.finki.wp.lab.web.api.JsonFields;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+// Read-only JSON API for the catalogue. Lists are keyset pages, or the whole list as newline-delimited
+// JSON when the client asks for application/x-ndjson. ?fields=id,name limits the fields of every item.
+@RestController
+@RequestMapping("/api")
+public class CatalogApiController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final DishService dishService;
+    private final ChefService chefService;
+    private final RecommendationService recommendationService;
+    private final ApiExecutor apiExecutor;
+    private final ObjectMapper objectMapper;
+
+    public CatalogApiController(DishService dishService, ChefService chefService,
+                                RecommendationService recommendationService, ApiExecutor apiExecutor,
+                                ObjectMapper objectMapper) {
+        this.dishService = dishService;
+        this.chefService = chefService;
+        this.recommendationService = recommendationService;
+        this.apiExecutor = apiExecutor;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(value = "/dishes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Object dishes(@RequestParam(required = false) Integer rating,
+                         @RequestParam(required = false) Long after,
+                         @RequestParam(defaultValue = "50") int size,
+                         @RequestParam(required = false) String fields) throws Exception {
+        JsonFields<DishSummary> selection = ApiFields.DISH.select(fields);
+        int pageSize = pageSize(size);
+        return this.apiExecutor.execute(() -> page(rating != null
+                ? this.dishService.findSummariesByRating(rating, after, pageSize)
+                : this.dishService.listDishSummaries(after, pageSize), selection, DishSummary::getId));
+    }
+
+    // Every dish from one database cursor, written as it is read
+    @GetMapping(value = "/dishes", produces = NDJSON)
+    public Object streamDishes(@RequestParam(required = false) Integer rating,
+                               @RequestParam(required = false) String fields,
+                               HttpServletResponse response) throws Exception {
+        JsonFields<DishSnapshot> selection = ApiFields.DISH_ROW.select(fields);
+        return this.apiExecutor.stream(cancelled -> {
+            try (JsonGenerator generator = ndjsonGenerator(response)) {
+                this.dishService.streamDishes(rating,
+                        dishes -> dishes.forEach(dish -> writeLine(generator, selection, dish, cancelled)));
+            }
+        });
+    }
+
+    @GetMapping(value = "/chefs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Object chefs(@RequestParam(required = false) Long after,
+                        @RequestParam(defaultValue = "50") int size,
+                        @RequestParam(required = false) String fields) throws Exception {
+        JsonFields<ChefSummary> selection = ApiFields.CHEF.select(fields);
+        int pageSize = pageSize(size);
+        return this.apiExecutor.execute(() ->
+                page(this.chefService.listChefSummaries(after, pageSize), selection, ChefSummary::getId));
+    }
+
+    @GetMapping(value = "/chefs", produces = NDJSON)
+    public Object streamChefs(@RequestParam(required = false) String fields,
+                              HttpServletResponse response) throws Exception {
+        JsonFields<ChefSummary> selection = ApiFields.CHEF.select(fields);
+        return this.apiExecutor.stream(cancelled -> {
+            List<ChefSummary> chefs = this.chefService.listChefSummaries();
+            try (JsonGenerator generator = ndjsonGenerator(response)) {
+                chefs.forEach(chef -> writeLine(generator, selection, chef, cancelled));
+            }
+        });
+    }
+
+    @GetMapping(value = "/chefs/top", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Object topChefs(@RequestParam(defaultValue = "10") int limit,
+                           @RequestParam(required = false) String fields) throws Exception {
+        JsonFields<ChefSummary> selection = ApiFields.CHEF.select(fields);
+        int topLimit = pageSize(limit);
+        return this.apiExecutor.execute(() -> new ApiPage<>(this.chefService.findTopChefs(topLimit), selection, null));
+    }
+
+    // In-memory lookups, answered on the request thread even with async on
+    @GetMapping(value = "/dishes/{id}/similar", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiPage<DishRecommendation> similarDishes(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "10") int limit,
+                                                     @RequestParam(required = false) String fields) {
+        return new ApiPage<>(this.recommendationService.similarDishes(id, limit),
+                ApiFields.SIMILAR_DISH.select(fields), null);
+    }
+
+    @GetMapping(value = "/chefs/{id}/similar", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiPage<ChefRecommendation> similarChefs(@PathVariable Long id,
+                                                    @RequestParam(defaultValue = "10") int limit,
+                                                    @RequestParam(required = false) String fields) {
+        return new ApiPage<>(this.recommendationService.similarChefs(id, limit),
+                ApiFields.SIMILAR_CHEF.select(fields), null);
+    }
+
+    @GetMapping(value = "/chefs/{id}/recommended-dishes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiPage<DishRecommendation> recommendedDishes(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "10") int limit,
+                                                         @RequestParam(required = false) String fields) {
+        return new ApiPage<>(this.recommendationService.recommendDishesForChef(id, limit),
+                ApiFields.SIMILAR_DISH.select(fields), null);
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static <T> ApiPage<T> page(Slice<T> slice, JsonFields<T> fields, Function<T, Long> id) {
+        List<T> items = slice.getContent();
+        return new ApiPage<>(items, fields, slice.hasNext() ? id.apply(items.get(items.size() - 1)) : null);
+    }
+
+    private JsonGenerator ndjsonGenerator(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        JsonGenerator generator = this.objectMapper.getFactory().createGenerator(response.getOutputStream());
+        // Lines are ended explicitly, so no separator goes before the next root value
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private static <T> void writeLine(JsonGenerator generator, JsonFields<T> fields, T item,
+                                      BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("The stream's request has already completed");
+        }
+        try {
+            fields.write(generator, item);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Errors are JSON even for NDJSON requests, so the content type is set rather than negotiated
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    // The async executor and its queue are full; clients back off instead of piling onto the database
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleOverload(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "The catalogue API is busy, retry later"));
+    }
+}
@@ -0,0 +1,43 @@
+package mk.ukim.finki.wp.lab.web.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+import mk.ukim.finki.wp.lab.service.CatalogTransferService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+// Admin-only, like the transfer service behind it, so both are created on the first call
+@Lazy
+@RestController
+@RequestMapping("/admin/api/dishes")
+public class CatalogTransferController {
+    private final CatalogTransferService catalogTransferService;
+
+    public CatalogTransferController(CatalogTransferService catalogTransferService) {
+        this.catalogTransferService = catalogTransferService;
+    }
+
+    // The request body is parsed as it arrives; nothing is buffered beyond one chunk of rows
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ImportReport importDishes(HttpServletRequest request) throws IOException {
+        TransferFormat format = TransferFormat.fromContentType(request.getContentType());
+        return this.catalogTransferService.importDishes(request.getInputStream(), format);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDishes(@RequestParam(defaultValue = "csv") String format) {
+        TransferFormat transferFormat = TransferFormat.valueOf(format.toUpperCase());
+        StreamingResponseBody body = output -> this.catalogTransferService.exportDishes(output, transferFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(transferFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=dishes." + transferFormat.getExtension())
+                .body(body);
+    }
+}
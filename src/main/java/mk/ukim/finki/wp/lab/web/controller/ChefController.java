@@ -1,26 +1,44 @@
 package mk.ukim.finki.wp.lab.web.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.writebehind.ChefEdit;
 import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.WriteBehindService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 
 @Controller
 @RequestMapping("/chefs")
 public class ChefController {
     private final ChefService chefService;
+    private final WriteBehindService writeBehindService;
 
-    public ChefController(ChefService chefService) {
+    public ChefController(ChefService chefService, WriteBehindService writeBehindService) {
         this.chefService = chefService;
+        this.writeBehindService = writeBehindService;
     }
 
     @GetMapping
-    public String getChefsPage(@RequestParam(required = false) String error, Model model) {
-        List<Chef> chefs = this.chefService.listChefs();
-        model.addAttribute("chefs", chefs);
+    public String getChefsPage(@RequestParam(required = false) String error,
+                               @RequestParam(required = false) Long after,
+                               @RequestParam(defaultValue = "50") int size,
+                               Model model) {
+        Slice<ChefSummary> chefs = this.chefService.listChefSummaries(after, size);
+        List<ChefSummary> content = chefs.getContent();
+        model.addAttribute("chefs", this.writeBehindService.overlayChefs(content));
+        model.addAttribute("after", after);
+        model.addAttribute("nextAfter", chefs.hasNext() ? content.get(content.size() - 1).getId() : null);
+        model.addAttribute("size", size);
         model.addAttribute("error", error);
         return "listChefsManagement";
     }
@@ -32,9 +50,20 @@ public class ChefController {
     }
 
     @GetMapping("/chef-form/{id}")
-    public String getEditChefForm(@PathVariable Long id, Model model) {
+    public String getEditChefForm(@PathVariable Long id, HttpServletResponse response, Model model) {
         try {
-            Chef chef = this.chefService.findById(id);
+            Chef chef = this.writeBehindService.overlay(this.chefService.findByIdUncached(id));
+            // A queued edit the writer could not apply is shown as a conflict until someone saves over it
+            Optional<ChefEdit> failed = this.writeBehindService.failedChefEdit(id);
+            if (failed.isPresent()) {
+                ChefEdit edit = failed.get();
+                Chef unsaved = new Chef(id, edit.firstName(), edit.lastName(), edit.bio());
+                unsaved.setVersion(chef.getVersion());
+                response.setStatus(HttpServletResponse.SC_CONFLICT);
+                model.addAttribute("current", chef);
+                model.addAttribute("unsaved", true);
+                chef = unsaved;
+            }
             model.addAttribute("chef", chef);
             return "chef-form";
         } catch (RuntimeException e) {
@@ -54,13 +83,35 @@ public class ChefController {
     public String editChef(@PathVariable Long id,
                            @RequestParam String firstName,
                            @RequestParam String lastName,
-                           @RequestParam String bio) {
-        this.chefService.update(id, firstName, lastName, bio);
+                           @RequestParam String bio,
+                           @RequestParam(required = false) Long version,
+                           HttpServletResponse response,
+                           Model model) {
+        try {
+            this.writeBehindService.updateChef(id, firstName, lastName, bio, version);
+        } catch (OptimisticLockingFailureException e) {
+            Chef current;
+            try {
+                current = this.writeBehindService.overlay(this.chefService.findByIdUncached(id));
+            } catch (RuntimeException notFound) {
+                return "redirect:/chefs?error=ChefNotFound";
+            }
+            Chef submitted = new Chef(id, firstName, lastName, bio);
+            submitted.setVersion(current.getVersion());
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            model.addAttribute("chef", submitted);
+            model.addAttribute("current", current);
+            return "chef-form";
+        } catch (RuntimeException e) {
+            return "redirect:/chefs?error=" + URLEncoder.encode(e.getMessage(), StandardCharsets.UTF_8);
+        }
         return "redirect:/chefs";
     }
 
-    @GetMapping("/delete/{id}")
+    // POST with the CSRF token, so a link or a prefetch cannot delete anything
+    @PostMapping("/delete/{id}")
     public String deleteChef(@PathVariable Long id) {
+        this.writeBehindService.discardChef(id);
         this.chefService.delete(id);
         return "redirect:/chefs";
     }
@@ -1,57 +1,193 @@
 package mk.ukim.finki.wp.lab.web.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import mk.ukim.finki.wp.lab.model.Chef;
 import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.model.writebehind.DishEdit;
+import mk.ukim.finki.wp.lab.model.search.SearchResult;
+import mk.ukim.finki.wp.lab.service.CatalogSnapshotService;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
 import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishSearchService;
 import mk.ukim.finki.wp.lab.service.DishService;
+import mk.ukim.finki.wp.lab.service.RecommendationService;
+import mk.ukim.finki.wp.lab.service.WriteBehindService;
+import mk.ukim.finki.wp.lab.service.search.DishSearchIndex;
+import mk.ukim.finki.wp.lab.web.render.FlushingIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
 
 @Controller
 @RequestMapping("/dishes")
 public class DishController {
+    private static final int STREAM_FLUSH_ROWS = 200;
+    private static final int SIMILAR_DISHES = 5;
+
     private final DishService dishService;
     private final ChefService chefService;
+    private final DishSearchService dishSearchService;
+    private final CatalogStatisticsService statisticsService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final WriteBehindService writeBehindService;
+    private final RecommendationService recommendationService;
+    private final SpringTemplateEngine templateEngine;
+    private final JakartaServletWebApplication webApplication;
+    private final Semaphore streams;
 
-    public DishController(DishService dishService, ChefService chefService) {
+    public DishController(DishService dishService, ChefService chefService, DishSearchService dishSearchService,
+                          CatalogStatisticsService statisticsService, CatalogSnapshotService catalogSnapshotService,
+                          WriteBehindService writeBehindService, RecommendationService recommendationService,
+                          SpringTemplateEngine templateEngine, JakartaServletWebApplication webApplication,
+                          @Value("${app.dishes.stream.max-concurrent:2}") int maxStreams) {
         this.dishService = dishService;
         this.chefService = chefService;
+        this.dishSearchService = dishSearchService;
+        this.statisticsService = statisticsService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.writeBehindService = writeBehindService;
+        this.recommendationService = recommendationService;
+        this.templateEngine = templateEngine;
+        this.webApplication = webApplication;
+        this.streams = new Semaphore(maxStreams);
     }
 
     @GetMapping
     public String getDishesPage(@RequestParam(required = false) String error,
                                  @RequestParam(required = false) Integer rating,
+                                 @RequestParam(required = false) Long after,
+                                 @RequestParam(defaultValue = "50") int size,
                                  Model model) {
-        List<Dish> dishes;
+        Slice<DishSummary> dishes;
         if (rating != null) {
-            dishes = this.dishService.findAllByRating(rating);
+            dishes = this.catalogSnapshotService.findSummariesByRating(rating, after, size);
         } else {
-            dishes = this.dishService.listDishes();
+            dishes = this.catalogSnapshotService.listDishSummaries(after, size);
         }
-        model.addAttribute("dishes", dishes);
+        List<DishSummary> content = dishes.getContent();
+        model.addAttribute("dishes", this.writeBehindService.overlayDishes(content));
+        model.addAttribute("after", after);
+        model.addAttribute("nextAfter", dishes.hasNext() ? content.get(content.size() - 1).getId() : null);
+        model.addAttribute("size", size);
         model.addAttribute("error", error);
         model.addAttribute("selectedRating", rating);
+        model.addAttribute("streaming", false);
+        model.addAttribute("ratingCounts", this.statisticsService.ratingCounts());
         return "listDishes";
     }
 
+    // Renders every dish in one page straight from a database cursor. The template runs inside the
+    // read-only transaction that keeps the cursor open, and rows are flushed as they are rendered.
+    // Each render pins a pooled connection, so only a few run at once and the rest are told to retry.
+    @GetMapping("/all")
+    public void streamDishesPage(@RequestParam(required = false) Integer rating,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (!this.streams.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.setContentType("text/plain; charset=UTF-8");
+            response.getWriter().write("Too many full listings in progress, try again shortly");
+            return;
+        }
+        try {
+            response.setContentType("text/html; charset=UTF-8");
+            PrintWriter writer = response.getWriter();
+            this.dishService.streamDishes(rating, dishes -> {
+                WebContext context = new WebContext(this.webApplication.buildExchange(request, response));
+                context.setVariable("dishes", new FlushingIterator<>(dishes.iterator(), writer, STREAM_FLUSH_ROWS));
+                context.setVariable("streaming", true);
+                context.setVariable("selectedRating", rating);
+                context.setVariable("ratingCounts", this.statisticsService.ratingCounts());
+                this.templateEngine.process("listDishes", context, writer);
+            });
+        } finally {
+            this.streams.release();
+        }
+    }
+
+    @GetMapping("/search")
+    public String searchDishesPage(@RequestParam(required = false) String q,
+                                   @RequestParam(required = false) String cuisine,
+                                   @RequestParam(required = false) Integer rating,
+                                   @RequestParam(required = false) String preparationTime,
+                                   @RequestParam(defaultValue = "50") int limit,
+                                   Model model) {
+        SearchResult result = this.dishSearchService.search(new SearchQuery(q, cuisine, rating, preparationTime, limit));
+        model.addAttribute("result", result);
+        model.addAttribute("q", q);
+        model.addAttribute("selectedCuisine", cuisine);
+        model.addAttribute("selectedRating", rating);
+        model.addAttribute("selectedPreparationTime", preparationTime);
+        model.addAttribute("preparationTimeBuckets", DishSearchIndex.PREPARATION_TIME_BUCKETS);
+        return "searchDishes";
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public SearchResult searchDishes(@RequestParam(required = false) String q,
+                                     @RequestParam(required = false) String cuisine,
+                                     @RequestParam(required = false) Integer rating,
+                                     @RequestParam(required = false) String preparationTime,
+                                     @RequestParam(defaultValue = "20") int limit) {
+        return this.dishSearchService.search(new SearchQuery(q, cuisine, rating, preparationTime, limit));
+    }
+
+    @GetMapping(value = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<String> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return this.dishSearchService.suggest(q, limit);
+    }
+
     @GetMapping("/dish-form")
     public String getAddDishPage(Model model) {
         model.addAttribute("dish", null);
-        List<Chef> chefs = this.chefService.listChefs();
+        List<ChefSummary> chefs = this.chefService.listChefSummaries();
         model.addAttribute("chefs", chefs);
         return "dish-form";
     }
 
     @GetMapping("/dish-form/{id}")
-    public String getEditDishForm(@PathVariable Long id, Model model) {
+    public String getEditDishForm(@PathVariable Long id, HttpServletResponse response, Model model) {
         try {
-            Dish dish = this.dishService.findById(id);
+            Dish dish = this.writeBehindService.overlay(this.dishService.findByIdWithChef(id));
+            // A queued edit the writer could not apply is shown as a conflict until someone saves over it
+            Optional<DishEdit> failed = this.writeBehindService.failedDishEdit(id);
+            if (failed.isPresent()) {
+                DishEdit edit = failed.get();
+                Dish unsaved = new Dish(edit.dishId(), edit.name(), edit.cuisine(), edit.preparationTime(), edit.rating());
+                unsaved.setId(id);
+                unsaved.setVersion(dish.getVersion());
+                unsaved.setChef(edit.chefId() != null ? this.chefService.findById(edit.chefId()) : null);
+                response.setStatus(HttpServletResponse.SC_CONFLICT);
+                model.addAttribute("current", dish);
+                model.addAttribute("unsaved", true);
+                dish = unsaved;
+            }
             model.addAttribute("dish", dish);
-            List<Chef> chefs = this.chefService.listChefs();
+            List<ChefSummary> chefs = this.chefService.listChefSummaries();
             model.addAttribute("chefs", chefs);
+            model.addAttribute("similarDishes", this.recommendationService.similarDishes(id, SIMILAR_DISHES));
             return "dish-form";
         } catch (RuntimeException e) {
             return "redirect:/dishes?error=DishNotFound";
@@ -65,7 +201,11 @@ public class DishController {
                            @RequestParam int preparationTime,
                            @RequestParam(required = false) Long chefId,
                            @RequestParam(required = false) Integer rating) {
-        this.dishService.create(dishId, name, cuisine, preparationTime, chefId, rating);
+        try {
+            this.dishService.create(dishId, name, cuisine, preparationTime, chefId, rating);
+        } catch (RuntimeException e) {
+            return "redirect:/dishes?error=" + URLEncoder.encode(e.getMessage(), StandardCharsets.UTF_8);
+        }
         return "redirect:/dishes";
     }
 
@@ -76,13 +216,42 @@ public class DishController {
                            @RequestParam String cuisine,
                            @RequestParam int preparationTime,
                            @RequestParam(required = false) Long chefId,
-                           @RequestParam(required = false) Integer rating) {
-        this.dishService.update(id, dishId, name, cuisine, preparationTime, chefId, rating);
+                           @RequestParam(required = false) Integer rating,
+                           @RequestParam(required = false) Long version,
+                           HttpServletResponse response,
+                           Model model) {
+        try {
+            this.writeBehindService.updateDish(id, dishId, name, cuisine, preparationTime, chefId, rating, version);
+        } catch (OptimisticLockingFailureException e) {
+            // Re-render the form with the submitted values against the current version, next to what changed.
+            // The row is read past the entity cache, so the retry carries the stored version and cannot loop.
+            Dish current;
+            Chef submittedChef;
+            try {
+                current = this.writeBehindService.overlay(this.dishService.findByIdWithChef(id));
+                submittedChef = chefId != null ? this.chefService.findById(chefId) : null;
+            } catch (RuntimeException notFound) {
+                return "redirect:/dishes?error=" + URLEncoder.encode(notFound.getMessage(), StandardCharsets.UTF_8);
+            }
+            Dish submitted = new Dish(dishId, name, cuisine, preparationTime, rating);
+            submitted.setId(id);
+            submitted.setVersion(current.getVersion());
+            submitted.setChef(submittedChef);
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            model.addAttribute("dish", submitted);
+            model.addAttribute("current", current);
+            model.addAttribute("chefs", this.chefService.listChefSummaries());
+            return "dish-form";
+        } catch (RuntimeException e) {
+            return "redirect:/dishes?error=" + URLEncoder.encode(e.getMessage(), StandardCharsets.UTF_8);
+        }
         return "redirect:/dishes";
     }
 
-    @GetMapping("/delete/{id}")
+    // POST with the CSRF token, so a link or a prefetch cannot delete anything
+    @PostMapping("/delete/{id}")
     public String deleteDish(@PathVariable Long id) {
+        this.writeBehindService.discardDish(id);
         this.dishService.delete(id);
         return "redirect:/dishes";
     }
@@ -0,0 +1,41 @@
+package mk.ukim.finki.wp.lab.web.controller;
+
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.service.CatalogStatisticsService;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequestMapping("/stats")
+public class StatisticsController {
+    private static final int TOP_CHEFS = 20;
+
+    private final CatalogStatisticsService statisticsService;
+    private final ChefService chefService;
+
+    public StatisticsController(CatalogStatisticsService statisticsService, ChefService chefService) {
+        this.statisticsService = statisticsService;
+        this.chefService = chefService;
+    }
+
+    @GetMapping
+    public String getStatisticsPage(Model model) {
+        List<ChefSummary> topChefs = this.chefService.findTopChefs(TOP_CHEFS);
+        Map<Long, ChefStats> chefStats = new LinkedHashMap<>();
+        for (ChefSummary chef : topChefs) {
+            chefStats.put(chef.getId(), this.statisticsService.chefStats(chef.getId()));
+        }
+        model.addAttribute("overview", this.statisticsService.overview());
+        model.addAttribute("topChefs", topChefs);
+        model.addAttribute("chefStats", chefStats);
+        return "statistics";
+    }
+}
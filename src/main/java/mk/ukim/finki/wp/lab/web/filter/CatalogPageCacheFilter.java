@@ -0,0 +1,89 @@
+package mk.ukim.finki.wp.lab.web.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mk.ukim.finki.wp.lab.service.cache.CatalogVersion;
+import mk.ukim.finki.wp.lab.web.render.ServletPageRenderer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+// Rendered-output cache for the public catalogue pages, keyed by URL and tagged with the catalogue version.
+// The ETag is derived from that version, so If-None-Match is answered with 304 before any query runs.
+// Clients that accept gzip get their own entries, since the servlet pages are stored as sent.
+public class CatalogPageCacheFilter extends OncePerRequestFilter {
+    private final CatalogVersion catalogVersion;
+    private final Cache<String, RenderedPage> pages;
+
+    public CatalogPageCacheFilter(CatalogVersion catalogVersion, long maxBytes) {
+        this.catalogVersion = catalogVersion;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, RenderedPage page) -> key.length() + page.body().length)
+                .build();
+    }
+
+    // The streamed full listing holds a database cursor for the whole render and is never buffered here
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "/dishes/all".equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Authenticated pages carry per-user content and CSRF tokens, so only anonymous GETs are shared
+        if (!"GET".equals(request.getMethod()) || request.getUserPrincipal() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getQueryString() != null
+                ? request.getRequestURI() + "?" + request.getQueryString()
+                : request.getRequestURI();
+        if (ServletPageRenderer.acceptsGzip(request)) {
+            key = key + "|gzip";
+        }
+        long version = this.catalogVersion.current();
+        String etag = "\"" + Long.toHexString(version) + "-" + Integer.toHexString(key.hashCode()) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        RenderedPage cached = this.pages.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            response.setContentType(cached.contentType());
+            if (cached.contentEncoding() != null) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, cached.contentEncoding());
+            }
+            if (cached.vary() != null) {
+                response.setHeader(HttpHeaders.VARY, cached.vary());
+            }
+            response.setContentLength(cached.body().length);
+            response.getOutputStream().write(cached.body());
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        // A write that committed mid-render may not be reflected in the body, so do not keep it
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && this.catalogVersion.current() == version) {
+            this.pages.put(key, new RenderedPage(version, wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.CONTENT_ENCODING), wrapper.getHeader(HttpHeaders.VARY),
+                    wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private record RenderedPage(long version, String contentType, String contentEncoding, String vary, byte[] body) {
+    }
+}
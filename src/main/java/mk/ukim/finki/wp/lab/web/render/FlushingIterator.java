@@ -0,0 +1,43 @@
+package mk.ukim.finki.wp.lab.web.render;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+// Flushes the response writer every few rows while a template iterates, so rows already rendered
+// go out as chunks instead of waiting for the whole page
+public class FlushingIterator<T> implements Iterator<T> {
+    private final Iterator<T> delegate;
+    private final Writer writer;
+    private final int flushEvery;
+    private long count;
+
+    public FlushingIterator(Iterator<T> delegate, Writer writer, int flushEvery) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.flushEvery = flushEvery;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.delegate.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (this.count > 0 && this.count % this.flushEvery == 0) {
+            try {
+                this.writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        this.count++;
+        return this.delegate.next();
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+}
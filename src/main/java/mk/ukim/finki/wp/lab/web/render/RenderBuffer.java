@@ -0,0 +1,176 @@
+package mk.ukim.finki.wp.lab.web.render;
+
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Reusable page buffer: the template writes UTF-8 straight into a growable byte array, and a page that is
+// sent compressed is deflated into a second array with a Deflater kept for the next page
+public class RenderBuffer extends Writer {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final int initialSize;
+    private final CRC32 crc = new CRC32();
+    private byte[] bytes;
+    private int length;
+    private char highSurrogate;
+    private byte[] compressed;
+    private Deflater deflater;
+
+    public RenderBuffer(int initialSize) {
+        this.initialSize = initialSize;
+        this.bytes = new byte[initialSize];
+    }
+
+    @Override
+    public void write(int c) {
+        ensureCapacity(4);
+        put((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int count) {
+        ensureCapacity(count * 3 + 4);
+        for (int i = offset; i < offset + count; i++) {
+            put(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int count) {
+        ensureCapacity(count * 3 + 4);
+        for (int i = offset; i < offset + count; i++) {
+            put(text.charAt(i));
+        }
+    }
+
+    // Callers make room for the worst case first: three bytes per char, four for a completed surrogate pair
+    private void put(char c) {
+        byte[] out = this.bytes;
+        int n = this.length;
+        if (this.highSurrogate != 0) {
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                out[n++] = (byte) (0xf0 | (codePoint >> 18));
+                out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                out[n++] = (byte) (0x80 | (codePoint & 0x3f));
+                this.length = n;
+                return;
+            }
+            out[n++] = '?';
+        }
+        if (c < 0x80) {
+            out[n++] = (byte) c;
+        } else if (c < 0x800) {
+            out[n++] = (byte) (0xc0 | (c >> 6));
+            out[n++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            out[n++] = '?';
+        } else {
+            out[n++] = (byte) (0xe0 | (c >> 12));
+            out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            out[n++] = (byte) (0x80 | (c & 0x3f));
+        }
+        this.length = n;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.length + extra > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + extra));
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Ends the page; a dangling high surrogate becomes '?' like any other unpaired one
+    public void finish() {
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            ensureCapacity(1);
+            this.bytes[this.length++] = '?';
+        }
+    }
+
+    public byte[] bytes() {
+        return this.bytes;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    // Compresses the page into the gzip format and returns its length; the result is in compressedBytes()
+    public int gzip(int level) {
+        if (this.deflater == null) {
+            this.deflater = new Deflater(level, true);
+        } else {
+            this.deflater.reset();
+            this.deflater.setLevel(level);
+        }
+        if (this.compressed == null || this.compressed.length < this.length / 2 + 64) {
+            this.compressed = new byte[Math.max(this.initialSize, this.length / 2 + 64)];
+        }
+        System.arraycopy(GZIP_HEADER, 0, this.compressed, 0, GZIP_HEADER.length);
+        int n = GZIP_HEADER.length;
+        this.deflater.setInput(this.bytes, 0, this.length);
+        this.deflater.finish();
+        while (!this.deflater.finished()) {
+            if (n == this.compressed.length) {
+                this.compressed = Arrays.copyOf(this.compressed, this.compressed.length * 2);
+            }
+            n += this.deflater.deflate(this.compressed, n, this.compressed.length - n);
+        }
+        if (n + GZIP_TRAILER_LENGTH > this.compressed.length) {
+            this.compressed = Arrays.copyOf(this.compressed, n + GZIP_TRAILER_LENGTH);
+        }
+        this.crc.reset();
+        this.crc.update(this.bytes, 0, this.length);
+        n = putIntLittleEndian(this.compressed, n, (int) this.crc.getValue());
+        return putIntLittleEndian(this.compressed, n, this.length);
+    }
+
+    public byte[] compressedBytes() {
+        return this.compressed;
+    }
+
+    private static int putIntLittleEndian(byte[] out, int at, int value) {
+        out[at] = (byte) value;
+        out[at + 1] = (byte) (value >> 8);
+        out[at + 2] = (byte) (value >> 16);
+        out[at + 3] = (byte) (value >> 24);
+        return at + 4;
+    }
+
+    // Empties the buffer for the next page; arrays that grew past maxRetainedSize go back to the initial size
+    void recycle(int maxRetainedSize) {
+        this.length = 0;
+        this.highSurrogate = 0;
+        if (this.bytes.length > maxRetainedSize) {
+            this.bytes = new byte[this.initialSize];
+        }
+        if (this.compressed != null && this.compressed.length > maxRetainedSize) {
+            this.compressed = null;
+        }
+    }
+
+    // Frees the native deflater of a buffer the pool does not keep
+    void dispose() {
+        if (this.deflater != null) {
+            this.deflater.end();
+            this.deflater = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package mk.ukim.finki.wp.lab.web.render;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Bounded pool of page buffers. Buffers keep the capacity their pages needed, up to maxRetainedSize,
+// so steady traffic renders without growing arrays; a burst beyond the pool size allocates and is dropped.
+public class RenderBufferPool {
+    private final BlockingQueue<RenderBuffer> idle;
+    private final int initialSize;
+    private final int maxRetainedSize;
+
+    public RenderBufferPool(int poolSize, int initialSize, int maxRetainedSize) {
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        this.initialSize = initialSize;
+        this.maxRetainedSize = maxRetainedSize;
+    }
+
+    public RenderBuffer acquire() {
+        RenderBuffer buffer = this.idle.poll();
+        return buffer != null ? buffer : new RenderBuffer(this.initialSize);
+    }
+
+    public void release(RenderBuffer buffer) {
+        buffer.recycle(this.maxRetainedSize);
+        if (!this.idle.offer(buffer)) {
+            buffer.dispose();
+        }
+    }
+
+    public int idleCount() {
+        return this.idle.size();
+    }
+}
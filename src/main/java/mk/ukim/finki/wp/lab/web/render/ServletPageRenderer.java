@@ -0,0 +1,118 @@
+package mk.ukim.finki.wp.lab.web.render;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.IOException;
+
+// Rendering path shared by the legacy servlets. Pages are rendered into a pooled buffer and sent in one
+// write with a Content-Length, gzip-compressed from gzipMinBytes up when the client accepts it. Nothing is
+// committed before the template has finished, so a failing template still ends in a proper error page.
+public class ServletPageRenderer {
+    private static final String CONTENT_TYPE = "text/html; charset=UTF-8";
+
+    private final SpringTemplateEngine templateEngine;
+    private final JakartaServletWebApplication webApplication;
+    private final RenderBufferPool bufferPool;
+    private final MeterRegistry registry;
+    private final int gzipMinBytes;
+    private final int gzipLevel;
+
+    // gzipMinBytes below zero turns compression off
+    public ServletPageRenderer(SpringTemplateEngine templateEngine, JakartaServletWebApplication webApplication,
+                               RenderBufferPool bufferPool, MeterRegistry registry, int gzipMinBytes, int gzipLevel) {
+        this.templateEngine = templateEngine;
+        this.webApplication = webApplication;
+        this.bufferPool = bufferPool;
+        this.registry = registry;
+        this.gzipMinBytes = gzipMinBytes;
+        this.gzipLevel = gzipLevel;
+    }
+
+    public WebContext context(HttpServletRequest request, HttpServletResponse response) {
+        return new WebContext(this.webApplication.buildExchange(request, response));
+    }
+
+    public void render(HttpServletRequest request, HttpServletResponse response, String template, WebContext context)
+            throws IOException {
+        RenderBuffer buffer = this.bufferPool.acquire();
+        try {
+            this.templateEngine.process(template, context, buffer);
+            buffer.finish();
+
+            byte[] body = buffer.bytes();
+            int length = buffer.length();
+            boolean gzip = false;
+            if (this.gzipMinBytes >= 0) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (length >= this.gzipMinBytes && acceptsGzip(request)) {
+                    length = buffer.gzip(this.gzipLevel);
+                    body = buffer.compressedBytes();
+                    gzip = true;
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                }
+            }
+            response.setContentType(CONTENT_TYPE);
+            response.setContentLength(length);
+            response.getOutputStream().write(body, 0, length);
+            responseBytes(template, gzip).record(length);
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    private DistributionSummary responseBytes(String template, boolean gzip) {
+        return DistributionSummary.builder("app.render.response.bytes")
+                .description("Size of the pages sent by the legacy servlets")
+                .baseUnit("bytes")
+                .tag("template", template)
+                .tag("encoding", gzip ? "gzip" : "identity")
+                .register(this.registry);
+    }
+
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        return acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    // True when Accept-Encoding lists gzip or * without q=0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int from = 0;
+        while (from < acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', from);
+            if (end < 0) {
+                end = acceptEncoding.length();
+            }
+            int parameters = acceptEncoding.indexOf(';', from);
+            if (parameters < 0 || parameters > end) {
+                parameters = end;
+            }
+            String coding = acceptEncoding.substring(from, parameters).trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equals("*")) {
+                return !isZeroQuality(acceptEncoding.substring(parameters, end));
+            }
+            from = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        int q = parameters.indexOf("q=");
+        if (q < 0) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(parameters.substring(q + 2).trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
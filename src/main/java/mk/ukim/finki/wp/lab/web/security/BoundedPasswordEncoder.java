@@ -0,0 +1,87 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Checks passwords on a small fixed pool, so a burst of logins keeps at most `threads` CPUs busy hashing and
+// the request threads rendering pages keep theirs. The login waits for its result; once the pool and its queue
+// are full, or the wait passes the timeout, it is turned away with LoginThrottledException. encode() only runs
+// at startup and for the one-time hash upgrades after a login, and stays on the caller's thread.
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout) {
+        if (threads < 1 || queueCapacity < 0) {
+            throw new IllegalStateException("Password verification needs at least one thread and a queue capacity"
+                    + " of 0 or more, got " + threads + " threads and a capacity of " + queueCapacity);
+        }
+        this.delegate = delegate;
+        this.timeoutMillis = timeout.toMillis();
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setThreadNamePrefix("password-verify-");
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setKeepAliveSeconds(60);
+        this.executor.setAllowCoreThreadTimeOut(true);
+        this.executor.initialize();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Future<Boolean> result;
+        try {
+            result = this.executor.submit(() -> this.delegate.matches(rawPassword, encodedPassword));
+        } catch (TaskRejectedException e) {
+            throw new LoginThrottledException("Too many logins in progress");
+        }
+        try {
+            return result.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new LoginThrottledException("Password check timed out after " + this.timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LoginThrottledException("Interrupted while waiting for the password check");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password check failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return this.executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,125 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// The path rules compiled into a tree of path segments. A request walks its own segments once and gets the
+// same answer as trying the rules in order: of the rules matching the path and method, the earliest one
+// decides, and a path no rule matches needs an authenticated user. Only literal paths and "/prefix/**"
+// subtrees are supported, matched case-sensitively on the servlet path, as AntPathRequestMatcher does: a subtree
+// by plain prefix, a literal path ignoring empty segments but not whether it ends with a slash.
+public class CompiledPathAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private final Node root = new Node();
+    private final AuthorizationManager<RequestAuthorizationContext> admin =
+            AuthorityAuthorizationManager.hasRole("ADMIN");
+    private final AuthorizationManager<RequestAuthorizationContext> authenticated =
+            AuthenticatedAuthorizationManager.authenticated();
+
+    public CompiledPathAuthorizationManager(List<PathRule> rules) {
+        for (int order = 0; order < rules.size(); order++) {
+            PathRule rule = rules.get(order);
+            String pattern = rule.pattern();
+            boolean subtree = pattern.endsWith("/**");
+            String path = subtree ? pattern.substring(0, pattern.length() - 3) : pattern;
+            if (!path.startsWith("/") && !(subtree && path.isEmpty()) || path.indexOf('*') >= 0
+                    || path.indexOf('?') >= 0 || path.indexOf('{') >= 0) {
+                throw new IllegalStateException("Pattern not supported by the compiled authorization lookup: "
+                        + pattern);
+            }
+            Node node = this.root;
+            for (String segment : segments(path)) {
+                if (subtree || !segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, key -> new Node());
+                }
+            }
+            List<Compiled> rulesAtNode = subtree ? node.subtreeRules
+                    : path.endsWith("/") ? node.slashRules : node.exactRules;
+            rulesAtNode.add(new Compiled(order, rule.method(), rule.access()));
+        }
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        PathRule.Access access = lookup(requestPath(context.getRequest()), context.getRequest().getMethod());
+        if (access == PathRule.Access.PERMIT_ALL) {
+            return GRANTED;
+        }
+        return (access == PathRule.Access.ADMIN ? this.admin : this.authenticated).check(authentication, context);
+    }
+
+    // Null when no rule matches
+    public PathRule.Access lookup(String path, String method) {
+        Compiled best = null;
+        String[] segments = segments(path);
+        Node node = this.root;
+        for (int depth = 0; node != null; node = node.children.get(segments[depth++])) {
+            // A "/prefix/**" rule covers "/prefix" itself and everything below it
+            best = earliest(best, node.subtreeRules, method);
+            if (depth == segments.length) {
+                break;
+            }
+        }
+        node = this.root;
+        for (int depth = 0; node != null && depth < segments.length; depth++) {
+            if (!segments[depth].isEmpty()) {
+                node = node.children.get(segments[depth]);
+            }
+        }
+        if (node != null) {
+            best = earliest(best, path.endsWith("/") ? node.slashRules : node.exactRules, method);
+        }
+        return best != null ? best.access : null;
+    }
+
+    private static Compiled earliest(Compiled best, List<Compiled> candidates, String method) {
+        for (Compiled candidate : candidates) {
+            if ((best == null || candidate.order < best.order)
+                    && (candidate.method == null || candidate.method.equals(method))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    // "/" has no segments; a trailing slash or a doubled one leaves an empty segment
+    private static String[] segments(String path) {
+        if (path.isEmpty() || path.equals("/")) {
+            return new String[0];
+        }
+        return path.substring(1).split("/", -1);
+    }
+
+    // The path AntPathRequestMatcher matches against
+    private static String requestPath(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            path = StringUtils.hasLength(path) ? path + pathInfo : pathInfo;
+        }
+        return path;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<Compiled> exactRules = new ArrayList<>(1);
+        final List<Compiled> slashRules = new ArrayList<>(1);
+        final List<Compiled> subtreeRules = new ArrayList<>(1);
+    }
+
+    private record Compiled(int order, String method, PathRule.Access access) {
+    }
+}
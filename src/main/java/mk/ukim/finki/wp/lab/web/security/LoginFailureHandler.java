@@ -0,0 +1,32 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+
+import java.io.IOException;
+
+// Wrong credentials go back to the login form as usual; a throttled login is answered with 503 and
+// Retry-After, so the client tries again instead of reporting a wrong password
+public class LoginFailureHandler extends SimpleUrlAuthenticationFailureHandler {
+
+    public LoginFailureHandler(String failureUrl) {
+        super(failureUrl);
+    }
+
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException, ServletException {
+        if (exception instanceof LoginThrottledException) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType("text/plain; charset=UTF-8");
+            response.getWriter().write("Too many logins in progress, retry shortly\n");
+            return;
+        }
+        super.onAuthenticationFailure(request, response, exception);
+    }
+}
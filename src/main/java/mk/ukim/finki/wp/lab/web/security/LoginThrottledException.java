@@ -0,0 +1,11 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+// The password could not be checked in time because too many logins are in progress
+public class LoginThrottledException extends InternalAuthenticationServiceException {
+
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+// One authorization rule: a literal path or a "/prefix/**" subtree, optionally for one HTTP method only
+public record PathRule(String pattern, String method, Access access) {
+
+    public enum Access {
+        PERMIT_ALL,
+        ADMIN
+    }
+
+    public static PathRule permitAll(String pattern) {
+        return new PathRule(pattern, null, Access.PERMIT_ALL);
+    }
+
+    public static PathRule permitAll(String pattern, String method) {
+        return new PathRule(pattern, method, Access.PERMIT_ALL);
+    }
+
+    public static PathRule admin(String pattern) {
+        return new PathRule(pattern, null, Access.ADMIN);
+    }
+
+    public RequestMatcher matcher() {
+        return new AntPathRequestMatcher(this.pattern, this.method);
+    }
+}
@@ -0,0 +1,25 @@
+-- Baseline of the schema previously managed by hibernate.ddl-auto=update.
+-- Written idempotently so it applies both to empty databases and to existing ones.
+
+CREATE TABLE IF NOT EXISTS chefs (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    bio        VARCHAR(1000)
+);
+
+ALTER TABLE chefs ADD COLUMN IF NOT EXISTS dish_count INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_chefs_dish_count_id ON chefs (dish_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS dishes (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    dish_id          VARCHAR(255),
+    name             VARCHAR(255),
+    cuisine          VARCHAR(255),
+    preparation_time INTEGER NOT NULL,
+    rating           INTEGER,
+    chef_id          BIGINT REFERENCES chefs (id)
+);
+
+UPDATE chefs c SET dish_count = (SELECT count(*) FROM dishes d WHERE d.chef_id = c.id);
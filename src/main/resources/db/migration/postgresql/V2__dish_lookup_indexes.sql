@@ -0,0 +1,13 @@
+-- findByDishId expects a single row; suffix any existing duplicates with their primary key
+-- (the oldest row keeps its dish_id) so the unique index can be built without losing data.
+UPDATE dishes d
+SET dish_id = d.dish_id || '-' || d.id
+WHERE d.id <> (SELECT min(x.id) FROM dishes x WHERE x.dish_id = d.dish_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_dishes_dish_id ON dishes (dish_id);
+
+-- Serves findAllByRating and the (rating, id) keyset pages on /dishes
+CREATE INDEX IF NOT EXISTS idx_dishes_rating_id ON dishes (rating, id);
+
+-- Serves findAllByChef_Id and the dish_count reconciliation
+CREATE INDEX IF NOT EXISTS idx_dishes_chef_id ON dishes (chef_id);
@@ -0,0 +1,7 @@
+-- Hibernate's pooled optimizer treats each nextval as the top of a block of 50 ids,
+-- so start the sequences 50 past the current maximum to avoid reusing identity values.
+CREATE SEQUENCE IF NOT EXISTS chefs_seq INCREMENT BY 50;
+SELECT setval('chefs_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM chefs), false);
+
+CREATE SEQUENCE IF NOT EXISTS dishes_seq INCREMENT BY 50;
+SELECT setval('dishes_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM dishes), false);
@@ -0,0 +1,3 @@
+-- Version columns for optimistic locking; existing rows start at 0
+ALTER TABLE dishes ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chefs ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+-- Change feed for multi-node deployments: each node writes one row per transaction that changed the
+-- catalogue and polls for the rows of the others to invalidate its in-process caches and read models.
+CREATE TABLE IF NOT EXISTS catalog_changes (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node_id    VARCHAR(64) NOT NULL,
+    payload    TEXT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_catalog_changes_created_at ON catalog_changes (created_at);
@@ -0,0 +1,135 @@
+package mk.ukim.finki.wp.lab.repository.jpa;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Builds the schema from the PostgreSQL migrations on H2 in PostgreSQL mode and checks the plans of the
+// JpaDishRepository lookups. The statements have the shape Hibernate generates for the derived finders.
+// Migrations stop at V2, which adds the lookup indexes; V3 calls setval, which H2 does not have.
+class DishLookupIndexTest {
+    private static final int CHEFS = 20;
+    private static final int DISHES = 2000;
+
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:dish-lookup-index;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/postgresql")
+                .target("2")
+                .load()
+                .migrate();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into chefs (first_name, last_name, bio) values (?, ?, ?)")) {
+                for (int i = 0; i < CHEFS; i++) {
+                    insert.setString(1, "First" + i);
+                    insert.setString(2, "Last" + i);
+                    insert.setString(3, "Bio");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into dishes (dish_id, name, cuisine, preparation_time, rating, chef_id) " +
+                            "values (?, ?, ?, ?, ?, (select min(id) from chefs) + ?)")) {
+                for (int i = 0; i < DISHES; i++) {
+                    insert.setString(1, "D" + i);
+                    insert.setString(2, "Dish " + i);
+                    insert.setString(3, "Cuisine" + (i % 7));
+                    insert.setInt(4, 10 + i % 50);
+                    insert.setInt(5, 1 + i % 5);
+                    insert.setInt(6, i % CHEFS);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.createStatement().execute("analyze");
+        }
+    }
+
+    @Test
+    void findByDishIdUsesTheUniqueIndex() throws SQLException {
+        assertThat(plan("select d.id, d.dish_id, d.name from dishes d where d.dish_id = ?", "D42"))
+                .contains("ux_dishes_dish_id");
+    }
+
+    @Test
+    void findAllByRatingUsesTheRatingIndex() throws SQLException {
+        assertThat(plan("select d.id, d.dish_id, d.name from dishes d where d.rating = ?", 3))
+                .contains("idx_dishes_rating_id");
+        // The keyset pages on /dishes?rating= walk the same index in id order
+        assertThat(plan("select d.id, d.name from dishes d where d.rating = ? and d.id > ? order by d.id " +
+                "fetch first ? rows only", 3, 100L, 50))
+                .contains("idx_dishes_rating_id");
+    }
+
+    @Test
+    void findAllByChefIdUsesTheChefIndex() throws SQLException {
+        // H2 adds its own index for the foreign key and may pick that one; PostgreSQL has only the migration's
+        assertThat(plan("select d.id, d.dish_id, d.name from dishes d where d.chef_id = ?", 1L))
+                .doesNotContain("tablescan")
+                .contains("chef_id = ?1");
+        assertThat(indexColumns("idx_dishes_chef_id")).isEqualTo("chef_id");
+    }
+
+    @Test
+    void dishIdIsUnique() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into dishes (dish_id, name, cuisine, preparation_time) values ('D0', 'Copy', 'X', 1)")) {
+            assertThatThrownBy(insert::executeUpdate)
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("ux_dishes_dish_id");
+        }
+    }
+
+    private static String indexColumns(String index) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement columns = connection.prepareStatement(
+                     "select column_name from information_schema.index_columns where index_name = ? " +
+                             "order by ordinal_position")) {
+            columns.setString(1, index);
+            try (ResultSet rows = columns.executeQuery()) {
+                StringJoiner names = new StringJoiner(",");
+                while (rows.next()) {
+                    names.add(rows.getString(1));
+                }
+                return names.toString();
+            }
+        }
+    }
+
+    private static String plan(String sql, Object... parameters) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                explain.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rows = explain.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+                return plan.toString().toLowerCase(Locale.ROOT);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.Dish;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Concurrent read-modify-write edits of one dish, like several admins submitting edit forms. Every worker reads
+// the dish, adds one to its preparation time and saves it with the version it read, re-reading on a conflict.
+// Every accepted save must show up in the final value, whether it was written directly or through the
+// write-behind queue. The stress run in src/jmh measures the same thing for throughput.
+@SpringBootTest(properties = {"app.write-behind.enabled=true", "app.write-behind.flush-interval=PT0.01S"})
+class ConcurrentEditTest {
+
+    private static final int WORKERS = 4;
+    private static final int SAVES_PER_WORKER = 15;
+
+    @Autowired
+    private DishService dishService;
+
+    @Autowired
+    private WriteBehindService writeBehindService;
+
+    @Test
+    void directEditsLoseNoUpdates() throws Exception {
+        Long id = this.dishService.create("concurrent-direct", "Direct", "Test", 0, null, null).getId();
+
+        int accepted = edit(id, dishId -> this.dishService.findByIdWithChef(dishId), dish ->
+                this.dishService.update(dish.getId(), dish.getDishId(), dish.getName(), dish.getCuisine(),
+                        dish.getPreparationTime() + 1, null, null, dish.getVersion()));
+
+        assertThat(accepted).isEqualTo(WORKERS * SAVES_PER_WORKER);
+        assertThat(this.dishService.findByIdWithChef(id).getPreparationTime()).isEqualTo(accepted);
+    }
+
+    @Test
+    void writeBehindEditsLoseNoUpdates() throws Exception {
+        Long id = this.dishService.create("concurrent-queued", "Queued", "Test", 0, null, null).getId();
+
+        // Forms are rendered from the queued edit when there is one, as the edit page does
+        int accepted = edit(id, dishId -> this.writeBehindService.overlay(this.dishService.findByIdWithChef(dishId)),
+                dish -> this.writeBehindService.updateDish(dish.getId(), dish.getDishId(), dish.getName(),
+                        dish.getCuisine(), dish.getPreparationTime() + 1, null, null, dish.getVersion()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (this.dishService.findByIdWithChef(id).getPreparationTime() < accepted && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(accepted).isEqualTo(WORKERS * SAVES_PER_WORKER);
+        assertThat(this.dishService.findByIdWithChef(id).getPreparationTime()).isEqualTo(accepted);
+        assertThat(this.writeBehindService.failedDishEdit(id)).isEmpty();
+    }
+
+    // Runs the workers until each has saved SAVES_PER_WORKER times and returns the number of accepted saves
+    private int edit(Long id, LongFunction<Dish> read, Save save) throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                results.add(workers.submit(() -> {
+                    int saved = 0;
+                    while (saved < SAVES_PER_WORKER) {
+                        try {
+                            save.apply(read.apply(id));
+                            saved++;
+                            accepted.incrementAndGet();
+                        } catch (OptimisticLockingFailureException e) {
+                            // Nothing was written; read again, like reloading the form
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return accepted.get();
+    }
+
+    @FunctionalInterface
+    private interface Save {
+        void apply(Dish dish);
+    }
+}
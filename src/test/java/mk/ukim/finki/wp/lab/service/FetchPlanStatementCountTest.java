@@ -0,0 +1,134 @@
+package mk.ukim.finki.wp.lab.service;
+
+import mk.ukim.finki.wp.lab.model.Chef;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import mk.ukim.finki.wp.lab.observability.RequestStats;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Statement and row counts for the list and detail reads, taken from the same per-thread tally that RequestMetricsFilter
+// reports. A lazy association touched by a list page, or a detail load without its fetch plan, shows up here as
+// one statement per row instead of one for the page.
+@SpringBootTest
+class FetchPlanStatementCountTest {
+
+    @Autowired
+    private ChefService chefService;
+
+    @Autowired
+    private DishService dishService;
+
+    @Autowired
+    private JpaDishRepository dishRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @BeforeEach
+    void clearCaches() {
+        this.cacheManager.getCacheNames().forEach(name -> this.cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void chefListsAreOneSelect() {
+        assertThat(statements(() -> this.chefService.listChefSummaries())).isEqualTo(1);
+        assertThat(statements(() -> this.chefService.listChefSummaries(null, 50))).isEqualTo(1);
+        assertThat(statements(() -> this.chefService.listChefsByPopularity(null, null, 50))).isEqualTo(1);
+        // Entities too: the dishes stay unloaded until something asks for them
+        assertThat(statements(() -> this.chefService.listChefs())).isEqualTo(1);
+    }
+
+    @Test
+    void dishListsAreOneSelect() {
+        assertThat(statements(() -> this.dishService.listDishSummaries())).isEqualTo(1);
+        assertThat(statements(() -> this.dishService.listDishSummaries(null, 50))).isEqualTo(1);
+        assertThat(statements(() -> this.dishService.listDishes())).isEqualTo(1);
+    }
+
+    @Test
+    void chefDetailsLoadTheDishesInTheSameSelect() {
+        ChefSummary withDishes = this.chefService.listChefSummaries().stream()
+                .filter(chef -> chef.getDishCount() > 1)
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(statements(() -> {
+            Chef chef = this.chefService.findByIdWithDishes(withDishes.getId());
+            // Read outside any transaction, so an unfetched collection would fail instead of loading
+            return chef.getDishes().stream().map(Dish::getName).toList();
+        })).isEqualTo(1);
+    }
+
+    @Test
+    void dishDetailsLoadTheChefInTheSameSelect() {
+        DishSummary dish = this.dishService.listDishSummaries().stream()
+                .filter(summary -> this.dishService.findByIdWithChef(summary.getId()).getChef() != null)
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(statements(() -> this.dishService.findByIdWithChef(dish.getId()).getChef().getFirstName()))
+                .isEqualTo(1);
+    }
+
+    // Rows are counted below Hibernate, so projections, slices and streamed reads show up as well as entities
+    @Test
+    void rowsAreCountedForEveryKindOfRead() {
+        long dishes = this.dishRepository.count();
+
+        assertThat(rows(() -> this.dishService.listDishSummaries())).isEqualTo(dishes);
+        assertThat(rows(() -> this.dishService.listDishes())).isEqualTo(dishes);
+        // A slice reads one row past the page to know whether there is a next one
+        Slice<DishSummary> page = this.dishService.listDishSummaries(null, 2);
+        clearCaches();
+        assertThat(rows(() -> this.dishService.listDishSummaries(null, 2)))
+                .isEqualTo(page.getNumberOfElements() + (page.hasNext() ? 1 : 0));
+        assertThat(rows(() -> this.readOnlyTransaction.execute(status -> {
+            try (Stream<DishSnapshot> snapshots = this.dishRepository.streamAllSnapshots()) {
+                return snapshots.count();
+            }
+        }))).isEqualTo(dishes);
+    }
+
+    private static long rows(Supplier<?> work) {
+        RequestStats stats = RequestStats.begin();
+        try {
+            work.get();
+            return stats.getRowsRead();
+        } finally {
+            RequestStats.end();
+        }
+    }
+
+    private static int statements(Supplier<?> work) {
+        RequestStats stats = RequestStats.begin();
+        try {
+            work.get();
+            return stats.getStatements();
+        } finally {
+            RequestStats.end();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package mk.ukim.finki.wp.lab.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.wp.lab.model.audit.AuditRecord;
+import mk.ukim.finki.wp.lab.model.event.ChefChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditLogTest {
+
+    // A few records per segment, so every test runs across segment rolls
+    private static final long SEGMENT_BYTES = 512;
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedRecordsComeBackAsTheEntitysHistory() throws IOException {
+        try (AuditLog log = open()) {
+            assertThat(log.isEmpty()).isTrue();
+            log.append(List.of(created(1L, "Soup", at(1)),
+                    AuditRecord.of(new ChefChangedEvent(null, chef(1L, "Ana")), at(1))));
+            log.append(List.of(updated(1L, "Stew", at(2))));
+            // Out of order for its entity, so it is moved up to the time of the change before it
+            log.append(List.of(AuditRecord.deleted(AuditRecord.DISH, 1L, at(1))));
+
+            List<AuditRecord> history = log.history(AuditRecord.DISH, 1L);
+            assertThat(history).extracting(AuditRecord::sequence).containsExactly(1L, 3L, 4L);
+            assertThat(history).extracting(AuditRecord::operation).containsExactly("create", "update", "delete");
+            assertThat(history.get(1).dish().name()).isEqualTo("Stew");
+            assertThat(history.get(2).at()).isEqualTo(at(2));
+            // A chef and a dish with the same id are different entities
+            assertThat(log.history(AuditRecord.CHEF, 1L)).extracting(record -> record.chef().firstName())
+                    .containsExactly("Ana");
+            assertThat(log.history(AuditRecord.DISH, 2L)).isEmpty();
+            assertThat(log.isEmpty()).isFalse();
+        }
+    }
+
+    // asOf must agree with replaying the appended records, before and after reopening the log from its segments
+    @Test
+    void asOfAgreesWithReplayingTheRecordsAcrossSegmentRolls() throws IOException {
+        Random random = new Random(5);
+        List<AuditRecord> appended = new ArrayList<>();
+        long seconds = 0;
+        try (AuditLog log = open()) {
+            for (int batch = 0; batch < 120; batch++) {
+                List<AuditRecord> records = new ArrayList<>();
+                for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                    // Several records often share a time, including for the same entity
+                    seconds += random.nextInt(3);
+                    records.add(randomRecord(random, at(seconds)));
+                }
+                log.append(records);
+                appended.addAll(records);
+            }
+            assertThat(log.segmentCount()).isGreaterThan(10);
+            assertMatchesReplay(log, appended, seconds);
+        }
+        try (AuditLog reopened = open()) {
+            assertMatchesReplay(reopened, appended, seconds);
+        }
+    }
+
+    @Test
+    void compactionFoldsOldHistoryAndDropsDeletedEntities() throws IOException {
+        try (AuditLog log = open()) {
+            log.append(List.of(created(1L, "Soup", at(1))));
+            log.append(List.of(updated(1L, "Stew", at(2))));
+            log.append(List.of(created(2L, "Pie", at(2))));
+            log.append(List.of(updated(1L, "Broth", at(3))));
+            log.append(List.of(AuditRecord.deleted(AuditRecord.DISH, 2L, at(3))));
+            log.append(List.of(created(3L, "Taco", at(3))));
+            // After the cutoff: a save that changes nothing, a real change and a delete
+            log.append(List.of(updated(1L, "Broth", at(5))));
+            log.append(List.of(updated(1L, "Ramen", at(6))));
+            log.append(List.of(AuditRecord.deleted(AuditRecord.DISH, 3L, at(6))));
+            // Enough to seal the segment holding the records above
+            log.append(List.of(created(10L, "Filler", at(7)), created(11L, "Filler", at(7)),
+                    created(12L, "Filler", at(7))));
+            List<AuditRecord> latest = log.asOf(at(6));
+
+            long removed = log.compact(at(4));
+
+            // Soup and Stew fold into Broth, Pie is gone, and the repeated Broth is left out
+            assertThat(removed).isEqualTo(5);
+            assertThat(log.horizon()).isEqualTo(at(4));
+            assertThat(log.history(AuditRecord.DISH, 1L)).extracting(record -> record.dish().name())
+                    .containsExactly("Broth", "Ramen");
+            assertThat(log.history(AuditRecord.DISH, 1L).get(0).at()).isEqualTo(at(3));
+            assertThat(log.history(AuditRecord.DISH, 2L)).isEmpty();
+            assertThat(log.history(AuditRecord.DISH, 3L)).extracting(AuditRecord::operation)
+                    .containsExactly("create", "delete");
+            assertThat(log.asOf(at(4))).extracting(AuditRecord::id).containsExactly(1L, 3L);
+            assertThat(log.asOf(at(6))).isEqualTo(latest);
+            assertThatThrownBy(() -> log.asOf(at(3))).isInstanceOf(IllegalArgumentException.class);
+            // Nothing new has been sealed since, so there is nothing to do
+            assertThat(log.compact(at(5))).isZero();
+        }
+        try (AuditLog reopened = open()) {
+            assertThat(reopened.horizon()).isEqualTo(at(4));
+            assertThat(reopened.history(AuditRecord.DISH, 1L)).extracting(record -> record.dish().name())
+                    .containsExactly("Broth", "Ramen");
+            assertThat(reopened.asOf(at(4))).extracting(AuditRecord::id).containsExactly(1L, 3L);
+        }
+    }
+
+    @Test
+    void reopeningDropsATornLastLineAndKeepsAppending() throws IOException {
+        try (AuditLog log = open()) {
+            log.append(List.of(created(1L, "Soup", at(1))));
+            log.append(List.of(updated(1L, "Stew", at(2))));
+        }
+        // A crash in the middle of writing the next record
+        Path active = activeSegment();
+        long complete = Files.size(active);
+        Files.writeString(active, "{\"sequence\":3,\"at\":", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (AuditLog log = open()) {
+            assertThat(Files.size(active)).isEqualTo(complete);
+            assertThat(log.history(AuditRecord.DISH, 1L)).extracting(AuditRecord::sequence).containsExactly(1L, 2L);
+
+            log.append(List.of(updated(1L, "Broth", at(3))));
+
+            assertThat(log.history(AuditRecord.DISH, 1L)).extracting(record -> record.dish().name())
+                    .containsExactly("Soup", "Stew", "Broth");
+            assertThat(log.history(AuditRecord.DISH, 1L).get(2).sequence()).isEqualTo(3);
+        }
+        try (AuditLog reopened = open()) {
+            assertThat(reopened.history(AuditRecord.DISH, 1L)).extracting(AuditRecord::sequence)
+                    .containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    private void assertMatchesReplay(AuditLog log, List<AuditRecord> appended, long lastSecond) {
+        List<AuditRecord> sequenced = new ArrayList<>();
+        Map<String, Instant> latestTime = new HashMap<>();
+        for (AuditRecord record : appended) {
+            // Times never go backwards per entity, which the generated records already keep to
+            String key = record.entity() + record.id();
+            Instant at = latestTime.merge(key, record.at(),
+                    (previous, next) -> next.isBefore(previous) ? previous : next);
+            sequenced.add(record.appended(sequenced.size() + 1, at));
+        }
+        for (long second = 0; second <= lastSecond + 1; second += 7) {
+            Instant at = at(second);
+            Map<String, AuditRecord> latest = new HashMap<>();
+            for (AuditRecord record : sequenced) {
+                if (!record.at().isAfter(at)) {
+                    latest.put(record.entity() + record.id(), record);
+                }
+            }
+            List<Long> expected = latest.values().stream()
+                    .filter(record -> !record.deleted())
+                    .map(AuditRecord::sequence)
+                    .sorted()
+                    .toList();
+            assertThat(log.asOf(at)).as("as of %s", at).extracting(AuditRecord::sequence).isEqualTo(expected);
+        }
+        for (long id = 1; id <= 8; id++) {
+            for (String entity : List.of(AuditRecord.DISH, AuditRecord.CHEF)) {
+                long entityId = id;
+                assertThat(log.history(entity, id)).as("%s %d", entity, id)
+                        .isEqualTo(sequenced.stream()
+                                .filter(record -> record.entity().equals(entity) && record.id() == entityId)
+                                .toList());
+            }
+        }
+    }
+
+    private AuditLog open() throws IOException {
+        return new AuditLog(this.directory, SEGMENT_BYTES, false, this.objectMapper);
+    }
+
+    private Path activeSegment() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).max(Comparator.naturalOrder())
+                    .orElseThrow();
+        }
+    }
+
+    private static AuditRecord randomRecord(Random random, Instant at) {
+        long id = 1 + random.nextInt(8);
+        int kind = random.nextInt(6);
+        if (kind == 0) {
+            return AuditRecord.deleted(random.nextBoolean() ? AuditRecord.DISH : AuditRecord.CHEF, id, at);
+        }
+        if (kind == 1) {
+            return AuditRecord.snapshot(chef(id, "Chef " + random.nextInt(100)), at);
+        }
+        return updated(id, "Dish " + random.nextInt(100), at);
+    }
+
+    private static AuditRecord created(Long id, String name, Instant at) {
+        return AuditRecord.of(new DishChangedEvent(null, dish(id, name)), at);
+    }
+
+    private static AuditRecord updated(Long id, String name, Instant at) {
+        return AuditRecord.of(new DishChangedEvent(dish(id, name), dish(id, name)), at);
+    }
+
+    private static DishSnapshot dish(Long id, String name) {
+        return new DishSnapshot(id, "D" + id, name, "Greek", 20, 4, null);
+    }
+
+    private static ChefSnapshot chef(Long id, String firstName) {
+        return new ChefSnapshot(id, firstName, "No. " + id, "bio");
+    }
+
+    private static Instant at(long seconds) {
+        return T0.plusSeconds(seconds);
+    }
+}
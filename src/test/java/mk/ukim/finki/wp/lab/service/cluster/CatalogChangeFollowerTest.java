@@ -0,0 +1,175 @@
+package mk.ukim.finki.wp.lab.service.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.wp.lab.model.CatalogChange;
+import mk.ukim.finki.wp.lab.model.cluster.CatalogChangeBatch;
+import mk.ukim.finki.wp.lab.model.event.CatalogBulkChangeEvent;
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaCatalogChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// The table is a map of the rows committed so far; a row added later with a lower id is a transaction that took
+// its id first and committed after the ones above it
+class CatalogChangeFollowerTest {
+
+    private static final Duration GAP_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration RETENTION = Duration.ofMinutes(1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JpaCatalogChangeRepository changeRepository = mock(JpaCatalogChangeRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TreeMap<Long, CatalogChange> committed = new TreeMap<>();
+    private final List<Object> published = new ArrayList<>();
+    private CatalogChangeFollower follower;
+    private Instant start;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(this.changeRepository.findMaxId()).thenAnswer(invocation ->
+                this.committed.isEmpty() ? 0L : this.committed.lastKey());
+        when(this.changeRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(invocation -> {
+            Long after = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return this.committed.tailMap(after, false).values().stream().limit(page.getPageSize()).toList();
+        });
+        when(this.changeRepository.findByIdInOrderByIdAsc(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return new TreeSet<>(ids).stream().map(this.committed::get).filter(Objects::nonNull).toList();
+        });
+        CatalogChangeRecorder recorder = new CatalogChangeRecorder(this.changeRepository, this.objectMapper,
+                mock(PlatformTransactionManager.class), "here", 1000);
+        this.follower = new CatalogChangeFollower(this.changeRepository, recorder, this.published::add,
+                this.objectMapper, this.registry, 2, GAP_TIMEOUT, RETENTION);
+        // Rows from before startup are covered by building the read models
+        commit(1L, "there");
+        this.follower.afterSingletonsInstantiated();
+        this.start = Instant.now();
+    }
+
+    @Test
+    void rowsCommittedOutOfIdOrderAreEachAppliedOnce() throws Exception {
+        // 3 and 6 are still open when 2, 4, 5 and 7 are read, across several pages
+        commit(2L, "there");
+        commit(4L, "there");
+        commit(5L, "here");
+        commit(7L, "there");
+        this.follower.poll(at(1));
+        assertThat(applied()).containsExactly(2L, 4L, 7L);
+
+        commit(6L, "there");
+        commit(3L, "there");
+        commit(8L, "there");
+        this.follower.poll(at(2));
+        this.follower.poll(at(3));
+
+        // Rows written by this node are skipped, and nothing is applied twice
+        assertThat(applied()).containsExactly(2L, 4L, 7L, 3L, 6L, 8L);
+        assertThat(this.registry.counter("app.cluster.invalidation.applied").count()).isEqualTo(6);
+        // With the gaps filled, there is nothing left to look up and reading resumes past the highest id
+        clearInvocations(this.changeRepository);
+        this.follower.poll(at(4));
+        verify(this.changeRepository, never()).findByIdInOrderByIdAsc(anyCollection());
+        verify(this.changeRepository).findByIdGreaterThanOrderByIdAsc(eq(8L), any());
+    }
+
+    @Test
+    void aGapFilledBeforeTheTimeoutIsApplied() throws Exception {
+        commit(3L, "there");
+        this.follower.poll(at(0));
+
+        commit(2L, "there");
+        this.follower.poll(at(GAP_TIMEOUT.toSeconds() - 1));
+
+        assertThat(applied()).containsExactly(3L, 2L);
+        clearInvocations(this.changeRepository);
+        this.follower.poll(at(GAP_TIMEOUT.toSeconds()));
+        verify(this.changeRepository, never()).findByIdInOrderByIdAsc(anyCollection());
+    }
+
+    @Test
+    void aGapThatOutlastsTheTimeoutIsGivenUp() throws Exception {
+        commit(3L, "there");
+        this.follower.poll(at(0));
+        this.follower.poll(at(GAP_TIMEOUT.toSeconds() / 2));
+        verify(this.changeRepository).findByIdInOrderByIdAsc(anyCollection());
+
+        // Treated as rolled back, so it is neither looked up nor applied if it shows up after all
+        this.follower.poll(at(GAP_TIMEOUT.toSeconds() + 1));
+        commit(2L, "there");
+        commit(4L, "there");
+        clearInvocations(this.changeRepository);
+        this.follower.poll(at(GAP_TIMEOUT.toSeconds() + 2));
+
+        assertThat(applied()).containsExactly(3L, 4L);
+        verify(this.changeRepository, never()).findByIdInOrderByIdAsc(anyCollection());
+        verify(this.changeRepository).findByIdGreaterThanOrderByIdAsc(eq(3L), any());
+    }
+
+    @Test
+    void fallingBehindTheRetentionRefreshesEverythingAndCarriesOnFromTheNewest() throws Exception {
+        commit(2L, "there");
+        this.follower.poll(at(1));
+        // The node stops polling for longer than rows are kept; some of what it missed may be purged already
+        commit(4L, "there");
+        commit(5L, "there");
+        this.follower.poll(at(1 + RETENTION.toSeconds() + 1));
+
+        assertThat(applied()).containsExactly(2L);
+        assertThat(this.published).last().isEqualTo(new CatalogBulkChangeEvent("resync"));
+        assertThat(this.registry.counter("app.cluster.invalidation.resyncs").count()).isEqualTo(1);
+
+        commit(6L, "there");
+        this.follower.poll(at(1 + RETENTION.toSeconds() + 2));
+        assertThat(applied()).containsExactly(2L, 6L);
+    }
+
+    @Test
+    void dishChangesAreRepublishedAsTheyWereRecorded() throws Exception {
+        DishChangedEvent event = new DishChangedEvent(null,
+                new DishSnapshot(9L, "D9", "Soup", "Greek", 20, 4, null));
+        CatalogChange change = new CatalogChange("there", this.objectMapper.writeValueAsString(
+                new CatalogChangeBatch(List.of(new CatalogChangeBatch.Change(event, null)), null)), this.start);
+        change.setId(2L);
+        this.committed.put(2L, change);
+
+        this.follower.poll(at(1));
+
+        assertThat(this.published).containsExactly(event);
+    }
+
+    private Instant at(long seconds) {
+        return this.start.plusSeconds(seconds);
+    }
+
+    // Each row carries a bulk marker naming its id, which comes back as the source of the published event
+    private void commit(Long id, String nodeId) throws Exception {
+        CatalogChange change = new CatalogChange(nodeId,
+                this.objectMapper.writeValueAsString(new CatalogChangeBatch(List.of(), "row " + id)), Instant.now());
+        change.setId(id);
+        this.committed.put(id, change);
+    }
+
+    private List<Long> applied() {
+        return this.published.stream()
+                .map(event -> ((CatalogBulkChangeEvent) event).source())
+                .filter(source -> source.startsWith("remote row "))
+                .map(source -> Long.valueOf(source.substring("remote row ".length())))
+                .toList();
+    }
+}
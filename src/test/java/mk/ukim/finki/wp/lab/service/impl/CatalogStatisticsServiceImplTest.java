@@ -0,0 +1,125 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.stats.CatalogOverview;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.stats.CatalogStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogStatisticsServiceImplTest {
+
+    private static final String[] CUISINES = {"Italian", "Mexican", "Thai", null};
+
+    private final JpaDishRepository dishRepository = mock(JpaDishRepository.class);
+    private final CatalogStatisticsServiceImpl service = new CatalogStatisticsServiceImpl(this.dishRepository,
+            mock(PlatformTransactionManager.class));
+    // The committed dishes, and the rows the rebuild's snapshot sees
+    private final Map<Long, DishSnapshot> catalog = new TreeMap<>();
+    private final Map<Long, DishSnapshot> snapshot = new TreeMap<>();
+
+    @Test
+    void eventsAfterARebuildAreAppliedAsDeltas() {
+        Random random = new Random(3);
+        for (long id = 1; id <= 100; id++) {
+            this.catalog.put(id, randomDish(random, id));
+        }
+        rebuildWithoutChanges();
+
+        for (int change = 0; change < 500; change++) {
+            long id = 1 + random.nextInt(150);
+            change(id, random.nextInt(4) == 0 ? null : randomDish(random, id));
+        }
+
+        assertMatchesCatalog();
+    }
+
+    // Changes that commit while the rebuild is reading must be counted once, whether the read saw them or not
+    @Test
+    void changesDuringTheReadAreCountedOnce() {
+        for (long id = 1; id <= 50; id++) {
+            this.catalog.put(id, dish(id, id % 2 == 0 ? "Italian" : "Thai", (int) id, (int) (id % 5) + 1,
+                    id % 4 + 1));
+        }
+        rebuildWithoutChanges();
+        // Committed before the read started, but its event is only handled while the read is under way
+        DishSnapshot early = this.catalog.get(40L);
+        this.catalog.put(40L, dish(40L, "Greek", 90, 1, 2L));
+        this.snapshot.putAll(this.catalog);
+
+        List<DishSnapshot> read = new ArrayList<>(this.snapshot.values());
+        when(this.dishRepository.streamAllSnapshots()).thenAnswer(invocation -> read.stream().peek(dish -> {
+            if (dish.id() == 10L) {
+                this.service.onDishChanged(new DishChangedEvent(early, this.catalog.get(40L)));
+                // Already read, not read yet, deleted after being read, and created after the read started
+                change(5L, dish(5L, "Nordic", 15, 2, 1L));
+                change(30L, dish(30L, "Thai", 75, null, null));
+                change(7L, null);
+                change(60L, dish(60L, "Italian", 45, 5, 3L));
+                change(30L, dish(30L, "Italian", 80, 4, 4L));
+            }
+        }));
+        when(this.dishRepository.findSnapshotsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(this.snapshot::get).filter(Objects::nonNull).toList();
+        });
+
+        this.service.rebuild();
+        assertMatchesCatalog();
+
+        // And the rebuilt statistics keep taking deltas
+        change(5L, dish(5L, "Nordic", 25, 3, 2L));
+        change(60L, null);
+        assertMatchesCatalog();
+    }
+
+    private void rebuildWithoutChanges() {
+        List<DishSnapshot> read = new ArrayList<>(this.catalog.values());
+        when(this.dishRepository.streamAllSnapshots()).thenAnswer(invocation -> read.stream());
+        this.service.rebuild();
+        assertMatchesCatalog();
+    }
+
+    private void change(long id, DishSnapshot after) {
+        DishSnapshot before = after != null ? this.catalog.put(id, after) : this.catalog.remove(id);
+        if (before != null || after != null) {
+            this.service.onDishChanged(new DishChangedEvent(before, after));
+        }
+    }
+
+    private void assertMatchesCatalog() {
+        CatalogStatistics counted = new CatalogStatistics();
+        this.catalog.values().forEach(dish -> counted.apply(null, dish));
+        assertSameStatistics(this.service.overview(), this.service::chefStats, counted);
+    }
+
+    // The sums are whole numbers either way, so the averages come out identical
+    private static void assertSameStatistics(CatalogOverview overview, LongFunction<ChefStats> chefStats,
+                                             CatalogStatistics expected) {
+        assertThat(overview).isEqualTo(expected.overview());
+        for (long chefId = 1; chefId <= 8; chefId++) {
+            assertThat(chefStats.apply(chefId)).as("chef %d", chefId).usingRecursiveComparison()
+                    .isEqualTo(expected.chefStats(chefId));
+        }
+    }
+
+    private static DishSnapshot randomDish(Random random, long id) {
+        Integer rating = random.nextInt(6) == 0 ? null : 1 + random.nextInt(5);
+        Long chefId = random.nextInt(8) == 0 ? null : 1L + random.nextInt(8);
+        return dish(id, CUISINES[random.nextInt(CUISINES.length)], random.nextInt(120), rating, chefId);
+    }
+
+    private static DishSnapshot dish(Long id, String cuisine, int preparationTime, Integer rating, Long chefId) {
+        return new DishSnapshot(id, "D" + id, "Dish " + id, cuisine, preparationTime, rating, chefId);
+    }
+}
@@ -0,0 +1,110 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.transfer.ImportReport;
+import mk.ukim.finki.wp.lab.model.transfer.TransferFormat;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogTransferServiceImplTest {
+
+    private final JpaDishRepository dishRepository = mock(JpaDishRepository.class);
+    private final JpaChefRepository chefRepository = mock(JpaChefRepository.class);
+    private final CatalogTransferServiceImpl service = new CatalogTransferServiceImpl(this.dishRepository,
+            this.chefRepository, mock(EntityManager.class), mock(PlatformTransactionManager.class),
+            new ObjectMapper(), mock(ApplicationEventPublisher.class));
+    private final List<Dish> saved = new ArrayList<>();
+
+    CatalogTransferServiceImplTest() {
+        when(this.chefRepository.findAllById(any())).thenReturn(List.of());
+        when(this.dishRepository.findExistingDishIds(anyCollection())).thenReturn(Set.of());
+        when(this.dishRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<Dish> dishes = invocation.getArgument(0);
+            dishes.forEach(this.saved::add);
+            return List.of();
+        });
+    }
+
+    // Whatever the export writes, the import must read back unchanged, line breaks of every kind included
+    @Test
+    void csvExportsReadBackUnchanged() throws IOException {
+        List<DishSnapshot> dishes = List.of(
+                dish("D1", "Plain", "Greek"),
+                dish("D2", "Fish, chips", "British"),
+                dish("D3", "The \"best\" pie", "American"),
+                dish("D4", "Two\nlines", "Thai"),
+                dish("D5", "Windows\r\nbreak", "Thai"),
+                dish("D6", "Old Mac\rbreak", "Thai"),
+                dish("D7", "Mixed \"\n,\r\n\" end", "Italian"));
+        when(this.dishRepository.streamAllSnapshots()).thenAnswer(invocation -> dishes.stream());
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertThat(this.service.exportDishes(exported, TransferFormat.CSV)).isEqualTo(dishes.size());
+        ImportReport report = this.service.importDishes(new ByteArrayInputStream(exported.toByteArray()),
+                TransferFormat.CSV);
+
+        assertThat(report.errors()).isEmpty();
+        assertThat(report.imported()).isEqualTo(dishes.size());
+        assertThat(this.saved).extracting(Dish::getDishId, Dish::getName, Dish::getCuisine)
+                .containsExactlyElementsOf(dishes.stream()
+                        .map(dish -> tuple(dish.dishId(), dish.name(), dish.cuisine()))
+                        .toList());
+        assertThat(this.saved).extracting(Dish::getPreparationTime).containsOnly(20);
+        assertThat(this.saved).extracting(Dish::getRating).containsOnly(4);
+    }
+
+    @Test
+    void rowsMayEndWithAnyLineBreakAndAreNumberedByTheLineTheyStartOn() throws IOException {
+        String csv = "dishId,name,cuisine,preparationTime,rating,chefId\r\n"
+                + "D1,Soup,Greek,10,,\r"
+                + "D2,\"Long\nname\",Thai,20,6,\n"
+                + "\n"
+                + "D3,Pie,Greek,x,,\r\n";
+
+        ImportReport report = this.service.importDishes(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), TransferFormat.CSV);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.errors()).containsExactly("Row 3: Rating must be between 1 and 5: 6",
+                "Row 6: For input string: \"x\"");
+        assertThat(this.saved).extracting(Dish::getName).containsExactly("Soup");
+    }
+
+    @Test
+    void anUnterminatedQuoteIsRejected() {
+        String csv = "dishId,name,cuisine,preparationTime,rating,chefId\n"
+                + "D1,\"Soup,Greek,10,,\n"
+                + "D2,Pie,Greek,10,,\n";
+
+        assertThatThrownBy(() -> this.service.importDishes(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), TransferFormat.CSV))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    private static DishSnapshot dish(String dishId, String name, String cuisine) {
+        return new DishSnapshot(null, dishId, name, cuisine, 20, 4, null);
+    }
+}
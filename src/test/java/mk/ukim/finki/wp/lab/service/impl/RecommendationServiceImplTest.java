@@ -0,0 +1,55 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import mk.ukim.finki.wp.lab.model.event.DishChangedEvent;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationServiceImplTest {
+
+    private final JpaDishRepository dishRepository = mock(JpaDishRepository.class);
+    private final JpaChefRepository chefRepository = mock(JpaChefRepository.class);
+    private final RecommendationServiceImpl service = new RecommendationServiceImpl(this.dishRepository,
+            this.chefRepository, mock(PlatformTransactionManager.class), 3, 1);
+
+    @AfterEach
+    void destroy() {
+        this.service.destroy();
+    }
+
+    // With one build thread, a refresh waiting for a rebuild must not be holding that thread
+    @Test
+    void rebuildsAndRefreshesDoNotWaitForEachOther() {
+        List<DishSnapshot> dishes = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            dishes.add(dish(id, id % 2 == 0 ? "Italian" : "Thai"));
+        }
+        when(this.chefRepository.findAllProjectedByOrderByIdAsc()).thenReturn(List.of());
+        when(this.dishRepository.streamAllSnapshots()).thenAnswer(invocation -> dishes.stream());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (long round = 1; round <= 100; round++) {
+                DishSnapshot after = dish(round % 50 + 1, "Greek");
+                this.service.onDishChanged(new DishChangedEvent(null, after));
+                this.service.rebuild();
+            }
+        });
+        assertThat(this.service.similarDishes(2L, 5)).isNotEmpty();
+    }
+
+    private static DishSnapshot dish(Long id, String cuisine) {
+        return new DishSnapshot(id, "D" + id, "Dish " + id, cuisine, 30, 4, null);
+    }
+}
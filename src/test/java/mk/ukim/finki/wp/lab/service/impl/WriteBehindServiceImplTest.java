@@ -0,0 +1,127 @@
+package mk.ukim.finki.wp.lab.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.wp.lab.model.Dish;
+import mk.ukim.finki.wp.lab.model.writebehind.DishEdit;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaChefRepository;
+import mk.ukim.finki.wp.lab.repository.jpa.JpaDishRepository;
+import mk.ukim.finki.wp.lab.service.ChefService;
+import mk.ukim.finki.wp.lab.service.DishService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// The write-behind service against mocked collaborators: edits are checked against what is queued or being written
+// for the dish, not only against the stored row, and an edit the writer cannot apply is kept for its editor.
+class WriteBehindServiceImplTest {
+
+    private final DishService dishService = mock(DishService.class);
+    private final JpaDishRepository dishRepository = mock(JpaDishRepository.class);
+    private WriteBehindServiceImpl service;
+
+    @BeforeEach
+    void service() {
+        this.service = new WriteBehindServiceImpl(this.dishService, mock(ChefService.class), this.dishRepository,
+                mock(JpaChefRepository.class), mock(PlatformTransactionManager.class), new ObjectMapper(),
+                new SimpleMeterRegistry(), true, 100, 50, Duration.ofMillis(10), Duration.ZERO,
+                false, Path.of("unused"), false);
+        when(this.dishRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+    }
+
+    @AfterEach
+    void shutdown() throws Exception {
+        this.service.shutdown();
+    }
+
+    @Test
+    void aStaleEditDoesNotOverwriteAQueuedOne() {
+        update("A", 3L);
+
+        assertThatThrownBy(() -> update("B", 3L)).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(overlay().getName()).isEqualTo("A");
+        assertThat(overlay().getVersion()).isEqualTo(4L);
+
+        // An editor who saw A's edit can still replace it
+        update("C", 4L);
+        assertThat(overlay().getName()).isEqualTo("C");
+        assertThat(overlay().getVersion()).isEqualTo(5L);
+    }
+
+    @Test
+    void anEditMadeOnTopOfAnInFlightOneIsWrittenAfterIt() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(this.dishService.update(eq(1L), any(), eq("A"), any(), anyInt(), any(), any(), eq(3L)))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                    return null;
+                });
+        this.service.onApplicationReady();
+
+        update("A", 3L);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> update("B", 3L)).isInstanceOf(OptimisticLockingFailureException.class);
+        update("C", 4L);
+        release.countDown();
+
+        // C is written against the version A leaves behind, instead of failing at flush
+        verify(this.dishService, timeout(5000)).update(eq(1L), any(), eq("C"), any(), anyInt(), any(), any(), eq(4L));
+        verify(this.dishRepository, timeout(5000)).advanceVersion(1L, 5L);
+        assertThat(this.service.failedDishEdit(1L)).isEmpty();
+    }
+
+    @Test
+    void anEditTheWriterCannotApplyIsHeldForItsEditor() throws Exception {
+        when(this.dishService.update(anyLong(), any(), any(), any(), anyInt(), any(), any(), any()))
+                .thenThrow(new OptimisticLockingFailureException("changed"));
+        this.service.onApplicationReady();
+
+        update("A", 3L);
+
+        verify(this.dishService, timeout(5000).times(2))
+                .update(anyLong(), any(), any(), any(), anyInt(), any(), any(), any());
+        Optional<DishEdit> failed = waitForFailedEdit();
+        assertThat(failed).get().extracting(DishEdit::name).isEqualTo("A");
+        assertThat(overlay().getName()).isEqualTo("stored");
+
+        this.service.discardDish(1L);
+        assertThat(this.service.failedDishEdit(1L)).isEmpty();
+    }
+
+    private Optional<DishEdit> waitForFailedEdit() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Optional<DishEdit> failed = this.service.failedDishEdit(1L);
+        while (failed.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            failed = this.service.failedDishEdit(1L);
+        }
+        return failed;
+    }
+
+    private void update(String name, Long version) {
+        this.service.updateDish(1L, "D1", name, "Italian", 10, null, 4, version);
+    }
+
+    private Dish overlay() {
+        Dish stored = new Dish("D1", "stored", "Italian", 10, 4);
+        stored.setId(1L);
+        stored.setVersion(3L);
+        return this.service.overlay(stored);
+    }
+}
@@ -0,0 +1,166 @@
+package mk.ukim.finki.wp.lab.service.recommendation;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.recommendation.ChefRecommendation;
+import mk.ukim.finki.wp.lab.model.recommendation.DishRecommendation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RecommendationIndexTest {
+
+    private static final int NEIGHBOURS = 3;
+    private static final String[] CUISINES = {"Italian", "Mexican", "Thai", "Greek", "Nordic"};
+    private static final ForkJoinPool POOL = new ForkJoinPool(2);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdownNow();
+    }
+
+    @Test
+    void similarDishesPreferTheSameCuisineRatingAndPreparationTime() {
+        List<DishSnapshot> dishes = List.of(
+                dish(1L, "Italian", 30, 5, 1L),
+                dish(2L, "Italian", 30, 5, 2L),
+                dish(3L, "italian", 35, 4, 2L),
+                dish(4L, "Italian", 120, 1, 2L),
+                dish(5L, "Mexican", 30, 5, 1L));
+        RecommendationIndex index = RecommendationIndex.build(dishes, chefs(2), NEIGHBOURS, POOL);
+
+        List<DishRecommendation> similar = index.similarDishes(1L, 10);
+
+        // Cuisines match ignoring case, and a cuisine with more dishes than the list holds keeps to itself
+        assertThat(similar).extracting(DishRecommendation::id).containsExactly(2L, 3L, 4L);
+        assertThat(similar.get(0).score()).isGreaterThan(similar.get(1).score());
+        assertThat(similar).allSatisfy(recommendation -> assertThat(recommendation.score()).isBetween(0.0, 1.0));
+        assertThat(index.similarDishes(1L, 1)).extracting(DishRecommendation::id).containsExactly(2L);
+        assertThat(index.similarDishes(99L, 10)).isEmpty();
+        assertThat(index.dishCount()).isEqualTo(5);
+        assertThat(index.cuisineCount()).isEqualTo(2);
+    }
+
+    @Test
+    void smallCuisinesBorrowNeighboursFromTheOthers() {
+        List<DishSnapshot> dishes = List.of(
+                dish(1L, "Italian", 30, 5, 1L),
+                dish(2L, "Italian", 30, 5, 2L),
+                dish(3L, "Thai", 30, 5, 2L));
+        RecommendationIndex index = RecommendationIndex.build(dishes, chefs(2), NEIGHBOURS, POOL);
+
+        assertThat(index.similarDishes(3L, 10)).extracting(DishRecommendation::id).containsExactlyInAnyOrder(1L, 2L);
+        // The other Italian dish still comes first for an Italian one
+        assertThat(index.similarDishes(1L, 10)).first().extracting(DishRecommendation::id).isEqualTo(2L);
+    }
+
+    @Test
+    void chefsAreComparedByTheirCuisineMix() {
+        List<DishSnapshot> dishes = List.of(
+                dish(1L, "Italian", 30, 5, 1L),
+                dish(2L, "Thai", 30, 5, 1L),
+                dish(3L, "Italian", 30, 5, 2L),
+                dish(4L, "Thai", 30, 5, 2L),
+                dish(5L, "Italian", 30, 5, 3L),
+                dish(6L, "Nordic", 30, 5, 4L));
+        RecommendationIndex index = RecommendationIndex.build(dishes, chefs(4), NEIGHBOURS, POOL);
+
+        List<ChefRecommendation> similar = index.similarChefs(1L, 10);
+
+        assertThat(similar).extracting(ChefRecommendation::id).containsExactly(2L, 3L);
+        assertThat(similar.get(0).score()).isCloseTo(1.0, within(1e-6));
+        assertThat(similar.get(0).dishCount()).isEqualTo(2);
+        assertThat(index.similarChefs(4L, 10)).isEmpty();
+        // Recommendations for a chef leave out the chef's own dishes
+        assertThat(index.recommendDishesForChef(1L, 10)).extracting(DishRecommendation::id)
+                .doesNotContain(1L, 2L)
+                .contains(3L, 4L);
+    }
+
+    @Test
+    void applyMatchesAFullBuildOfTheChangedCatalog() {
+        Random random = new Random(42);
+        Map<Long, DishSnapshot> catalog = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            catalog.put(id, randomDish(random, id));
+        }
+        List<ChefSnapshot> chefs = chefs(12);
+        RecommendationIndex index = RecommendationIndex.build(catalog.values(), chefs, NEIGHBOURS, POOL);
+
+        for (int round = 0; round < 20; round++) {
+            Map<Long, DishSnapshot> changes = new HashMap<>();
+            int changed = 1 + random.nextInt(15);
+            for (int i = 0; i < changed; i++) {
+                long id = 1 + random.nextInt(330);
+                // A mix of inserts, edits (including moves to another cuisine or chef) and deletes
+                DishSnapshot after = random.nextInt(5) == 0 ? null : randomDish(random, id);
+                changes.put(id, after);
+                if (after != null) {
+                    catalog.put(id, after);
+                } else {
+                    catalog.remove(id);
+                }
+            }
+            index = index.apply(changes, Map.of(), POOL);
+            RecommendationIndex rebuilt = RecommendationIndex.build(catalog.values(), chefs, NEIGHBOURS, POOL);
+
+            assertThat(index.dishCount()).isEqualTo(rebuilt.dishCount());
+            assertThat(index.cuisineCount()).isEqualTo(rebuilt.cuisineCount());
+            for (Long id : catalog.keySet()) {
+                assertThat(scores(index.similarDishes(id, NEIGHBOURS)))
+                        .as("dish %d after round %d", id, round)
+                        .isEqualTo(scores(rebuilt.similarDishes(id, NEIGHBOURS)));
+            }
+            for (ChefSnapshot chef : chefs) {
+                assertThat(index.similarChefs(chef.id(), NEIGHBOURS))
+                        .as("chef %d after round %d", chef.id(), round)
+                        .isEqualTo(rebuilt.similarChefs(chef.id(), NEIGHBOURS));
+            }
+        }
+    }
+
+    @Test
+    void applyLeavesThePreviousIndexUnchanged() {
+        List<DishSnapshot> dishes = List.of(dish(1L, "Italian", 30, 5, 1L), dish(2L, "Italian", 30, 5, 2L));
+        RecommendationIndex before = RecommendationIndex.build(dishes, chefs(2), NEIGHBOURS, POOL);
+
+        Map<Long, DishSnapshot> changes = new HashMap<>();
+        changes.put(2L, null);
+        changes.put(3L, dish(3L, "Thai", 60, 2, 1L));
+        Map<Long, ChefSnapshot> chefChanges = Map.of(2L, new ChefSnapshot(2L, "Renamed", "Chef", "bio"));
+        RecommendationIndex after = before.apply(changes, chefChanges, POOL);
+
+        assertThat(before.similarDishes(1L, 10)).extracting(DishRecommendation::id).containsExactly(2L);
+        assertThat(after.similarDishes(1L, 10)).extracting(DishRecommendation::id).containsExactly(3L);
+        assertThat(after.similarDishes(2L, 10)).isEmpty();
+        assertThat(after.cuisineCount()).isEqualTo(2);
+    }
+
+    // Equal scores may be listed in a different order, so the lists are compared by score
+    private static List<Double> scores(List<DishRecommendation> recommendations) {
+        return recommendations.stream().map(DishRecommendation::score).toList();
+    }
+
+    private static DishSnapshot randomDish(Random random, long id) {
+        Integer rating = random.nextInt(6) == 0 ? null : 1 + random.nextInt(5);
+        Long chefId = random.nextInt(8) == 0 ? null : 1L + random.nextInt(12);
+        return dish(id, CUISINES[random.nextInt(CUISINES.length)], 5 + random.nextInt(180), rating, chefId);
+    }
+
+    private static DishSnapshot dish(Long id, String cuisine, int preparationTime, Integer rating, Long chefId) {
+        return new DishSnapshot(id, "D" + id, "Dish " + id, cuisine, preparationTime, rating, chefId);
+    }
+
+    private static List<ChefSnapshot> chefs(int count) {
+        List<ChefSnapshot> chefs = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            chefs.add(new ChefSnapshot(id, "Chef", "No. " + id, "bio"));
+        }
+        return chefs;
+    }
+}
@@ -0,0 +1,203 @@
+package mk.ukim.finki.wp.lab.service.search;
+
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.search.DishHit;
+import mk.ukim.finki.wp.lab.model.search.SearchQuery;
+import mk.ukim.finki.wp.lab.model.search.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class DishSearchIndexTest {
+
+    private static final String[] CUISINES = {"Italian", "Mexican", "Thai", "Greek"};
+    private static final String[] WORDS = {"pasta", "pastry", "pie", "taco", "curry", "salad", "soup", "stew"};
+
+    private final DishSearchIndex index = new DishSearchIndex();
+
+    @Test
+    void tokenizeLowercasesAndSplitsOnAnythingButLettersAndDigits() {
+        assertThat(DishSearchIndex.tokenize("Crème-Brûlée, 2 ways!")).containsExactly("crème", "brûlée", "2", "ways");
+        assertThat(DishSearchIndex.tokenize("  ")).isEmpty();
+        assertThat(DishSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void everyTermMatchesAsAPrefixOfTheNameCuisineOrChef() {
+        this.index.putChef(1L, "Gordon Ramsay");
+        this.index.put(dish(1L, "Pasta Carbonara", "Italian", 20, 5, 1L));
+        this.index.put(dish(2L, "Pastry Cream", "French", 45, 4, null));
+        this.index.put(dish(3L, "Fish Tacos", "Mexican", 25, 3, 1L));
+
+        assertThat(ids(search("past"))).containsExactly(1L, 2L);
+        assertThat(ids(search("ita pas"))).containsExactly(1L);
+        assertThat(ids(search("ramsay"))).containsExactly(1L, 3L);
+        assertThat(ids(search("GORD taco"))).containsExactly(3L);
+        assertThat(ids(search("sushi"))).isEmpty();
+        assertThat(search("ramsay").hits().get(0).chefName()).isEqualTo("Gordon Ramsay");
+    }
+
+    @Test
+    void updatesAndRemovesReplaceTheOldDocument() {
+        this.index.put(dish(1L, "Pasta", "Italian", 20, 5, null));
+        this.index.put(dish(1L, "Soup", "Greek", 20, 5, null));
+        this.index.put(dish(2L, "Pie", "Greek", 20, 3, null));
+        this.index.remove(2L);
+
+        assertThat(ids(search("pasta"))).isEmpty();
+        assertThat(ids(search("soup"))).containsExactly(1L);
+        assertThat(search("").cuisineFacets()).containsExactly(entry("Greek", 1));
+        assertThat(this.index.size()).isEqualTo(1);
+        assertThat(this.index.suggest("pa", 5)).isEmpty();
+        assertThat(this.index.suggest("so", 5)).containsExactly("soup");
+    }
+
+    @Test
+    void renamingAChefReindexesTheirDishes() {
+        this.index.putChef(1L, "Anna Smith");
+        this.index.put(dish(1L, "Pasta", "Italian", 20, 5, 1L));
+
+        this.index.putChef(1L, "Anna Jones");
+
+        assertThat(ids(search("smith"))).isEmpty();
+        assertThat(ids(search("jones"))).containsExactly(1L);
+        assertThat(search("").total()).isEqualTo(1);
+    }
+
+    @Test
+    void hitsAreRankedByRatingThenIndexOrder() {
+        this.index.put(dish(1L, "Pie one", "Greek", 20, 3, null));
+        this.index.put(dish(2L, "Pie two", "Greek", 20, null, null));
+        this.index.put(dish(3L, "Pie three", "Greek", 20, 5, null));
+        this.index.put(dish(4L, "Pie four", "Greek", 20, 3, null));
+
+        assertThat(ids(search("pie"))).containsExactly(3L, 1L, 4L, 2L);
+        assertThat(ids(this.index.search(new SearchQuery(null, null, null, null, 2))))
+                .containsExactly(3L, 1L);
+        assertThat(search("pie").total()).isEqualTo(4);
+    }
+
+    @Test
+    void eachFacetIgnoresItsOwnFilter() {
+        this.index.put(dish(1L, "House pasta", "Italian", 10, 5, null));
+        this.index.put(dish(2L, "House pizza", "italian", 40, 4, null));
+        this.index.put(dish(3L, "House taco", "Mexican", 10, 5, null));
+        this.index.put(dish(4L, "House burrito", "Mexican", 90, null, null));
+
+        // Browsing and a text query matching every dish take different paths to the same answer
+        for (String text : Arrays.asList(null, "house")) {
+            SearchResult result = this.index.search(new SearchQuery(text, "ITALIAN", null, null, 10));
+
+            assertThat(ids(result)).containsExactly(1L, 2L);
+            assertThat(result.total()).isEqualTo(2);
+            // Cuisines match ignoring case, and the cuisine facet still lists the other cuisines
+            assertThat(result.cuisineFacets()).containsOnly(entry("Italian", 2), entry("Mexican", 2));
+            assertThat(result.ratingFacets()).containsExactly(entry(5, 1), entry(4, 1));
+            assertThat(result.preparationTimeFacets())
+                    .containsExactly(entry("0-14", 1), entry("15-29", 0), entry("30-59", 1), entry("60+", 0));
+        }
+
+        SearchResult fast = this.index.search(new SearchQuery(null, null, 5, "0-14", 10));
+        assertThat(ids(fast)).containsExactly(1L, 3L);
+        assertThat(fast.ratingFacets()).containsExactly(entry(5, 2));
+        assertThat(fast.preparationTimeFacets()).containsEntry("0-14", 2).containsEntry("30-59", 0);
+        assertThat(fast.cuisineFacets()).containsOnly(entry("Italian", 1), entry("Mexican", 1));
+    }
+
+    // Browsing without text is answered from the maintained counts; it must agree with a scan of the live dishes,
+    // also after enough updates and deletes to compact the index
+    @Test
+    void searchesAgreeWithAScanOfTheLiveDishes() {
+        Random random = new Random(7);
+        LinkedHashMap<Long, DishSnapshot> live = new LinkedHashMap<>();
+        for (int change = 0; change < 6000; change++) {
+            long id = 1 + random.nextInt(1500);
+            if (random.nextInt(4) == 0) {
+                this.index.remove(id);
+                live.remove(id);
+            } else {
+                DishSnapshot dish = dish(id, WORDS[random.nextInt(WORDS.length)] + " " + id,
+                        CUISINES[random.nextInt(CUISINES.length)], random.nextInt(120),
+                        random.nextInt(6) == 0 ? null : 1 + random.nextInt(5), null);
+                this.index.put(dish);
+                // Updates go to the end of the index order, like new dishes
+                live.remove(id);
+                live.put(id, dish);
+            }
+        }
+
+        List<String> texts = Arrays.asList(null, "pa", "pastry", "s 1", "thai", "greek soup");
+        List<String> cuisines = Arrays.asList(null, "Italian", "thai");
+        List<Integer> ratings = Arrays.asList(null, 5, 2);
+        List<String> buckets = Arrays.asList(null, "0-14", "60+");
+        for (String text : texts) {
+            for (String cuisine : cuisines) {
+                for (Integer rating : ratings) {
+                    for (String bucket : buckets) {
+                        SearchQuery query = new SearchQuery(text, cuisine, rating, bucket, 25);
+                        assertThat(this.index.search(query)).as("%s", query).isEqualTo(scan(live.values(), query));
+                    }
+                }
+            }
+        }
+        assertThat(this.index.size()).isEqualTo(live.size());
+    }
+
+    // The straightforward reading of the search contract, for comparison
+    private static SearchResult scan(Collection<DishSnapshot> dishes, SearchQuery query) {
+        List<String> tokens = DishSearchIndex.tokenize(query.text());
+        int bucket = query.preparationTime() != null
+                ? DishSearchIndex.PREPARATION_TIME_BUCKETS.indexOf(query.preparationTime()) : -1;
+        Map<String, Integer> cuisineFacets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<Integer, Integer> ratingFacets = new TreeMap<>(Comparator.reverseOrder());
+        Map<String, Integer> preparationTimeFacets = new LinkedHashMap<>();
+        DishSearchIndex.PREPARATION_TIME_BUCKETS.forEach(name -> preparationTimeFacets.put(name, 0));
+        List<DishSnapshot> matching = new ArrayList<>();
+        for (DishSnapshot dish : dishes) {
+            List<String> terms = new ArrayList<>(DishSearchIndex.tokenize(dish.name()));
+            terms.addAll(DishSearchIndex.tokenize(dish.cuisine()));
+            if (!tokens.stream().allMatch(token -> terms.stream().anyMatch(term -> term.startsWith(token)))) {
+                continue;
+            }
+            int dishBucket = DishSearchIndex.bucketOf(dish.preparationTime());
+            boolean cuisineOk = query.cuisine() == null || query.cuisine().equalsIgnoreCase(dish.cuisine());
+            boolean ratingOk = query.rating() == null || query.rating().equals(dish.rating());
+            boolean bucketOk = bucket < 0 || bucket == dishBucket;
+            if (ratingOk && bucketOk) {
+                cuisineFacets.merge(dish.cuisine(), 1, Integer::sum);
+            }
+            if (cuisineOk && bucketOk && dish.rating() != null) {
+                ratingFacets.merge(dish.rating(), 1, Integer::sum);
+            }
+            if (cuisineOk && ratingOk) {
+                preparationTimeFacets.merge(DishSearchIndex.PREPARATION_TIME_BUCKETS.get(dishBucket), 1, Integer::sum);
+            }
+            if (cuisineOk && ratingOk && bucketOk) {
+                matching.add(dish);
+            }
+        }
+        List<DishHit> hits = matching.stream()
+                .sorted(Comparator.comparingInt((DishSnapshot dish) -> DishSearchIndex.ratingSlot(dish.rating())).reversed())
+                .limit(query.limit())
+                .map(dish -> new DishHit(dish.id(), dish.dishId(), dish.name(), dish.cuisine(), dish.preparationTime(),
+                        dish.rating(), null))
+                .toList();
+        return new SearchResult(hits, matching.size(), cuisineFacets, ratingFacets, preparationTimeFacets);
+    }
+
+    private SearchResult search(String text) {
+        return this.index.search(new SearchQuery(text, null, null, null, 10));
+    }
+
+    private static List<Long> ids(SearchResult result) {
+        return result.hits().stream().map(DishHit::id).toList();
+    }
+
+    private static DishSnapshot dish(Long id, String name, String cuisine, int preparationTime, Integer rating,
+                                     Long chefId) {
+        return new DishSnapshot(id, "D" + id, name, cuisine, preparationTime, rating, chefId);
+    }
+}
@@ -0,0 +1,141 @@
+package mk.ukim.finki.wp.lab.service.snapshot;
+
+import mk.ukim.finki.wp.lab.model.event.ChefSnapshot;
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.projection.ChefSummary;
+import mk.ukim.finki.wp.lab.model.projection.DishSummary;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void dishPagesFollowTheIdCursorAndTheRatingFilter(boolean offHeap) {
+        CatalogSnapshot snapshot = snapshot(offHeap,
+                dish(1L, "Italian", 5, 1L),
+                dish(3L, "Thai", 4, 1L),
+                dish(4L, "Italian", 5, 2L),
+                dish(7L, null, null, null),
+                dish(9L, "Thai", 5, null));
+
+        assertThat(ids(snapshot.dishesAfter(null, 0L, 3))).containsExactly(1L, 3L, 4L);
+        assertThat(ids(snapshot.dishesAfter(null, 4L, 3))).containsExactly(7L, 9L);
+        assertThat(ids(snapshot.dishesAfter(5, 1L, 10))).containsExactly(4L, 9L);
+        assertThat(ids(snapshot.dishesAfter(5, 0L, 1))).containsExactly(1L);
+
+        DishSummary unrated = snapshot.dishesAfter(null, 4L, 1).get(0);
+        assertThat(unrated.getRating()).isNull();
+        assertThat(unrated.getCuisine()).isNull();
+        DishSummary first = snapshot.dishesAfter(null, 0L, 1).get(0);
+        assertThat(first.getDishId()).isEqualTo("D1");
+        assertThat(first.getName()).isEqualTo("Dish 1");
+        assertThat(first.getCuisine()).isEqualTo("Italian");
+        assertThat(first.getPreparationTime()).isEqualTo(10);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void outOfRangeRatingsAreKeptExactly(boolean offHeap) {
+        // 261 would wrap to 5 in a byte column, and -3 would not fit the rating index at all
+        CatalogSnapshot snapshot = snapshot(offHeap,
+                dish(1L, "Italian", 261, null),
+                dish(2L, "Italian", 5, null),
+                dish(3L, "Italian", -3, null),
+                dish(4L, "Italian", 261, null));
+
+        assertThat(ratings(snapshot.dishesAfter(null, 0L, 10))).containsExactly(261, 5, -3, 261);
+        assertThat(ids(snapshot.dishesAfter(5, 0L, 10))).containsExactly(2L);
+        assertThat(ids(snapshot.dishesAfter(261, 0L, 10))).containsExactly(1L, 4L);
+        assertThat(ids(snapshot.dishesAfter(261, 1L, 10))).containsExactly(4L);
+        assertThat(ids(snapshot.dishesAfter(-3, 0L, 10))).containsExactly(3L);
+
+        // Rows copied into a new snapshot keep their value too
+        CatalogSnapshot next = snapshot.apply(Map.of(2L, dish(2L, "Italian", 4, null)), Map.of());
+        assertThat(ratings(next.dishesAfter(null, 0L, 10))).containsExactly(261, 4, -3, 261);
+        assertThat(ids(next.dishesAfter(261, 0L, 10))).containsExactly(1L, 4L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void applyMergesInsertsUpdatesAndDeletes(boolean offHeap) {
+        CatalogSnapshot snapshot = snapshot(offHeap,
+                dish(2L, "Italian", 5, 1L),
+                dish(4L, "Thai", 3, 1L),
+                dish(6L, "Greek", 4, 2L));
+
+        Map<Long, DishSnapshot> dishes = new HashMap<>();
+        dishes.put(1L, dish(1L, "Nordic", 2, 2L));
+        dishes.put(4L, null);
+        dishes.put(6L, dish(6L, "Greek", 5, 1L));
+        dishes.put(8L, dish(8L, "Thai", 5, 3L));
+        Map<Long, ChefSnapshot> chefs = new HashMap<>();
+        chefs.put(3L, null);
+        chefs.put(2L, chef(2L, "Renamed"));
+        CatalogSnapshot next = snapshot.apply(dishes, chefs);
+
+        assertThat(ids(next.dishesAfter(null, 0L, 10))).containsExactly(1L, 2L, 6L, 8L);
+        assertThat(ids(next.dishesAfter(5, 0L, 10))).containsExactly(2L, 6L, 8L);
+        assertThat(next.dishCount()).isEqualTo(4);
+        assertThat(next.chefCount()).isEqualTo(2);
+        assertThat(next.findChef(3L)).isEmpty();
+        assertThat(next.findChef(2L)).get().extracting(ChefSummary::getFirstName).isEqualTo("Renamed");
+        // The previous snapshot is untouched
+        assertThat(ids(snapshot.dishesAfter(null, 0L, 10))).containsExactly(2L, 4L, 6L);
+        assertThat(snapshot.findChef(2L)).get().extracting(ChefSummary::getFirstName).isEqualTo("Chef");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void chefsAreRankedByTheirDishesInTheSnapshot(boolean offHeap) {
+        CatalogSnapshot snapshot = snapshot(offHeap,
+                dish(1L, "Italian", 5, 2L),
+                dish(2L, "Italian", 5, 2L),
+                dish(3L, "Thai", 5, 1L),
+                dish(4L, "Thai", 5, 3L),
+                dish(5L, "Thai", 5, 99L));
+
+        List<ChefSummary> ranked = snapshot.chefsRankedAfter(Integer.MAX_VALUE, 0L, 10);
+        assertThat(ranked).extracting(ChefSummary::getId).containsExactly(2L, 1L, 3L);
+        assertThat(ranked).extracting(ChefSummary::getDishCount).containsExactly(2, 1, 1);
+        assertThat(snapshot.chefsRankedAfter(1, 1L, 10)).extracting(ChefSummary::getId).containsExactly(3L);
+        assertThat(snapshot.findChef(99L)).isEmpty();
+
+        CatalogSnapshot next = snapshot.apply(Map.of(1L, dish(1L, "Italian", 5, 3L)), Map.of());
+        assertThat(next.chefsRankedAfter(Integer.MAX_VALUE, 0L, 10)).extracting(ChefSummary::getId)
+                .containsExactly(3L, 1L, 2L);
+    }
+
+    private static CatalogSnapshot snapshot(boolean offHeap, DishSnapshot... dishes) {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(offHeap, dishes.length);
+        for (long id = 1; id <= 3; id++) {
+            builder.addChef(chef(id, "Chef"));
+        }
+        for (DishSnapshot dish : dishes) {
+            builder.addDish(dish);
+        }
+        return builder.build();
+    }
+
+    private static List<Long> ids(List<DishSummary> dishes) {
+        return dishes.stream().map(DishSummary::getId).toList();
+    }
+
+    private static List<Integer> ratings(List<DishSummary> dishes) {
+        return dishes.stream().map(DishSummary::getRating).toList();
+    }
+
+    private static DishSnapshot dish(Long id, String cuisine, Integer rating, Long chefId) {
+        return new DishSnapshot(id, "D" + id, "Dish " + id, cuisine, 10, rating, chefId);
+    }
+
+    private static ChefSnapshot chef(Long id, String firstName) {
+        return new ChefSnapshot(id, firstName, "No. " + id, "bio");
+    }
+}
@@ -0,0 +1,109 @@
+package mk.ukim.finki.wp.lab.service.stats;
+
+import mk.ukim.finki.wp.lab.model.event.DishSnapshot;
+import mk.ukim.finki.wp.lab.model.stats.CatalogOverview;
+import mk.ukim.finki.wp.lab.model.stats.ChefStats;
+import mk.ukim.finki.wp.lab.model.stats.CuisineStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.within;
+
+class CatalogStatisticsTest {
+
+    private static final String[] CUISINES = {"Italian", "Mexican", "Thai", null};
+
+    private final CatalogStatistics statistics = new CatalogStatistics();
+
+    @Test
+    void dishesAreCountedByRatingCuisineAndChef() {
+        this.statistics.apply(null, dish(1L, "Italian", 20, 5, 1L));
+        this.statistics.apply(null, dish(2L, "Italian", 40, 3, 1L));
+        this.statistics.apply(null, dish(3L, "Thai", 30, null, 2L));
+        this.statistics.apply(null, dish(4L, null, 10, 9, null));
+
+        CatalogOverview overview = this.statistics.overview();
+        assertThat(overview.dishes()).isEqualTo(4);
+        assertThat(overview.averagePreparationTime()).isCloseTo(25.0, within(1e-9));
+        // Out-of-range ratings count with the unrated dishes
+        assertThat(overview.unrated()).isEqualTo(2);
+        assertThat(overview.ratingCounts()).containsExactly(entry(1, 0L), entry(2, 0L), entry(3, 1L), entry(4, 0L),
+                entry(5, 1L));
+        assertThat(overview.cuisines()).containsExactly(new CuisineStats("Italian", 2, 30.0),
+                new CuisineStats("", 1, 10.0), new CuisineStats("Thai", 1, 30.0));
+
+        ChefStats chef = this.statistics.chefStats(1L);
+        assertThat(chef.dishes()).isEqualTo(2);
+        assertThat(chef.averagePreparationTime()).isCloseTo(30.0, within(1e-9));
+        assertThat(chef.ratingHistogram()).containsExactly(0, 0, 0, 1, 0, 1);
+        assertThat(this.statistics.chefStats(99L).dishes()).isZero();
+    }
+
+    @Test
+    void updatesMoveADishBetweenGroupsAndDeletesDropEmptyOnes() {
+        DishSnapshot created = dish(1L, "Italian", 20, 5, 1L);
+        DishSnapshot moved = dish(1L, "Thai", 50, 2, 2L);
+        this.statistics.apply(null, created);
+        this.statistics.apply(null, dish(2L, "Thai", 10, 2, 2L));
+
+        this.statistics.apply(created, moved);
+
+        CatalogOverview overview = this.statistics.overview();
+        assertThat(overview.dishes()).isEqualTo(2);
+        assertThat(overview.ratingCounts()).containsEntry(5, 0L).containsEntry(2, 2L);
+        assertThat(overview.cuisines()).containsExactly(new CuisineStats("Thai", 2, 30.0));
+        assertThat(this.statistics.chefStats(1L).dishes()).isZero();
+        assertThat(this.statistics.chefStats(2L).dishes()).isEqualTo(2);
+
+        this.statistics.apply(moved, null);
+        this.statistics.apply(dish(2L, "Thai", 10, 2, 2L), null);
+
+        assertThat(this.statistics.overview().dishes()).isZero();
+        assertThat(this.statistics.overview().averagePreparationTime()).isZero();
+        assertThat(this.statistics.overview().cuisines()).isEmpty();
+        assertThat(this.statistics.chefStats(2L).dishes()).isZero();
+    }
+
+    // A long run of creates, edits and deletes applied as deltas must end where counting the final catalog does
+    @Test
+    void deltasAgreeWithCountingTheFinalCatalog() {
+        Random random = new Random(11);
+        Map<Long, DishSnapshot> catalog = new HashMap<>();
+        for (int change = 0; change < 5000; change++) {
+            long id = 1 + random.nextInt(400);
+            DishSnapshot after = random.nextInt(4) == 0 ? null : randomDish(random, id);
+            DishSnapshot before = after != null ? catalog.put(id, after) : catalog.remove(id);
+            this.statistics.apply(before, after);
+        }
+
+        CatalogStatistics counted = new CatalogStatistics();
+        catalog.values().forEach(dish -> counted.apply(null, dish));
+        assertSameStatistics(this.statistics.overview(), this.statistics::chefStats, counted);
+    }
+
+    // The sums are whole numbers either way, so the averages come out identical
+    private static void assertSameStatistics(CatalogOverview overview, LongFunction<ChefStats> chefStats,
+                                             CatalogStatistics expected) {
+        assertThat(overview).isEqualTo(expected.overview());
+        for (long chefId = 1; chefId <= 8; chefId++) {
+            assertThat(chefStats.apply(chefId)).as("chef %d", chefId).usingRecursiveComparison()
+                    .isEqualTo(expected.chefStats(chefId));
+        }
+    }
+
+    private static DishSnapshot randomDish(Random random, long id) {
+        Integer rating = random.nextInt(6) == 0 ? null : 1 + random.nextInt(5);
+        Long chefId = random.nextInt(8) == 0 ? null : 1L + random.nextInt(8);
+        return dish(id, CUISINES[random.nextInt(CUISINES.length)], random.nextInt(120), rating, chefId);
+    }
+
+    private static DishSnapshot dish(Long id, String cuisine, int preparationTime, Integer rating, Long chefId) {
+        return new DishSnapshot(id, "D" + id, "Dish " + id, cuisine, preparationTime, rating, chefId);
+    }
+}
@@ -0,0 +1,111 @@
+package mk.ukim.finki.wp.lab.service.writebehind;
+
+import mk.ukim.finki.wp.lab.model.writebehind.DishEdit;
+import mk.ukim.finki.wp.lab.model.writebehind.PendingWrite;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingWriteQueueTest {
+
+    private final List<PendingWrite> accepted = new ArrayList<>();
+    private final CoalescingWriteQueue queue = new CoalescingWriteQueue(2, this.accepted::add);
+
+    @Test
+    void aStaleEditDoesNotReplaceAQueuedOne() throws InterruptedException {
+        assertThat(offer(edit(1L, "A"), 3L, 3)).isEqualTo(CoalescingWriteQueue.Offer.QUEUED);
+
+        // B's form was rendered before A's edit, so it still carries the stored version
+        assertThat(offer(edit(1L, "B"), 3L, 3)).isEqualTo(CoalescingWriteQueue.Offer.CONFLICT);
+
+        assertThat(this.queue.get(DishEdit.keyOf(1L))).get()
+                .extracting(write -> ((DishEdit) write).name()).isEqualTo("A");
+        assertThat(this.accepted).hasSize(1);
+    }
+
+    @Test
+    void coalescingKeepsTheBaseVersionAndMovesTheRevisionOn() throws InterruptedException {
+        offer(edit(1L, "A"), 3L, 3);
+
+        assertThat(offer(edit(1L, "C"), 4L, 3)).isEqualTo(CoalescingWriteQueue.Offer.COALESCED);
+
+        PendingWrite queued = this.queue.get(DishEdit.keyOf(1L)).orElseThrow();
+        assertThat(((DishEdit) queued).name()).isEqualTo("C");
+        assertThat(queued.version()).isEqualTo(3L);
+        assertThat(queued.revision()).isEqualTo(5L);
+        // A form rendered from A's edit is now stale as well
+        assertThat(offer(edit(1L, "D"), 4L, 3)).isEqualTo(CoalescingWriteQueue.Offer.CONFLICT);
+        assertThat(this.queue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void anEditOnTopOfAnInFlightOneIsChainedBehindIt() throws InterruptedException {
+        offer(edit(1L, "A"), 3L, 3);
+        List<PendingWrite> batch = this.queue.drain(10, 0, TimeUnit.NANOSECONDS);
+
+        // The row still says 3 while A is being written, but A's form would be rendered at its revision
+        assertThat(offer(edit(1L, "B"), 3L, 3)).isEqualTo(CoalescingWriteQueue.Offer.CONFLICT);
+        assertThat(offer(edit(1L, "C"), 4L, 3)).isEqualTo(CoalescingWriteQueue.Offer.CHAINED);
+
+        PendingWrite chained = this.queue.get(DishEdit.keyOf(1L)).orElseThrow();
+        assertThat(chained.version()).isEqualTo(4L);
+        assertThat(chained.revision()).isEqualTo(5L);
+        // Not handed out again until the edit in front of it is written
+        assertThat(this.queue.drain(10, 0, TimeUnit.NANOSECONDS)).isEmpty();
+
+        this.queue.complete(batch);
+        assertThat(this.queue.drain(10, 0, TimeUnit.NANOSECONDS)).containsExactly(chained);
+    }
+
+    @Test
+    void aFailedEditIsHeldUntilReplacedOrRemoved() throws InterruptedException {
+        offer(edit(1L, "A"), 3L, 3);
+        List<PendingWrite> batch = this.queue.drain(10, 0, TimeUnit.NANOSECONDS);
+        this.queue.fail(batch.get(0));
+        this.queue.complete(batch);
+
+        assertThat(this.queue.get(DishEdit.keyOf(1L))).isEmpty();
+        assertThat(this.queue.failed(DishEdit.keyOf(1L))).contains(batch.get(0));
+        assertThat(this.queue.failedCount()).isEqualTo(1);
+
+        // Resubmitting against the stored row supersedes it
+        assertThat(offer(edit(1L, "B"), 7L, 7)).isEqualTo(CoalescingWriteQueue.Offer.QUEUED);
+        assertThat(this.queue.failed(DishEdit.keyOf(1L))).isEmpty();
+
+        this.queue.fail(edit(2L, "E").withVersions(1L, 2L));
+        assertThat(this.queue.remove(DishEdit.keyOf(2L))).isFalse();
+        assertThat(this.queue.failedCount()).isZero();
+    }
+
+    @Test
+    void aFullQueueStillCoalescesButRejectsNewEntities() throws InterruptedException {
+        offer(edit(1L, "A"), null, 1);
+        offer(edit(2L, "B"), null, 1);
+
+        assertThat(offer(edit(1L, "A2"), null, 1)).isEqualTo(CoalescingWriteQueue.Offer.COALESCED);
+        assertThat(offer(edit(3L, "C"), null, 1)).isEqualTo(CoalescingWriteQueue.Offer.FULL);
+    }
+
+    @Test
+    void requeueKeepsTheJournaledVersions() throws InterruptedException {
+        this.queue.requeue(edit(1L, "A").withVersions(3L, 4L), 0, TimeUnit.NANOSECONDS);
+        this.queue.requeue(edit(1L, "C").withVersions(4L, 5L), 0, TimeUnit.NANOSECONDS);
+
+        PendingWrite queued = this.queue.get(DishEdit.keyOf(1L)).orElseThrow();
+        assertThat(((DishEdit) queued).name()).isEqualTo("C");
+        assertThat(queued.version()).isEqualTo(3L);
+        assertThat(queued.revision()).isEqualTo(5L);
+    }
+
+    private CoalescingWriteQueue.Offer offer(DishEdit edit, Long expected, long stored) throws InterruptedException {
+        return this.queue.offer(edit, expected, stored, 0, TimeUnit.NANOSECONDS);
+    }
+
+    private static DishEdit edit(Long id, String name) {
+        return new DishEdit(id, "D" + id, name, "Italian", 10, null, 4, null, null);
+    }
+}
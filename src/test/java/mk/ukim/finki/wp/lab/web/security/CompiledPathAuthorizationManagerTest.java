@@ -0,0 +1,146 @@
+package mk.ukim.finki.wp.lab.web.security;
+
+import mk.ukim.finki.wp.lab.config.SecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The compiled lookup replaces the matcher chain in performance mode, so for every rule it must decide exactly
+// as the chain SecurityConfig builds from the same rules otherwise
+class CompiledPathAuthorizationManagerTest {
+
+    private static final List<String> METHODS = List.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS");
+    private static final List<Authentication> USERS = List.of(
+            new AnonymousAuthenticationToken("key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")),
+            authenticated("user", "ROLE_USER"),
+            authenticated("admin", "ROLE_ADMIN"));
+
+    private final CompiledPathAuthorizationManager compiled =
+            new CompiledPathAuthorizationManager(SecurityConfig.PATH_RULES);
+    private final RequestMatcherDelegatingAuthorizationManager chain = chain(SecurityConfig.PATH_RULES);
+
+    @Test
+    void everyRuleDecidesAsTheMatcherChainDoes() {
+        List<String> disagreements = new ArrayList<>();
+        for (String path : representativePaths()) {
+            for (String method : METHODS) {
+                for (boolean asPathInfo : new boolean[]{false, true}) {
+                    MockHttpServletRequest request = request(method, path, asPathInfo);
+                    PathRule.Access expected = firstMatch(request);
+                    PathRule.Access actual = this.compiled.lookup(path, method);
+                    if (expected != actual) {
+                        disagreements.add(method + " " + path + ": rule " + actual + ", matchers " + expected);
+                    }
+                    for (Authentication user : USERS) {
+                        RequestAuthorizationContext context = new RequestAuthorizationContext(request);
+                        boolean granted = this.compiled.check(() -> user, context).isGranted();
+                        boolean chainGranted = this.chain.check(() -> user, request).isGranted();
+                        if (granted != chainGranted) {
+                            disagreements.add(method + " " + path + " as " + user.getName() + ": granted "
+                                    + granted + ", matchers " + chainGranted);
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(disagreements).isEmpty();
+    }
+
+    @Test
+    void theEarliestMatchingRuleWins() {
+        CompiledPathAuthorizationManager manager = new CompiledPathAuthorizationManager(List.of(
+                PathRule.permitAll("/api/**", "GET"),
+                PathRule.admin("/api/**"),
+                PathRule.permitAll("/api/public")));
+
+        assertThat(manager.lookup("/api/public", "GET")).isEqualTo(PathRule.Access.PERMIT_ALL);
+        assertThat(manager.lookup("/api/public", "POST")).isEqualTo(PathRule.Access.ADMIN);
+        assertThat(manager.lookup("/api", "DELETE")).isEqualTo(PathRule.Access.ADMIN);
+        assertThat(manager.lookup("/apis", "GET")).isNull();
+    }
+
+    @Test
+    void patternsTheLookupCannotCompileAreRefused() {
+        for (String pattern : List.of("/dishes/*", "/dishes/**/edit", "/dish?", "/dishes/{id}", "dishes")) {
+            assertThatThrownBy(() -> new CompiledPathAuthorizationManager(List.of(PathRule.admin(pattern))))
+                    .as(pattern)
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    // Each rule's own path, its neighbours above, below and beside it, and variants differing in case or slashes
+    private static Set<String> representativePaths() {
+        Set<String> paths = new TreeSet<>(List.of("/", "/unknown", "/login", "/logout", "/dishes/dish-form",
+                "/admin/api/dishes", "//dishes", "/dishes//all", "/dishes//", "///", "/admin//users",
+                "//admin/users"));
+        for (PathRule rule : SecurityConfig.PATH_RULES) {
+            String path = rule.pattern().endsWith("/**")
+                    ? rule.pattern().substring(0, rule.pattern().length() - 3) : rule.pattern();
+            paths.add(path);
+            paths.add(path + "/");
+            paths.add(path + "/1");
+            paths.add(path + "/1/edit");
+            paths.add(path + "x");
+            paths.add(path.toUpperCase(Locale.ROOT));
+            int parent = path.lastIndexOf('/');
+            paths.add(parent > 0 ? path.substring(0, parent) : "/");
+        }
+        paths.remove("");
+        return paths;
+    }
+
+    // The rule SecurityConfig's matcher chain would apply, found the way the chain finds it
+    private static PathRule.Access firstMatch(MockHttpServletRequest request) {
+        for (PathRule rule : SecurityConfig.PATH_RULES) {
+            if (rule.matcher().matches(request)) {
+                return rule.access();
+            }
+        }
+        return null;
+    }
+
+    private static RequestMatcherDelegatingAuthorizationManager chain(List<PathRule> rules) {
+        AuthorizationManager<RequestAuthorizationContext> permitAll =
+                (user, context) -> new AuthorizationDecision(true);
+        RequestMatcherDelegatingAuthorizationManager.Builder builder =
+                RequestMatcherDelegatingAuthorizationManager.builder();
+        for (PathRule rule : rules) {
+            builder.add(rule.matcher(), rule.access() == PathRule.Access.ADMIN
+                    ? AuthorityAuthorizationManager.hasRole("ADMIN") : permitAll);
+        }
+        return builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated()).build();
+    }
+
+    // Requests to the dispatcher carry the path as the servlet path; those to a path-mapped servlet as path info
+    private static MockHttpServletRequest request(String method, String path, boolean asPathInfo) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (asPathInfo) {
+            request.setServletPath("");
+            request.setPathInfo(path);
+        } else {
+            request.setServletPath(path);
+        }
+        return request;
+    }
+
+    private static Authentication authenticated(String name, String role) {
+        TestingAuthenticationToken token = new TestingAuthenticationToken(name, "password", role);
+        token.setAuthenticated(true);
+        return token;
+    }
+}